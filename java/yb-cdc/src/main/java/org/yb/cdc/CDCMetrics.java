@@ -0,0 +1,234 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.cdc;
+
+import org.apache.log4j.Logger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-tablet progress and lag of the connector. The lag of a tablet is how far its checkpoint is
+ * behind the latest entry in the leader's log, counted in log entries. Batch sizes and the
+ * latency from polling a batch to the sink acknowledging it are tracked across all tablets.
+ */
+public class CDCMetrics {
+  private static final Logger LOG = Logger.getLogger(CDCMetrics.class);
+
+  private final Map<String, TabletMetrics> tablets = new ConcurrentSkipListMap<>();
+
+  private final Histogram batchSize = new Histogram();
+
+  private final Histogram pollToApplyLatencyMs = new Histogram();
+
+  private final AtomicLong recordsApplied = new AtomicLong();
+
+  private long lastReportRecords = 0;
+
+  private long lastReportNanos = System.nanoTime();
+
+  public TabletMetrics forTablet(String tabletId) {
+    return tablets.computeIfAbsent(tabletId, TabletMetrics::new);
+  }
+
+  public void removeTablet(String tabletId) {
+    tablets.remove(tabletId);
+  }
+
+  public Map<String, TabletMetrics> getTablets() {
+    return tablets;
+  }
+
+  /**
+   * Records a batch acknowledged by the sink.
+   * @param numRecords the number of records in the batch
+   * @param latencyMs the time from sending the poll that returned the batch to the ack
+   */
+  public void onBatchApplied(int numRecords, long latencyMs) {
+    recordsApplied.addAndGet(numRecords);
+    batchSize.observe(numRecords);
+    pollToApplyLatencyMs.observe(latencyMs);
+  }
+
+  public Histogram getBatchSize() {
+    return batchSize;
+  }
+
+  public Histogram getPollToApplyLatencyMs() {
+    return pollToApplyLatencyMs;
+  }
+
+  public long getRecordsApplied() {
+    return recordsApplied.get();
+  }
+
+  /**
+   * Logs the throughput since the last report, the histograms and one line per tablet.
+   */
+  public synchronized void report() {
+    long now = System.nanoTime();
+    long records = recordsApplied.get();
+    double seconds = (now - lastReportNanos) / 1e9;
+    if (seconds > 0) {
+      LOG.info(String.format("records_per_sec=%.1f batch_size={%s} poll_to_apply_ms={%s}",
+                             (records - lastReportRecords) / seconds, batchSize,
+                             pollToApplyLatencyMs));
+    }
+    lastReportRecords = records;
+    lastReportNanos = now;
+    for (TabletMetrics metrics : tablets.values()) {
+      LOG.info(metrics.toString());
+    }
+  }
+
+  /**
+   * Histogram with power-of-two buckets. Percentiles are reported as the upper bound of the
+   * bucket they fall in.
+   */
+  public static class Histogram {
+    private static final int NUM_BUCKETS = 40;
+
+    // Bucket i holds the values in [2^(i-1), 2^i), bucket 0 holds 0.
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+
+    public void observe(long value) {
+      value = Math.max(0, value);
+      int bucket = Math.min(NUM_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+      buckets.incrementAndGet(bucket);
+      count.incrementAndGet();
+      sum.addAndGet(value);
+    }
+
+    public long getCount() {
+      return count.get();
+    }
+
+    public double getMean() {
+      long n = count.get();
+      return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return an upper bound of the given percentile of the observed values
+     */
+    public long getPercentile(double percentile) {
+      long n = count.get();
+      if (n == 0) {
+        return 0;
+      }
+      long rank = (long) Math.ceil(n * percentile / 100);
+      long seen = 0;
+      for (int i = 0; i < NUM_BUCKETS; i++) {
+        seen += buckets.get(i);
+        if (seen >= rank) {
+          return i == 0 ? 0 : (1L << i) - 1;
+        }
+      }
+      return Long.MAX_VALUE;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("count=%d mean=%.1f p50=%d p99=%d", getCount(), getMean(),
+                           getPercentile(50), getPercentile(99));
+    }
+  }
+
+  public static class TabletMetrics {
+    private final String tabletId;
+    private final AtomicLong polls = new AtomicLong();
+    private final AtomicLong pollErrors = new AtomicLong();
+    private final AtomicLong emptyPolls = new AtomicLong();
+    private final AtomicLong inFlightBatches = new AtomicLong();
+    private final AtomicLong recordsApplied = new AtomicLong();
+    private final AtomicLong lastBatchRecords = new AtomicLong();
+    private final AtomicLong checkpointIndex = new AtomicLong();
+    private final AtomicLong latestIndex = new AtomicLong();
+
+    TabletMetrics(String tabletId) {
+      this.tabletId = tabletId;
+    }
+
+    public void onPoll() {
+      polls.incrementAndGet();
+    }
+
+    public void onPollError() {
+      pollErrors.incrementAndGet();
+    }
+
+    public void onEmptyPoll() {
+      emptyPolls.incrementAndGet();
+    }
+
+    public void setInFlightBatches(int numBatches) {
+      inFlightBatches.set(numBatches);
+    }
+
+    public void onBatchApplied(int numRecords, OpId checkpoint) {
+      recordsApplied.addAndGet(numRecords);
+      lastBatchRecords.set(numRecords);
+      checkpointIndex.set(checkpoint.getIndex());
+    }
+
+    public void setLatestOpId(OpId latest) {
+      latestIndex.set(latest.getIndex());
+    }
+
+    public long getPolls() {
+      return polls.get();
+    }
+
+    public long getPollErrors() {
+      return pollErrors.get();
+    }
+
+    public long getRecordsApplied() {
+      return recordsApplied.get();
+    }
+
+    public long getEmptyPolls() {
+      return emptyPolls.get();
+    }
+
+    public long getInFlightBatches() {
+      return inFlightBatches.get();
+    }
+
+    public long getLastBatchRecords() {
+      return lastBatchRecords.get();
+    }
+
+    /**
+     * @return the number of log entries between the checkpoint and the end of the leader's log
+     */
+    public long getOpIdLag() {
+      return Math.max(0, latestIndex.get() - checkpointIndex.get());
+    }
+
+    @Override
+    public String toString() {
+      return String.format("tablet=%s polls=%d empty_polls=%d errors=%d records_applied=%d " +
+                           "last_batch=%d in_flight=%d checkpoint_index=%d op_id_lag=%d",
+                           tabletId, getPolls(), getEmptyPolls(), getPollErrors(),
+                           getRecordsApplied(), getLastBatchRecords(), getInFlightBatches(),
+                           checkpointIndex.get(), getOpIdLag());
+    }
+  }
+}
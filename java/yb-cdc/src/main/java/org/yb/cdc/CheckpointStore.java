@@ -0,0 +1,40 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.cdc;
+
+import java.io.IOException;
+
+/**
+ * Keeps the last checkpoint of each (stream, tablet) pair, so that a restarted connector resumes
+ * where it left off. Updates are buffered in memory and only made durable by {@link #flush()},
+ * which writes all of them at once.
+ */
+public interface CheckpointStore {
+  /**
+   * @return the last checkpoint of the tablet in the stream, or {@link OpId#INVALID} if there is
+   *         none
+   */
+  OpId get(String streamId, String tabletId);
+
+  /**
+   * Records a new checkpoint for the tablet in the stream. It is durable after the next flush.
+   */
+  void update(String streamId, String tabletId, OpId checkpoint);
+
+  /**
+   * Atomically persists all the checkpoints: after a crash the store holds either all the
+   * checkpoints of a flush or none of them.
+   */
+  void flush() throws IOException;
+}
@@ -20,25 +20,68 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.log4j.Logger;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class CmdLineOpts {
 
   private static final String DEFAULT_MASTER_ADDRS = "127.0.0.1:7100";
+  private static final String DEFAULT_CHECKPOINT_FILE = "yb_cdc_checkpoints";
+  private static final int DEFAULT_MIN_NUM_THREADS = 8;
+  private static final long DEFAULT_TABLET_REFRESH_INTERVAL_MS = 30000;
+  private static final String DEFAULT_SINK = "log";
+  private static final String DEFAULT_SINK_DIR = "yb_cdc_output";
 
   private static final Logger LOG = Logger.getLogger(CmdLineOpts.class);
 
-  public String tableName;
-  public String namespaceName;
+  public static class TableName {
+    public final String namespaceName;
+    public final String tableName;
+
+    TableName(String namespaceName, String tableName) {
+      this.namespaceName = namespaceName;
+      this.tableName = tableName;
+    }
+
+    @Override
+    public String toString() {
+      return namespaceName + "." + tableName;
+    }
+  }
+
+  public List<TableName> tables = new ArrayList<>();
   public String masterAddrs = DEFAULT_MASTER_ADDRS;
-  public String streamId = "";
+  // One per table, in the same order, or empty to create new streams.
+  public List<String> streamIds = new ArrayList<>();
+  public String checkpointFile = DEFAULT_CHECKPOINT_FILE;
+  public int numThreads =
+      Math.max(DEFAULT_MIN_NUM_THREADS, 2 * Runtime.getRuntime().availableProcessors());
+  public long tabletRefreshIntervalMs = DEFAULT_TABLET_REFRESH_INTERVAL_MS;
+  public String sink = DEFAULT_SINK;
+  public String sinkDir = DEFAULT_SINK_DIR;
+  public SinkConfig sinkConfig = new SinkConfig();
 
   public static CmdLineOpts createFromArgs(String[] args) throws Exception {
     Options options = new Options();
 
     options.addOption("master_addrs", true, "List of YB master ips to contact");
     options.addOption("table_name", true,
-            "Table to get change capture from in format <namespace>.<table>");
+            "Comma-separated tables to get change capture from in format <namespace>.<table>");
     options.addOption("stream_id", true,
-            "Optional stream ID. Use this if you already have a CDC stream set up on the table");
+            "Optional comma-separated stream IDs, one per table. Use this if you already have " +
+            "CDC streams set up on the tables");
+    options.addOption("num_threads", true,
+            "Number of threads polling the tablets and applying their changes");
+    options.addOption("tablet_refresh_interval_ms", true,
+            "How often to look for tablets that were added to or removed from the tables");
+    options.addOption("sink", true, "Where to write the changes: log or file");
+    options.addOption("sink_dir", true, "Directory the file sink writes to");
+    options.addOption("sink_sync_policy", true,
+            "When the file sink syncs its files: never, interval or every_batch");
+    options.addOption("sink_batch_bytes", true,
+            "Bytes the file sink buffers per tablet before writing them out");
+    options.addOption("checkpoint_file", true,
+            "File the connector keeps its checkpoints in, to resume from after a restart");
 
     // Do the actual arg parsing.
     CommandLineParser parser = new BasicParser();
@@ -71,18 +114,58 @@ public class CmdLineOpts {
       LOG.info("Defaulting master_addrs to 127.0.0.1:7100");
     }
 
-    String[] fullTableName = getRequiredOptionValue(commandLine, "table_name").split("\\.");
+    for (String table : getRequiredOptionValue(commandLine, "table_name").split(",")) {
+      String[] fullTableName = table.trim().split("\\.");
 
-    if (fullTableName.length != 2) {
-      throw new Exception(String.format("Expected a namespace and table name for --table_name in" +
-                                        " format <namespace>.<table>"));
-    }
+      if (fullTableName.length != 2) {
+        throw new Exception(String.format("Expected a namespace and table name for --table_name " +
+                                          "in format <namespace>.<table>"));
+      }
 
-    namespaceName = fullTableName[0];
-    tableName = fullTableName[1];
+      tables.add(new TableName(fullTableName[0], fullTableName[1]));
+    }
 
     if (commandLine.hasOption("stream_id")) {
-      streamId = commandLine.getOptionValue("stream_id");
+      for (String streamId : commandLine.getOptionValue("stream_id").split(",")) {
+        streamIds.add(streamId.trim());
+      }
+      if (streamIds.size() != tables.size()) {
+        throw new Exception(String.format("Expected one stream ID per table, got %d for %d " +
+                                          "tables", streamIds.size(), tables.size()));
+      }
+    }
+
+    if (commandLine.hasOption("num_threads")) {
+      numThreads = Integer.parseInt(commandLine.getOptionValue("num_threads"));
+    }
+
+    if (commandLine.hasOption("tablet_refresh_interval_ms")) {
+      tabletRefreshIntervalMs =
+          Long.parseLong(commandLine.getOptionValue("tablet_refresh_interval_ms"));
+    }
+
+    if (commandLine.hasOption("sink")) {
+      sink = commandLine.getOptionValue("sink");
+      if (!sink.equals("log") && !sink.equals("file")) {
+        throw new Exception(String.format("Unknown sink %s, expected log or file", sink));
+      }
+    }
+
+    if (commandLine.hasOption("sink_dir")) {
+      sinkDir = commandLine.getOptionValue("sink_dir");
+    }
+
+    if (commandLine.hasOption("sink_sync_policy")) {
+      sinkConfig.syncPolicy = SinkConfig.SyncPolicy.valueOf(
+          commandLine.getOptionValue("sink_sync_policy").toUpperCase());
+    }
+
+    if (commandLine.hasOption("sink_batch_bytes")) {
+      sinkConfig.batchBytes = Long.parseLong(commandLine.getOptionValue("sink_batch_bytes"));
+    }
+
+    if (commandLine.hasOption("checkpoint_file")) {
+      checkpointFile = commandLine.getOptionValue("checkpoint_file");
     }
 
   }
@@ -0,0 +1,100 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.cdc;
+
+import org.apache.log4j.Logger;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Checkpoint store backed by a local file. A flush writes every checkpoint to a temporary file,
+ * syncs it and renames it over the previous one, so the file is never partially written.
+ */
+public class FileCheckpointStore implements CheckpointStore {
+  private static final Logger LOG = Logger.getLogger(FileCheckpointStore.class);
+
+  private final Path path;
+  private final Path tmpPath;
+
+  // Keyed by "<stream>/<tablet>", sorted so that the file is easy to read.
+  private final Map<String, OpId> checkpoints = new TreeMap<>();
+
+  private boolean dirty = false;
+
+  public FileCheckpointStore(String fileName) throws IOException {
+    this.path = Paths.get(fileName).toAbsolutePath();
+    this.tmpPath = Paths.get(path.toString() + ".tmp");
+    load();
+  }
+
+  private void load() throws IOException {
+    if (!Files.exists(path)) {
+      LOG.info(String.format("No checkpoint file at %s, starting from scratch", path));
+      return;
+    }
+    Properties props = new Properties();
+    try (InputStream in = Files.newInputStream(path)) {
+      props.load(in);
+    }
+    for (String key : props.stringPropertyNames()) {
+      checkpoints.put(key, OpId.fromString(props.getProperty(key)));
+    }
+    LOG.info(String.format("Loaded %d checkpoints from %s", checkpoints.size(), path));
+  }
+
+  private static String key(String streamId, String tabletId) {
+    return streamId + "/" + tabletId;
+  }
+
+  @Override
+  public synchronized OpId get(String streamId, String tabletId) {
+    OpId checkpoint = checkpoints.get(key(streamId, tabletId));
+    return checkpoint == null ? OpId.INVALID : checkpoint;
+  }
+
+  @Override
+  public synchronized void update(String streamId, String tabletId, OpId checkpoint) {
+    OpId old = checkpoints.put(key(streamId, tabletId), checkpoint);
+    if (!checkpoint.equals(old)) {
+      dirty = true;
+    }
+  }
+
+  @Override
+  public synchronized void flush() throws IOException {
+    if (!dirty) {
+      return;
+    }
+    Properties props = new Properties();
+    for (Map.Entry<String, OpId> entry : checkpoints.entrySet()) {
+      props.setProperty(entry.getKey(), entry.getValue().toString());
+    }
+    try (FileOutputStream out = new FileOutputStream(tmpPath.toFile())) {
+      props.store(out, "CDC checkpoints, <stream>/<tablet>=<term>.<index>");
+      out.getFD().sync();
+    }
+    Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING,
+               StandardCopyOption.ATOMIC_MOVE);
+    dirty = false;
+  }
+}
@@ -0,0 +1,285 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.cdc;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.protobuf.CodedOutputStream;
+import org.apache.log4j.Logger;
+import org.yb.client.YBTable;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Sink writing the changes to gzip compressed files, with a directory per tablet. Each record is
+ * written as its varint length followed by the serialized CDCRecordPB, so the files can be read
+ * back with {@code CDCRecordPB.parseDelimitedFrom}. A tablet's file is closed and a new one
+ * started once it holds rollBytes of records.
+ * <p>
+ * Writes are buffered per tablet and flushed once batchBytes are buffered, or once the oldest
+ * buffered batch waited lingerMs. Batches are acknowledged after their flush, and after the sync
+ * too with the EVERY_BATCH policy. A file that wasn't closed cleanly has no gzip trailer, but the
+ * batches flushed to it can still be read. If a write fails, the tablet's unflushed batches fail
+ * and the next batch starts a new file.
+ */
+public class FileSink implements OutputClient, Closeable {
+  private static final Logger LOG = Logger.getLogger(FileSink.class);
+
+  private static final String FILE_SUFFIX = ".cdc.gz";
+  private static final String DEFAULT_PARTITION = "default";
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final Path directory;
+  private final SinkConfig config;
+  private final SinkMetrics metrics = new SinkMetrics("file");
+  private final ConcurrentHashMap<String, Partition> partitions = new ConcurrentHashMap<>();
+  private final AtomicLong fileCounter = new AtomicLong();
+  private final ScheduledExecutorService flusher;
+
+  public FileSink(String directory, SinkConfig config) throws IOException {
+    this.directory = Paths.get(directory);
+    Files.createDirectories(this.directory);
+    this.config = config;
+    this.flusher = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("cdc-file-sink-%d").setDaemon(true).build());
+    long lingerTickMs = Math.max(1, config.lingerMs);
+    flusher.scheduleWithFixedDelay(this::flushLingering, lingerTickMs, lingerTickMs,
+                                   TimeUnit.MILLISECONDS);
+    if (config.syncPolicy == SinkConfig.SyncPolicy.INTERVAL) {
+      flusher.scheduleWithFixedDelay(this::syncAll, config.syncIntervalMs,
+                                     config.syncIntervalMs, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  public SinkMetrics getMetrics() {
+    return metrics;
+  }
+
+  @Override
+  public void applyChange(YBTable table, CdcService.CDCRecordPB changeRecord) throws Exception {
+    applyChanges(table, DEFAULT_PARTITION, Collections.singletonList(changeRecord)).get();
+  }
+
+  @Override
+  public CompletableFuture<Void> applyChanges(YBTable table, String tabletId,
+                                              List<CdcService.CDCRecordPB> records) {
+    CompletableFuture<Void> ack = new CompletableFuture<>();
+    Partition partition = partitions.computeIfAbsent(tabletId, Partition::new);
+    synchronized (partition) {
+      try {
+        partition.write(records, ack);
+      } catch (IOException e) {
+        LOG.error(String.format("Writing changes of tablet %s failed", tabletId), e);
+        metrics.onError();
+        partition.abandonFile();
+        partition.failPending(e);
+        ack.completeExceptionally(e);
+        return ack;
+      }
+      if (partition.pendingBytes >= config.batchBytes || config.lingerMs <= 0) {
+        partition.flush();
+      }
+    }
+    return ack;
+  }
+
+  private void flushLingering() {
+    long now = System.nanoTime();
+    for (Partition partition : partitions.values()) {
+      synchronized (partition) {
+        if (!partition.pendingAcks.isEmpty() &&
+            now - partition.pendingSinceNanos >= TimeUnit.MILLISECONDS.toNanos(config.lingerMs)) {
+          partition.flush();
+        }
+      }
+    }
+  }
+
+  private void syncAll() {
+    for (Partition partition : partitions.values()) {
+      synchronized (partition) {
+        try {
+          partition.sync();
+        } catch (IOException e) {
+          LOG.error(String.format("Syncing changes of tablet %s failed", partition.tabletId), e);
+          metrics.onError();
+        }
+      }
+    }
+  }
+
+  /**
+   * Flushes the buffered batches and closes the files.
+   */
+  @Override
+  public void close() throws IOException {
+    flusher.shutdown();
+    for (Partition partition : partitions.values()) {
+      synchronized (partition) {
+        partition.flush();
+        if (partition.out != null) {
+          partition.closeFile();
+        }
+      }
+    }
+  }
+
+  /** The file being written for one tablet, and the batches buffered for it. */
+  private class Partition {
+    final String tabletId;
+    FileChannel channel;
+    GZIPOutputStream out;
+    long fileBytes;
+    boolean unsynced;
+    final List<CompletableFuture<Void>> pendingAcks = new ArrayList<>();
+    int pendingRecords;
+    long pendingBytes;
+    long pendingSinceNanos;
+
+    Partition(String tabletId) {
+      this.tabletId = tabletId;
+    }
+
+    void write(List<CdcService.CDCRecordPB> records, CompletableFuture<Void> ack)
+        throws IOException {
+      if (out == null) {
+        open();
+      }
+      if (pendingAcks.isEmpty()) {
+        pendingSinceNanos = System.nanoTime();
+      }
+      for (CdcService.CDCRecordPB record : records) {
+        int size = record.getSerializedSize();
+        record.writeDelimitedTo(out);
+        long numBytes = CodedOutputStream.computeUInt32SizeNoTag(size) + size;
+        pendingBytes += numBytes;
+        fileBytes += numBytes;
+      }
+      pendingRecords += records.size();
+      pendingAcks.add(ack);
+    }
+
+    void open() throws IOException {
+      Path dir = directory.resolve(tabletId);
+      Files.createDirectories(dir);
+      Path file = dir.resolve(String.format("%d-%d%s", System.currentTimeMillis(),
+                                            fileCounter.incrementAndGet(), FILE_SUFFIX));
+      channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+      // Sync flush, so that each flushed batch can be decompressed without the rest of the file.
+      out = new GZIPOutputStream(
+          new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE), BUFFER_SIZE,
+          true);
+      fileBytes = 0;
+      LOG.info(String.format("Writing changes of tablet %s to %s", tabletId, file));
+    }
+
+    void flush() {
+      if (pendingAcks.isEmpty()) {
+        return;
+      }
+      long startNanos = System.nanoTime();
+      List<CompletableFuture<Void>> acks = new ArrayList<>(pendingAcks);
+      int numRecords = pendingRecords;
+      long numBytes = pendingBytes;
+      pendingAcks.clear();
+      pendingRecords = 0;
+      pendingBytes = 0;
+      try {
+        out.flush();
+        if (config.syncPolicy == SinkConfig.SyncPolicy.EVERY_BATCH) {
+          channel.force(false);
+          metrics.onSync();
+        } else {
+          unsynced = true;
+        }
+        if (fileBytes >= config.rollBytes) {
+          closeFile();
+        }
+      } catch (IOException e) {
+        LOG.error(String.format("Flushing changes of tablet %s failed", tabletId), e);
+        metrics.onError();
+        abandonFile();
+        for (CompletableFuture<Void> ack : acks) {
+          ack.completeExceptionally(e);
+        }
+        return;
+      }
+      metrics.onWrite(numRecords, numBytes);
+      metrics.onFlush(numRecords, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+      for (CompletableFuture<Void> ack : acks) {
+        ack.complete(null);
+      }
+    }
+
+    void sync() throws IOException {
+      if (unsynced && channel != null) {
+        channel.force(false);
+        unsynced = false;
+        metrics.onSync();
+      }
+    }
+
+    void closeFile() throws IOException {
+      out.finish();
+      out.flush();
+      if (config.syncPolicy != SinkConfig.SyncPolicy.NEVER) {
+        channel.force(false);
+        metrics.onSync();
+      }
+      out.close();
+      out = null;
+      channel = null;
+      unsynced = false;
+    }
+
+    void abandonFile() {
+      try {
+        if (out != null) {
+          out.close();
+        }
+      } catch (IOException e) {
+        LOG.warn(String.format("Closing the file of tablet %s failed", tabletId), e);
+      }
+      out = null;
+      channel = null;
+      unsynced = false;
+    }
+
+    void failPending(IOException e) {
+      for (CompletableFuture<Void> ack : pendingAcks) {
+        ack.completeExceptionally(e);
+      }
+      pendingAcks.clear();
+      pendingRecords = 0;
+      pendingBytes = 0;
+    }
+  }
+}
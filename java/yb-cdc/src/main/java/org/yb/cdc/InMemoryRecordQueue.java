@@ -0,0 +1,79 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.cdc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Bounded in-process {@link RecordQueue}. Sends block while the queue is full, which pushes back
+ * on the pollers until the consumers catch up.
+ */
+public class InMemoryRecordQueue implements RecordQueue {
+
+  /** A record in the queue. */
+  public static class Message {
+    public final String topic;
+    public final String key;
+    public final byte[] value;
+
+    Message(String topic, String key, byte[] value) {
+      this.topic = topic;
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+  private final BlockingQueue<Message> messages;
+
+  public InMemoryRecordQueue(int capacity) {
+    this.messages = new ArrayBlockingQueue<>(capacity);
+  }
+
+  @Override
+  public CompletableFuture<Void> send(String topic, String key, List<byte[]> values) {
+    CompletableFuture<Void> result = new CompletableFuture<>();
+    try {
+      for (byte[] value : values) {
+        messages.put(new Message(topic, key, value));
+      }
+      result.complete(null);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      result.completeExceptionally(e);
+    }
+    return result;
+  }
+
+  @Override
+  public void flush() {
+    // Nothing to do, the records are in the queue once send returns.
+  }
+
+  /**
+   * Takes up to maxMessages records from the queue, without waiting.
+   */
+  public List<Message> poll(int maxMessages) {
+    List<Message> result = new ArrayList<>();
+    messages.drainTo(result, maxMessages);
+    return result;
+  }
+
+  public int size() {
+    return messages.size();
+  }
+}
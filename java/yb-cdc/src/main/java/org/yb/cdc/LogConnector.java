@@ -13,7 +13,10 @@
 
 package org.yb.cdc;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.net.HostAndPort;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.stumbleupon.async.Callback;
 import org.yb.client.YBTable;
 import org.yb.client.AsyncYBClient;
 import org.yb.client.YBClient;
@@ -21,34 +24,66 @@ import org.yb.client.ListTablesResponse;
 import org.yb.client.ListTabletServersResponse;
 import org.yb.client.LocatedTablet;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.*;
 import org.apache.log4j.Logger;
 import org.yb.master.Master;
 import org.yb.util.ServerInfo;
 
+/**
+ * Streams the changes of one or more tables, with a poller per tablet. The tablets of each table
+ * are looked up again periodically: pollers start for the tablets that appeared and stop for the
+ * ones that are gone. All the pollers share one pool of worker threads.
+ */
 class LogConnector {
   private static final Logger LOG = Logger.getLogger(LogConnector.class);
 
   private static AsyncYBClient client;
   private static YBClient syncClient;
 
-  private ExecutorService executor;
+  // Runs the delayed polls, the tablet refreshes and the housekeeping.
+  private ScheduledExecutorService timer;
+
+  // Runs the pollers. Threads that stay idle for a minute exit.
+  private ThreadPoolExecutor workers;
 
   private static final int DEFAULT_TIMEOUT = 30000;
-  private static final int DEFAULT_NUM_THREADS = 8;
+  private static final long WORKER_KEEP_ALIVE_MS = 60000;
+  private static final long CHECKPOINT_FLUSH_INTERVAL_MS = 1000;
+  private static final long METRICS_REPORT_INTERVAL_MS = 60000;
 
-  private YBTable table;
+  /** A table being streamed, with the pollers of its tablets keyed by tablet ID. */
+  static class TableStream {
+    final YBTable table;
+    String streamId;
+    final Map<String, Poller> pollers = new HashMap<>();
 
-  private List<Poller> pollers = new ArrayList<>();
+    TableStream(YBTable table, String streamId) {
+      this.table = table;
+      this.streamId = streamId;
+    }
+  }
+
+  private final List<TableStream> streams = new ArrayList<>();
 
   List<HostAndPort> hps = new ArrayList<>();
 
   private OutputClient outputClient;
 
-  private String streamId;
+  // Set when the changes go to files, so that the files get closed on the way out.
+  private FileSink fileSink;
+
+  private CheckpointStore checkpointStore;
+
+  private CDCMetrics metrics = new CDCMetrics();
+
+  private final long tabletRefreshIntervalMs;
 
   public LogConnector(CmdLineOpts opts) throws Exception {
     LOG.info("Creating new YB client...");
@@ -60,52 +95,174 @@ class LogConnector {
 
     syncClient = new YBClient(client);
 
-    executor = Executors.newFixedThreadPool(DEFAULT_NUM_THREADS);
+    timer = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("cdc-timer-%d").build());
+    workers = new ThreadPoolExecutor(
+        opts.numThreads, opts.numThreads, WORKER_KEEP_ALIVE_MS, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(),
+        new ThreadFactoryBuilder().setNameFormat("cdc-poller-%d").build());
+    workers.allowCoreThreadTimeOut(true);
 
-    String tableId = null;
     ListTablesResponse tablesResp = syncClient.getTablesList();
-    for (Master.ListTablesResponsePB.TableInfo tableInfo : tablesResp.getTableInfoList()) {
-      if (tableInfo.getName().equals(opts.tableName) &&
-          tableInfo.getNamespace().getName().equals(opts.namespaceName)) {
-        tableId =  tableInfo.getId().toStringUtf8();
+    for (int i = 0; i < opts.tables.size(); i++) {
+      CmdLineOpts.TableName tableName = opts.tables.get(i);
+      String tableId = null;
+      for (Master.ListTablesResponsePB.TableInfo tableInfo : tablesResp.getTableInfoList()) {
+        if (tableInfo.getName().equals(tableName.tableName) &&
+            tableInfo.getNamespace().getName().equals(tableName.namespaceName)) {
+          tableId =  tableInfo.getId().toStringUtf8();
+        }
       }
-    }
 
-    if (tableId == null) {
-      LOG.error(String.format("Could not find a table with name %s.%s",
-                              opts.namespaceName, opts.tableName));
-      System.exit(0);
-    }
+      if (tableId == null) {
+        LOG.error(String.format("Could not find a table with name %s", tableName));
+        System.exit(0);
+      }
 
-    table = syncClient.openTableByUUID(tableId);
+      String streamId = opts.streamIds.isEmpty() ? "" : opts.streamIds.get(i);
+      streams.add(new TableStream(syncClient.openTableByUUID(tableId), streamId));
+    }
 
     ListTabletServersResponse serversResp = syncClient.listTabletServers();
     for (ServerInfo serverInfo : serversResp.getTabletServersList()) {
       hps.add(HostAndPort.fromParts(serverInfo.getHost(), serverInfo.getPort()));
     }
 
-    outputClient = new LogClient();
+    if (opts.sink.equals("file")) {
+      fileSink = new FileSink(opts.sinkDir, opts.sinkConfig);
+      outputClient = fileSink;
+    } else {
+      outputClient = new LogClient();
+    }
+
+    checkpointStore = new FileCheckpointStore(opts.checkpointFile);
+
+    tabletRefreshIntervalMs = opts.tabletRefreshIntervalMs;
+  }
 
-    streamId = opts.streamId;
+  @VisibleForTesting
+  LogConnector(AsyncYBClient client, OutputClient outputClient, CheckpointStore checkpointStore,
+               ScheduledExecutorService timer, ThreadPoolExecutor workers) {
+    LogConnector.client = client;
+    this.outputClient = outputClient;
+    this.checkpointStore = checkpointStore;
+    this.timer = timer;
+    this.workers = workers;
+    this.tabletRefreshIntervalMs = 0;
+  }
+
+  @VisibleForTesting
+  CDCMetrics getMetrics() {
+    return metrics;
+  }
+
+  private void shutdown() {
+    if (fileSink != null) {
+      try {
+        fileSink.close();
+      } catch (IOException e) {
+        LOG.error("Failed to close the file sink", e);
+      }
+    }
+    flushCheckpoints();
+  }
+
+  private void flushCheckpoints() {
+    try {
+      checkpointStore.flush();
+    } catch (IOException e) {
+      LOG.error("Failed to flush checkpoints", e);
+    }
   }
 
   public void run() throws Exception {
     Random rand = new Random();
 
-    HostAndPort hp = hps.get(rand.nextInt(hps.size()));
-    if (streamId.isEmpty()) {
-      streamId = syncClient.createCDCStream(hp, table.getTableId()).getStreamId();
-      LOG.info(String.format("Created new stream with id %s", streamId));
+    for (TableStream stream : streams) {
+      if (stream.streamId.isEmpty()) {
+        HostAndPort hp = hps.get(rand.nextInt(hps.size()));
+        stream.streamId = syncClient.createCDCStream(hp, stream.table.getTableId()).getStreamId();
+        LOG.info(String.format("Created new stream with id %s for table %s", stream.streamId,
+                               stream.table.getName()));
+      }
+    }
+
+    // Checkpoints are flushed in batches, and once more on the way out so that a clean shutdown
+    // doesn't replay anything.
+    timer.scheduleWithFixedDelay(this::flushCheckpoints, CHECKPOINT_FLUSH_INTERVAL_MS,
+                                 CHECKPOINT_FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    timer.scheduleAtFixedRate(metrics::report, METRICS_REPORT_INTERVAL_MS,
+                              METRICS_REPORT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    if (fileSink != null) {
+      timer.scheduleAtFixedRate(fileSink.getMetrics()::report, METRICS_REPORT_INTERVAL_MS,
+                                METRICS_REPORT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+    Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown));
+
+    for (TableStream stream : streams) {
+      updatePollers(stream, stream.table.getTabletsLocations(DEFAULT_TIMEOUT));
     }
+    timer.scheduleWithFixedDelay(this::refreshTablets, tabletRefreshIntervalMs,
+                                 tabletRefreshIntervalMs, TimeUnit.MILLISECONDS);
+  }
 
-    List<LocatedTablet> tabletLocations = table.getTabletsLocations(DEFAULT_TIMEOUT);
+  private void refreshTablets() {
+    for (TableStream stream : streams) {
+      try {
+        stream.table.asyncGetTabletsLocations(DEFAULT_TIMEOUT).addCallbacks(
+            new Callback<Void, List<LocatedTablet>>() {
+              @Override
+              public Void call(List<LocatedTablet> tabletLocations) {
+                updatePollers(stream, tabletLocations);
+                return null;
+              }
+            },
+            new Callback<Void, Exception>() {
+              @Override
+              public Void call(Exception e) {
+                LOG.warn(String.format("Could not refresh the tablets of table %s",
+                                       stream.table.getName()), e);
+                return null;
+              }
+            });
+      } catch (Exception e) {
+        LOG.warn(String.format("Could not refresh the tablets of table %s",
+                               stream.table.getName()), e);
+      }
+    }
+  }
 
+  /**
+   * Starts a poller for each new tablet of the table and stops the pollers of the tablets that
+   * are gone.
+   */
+  @VisibleForTesting
+  synchronized void updatePollers(TableStream stream, List<LocatedTablet> tabletLocations) {
+    Set<String> tabletIds = new HashSet<>();
     for (LocatedTablet tablet : tabletLocations) {
       String tabletId = new String(tablet.getTabletId());
-      LOG.info(String.format("Polling for new tablet %s", tabletId));
-      Poller poller = new Poller(outputClient, hps, table, streamId, tabletId, executor, client);
-      pollers.add(poller);
+      tabletIds.add(tabletId);
+      if (stream.pollers.containsKey(tabletId)) {
+        continue;
+      }
+      LOG.info(String.format("Polling for new tablet %s of table %s", tabletId,
+                             stream.table.getName()));
+      Poller poller = new Poller(outputClient, stream.table, stream.streamId, tablet, timer,
+                                 workers, client, checkpointStore, metrics);
+      stream.pollers.put(tabletId, poller);
       poller.poll();
     }
+
+    Iterator<Map.Entry<String, Poller>> iter = stream.pollers.entrySet().iterator();
+    while (iter.hasNext()) {
+      Map.Entry<String, Poller> entry = iter.next();
+      if (!tabletIds.contains(entry.getKey())) {
+        LOG.info(String.format("Tablet %s of table %s is gone, stopping its poller",
+                               entry.getKey(), stream.table.getName()));
+        entry.getValue().stop();
+        metrics.removeTablet(entry.getKey());
+        iter.remove();
+      }
+    }
   }
 }
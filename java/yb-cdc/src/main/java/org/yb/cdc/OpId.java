@@ -0,0 +1,75 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.cdc;
+
+import java.util.Objects;
+
+/**
+ * Position in the Raft log of a tablet: the leader term and the log index.
+ */
+public final class OpId implements Comparable<OpId> {
+  public static final OpId INVALID = new OpId(0, 0);
+
+  private final long term;
+  private final long index;
+
+  public OpId(long term, long index) {
+    this.term = term;
+    this.index = index;
+  }
+
+  public long getTerm() {
+    return term;
+  }
+
+  public long getIndex() {
+    return index;
+  }
+
+  /**
+   * Parses an OpId written by {@link #toString()}.
+   */
+  public static OpId fromString(String str) {
+    String[] parts = str.trim().split("\\.");
+    if (parts.length != 2) {
+      throw new IllegalArgumentException("Invalid OpId: " + str);
+    }
+    return new OpId(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+  }
+
+  @Override
+  public int compareTo(OpId other) {
+    int cmp = Long.compare(term, other.term);
+    return cmp != 0 ? cmp : Long.compare(index, other.index);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof OpId)) {
+      return false;
+    }
+    OpId that = (OpId) other;
+    return term == that.term && index == that.index;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(term, index);
+  }
+
+  @Override
+  public String toString() {
+    return term + "." + index;
+  }
+}
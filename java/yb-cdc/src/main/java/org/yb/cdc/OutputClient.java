@@ -15,6 +15,29 @@ package org.yb.cdc;
 
 import org.yb.client.YBTable;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 public interface OutputClient {
   public void applyChange(YBTable table, CdcService.CDCRecordPB changeRecord) throws Exception;
+
+  /**
+   * Applies a batch of changes of one tablet, in order. The returned future completes once the
+   * whole batch is durable in the sink: the connector only moves the tablet's checkpoint past the
+   * batch then. Sinks that can write in bulk should override this, the default applies the
+   * changes one at a time before returning.
+   */
+  public default CompletableFuture<Void> applyChanges(YBTable table, String tabletId,
+                                                      List<CdcService.CDCRecordPB> records) {
+    CompletableFuture<Void> result = new CompletableFuture<>();
+    try {
+      for (CdcService.CDCRecordPB record : records) {
+        applyChange(table, record);
+      }
+      result.complete(null);
+    } catch (Exception e) {
+      result.completeExceptionally(e);
+    }
+    return result;
+  }
 }
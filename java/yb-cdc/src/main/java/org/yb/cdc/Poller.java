@@ -17,95 +17,309 @@ import com.stumbleupon.async.Callback;
 import org.apache.log4j.Logger;
 import org.yb.client.AsyncYBClient;
 import org.yb.client.GetChangesResponse;
+import org.yb.client.GetLatestEntryOpIdResponse;
+import org.yb.client.LocatedTablet;
 import org.yb.client.YBTable;
 
-import java.util.Random;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
-import com.google.common.net.HostAndPort;
-
-
+/**
+ * Polls the changes of one tablet from its leader and hands them to the output client in
+ * batches.
+ * <p>
+ * The next poll goes out as soon as a batch is handed over, so polling overlaps with the sink
+ * writing, but at most maxInFlightBatches batches wait for the sink at any time. Once the window
+ * is full, polling stops until the sink acknowledges the oldest batch. The checkpoint only moves
+ * past a batch once the sink acknowledged it and every batch before it. If the sink fails, the
+ * poller starts over from that checkpoint. Polls that return nothing back off exponentially, so
+ * that idle tablets don't keep the tserver busy.
+ * <p>
+ * The work of a poller runs on a pool shared with the other pollers, one task at a time, so a
+ * busy tablet can't starve the others.
+ */
 public class Poller {
   private static final Logger LOG = Logger.getLogger(Poller.class);
 
-  private long term;
-  private long index;
-  private String streamId;
-  private String tabletId;
-  private ExecutorService executor;
-  private YBTable table;
-  private AsyncYBClient client;
-  private List<HostAndPort> hps;
-  private OutputClient outputClient;
-
-  public Poller(OutputClient outputClient, List<HostAndPort> hps, YBTable table, String streamId,
-                String tabletId, ExecutorService executor, AsyncYBClient client) {
+  // Delay before polling again after a failed poll.
+  private static final long ERROR_RETRY_DELAY_MS = 1000;
+
+  // How often to ask the leader for the end of its log, to compute the lag.
+  private static final long LAG_CHECK_INTERVAL_MS = 10000;
+
+  // Delay after the first empty poll, doubled on each empty poll up to the maximum.
+  static final long MIN_IDLE_DELAY_MS = 10;
+  static final long MAX_IDLE_DELAY_MS = 1000;
+
+  static final int DEFAULT_MAX_IN_FLIGHT_BATCHES = 4;
+
+  /** A batch handed to the output client. */
+  private static class Batch {
+    final OpId checkpoint;
+    final int numRecords;
+    final long pollStartNanos;
+    final CompletableFuture<Void> applied;
+
+    Batch(OpId checkpoint, int numRecords, long pollStartNanos,
+          CompletableFuture<Void> applied) {
+      this.checkpoint = checkpoint;
+      this.numRecords = numRecords;
+      this.pollStartNanos = pollStartNanos;
+      this.applied = applied;
+    }
+  }
+
+  // Last checkpoint acknowledged by the sink.
+  private OpId checkpoint;
+  // Where the next poll starts: the end of the last batch received.
+  private OpId fetchPosition;
+  // Batches not acknowledged yet, oldest first.
+  private final Deque<Batch> inFlight = new ArrayDeque<>();
+  // Whether a poll is scheduled or waiting for its response.
+  private boolean pollPending = false;
+  private long idleDelayMs = 0;
+  // Bumped when the poller starts over, so that responses and acks from before are dropped.
+  private int generation = 0;
+  private long lastLagCheckMs = 0;
+  private boolean stopped = false;
+
+  private final String streamId;
+  private final String tabletId;
+  private final byte[] partitionKey;
+  private final int maxInFlightBatches;
+  private final ScheduledExecutorService timer;
+  private final Executor executor;
+  private final YBTable table;
+  private final AsyncYBClient client;
+  private final OutputClient outputClient;
+  private final CheckpointStore checkpointStore;
+  private final CDCMetrics metrics;
+  private final CDCMetrics.TabletMetrics tabletMetrics;
+
+  /**
+   * @param timer runs the delayed polls
+   * @param workers the pool shared by all the pollers
+   */
+  public Poller(OutputClient outputClient, YBTable table, String streamId, LocatedTablet tablet,
+                ScheduledExecutorService timer, Executor workers, AsyncYBClient client,
+                CheckpointStore checkpointStore, CDCMetrics metrics) {
+    this(outputClient, table, streamId, tablet, timer, workers, client, checkpointStore, metrics,
+         DEFAULT_MAX_IN_FLIGHT_BATCHES);
+  }
+
+  public Poller(OutputClient outputClient, YBTable table, String streamId, LocatedTablet tablet,
+                ScheduledExecutorService timer, Executor workers, AsyncYBClient client,
+                CheckpointStore checkpointStore, CDCMetrics metrics, int maxInFlightBatches) {
     this.streamId = streamId;
-    this.tabletId = tabletId;
-    this.term = 0;
-    this.index = 0;
-    this.executor = executor;
+    this.tabletId = new String(tablet.getTabletId());
+    this.partitionKey = tablet.getStartKey();
+    this.maxInFlightBatches = maxInFlightBatches;
+    this.timer = timer;
+    this.executor = new SerialExecutor(workers);
     this.client = client;
     this.table = table;
-    this.hps = hps;
     this.outputClient = outputClient;
+    this.checkpointStore = checkpointStore;
+    this.metrics = metrics;
+    this.tabletMetrics = metrics.forTablet(tabletId);
+    this.checkpoint = checkpointStore.get(streamId, tabletId);
+    this.fetchPosition = checkpoint;
+    if (!checkpoint.equals(OpId.INVALID)) {
+      LOG.info(String.format("Resuming tablet %s from checkpoint %s", tabletId, checkpoint));
+    }
+  }
+
+  public String getTabletId() {
+    return tabletId;
   }
 
   public Void poll() {
-    executor.submit(new Callable<Void>() {
-      @Override
-      public Void call() throws Exception {
-        return doPoll();
-      }
-    });
+    schedulePoll(0);
     return null;
   }
 
-  private Void doPoll() {
-    Random rand = new Random();
-    HostAndPort hp = hps.get(rand.nextInt(hps.size()));
+  /**
+   * Stops polling. The batches already handed to the output client still move the checkpoint
+   * once they are acknowledged.
+   */
+  public synchronized void stop() {
+    stopped = true;
+  }
 
-    client.getChanges(hp, table, streamId, tabletId, term, index,
-                      new Callback<Void, GetChangesResponse>() {
-      @Override
-      public Void call(GetChangesResponse getChangesResponse) throws Exception {
-        return handlePoll(getChangesResponse);
-      }
-    });
-    return null;
+  synchronized boolean isStopped() {
+    return stopped;
   }
 
-  private Void handlePoll(GetChangesResponse getChangesResponse) {
-    executor.submit(new Callable<Void>() {
-      @Override
-      public Void call() throws Exception {
-        return doHandlePoll(getChangesResponse);
-      }
-    });
-    return null;
+  /**
+   * Schedules the next poll, unless one is already pending or the window is full.
+   */
+  private synchronized void schedulePoll(long delayMs) {
+    if (stopped || pollPending || inFlight.size() >= maxInFlightBatches) {
+      return;
+    }
+    pollPending = true;
+    final int pollGeneration = generation;
+    if (delayMs == 0) {
+      executor.execute(() -> doPoll(pollGeneration));
+    } else {
+      timer.schedule(() -> executor.execute(() -> doPoll(pollGeneration)), delayMs,
+                     TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void doPoll(final int pollGeneration) {
+    tabletMetrics.onPoll();
+    maybeCheckLag();
+    final long pollStartNanos = System.nanoTime();
+    OpId from;
+    synchronized (this) {
+      from = fetchPosition;
+    }
+    client.getChanges(table, streamId, tabletId, partitionKey, from.getTerm(), from.getIndex())
+        .addCallbacks(new Callback<Void, GetChangesResponse>() {
+          @Override
+          public Void call(GetChangesResponse getChangesResponse) throws Exception {
+            executor.execute(
+                () -> handlePoll(pollGeneration, pollStartNanos, getChangesResponse));
+            return null;
+          }
+        }, new Callback<Void, Exception>() {
+          @Override
+          public Void call(Exception e) throws Exception {
+            handlePollFailure(pollGeneration, e);
+            return null;
+          }
+        });
   }
 
-  private Void doHandlePoll(GetChangesResponse getChangesResponse) throws Exception {
-    // Handle the poll
+  private synchronized void handlePollFailure(int pollGeneration, Exception e) {
+    if (pollGeneration != generation) {
+      return;
+    }
+    LOG.warn(String.format("Polling tablet %s failed, retrying", tabletId), e);
+    tabletMetrics.onPollError();
+    pollPending = false;
+    schedulePoll(ERROR_RETRY_DELAY_MS);
+  }
+
+  private synchronized void handlePoll(int pollGeneration, long pollStartNanos,
+                                       GetChangesResponse getChangesResponse) {
+    if (pollGeneration != generation) {
+      return;
+    }
+    pollPending = false;
     if (getChangesResponse.getResp().hasError()) {
       if (getChangesResponse.getResp().getError().getCode() ==
               CdcService.CDCErrorPB.Code.INVALID_REQUEST) {
         LOG.error("Invalid Request");
         System.exit(0);
       }
-      return poll();
+      LOG.warn(String.format("Polling tablet %s returned error %s", tabletId,
+                             getChangesResponse.getResp().getError()));
+      tabletMetrics.onPollError();
+      schedulePoll(ERROR_RETRY_DELAY_MS);
+      return;
     }
 
-    for (org.yb.cdc.CdcService.CDCRecordPB record : getChangesResponse.getResp().getRecordsList()) {
-      outputClient.applyChange(table, record);
+    List<CdcService.CDCRecordPB> records = getChangesResponse.getResp().getRecordsList();
+    CdcService.CDCCheckpointPB responseCheckpoint = getChangesResponse.getResp().getCheckpoint();
+    OpId batchCheckpoint = new OpId(responseCheckpoint.getOpId().getTerm(),
+                                    responseCheckpoint.getOpId().getIndex());
+    fetchPosition = batchCheckpoint;
+
+    CompletableFuture<Void> applied;
+    if (records.isEmpty()) {
+      // The checkpoint can still move past entries that carry no records.
+      applied = CompletableFuture.completedFuture(null);
+      tabletMetrics.onEmptyPoll();
+      idleDelayMs = idleDelayMs == 0 ? MIN_IDLE_DELAY_MS
+                                     : Math.min(idleDelayMs * 2, MAX_IDLE_DELAY_MS);
+    } else {
+      try {
+        applied = outputClient.applyChanges(table, tabletId, records);
+      } catch (Exception e) {
+        applied = new CompletableFuture<>();
+        applied.completeExceptionally(e);
+      }
+      idleDelayMs = 0;
     }
+    inFlight.addLast(new Batch(batchCheckpoint, records.size(), pollStartNanos, applied));
+    tabletMetrics.setInFlightBatches(inFlight.size());
+    final int ackGeneration = generation;
+    applied.whenCompleteAsync((result, error) -> handleAcks(ackGeneration), executor);
+
+    schedulePoll(idleDelayMs);
+  }
 
-    this.term = getChangesResponse.getResp().getCheckpoint().getOpId().getTerm();
-    this.index = getChangesResponse.getResp().getCheckpoint().getOpId().getIndex();
+  /**
+   * Moves the checkpoint past the acknowledged batches at the head of the window.
+   */
+  private synchronized void handleAcks(int ackGeneration) {
+    if (ackGeneration != generation) {
+      return;
+    }
+    while (!inFlight.isEmpty() && inFlight.peekFirst().applied.isDone()) {
+      Batch batch = inFlight.pollFirst();
+      try {
+        batch.applied.get();
+      } catch (InterruptedException | ExecutionException e) {
+        LOG.error(String.format("Applying changes of tablet %s failed, restarting from %s",
+                                tabletId, checkpoint), e);
+        tabletMetrics.onPollError();
+        restartFromCheckpoint();
+        return;
+      }
+      checkpoint = batch.checkpoint;
+      checkpointStore.update(streamId, tabletId, checkpoint);
+      tabletMetrics.onBatchApplied(batch.numRecords, checkpoint);
+      if (batch.numRecords > 0) {
+        metrics.onBatchApplied(batch.numRecords,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - batch.pollStartNanos));
+      }
+    }
+    tabletMetrics.setInFlightBatches(inFlight.size());
+    // The window may have been full.
+    schedulePoll(idleDelayMs);
+  }
 
-    return poll();
+  private void restartFromCheckpoint() {
+    generation++;
+    inFlight.clear();
+    tabletMetrics.setInFlightBatches(0);
+    fetchPosition = checkpoint;
+    idleDelayMs = 0;
+    pollPending = false;
+    schedulePoll(ERROR_RETRY_DELAY_MS);
   }
 
+  private synchronized void maybeCheckLag() {
+    long now = System.currentTimeMillis();
+    if (now - lastLagCheckMs < LAG_CHECK_INTERVAL_MS) {
+      return;
+    }
+    lastLagCheckMs = now;
+    client.getLatestEntryOpId(table, tabletId, partitionKey)
+        .addCallbacks(new Callback<Void, GetLatestEntryOpIdResponse>() {
+          @Override
+          public Void call(GetLatestEntryOpIdResponse response) throws Exception {
+            if (!response.getResp().hasError()) {
+              tabletMetrics.setLatestOpId(new OpId(response.getResp().getOpId().getTerm(),
+                                                   response.getResp().getOpId().getIndex()));
+            }
+            return null;
+          }
+        }, new Callback<Void, Exception>() {
+          @Override
+          public Void call(Exception e) throws Exception {
+            LOG.debug(String.format("Could not get the latest OpId of tablet %s", tabletId), e);
+            return null;
+          }
+        });
+  }
 }
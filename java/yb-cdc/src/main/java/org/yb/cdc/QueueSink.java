@@ -0,0 +1,103 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.cdc;
+
+import org.yb.client.YBTable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sink sending the changes to a {@link RecordQueue}, keyed by tablet so that the changes of a
+ * tablet stay in order. The records of a batch go out in sends of up to batchRecords records.
+ * With the INTERVAL sync policy, the queue is flushed after the first batch that completes
+ * syncIntervalMs after the previous flush.
+ */
+public class QueueSink implements OutputClient {
+  private final RecordQueue queue;
+  private final String topic;
+  private final SinkConfig config;
+  private final SinkMetrics metrics = new SinkMetrics("queue");
+  private long lastSyncNanos = System.nanoTime();
+
+  public QueueSink(RecordQueue queue, String topic, SinkConfig config) {
+    this.queue = queue;
+    this.topic = topic;
+    this.config = config;
+  }
+
+  public SinkMetrics getMetrics() {
+    return metrics;
+  }
+
+  @Override
+  public void applyChange(YBTable table, CdcService.CDCRecordPB changeRecord) throws Exception {
+    List<CdcService.CDCRecordPB> records = new ArrayList<>();
+    records.add(changeRecord);
+    applyChanges(table, "", records).get();
+  }
+
+  @Override
+  public CompletableFuture<Void> applyChanges(YBTable table, String tabletId,
+                                              List<CdcService.CDCRecordPB> records) {
+    long startNanos = System.nanoTime();
+    List<CompletableFuture<Void>> sends = new ArrayList<>();
+    List<byte[]> values = new ArrayList<>();
+    long numBytes = 0;
+    for (CdcService.CDCRecordPB record : records) {
+      byte[] value = record.toByteArray();
+      values.add(value);
+      numBytes += value.length;
+      if (values.size() >= config.batchRecords) {
+        sends.add(queue.send(topic, tabletId, values));
+        values = new ArrayList<>();
+      }
+    }
+    if (!values.isEmpty()) {
+      sends.add(queue.send(topic, tabletId, values));
+    }
+    final long batchBytes = numBytes;
+    return CompletableFuture.allOf(sends.toArray(new CompletableFuture[0])).thenRun(() -> {
+      if (shouldSync()) {
+        try {
+          queue.flush();
+          metrics.onSync();
+        } catch (IOException e) {
+          metrics.onError();
+          throw new RuntimeException(e);
+        }
+      }
+      metrics.onWrite(records.size(), batchBytes);
+      metrics.onFlush(records.size(), (System.nanoTime() - startNanos) / 1000);
+    });
+  }
+
+  private synchronized boolean shouldSync() {
+    switch (config.syncPolicy) {
+      case EVERY_BATCH:
+        return true;
+      case INTERVAL:
+        long now = System.nanoTime();
+        if (now - lastSyncNanos < config.syncIntervalMs * 1000000) {
+          return false;
+        }
+        lastSyncNanos = now;
+        return true;
+      default:
+        return false;
+    }
+  }
+}
@@ -0,0 +1,36 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.cdc;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A partitioned queue of serialized records, shaped after a Kafka producer so that one can
+ * implement it: records are sent to a topic with a key, and records with the same key keep their
+ * order.
+ */
+public interface RecordQueue {
+  /**
+   * Sends records, in order.
+   * @return a future that completes once the queue holds all the records
+   */
+  CompletableFuture<Void> send(String topic, String key, List<byte[]> values);
+
+  /**
+   * Blocks until all the records sent so far are durable.
+   */
+  void flush() throws IOException;
+}
@@ -0,0 +1,64 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.cdc;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs the tasks of one tablet one at a time, in order, on a shared pool. After each task it
+ * goes back to the end of the pool's queue, so a busy tablet can't hold on to a thread while
+ * other tablets wait.
+ */
+class SerialExecutor implements Executor {
+  private final Executor pool;
+  private final Queue<Runnable> tasks = new ArrayDeque<>();
+  private boolean running = false;
+
+  SerialExecutor(Executor pool) {
+    this.pool = pool;
+  }
+
+  @Override
+  public synchronized void execute(Runnable task) {
+    tasks.add(task);
+    if (!running) {
+      running = true;
+      pool.execute(this::runNext);
+    }
+  }
+
+  private void runNext() {
+    Runnable task;
+    synchronized (this) {
+      task = tasks.poll();
+      if (task == null) {
+        running = false;
+        return;
+      }
+    }
+    try {
+      task.run();
+    } finally {
+      synchronized (this) {
+        if (tasks.isEmpty()) {
+          running = false;
+        } else {
+          pool.execute(this::runNext);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,41 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.cdc;
+
+/**
+ * Batching and durability settings shared by the sinks.
+ */
+public class SinkConfig {
+
+  /** When a sink forces its writes to stable storage. */
+  public enum SyncPolicy {
+    /** Never, the OS writes the data back when it wants to. */
+    NEVER,
+    /** Every syncIntervalMs. A crash can lose the batches acknowledged since the last sync. */
+    INTERVAL,
+    /** Before acknowledging each batch. */
+    EVERY_BATCH
+  }
+
+  // A sink flushes a partition once it buffered this many bytes...
+  public long batchBytes = 1 << 20;
+  // ... or once its oldest buffered record waited this long.
+  public long lingerMs = 5;
+  // Most records handed to a queue in one send.
+  public int batchRecords = 500;
+  public SyncPolicy syncPolicy = SyncPolicy.EVERY_BATCH;
+  public long syncIntervalMs = 1000;
+  // A file sink starts a new file once the current one holds this many uncompressed bytes.
+  public long rollBytes = 128L << 20;
+}
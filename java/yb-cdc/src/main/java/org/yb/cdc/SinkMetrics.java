@@ -0,0 +1,104 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.cdc;
+
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput of a sink: records and bytes written, flushes and syncs, with the size and latency
+ * of the flushes.
+ */
+public class SinkMetrics {
+  private static final Logger LOG = Logger.getLogger(SinkMetrics.class);
+
+  private final String name;
+  private final AtomicLong records = new AtomicLong();
+  private final AtomicLong bytes = new AtomicLong();
+  private final AtomicLong syncs = new AtomicLong();
+  private final AtomicLong errors = new AtomicLong();
+  private final CDCMetrics.Histogram flushRecords = new CDCMetrics.Histogram();
+  private final CDCMetrics.Histogram flushLatencyMicros = new CDCMetrics.Histogram();
+
+  private long lastReportRecords = 0;
+  private long lastReportBytes = 0;
+  private long lastReportNanos = System.nanoTime();
+
+  public SinkMetrics(String name) {
+    this.name = name;
+  }
+
+  public void onWrite(int numRecords, long numBytes) {
+    records.addAndGet(numRecords);
+    bytes.addAndGet(numBytes);
+  }
+
+  public void onFlush(int numRecords, long latencyMicros) {
+    flushRecords.observe(numRecords);
+    flushLatencyMicros.observe(latencyMicros);
+  }
+
+  public void onSync() {
+    syncs.incrementAndGet();
+  }
+
+  public void onError() {
+    errors.incrementAndGet();
+  }
+
+  public long getRecords() {
+    return records.get();
+  }
+
+  public long getBytes() {
+    return bytes.get();
+  }
+
+  public long getSyncs() {
+    return syncs.get();
+  }
+
+  public long getErrors() {
+    return errors.get();
+  }
+
+  public CDCMetrics.Histogram getFlushRecords() {
+    return flushRecords;
+  }
+
+  public CDCMetrics.Histogram getFlushLatencyMicros() {
+    return flushLatencyMicros;
+  }
+
+  /**
+   * Logs the throughput since the last report and the flush histograms.
+   */
+  public synchronized void report() {
+    long now = System.nanoTime();
+    long currentRecords = records.get();
+    long currentBytes = bytes.get();
+    double seconds = (now - lastReportNanos) / 1e9;
+    if (seconds > 0) {
+      LOG.info(String.format("sink=%s records_per_sec=%.1f bytes_per_sec=%.1f syncs=%d " +
+                             "errors=%d flush_records={%s} flush_latency_us={%s}", name,
+                             (currentRecords - lastReportRecords) / seconds,
+                             (currentBytes - lastReportBytes) / seconds, getSyncs(),
+                             getErrors(), flushRecords, flushLatencyMicros));
+    }
+    lastReportRecords = currentRecords;
+    lastReportBytes = currentBytes;
+    lastReportNanos = now;
+  }
+}
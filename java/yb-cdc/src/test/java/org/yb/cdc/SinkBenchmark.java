@@ -0,0 +1,121 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.cdc;
+
+import com.google.common.base.Strings;
+import com.google.protobuf.ByteString;
+import org.apache.commons.io.FileUtils;
+import org.yb.Common;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the records/sec each sink sustains, with synthetic records written by several
+ * tablets at once. Each sink gets a warmup round, then three measured rounds.
+ *
+ * Usage: SinkBenchmark [records] [value bytes] [tablets]
+ */
+public class SinkBenchmark {
+  private static final int BATCH_RECORDS = 100;
+  private static final int WARMUP_ROUNDS = 1;
+  private static final int MEASURED_ROUNDS = 3;
+
+  private final int numRecords;
+  private final int numTablets;
+  private final List<CdcService.CDCRecordPB> batch = new ArrayList<>();
+
+  private SinkBenchmark(int numRecords, int valueBytes, int numTablets) {
+    this.numRecords = numRecords;
+    this.numTablets = numTablets;
+    String value = Strings.repeat("x", valueBytes);
+    for (int i = 0; i < BATCH_RECORDS; i++) {
+      batch.add(CdcService.CDCRecordPB.newBuilder()
+          .setTime(i)
+          .setOperation(CdcService.CDCRecordPB.OperationType.WRITE)
+          .addKey(CdcService.KeyValuePairPB.newBuilder()
+              .setKey(ByteString.copyFromUtf8("k"))
+              .setValue(Common.QLValuePB.newBuilder().setInt64Value(i)))
+          .addChanges(CdcService.KeyValuePairPB.newBuilder()
+              .setKey(ByteString.copyFromUtf8("v"))
+              .setValue(Common.QLValuePB.newBuilder().setStringValue(value)))
+          .build());
+    }
+  }
+
+  /**
+   * Writes numRecords records, round robin over the tablets, and waits for all the acks.
+   * @return the records written per second
+   */
+  private double runRound(OutputClient sink) throws Exception {
+    List<CompletableFuture<Void>> acks = new ArrayList<>();
+    long startNanos = System.nanoTime();
+    for (int written = 0, i = 0; written < numRecords; written += BATCH_RECORDS, i++) {
+      acks.add(sink.applyChanges(null, "tablet-" + (i % numTablets), batch));
+    }
+    CompletableFuture.allOf(acks.toArray(new CompletableFuture[0])).get();
+    long elapsedNanos = System.nanoTime() - startNanos;
+    return numRecords / (elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1));
+  }
+
+  private void run(String name, OutputClient sink) throws Exception {
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      runRound(sink);
+    }
+    for (int i = 0; i < MEASURED_ROUNDS; i++) {
+      System.out.println(String.format("%s round %d: %.0f records/sec", name, i + 1,
+                                       runRound(sink)));
+    }
+  }
+
+  private static OutputClient drainingQueueSink(SinkConfig config) {
+    InMemoryRecordQueue queue = new InMemoryRecordQueue(100000);
+    Thread consumer = new Thread(() -> {
+      while (true) {
+        if (queue.poll(10000).isEmpty()) {
+          Thread.yield();
+        }
+      }
+    });
+    consumer.setDaemon(true);
+    consumer.start();
+    return new QueueSink(queue, "benchmark", config);
+  }
+
+  public static void main(String[] args) throws Exception {
+    int numRecords = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    int valueBytes = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+    int numTablets = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+    SinkBenchmark benchmark = new SinkBenchmark(numRecords, valueBytes, numTablets);
+
+    for (SinkConfig.SyncPolicy policy : SinkConfig.SyncPolicy.values()) {
+      SinkConfig config = new SinkConfig();
+      config.syncPolicy = policy;
+      Path dir = Files.createTempDirectory("yb-cdc-sink-benchmark");
+      try (FileSink sink = new FileSink(dir.toString(), config)) {
+        benchmark.run("file/" + policy.name().toLowerCase(), sink);
+      } catch (IOException e) {
+        System.err.println("File sink failed: " + e);
+      } finally {
+        FileUtils.deleteDirectory(dir.toFile());
+      }
+    }
+    benchmark.run("queue", drainingQueueSink(new SinkConfig()));
+  }
+}
@@ -0,0 +1,101 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.cdc;
+
+import static org.yb.AssertionWrappers.*;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.yb.YBTestRunner;
+
+import org.junit.runner.RunWith;
+
+@RunWith(value=YBTestRunner.class)
+public class TestFileCheckpointStore {
+
+  private Path dir;
+  private String fileName;
+
+  @Before
+  public void setUp() throws Exception {
+    dir = Files.createTempDirectory("cdc-checkpoints");
+    fileName = dir.resolve("checkpoints").toString();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    FileUtils.deleteDirectory(dir.toFile());
+  }
+
+  @Test
+  public void testMissingFile() throws Exception {
+    FileCheckpointStore store = new FileCheckpointStore(fileName);
+    assertEquals(OpId.INVALID, store.get("stream", "tablet"));
+    // Nothing to write yet.
+    store.flush();
+    assertFalse(Files.exists(dir.resolve("checkpoints")));
+  }
+
+  @Test
+  public void testResumeAfterRestart() throws Exception {
+    FileCheckpointStore store = new FileCheckpointStore(fileName);
+    store.update("stream1", "tablet1", new OpId(1, 10));
+    store.update("stream1", "tablet2", new OpId(2, 20));
+    store.update("stream2", "tablet1", new OpId(3, 30));
+    store.update("stream1", "tablet1", new OpId(1, 15));
+    store.flush();
+
+    FileCheckpointStore reloaded = new FileCheckpointStore(fileName);
+    assertEquals(new OpId(1, 15), reloaded.get("stream1", "tablet1"));
+    assertEquals(new OpId(2, 20), reloaded.get("stream1", "tablet2"));
+    assertEquals(new OpId(3, 30), reloaded.get("stream2", "tablet1"));
+    assertEquals(OpId.INVALID, reloaded.get("stream2", "tablet2"));
+    assertFalse(Files.exists(dir.resolve("checkpoints.tmp")));
+  }
+
+  @Test
+  public void testUnflushedUpdatesAreLost() throws Exception {
+    FileCheckpointStore store = new FileCheckpointStore(fileName);
+    store.update("stream", "tablet", new OpId(1, 10));
+    store.flush();
+    store.update("stream", "tablet", new OpId(1, 11));
+
+    assertEquals(new OpId(1, 10), new FileCheckpointStore(fileName).get("stream", "tablet"));
+  }
+
+  @Test
+  public void testUnchangedStoreSkipsRewrite() throws Exception {
+    Path path = dir.resolve("checkpoints");
+    FileCheckpointStore store = new FileCheckpointStore(fileName);
+    store.update("stream", "tablet", new OpId(1, 10));
+    store.flush();
+    assertTrue(Files.exists(path));
+
+    // Neither a flush with no updates nor an update to the same checkpoint rewrites the file.
+    Files.delete(path);
+    store.flush();
+    store.update("stream", "tablet", new OpId(1, 10));
+    store.flush();
+    assertFalse(Files.exists(path));
+
+    store.update("stream", "tablet", new OpId(1, 11));
+    store.flush();
+    assertEquals(new OpId(1, 11), new FileCheckpointStore(fileName).get("stream", "tablet"));
+  }
+}
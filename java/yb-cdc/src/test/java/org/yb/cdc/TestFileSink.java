@@ -0,0 +1,211 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.cdc;
+
+import static org.yb.AssertionWrappers.*;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import org.yb.YBTestRunner;
+
+import org.junit.runner.RunWith;
+
+@RunWith(value=YBTestRunner.class)
+public class TestFileSink {
+  private static final long TIMEOUT_MS = 10000;
+
+  private Path dir;
+  private SinkConfig config;
+
+  @Before
+  public void setUp() throws Exception {
+    dir = Files.createTempDirectory("cdc-file-sink");
+    config = new SinkConfig();
+    config.syncPolicy = SinkConfig.SyncPolicy.NEVER;
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    FileUtils.deleteDirectory(dir.toFile());
+  }
+
+  // A batch of records with consecutive times, starting from the given one.
+  private static List<CdcService.CDCRecordPB> batch(long firstTime, int numRecords) {
+    List<CdcService.CDCRecordPB> records = new ArrayList<>();
+    for (int i = 0; i < numRecords; i++) {
+      records.add(CdcService.CDCRecordPB.newBuilder().setTime(firstTime + i).build());
+    }
+    return records;
+  }
+
+  // The files of the tablet, in the order they were written.
+  private List<Path> files(String tabletId) throws IOException {
+    try (Stream<Path> files = Files.list(dir.resolve(tabletId))) {
+      return files.sorted(Comparator.comparingLong(TestFileSink::fileNumber))
+          .collect(Collectors.toList());
+    }
+  }
+
+  // Files are named <millis>-<counter>.cdc.gz, the counter gives their order.
+  private static long fileNumber(Path file) {
+    String name = file.getFileName().toString();
+    return Long.parseLong(name.substring(name.indexOf('-') + 1, name.indexOf('.')));
+  }
+
+  // Reads the times of the given number of records from the start of the file.
+  private static List<Long> readTimes(Path file, int numRecords) throws IOException {
+    List<Long> times = new ArrayList<>();
+    try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+      for (int i = 0; i < numRecords; i++) {
+        times.add(CdcService.CDCRecordPB.parseDelimitedFrom(in).getTime());
+      }
+    }
+    return times;
+  }
+
+  // Reads the times of all the records of a file that was closed.
+  private static List<Long> readAllTimes(Path file) throws IOException {
+    List<Long> times = new ArrayList<>();
+    try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+      CdcService.CDCRecordPB record;
+      while ((record = CdcService.CDCRecordPB.parseDelimitedFrom(in)) != null) {
+        times.add(record.getTime());
+      }
+    }
+    return times;
+  }
+
+  @Test
+  public void testWriteRollAndReadBack() throws Exception {
+    config.lingerMs = 0;
+    config.rollBytes = 1;
+    FileSink sink = new FileSink(dir.toString(), config);
+    List<CompletableFuture<Void>> acks = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      acks.add(sink.applyChanges(null, "tablet1", batch(i * 10, 10)));
+    }
+    acks.add(sink.applyChanges(null, "tablet2", batch(1000, 3)));
+    sink.close();
+    for (CompletableFuture<Void> ack : acks) {
+      ack.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // Every flushed batch went past rollBytes, so each got a file of its own.
+    List<Path> files = files("tablet1");
+    assertEquals(5, files.size());
+    for (int i = 0; i < files.size(); i++) {
+      List<Long> expected = new ArrayList<>();
+      for (long time = i * 10; time < i * 10 + 10; time++) {
+        expected.add(time);
+      }
+      assertEquals(expected, readAllTimes(files.get(i)));
+    }
+    List<Path> otherFiles = files("tablet2");
+    assertEquals(1, otherFiles.size());
+    assertEquals(3, readAllTimes(otherFiles.get(0)).size());
+    assertEquals(53, sink.getMetrics().getRecords());
+    assertEquals(0, sink.getMetrics().getErrors());
+  }
+
+  @Test
+  public void testBatchesShareFileUntilRoll() throws Exception {
+    config.lingerMs = 0;
+    FileSink sink = new FileSink(dir.toString(), config);
+    for (int i = 0; i < 3; i++) {
+      sink.applyChanges(null, "tablet", batch(i * 10, 10)).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+    sink.close();
+    List<Path> files = files("tablet");
+    assertEquals(1, files.size());
+    assertEquals(30, readAllTimes(files.get(0)).size());
+  }
+
+  @Test
+  public void testLingerFlush() throws Exception {
+    config.lingerMs = 200;
+    FileSink sink = new FileSink(dir.toString(), config);
+    try {
+      // Far below batchBytes, so the batch waits for the linger to run out before its ack.
+      CompletableFuture<Void> ack = sink.applyChanges(null, "tablet", batch(1, 5));
+      assertFalse(ack.isDone());
+      ack.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+      // The flushed batch can be read while the file is still open.
+      List<Path> files = files("tablet");
+      assertEquals(1, files.size());
+      assertEquals(5, readTimes(files.get(0), 5).size());
+      assertEquals(5, sink.getMetrics().getRecords());
+    } finally {
+      sink.close();
+    }
+  }
+
+  @Test
+  public void testBatchBytesFlushWithoutLinger() throws Exception {
+    config.lingerMs = 60000;
+    config.batchBytes = 1;
+    FileSink sink = new FileSink(dir.toString(), config);
+    try {
+      // Past batchBytes, so the batch is flushed and acknowledged right away.
+      assertTrue(sink.applyChanges(null, "tablet", batch(1, 5)).isDone());
+    } finally {
+      sink.close();
+    }
+  }
+
+  @Test
+  public void testFailedWrite() throws Exception {
+    config.lingerMs = 0;
+    FileSink sink = new FileSink(dir.toString(), config);
+    try {
+      // A file where the tablet's directory should be makes opening its file fail.
+      Path tabletDir = dir.resolve("tablet");
+      Files.createFile(tabletDir);
+      CompletableFuture<Void> ack = sink.applyChanges(null, "tablet", batch(1, 5));
+      try {
+        ack.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        fail("The write should have failed");
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof IOException);
+      }
+      assertEquals(1, sink.getMetrics().getErrors());
+      assertEquals(0, sink.getMetrics().getRecords());
+
+      // The next batch starts a new file.
+      Files.delete(tabletDir);
+      sink.applyChanges(null, "tablet", batch(10, 5)).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    } finally {
+      sink.close();
+    }
+    List<Path> files = files("tablet");
+    assertEquals(1, files.size());
+    assertEquals(10L, (long) readAllTimes(files.get(0)).get(0));
+  }
+}
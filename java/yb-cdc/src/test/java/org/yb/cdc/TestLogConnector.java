@@ -0,0 +1,150 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.cdc;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.yb.AssertionWrappers.*;
+
+import com.stumbleupon.async.Deferred;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.yb.Opid;
+import org.yb.client.AsyncYBClient;
+import org.yb.client.GetChangesResponse;
+import org.yb.client.GetLatestEntryOpIdResponse;
+import org.yb.client.LocatedTablet;
+import org.yb.client.TestUtils;
+import org.yb.client.YBTable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.yb.YBTestRunner;
+
+import org.junit.runner.RunWith;
+
+@RunWith(value=YBTestRunner.class)
+public class TestLogConnector {
+  private static final long TIMEOUT_MS = 10000;
+
+  // Starts every tablet from scratch.
+  private static class EmptyCheckpointStore implements CheckpointStore {
+    @Override
+    public OpId get(String streamId, String tabletId) {
+      return OpId.INVALID;
+    }
+
+    @Override
+    public void update(String streamId, String tabletId, OpId checkpoint) {
+    }
+
+    @Override
+    public void flush() {
+    }
+  }
+
+  private ScheduledExecutorService timer;
+  private ThreadPoolExecutor workers;
+  private LogConnector connector;
+
+  @Before
+  public void setUp() {
+    timer = Executors.newSingleThreadScheduledExecutor();
+    workers = new ThreadPoolExecutor(2, 2, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+    // Every tablet is empty, so each poll returns nothing.
+    AsyncYBClient client = mock(AsyncYBClient.class);
+    when(client.getChanges(any(YBTable.class), anyString(), anyString(), any(byte[].class),
+                           anyLong(), anyLong()))
+        .thenAnswer(invocation -> Deferred.fromResult(emptyResponse()));
+    when(client.getLatestEntryOpId(any(YBTable.class), anyString(), any(byte[].class)))
+        .thenAnswer(invocation -> Deferred.<GetLatestEntryOpIdResponse>fromError(
+            new IOException("No lag in this test")));
+    connector = new LogConnector(client, new LogClient(), new EmptyCheckpointStore(), timer,
+                                 workers);
+  }
+
+  @After
+  public void tearDown() {
+    timer.shutdownNow();
+    workers.shutdownNow();
+  }
+
+  private static GetChangesResponse emptyResponse() {
+    CdcService.GetChangesResponsePB resp = CdcService.GetChangesResponsePB.newBuilder()
+        .setCheckpoint(CdcService.CDCCheckpointPB.newBuilder()
+            .setOpId(Opid.OpIdPB.newBuilder().setTerm(0).setIndex(0)))
+        .build();
+    GetChangesResponse response = mock(GetChangesResponse.class);
+    when(response.getResp()).thenReturn(resp);
+    return response;
+  }
+
+  private static List<LocatedTablet> tablets(String... tabletIds) {
+    List<LocatedTablet> tablets = new ArrayList<>();
+    for (String tabletId : tabletIds) {
+      LocatedTablet tablet = mock(LocatedTablet.class);
+      when(tablet.getTabletId()).thenReturn(tabletId.getBytes());
+      when(tablet.getStartKey()).thenReturn(new byte[0]);
+      tablets.add(tablet);
+    }
+    return tablets;
+  }
+
+  private boolean allPolled(String... tabletIds) {
+    for (String tabletId : tabletIds) {
+      CDCMetrics.TabletMetrics tabletMetrics = connector.getMetrics().getTablets().get(tabletId);
+      if (tabletMetrics == null || tabletMetrics.getPolls() == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Test
+  public void testPollersFollowTablets() throws Exception {
+    LogConnector.TableStream stream = new LogConnector.TableStream(mock(YBTable.class), "stream");
+    connector.updatePollers(stream, tablets("t1", "t2"));
+    assertEquals(new HashSet<>(Arrays.asList("t1", "t2")), stream.pollers.keySet());
+    TestUtils.waitFor(() -> allPolled("t1", "t2"), TIMEOUT_MS);
+    Poller poller1 = stream.pollers.get("t1");
+    Poller poller2 = stream.pollers.get("t2");
+
+    // A tablet appears, the pollers of the others keep going.
+    connector.updatePollers(stream, tablets("t1", "t2", "t3"));
+    assertEquals(new HashSet<>(Arrays.asList("t1", "t2", "t3")), stream.pollers.keySet());
+    assertSame(poller1, stream.pollers.get("t1"));
+    assertSame(poller2, stream.pollers.get("t2"));
+    TestUtils.waitFor(() -> allPolled("t3"), TIMEOUT_MS);
+
+    // A tablet is gone, its poller stops and its metrics go away.
+    connector.updatePollers(stream, tablets("t1", "t3"));
+    assertEquals(new HashSet<>(Arrays.asList("t1", "t3")), stream.pollers.keySet());
+    assertTrue(poller2.isStopped());
+    assertFalse(poller1.isStopped());
+    assertFalse(connector.getMetrics().getTablets().containsKey("t2"));
+    assertSame(poller1, stream.pollers.get("t1"));
+  }
+}
@@ -0,0 +1,54 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.cdc;
+
+import static org.yb.AssertionWrappers.*;
+
+import org.junit.Test;
+
+import org.yb.YBTestRunner;
+
+import org.junit.runner.RunWith;
+
+@RunWith(value=YBTestRunner.class)
+public class TestOpId {
+
+  @Test
+  public void testRoundTrip() {
+    OpId opId = new OpId(3, 1234567890123L);
+    assertEquals("3.1234567890123", opId.toString());
+    assertEquals(opId, OpId.fromString(opId.toString()));
+    assertEquals(opId, OpId.fromString(" 3.1234567890123\n"));
+    assertEquals(OpId.INVALID, OpId.fromString("0.0"));
+  }
+
+  @Test
+  public void testOrder() {
+    assertTrue(new OpId(1, 10).compareTo(new OpId(1, 11)) < 0);
+    assertTrue(new OpId(2, 1).compareTo(new OpId(1, 11)) > 0);
+    assertEquals(0, new OpId(1, 10).compareTo(new OpId(1, 10)));
+  }
+
+  @Test
+  public void testMalformed() {
+    String[] malformed = { "", "1", "1.", ".1", "1.2.3", "a.1", "1.b", "1,2" };
+    for (String str : malformed) {
+      try {
+        OpId.fromString(str);
+        fail("Parsing '" + str + "' should have failed");
+      } catch (IllegalArgumentException e) {
+        // Expected, NumberFormatException included.
+      }
+    }
+  }
+}
@@ -0,0 +1,262 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.cdc;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.yb.AssertionWrappers.*;
+
+import com.stumbleupon.async.Deferred;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.yb.Opid;
+import org.yb.client.AsyncYBClient;
+import org.yb.client.GetChangesResponse;
+import org.yb.client.GetLatestEntryOpIdResponse;
+import org.yb.client.LocatedTablet;
+import org.yb.client.TestUtils;
+import org.yb.client.YBTable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.yb.YBTestRunner;
+
+import org.junit.runner.RunWith;
+
+@RunWith(value=YBTestRunner.class)
+public class TestPoller {
+  private static final String STREAM_ID = "stream";
+  private static final String TABLET_ID = "tablet";
+  private static final long TIMEOUT_MS = 10000;
+
+  private static class MemoryCheckpointStore implements CheckpointStore {
+    private final Map<String, OpId> checkpoints = new ConcurrentHashMap<>();
+
+    @Override
+    public OpId get(String streamId, String tabletId) {
+      return checkpoints.getOrDefault(streamId + "/" + tabletId, OpId.INVALID);
+    }
+
+    @Override
+    public void update(String streamId, String tabletId, OpId checkpoint) {
+      checkpoints.put(streamId + "/" + tabletId, checkpoint);
+    }
+
+    @Override
+    public void flush() {
+    }
+  }
+
+  // Keeps the batches it gets, so that the test acknowledges them in the order it wants.
+  private static class FakeOutputClient implements OutputClient {
+    private final List<List<CdcService.CDCRecordPB>> batches = new ArrayList<>();
+    private final List<CompletableFuture<Void>> acks = new ArrayList<>();
+
+    @Override
+    public void applyChange(YBTable table, CdcService.CDCRecordPB changeRecord) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public synchronized CompletableFuture<Void> applyChanges(
+        YBTable table, String tabletId, List<CdcService.CDCRecordPB> records) {
+      CompletableFuture<Void> ack = new CompletableFuture<>();
+      batches.add(records);
+      acks.add(ack);
+      return ack;
+    }
+
+    synchronized int numBatches() {
+      return batches.size();
+    }
+
+    // The time of the first record of the batch, which is the log index it was read at plus one.
+    synchronized long firstRecordTime(int batch) {
+      return batches.get(batch).get(0).getTime();
+    }
+
+    void ack(int batch) {
+      CompletableFuture<Void> ack;
+      synchronized (this) {
+        ack = acks.get(batch);
+      }
+      ack.complete(null);
+    }
+
+    void fail(int batch, Exception e) {
+      CompletableFuture<Void> ack;
+      synchronized (this) {
+        ack = acks.get(batch);
+      }
+      ack.completeExceptionally(e);
+    }
+  }
+
+  private ScheduledExecutorService timer;
+  private ExecutorService workers;
+  private AsyncYBClient client;
+  private MemoryCheckpointStore checkpointStore;
+  private FakeOutputClient outputClient;
+  private CDCMetrics metrics;
+  private Poller poller;
+
+  // The log index each poll started from.
+  private final List<Long> pollIndexes = Collections.synchronizedList(new ArrayList<>());
+  // Number of entries in the log of the tablet, each with one record.
+  private volatile long logSize = 0;
+
+  @Before
+  public void setUp() {
+    timer = Executors.newSingleThreadScheduledExecutor();
+    workers = Executors.newFixedThreadPool(2);
+    checkpointStore = new MemoryCheckpointStore();
+    outputClient = new FakeOutputClient();
+    metrics = new CDCMetrics();
+    client = mock(AsyncYBClient.class);
+    when(client.getChanges(any(YBTable.class), anyString(), anyString(), any(byte[].class),
+                           anyLong(), anyLong()))
+        .thenAnswer(invocation -> Deferred.fromResult(
+            getChanges((Long) invocation.getArguments()[5])));
+    when(client.getLatestEntryOpId(any(YBTable.class), anyString(), any(byte[].class)))
+        .thenAnswer(invocation -> Deferred.<GetLatestEntryOpIdResponse>fromError(
+            new IOException("No lag in this test")));
+  }
+
+  @After
+  public void tearDown() {
+    if (poller != null) {
+      poller.stop();
+    }
+    timer.shutdownNow();
+    workers.shutdownNow();
+  }
+
+  // Returns the next entry of the log from the index, or nothing past the end of the log.
+  private GetChangesResponse getChanges(long fromIndex) {
+    pollIndexes.add(fromIndex);
+    CdcService.GetChangesResponsePB.Builder resp = CdcService.GetChangesResponsePB.newBuilder();
+    long toIndex = fromIndex;
+    if (fromIndex < logSize) {
+      resp.addRecords(CdcService.CDCRecordPB.newBuilder().setTime(fromIndex + 1));
+      toIndex = fromIndex + 1;
+    }
+    resp.setCheckpoint(CdcService.CDCCheckpointPB.newBuilder()
+        .setOpId(Opid.OpIdPB.newBuilder().setTerm(1).setIndex(toIndex)));
+    GetChangesResponse response = mock(GetChangesResponse.class);
+    when(response.getResp()).thenReturn(resp.build());
+    return response;
+  }
+
+  private Poller startPoller() {
+    LocatedTablet tablet = mock(LocatedTablet.class);
+    when(tablet.getTabletId()).thenReturn(TABLET_ID.getBytes());
+    when(tablet.getStartKey()).thenReturn(new byte[0]);
+    poller = new Poller(outputClient, mock(YBTable.class), STREAM_ID, tablet, timer, workers,
+                        client, checkpointStore, metrics);
+    poller.poll();
+    return poller;
+  }
+
+  private OpId getCheckpoint() {
+    return checkpointStore.get(STREAM_ID, TABLET_ID);
+  }
+
+  @Test
+  public void testCheckpointOnlyMovesPastContiguousAcks() throws Exception {
+    logSize = 10;
+    startPoller();
+    TestUtils.waitFor(() -> outputClient.numBatches() == Poller.DEFAULT_MAX_IN_FLIGHT_BATCHES,
+                      TIMEOUT_MS);
+    for (int i = 0; i < outputClient.numBatches(); i++) {
+      assertEquals(i + 1, outputClient.firstRecordTime(i));
+    }
+
+    // The window is full, so no more polls go out until the oldest batch is acknowledged.
+    outputClient.ack(1);
+    outputClient.ack(2);
+    Thread.sleep(200);
+    assertEquals(Poller.DEFAULT_MAX_IN_FLIGHT_BATCHES, outputClient.numBatches());
+    assertEquals(Poller.DEFAULT_MAX_IN_FLIGHT_BATCHES, pollIndexes.size());
+    assertEquals(OpId.INVALID, getCheckpoint());
+
+    // Acknowledging the oldest batch moves the checkpoint past the three contiguous ones.
+    outputClient.ack(0);
+    TestUtils.waitFor(() -> getCheckpoint().equals(new OpId(1, 3)), TIMEOUT_MS);
+    TestUtils.waitFor(() -> outputClient.numBatches() == 7, TIMEOUT_MS);
+    assertEquals(7, outputClient.firstRecordTime(6));
+
+    outputClient.ack(4);
+    Thread.sleep(200);
+    assertEquals(new OpId(1, 3), getCheckpoint());
+    outputClient.ack(3);
+    TestUtils.waitFor(() -> getCheckpoint().equals(new OpId(1, 5)), TIMEOUT_MS);
+  }
+
+  @Test
+  public void testRestartFromCheckpointAfterSinkFailure() throws Exception {
+    logSize = 10;
+    startPoller();
+    TestUtils.waitFor(() -> outputClient.numBatches() == Poller.DEFAULT_MAX_IN_FLIGHT_BATCHES,
+                      TIMEOUT_MS);
+    outputClient.ack(0);
+    TestUtils.waitFor(() -> getCheckpoint().equals(new OpId(1, 1)), TIMEOUT_MS);
+    TestUtils.waitFor(() -> outputClient.numBatches() == 5, TIMEOUT_MS);
+
+    // A batch after the failed one was written, but the checkpoint cannot skip the failed one.
+    outputClient.ack(2);
+    outputClient.fail(1, new IOException("Sink is down"));
+
+    // The poller starts over from the last acknowledged checkpoint.
+    TestUtils.waitFor(() -> outputClient.numBatches() > 5, TIMEOUT_MS);
+    assertEquals(2, outputClient.firstRecordTime(5));
+    assertEquals(1L, (long) pollIndexes.get(5));
+
+    // The acks of the batches from before the restart are ignored.
+    outputClient.ack(3);
+    outputClient.ack(4);
+    Thread.sleep(200);
+    assertEquals(new OpId(1, 1), getCheckpoint());
+
+    outputClient.ack(5);
+    TestUtils.waitFor(() -> getCheckpoint().equals(new OpId(1, 2)), TIMEOUT_MS);
+  }
+
+  @Test
+  public void testEmptyPollsBackOff() throws Exception {
+    startPoller();
+    Thread.sleep(500);
+    poller.stop();
+
+    // The delays double from MIN_IDLE_DELAY_MS, so only a handful of polls fit in the time.
+    int numPolls = pollIndexes.size();
+    assertTrue("Polls: " + numPolls, numPolls >= 3 && numPolls <= 10);
+    TestUtils.waitFor(() -> metrics.forTablet(TABLET_ID).getEmptyPolls() == numPolls,
+                      TIMEOUT_MS);
+    assertEquals(0, outputClient.numBatches());
+    // Empty batches still count as acknowledged.
+    assertEquals(new OpId(1, 0), getCheckpoint());
+  }
+}
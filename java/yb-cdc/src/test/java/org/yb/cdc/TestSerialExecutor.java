@@ -0,0 +1,131 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.cdc;
+
+import static org.yb.AssertionWrappers.*;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.yb.YBTestRunner;
+
+import org.junit.runner.RunWith;
+
+@RunWith(value=YBTestRunner.class)
+public class TestSerialExecutor {
+
+  // A pool that only runs its tasks when the test says so, in the order they were queued.
+  private static class ManualPool implements Executor {
+    final Queue<Runnable> queue = new ArrayDeque<>();
+
+    @Override
+    public void execute(Runnable task) {
+      queue.add(task);
+    }
+
+    void runOne() {
+      queue.poll().run();
+    }
+  }
+
+  @Test
+  public void testRunsInOrderOneAtATime() throws Exception {
+    int numTasks = 1000;
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    try {
+      SerialExecutor executor = new SerialExecutor(pool);
+      List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+      AtomicInteger numRunning = new AtomicInteger();
+      AtomicInteger maxRunning = new AtomicInteger();
+      CountDownLatch done = new CountDownLatch(numTasks);
+      for (int i = 0; i < numTasks; i++) {
+        final int task = i;
+        executor.execute(() -> {
+          maxRunning.accumulateAndGet(numRunning.incrementAndGet(), Math::max);
+          order.add(task);
+          Thread.yield();
+          numRunning.decrementAndGet();
+          done.countDown();
+        });
+      }
+      assertTrue(done.await(10, TimeUnit.SECONDS));
+      assertEquals(1, maxRunning.get());
+      for (int i = 0; i < numTasks; i++) {
+        assertEquals(i, (int) order.get(i));
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testRequeuesAfterEachTask() {
+    ManualPool pool = new ManualPool();
+    SerialExecutor busy = new SerialExecutor(pool);
+    SerialExecutor quiet = new SerialExecutor(pool);
+    List<String> order = new ArrayList<>();
+    busy.execute(() -> order.add("busy1"));
+    busy.execute(() -> order.add("busy2"));
+    busy.execute(() -> order.add("busy3"));
+    quiet.execute(() -> order.add("quiet1"));
+    // Each executor holds at most one slot in the pool's queue.
+    assertEquals(2, pool.queue.size());
+
+    pool.runOne();
+    // The busy executor went to the back of the queue instead of running its next task.
+    assertEquals(Arrays.asList("busy1"), order);
+    assertEquals(2, pool.queue.size());
+
+    while (!pool.queue.isEmpty()) {
+      pool.runOne();
+    }
+    assertEquals(Arrays.asList("busy1", "quiet1", "busy2", "busy3"), order);
+
+    // An idle executor takes a slot again once it gets a task.
+    quiet.execute(() -> order.add("quiet2"));
+    assertEquals(1, pool.queue.size());
+    pool.runOne();
+    assertEquals("quiet2", order.get(order.size() - 1));
+  }
+
+  @Test
+  public void testFailedTaskDoesNotStopLaterOnes() {
+    ManualPool pool = new ManualPool();
+    SerialExecutor executor = new SerialExecutor(pool);
+    List<String> order = new ArrayList<>();
+    executor.execute(() -> {
+      throw new IllegalStateException("Task failed");
+    });
+    executor.execute(() -> order.add("next"));
+    try {
+      pool.runOne();
+      fail("The task should have failed");
+    } catch (IllegalStateException e) {
+      // Expected, the pool sees the failure.
+    }
+    pool.runOne();
+    assertEquals(Arrays.asList("next"), order);
+  }
+}
@@ -104,16 +104,23 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 /**
  * A fully asynchronous and thread-safe client for YB.
@@ -160,6 +167,15 @@ public class AsyncYBClient implements AutoCloseable {
   public static final long DEFAULT_OPERATION_TIMEOUT_MS = 10000;
   public static final long DEFAULT_SOCKET_READ_TIMEOUT_MS = 5000;
 
+  // Number of errors a condition wait tolerates before it gives up.
+  public static final int MAX_CONDITION_ERRORS_TO_IGNORE = 2500;
+
+  // Log condition check errors every so many errors.
+  private static final int LOG_CONDITION_ERRORS_EVERY_NUM_ITERS = 100;
+
+  // Log info after these many condition checks.
+  private static final int LOG_CONDITION_EVERY_NUM_ITERS = 200;
+
   private final ClientSocketChannelFactory channelFactory;
 
   // TODO(Bharat) - get tablet id from master leader.
@@ -222,6 +238,19 @@ public class AsyncYBClient implements AutoCloseable {
   private final HashMap<String, TabletClient> ip2client =
       new HashMap<String, TabletClient>();
 
+  /**
+   * Maps a client cached in {@link #ip2client} to the extra connections opened to the same
+   * server, when more than one connection per server is configured.
+   */
+  private final ConcurrentHashMap<TabletClient, ConnectionGroup> connectionGroups =
+      new ConcurrentHashMap<>();
+
+  // Number of connections opened to each server, RPCs are spread over them round-robin.
+  private final int connectionsPerServer;
+
+  // Connections without tablets that have seen no traffic for this long get closed, 0 disables.
+  private final long connectionIdleTimeoutMs;
+
   // Since the masters also go through TabletClient, we need to treat them as if they were a normal
   // table. We'll use the following fake table name to identify places where we need special
   // handling.
@@ -231,6 +260,11 @@ public class AsyncYBClient implements AutoCloseable {
 
   private final HashedWheelTimer timer = new HashedWheelTimer(20, MILLISECONDS);
 
+  // Runs the checks of the condition waits, which may block resolving addresses, so that they
+  // don't hold up the timer they are scheduled on.
+  private final ExecutorService conditionCheckExecutor = Executors.newCachedThreadPool(
+      new ThreadFactoryBuilder().setNameFormat("yb-condition-check-%d").setDaemon(true).build());
+
   /**
    * Timestamp required for HybridTime external consistency through timestamp
    * propagation.
@@ -252,7 +286,36 @@ public class AsyncYBClient implements AutoCloseable {
    */
   private final Semaphore masterLookups = new Semaphore(50);
 
-  private final Random sleepRandomizer = new Random();
+  /**
+   * Master lookups in flight, per table ID and keyed by the partition key they start at. A cache
+   * miss for a key at or after the start of an in-flight lookup waits for that lookup instead of
+   * sending its own, since the lookup returns the tablets following its start key too.
+   * <p>
+   * Access to each per-table map must be synchronized by locking it.
+   */
+  private final ConcurrentHashMap<String, TreeMap<byte[], TabletLookup>> pendingLookups =
+      new ConcurrentHashMap<>();
+
+  // Tablet lookup counters, per table ID.
+  private final ConcurrentHashMap<String, TableLookupStats> lookupStats =
+      new ConcurrentHashMap<>();
+
+  // Writes of RPCs to the servers, over all connections.
+  private final WriteStats writeStats = new WriteStats();
+
+  private final ClientMetrics clientMetrics;
+
+  // Replica selection of the RPCs that allow stale reads, unless they override it.
+  private final ReplicaSelection replicaSelection;
+
+  // Where this client runs, to find the closest replicas, or null if unknown.
+  private final Common.CloudInfoPB placement;
+
+  // Number of tablets a master lookup asks for, starting at the tablet of the missing key.
+  private final int tabletPrefetchCount;
+
+  // Decides the delay before retrying a failed RPC, and whether to retry it at all.
+  private final RetryPolicy retryPolicy;
 
   private final long defaultOperationTimeoutMs;
 
@@ -262,6 +325,16 @@ public class AsyncYBClient implements AutoCloseable {
 
   private final String certFile;
 
+  // Delay before the second check of a condition wait, doubled after each check.
+  private final long conditionPollBaseDelayMs;
+
+  // Upper bound of the delay between two checks of a condition wait.
+  private final long conditionPollMaxDelayMs;
+
+  // Simple way to inject an error on condition waits. If enabled, the next check fails and it
+  // gets turned off.
+  private final AtomicBoolean injectWaitError = new AtomicBoolean(false);
+
   private volatile boolean closed;
 
   private AsyncYBClient(AsyncYBClientBuilder b) {
@@ -273,6 +346,18 @@ public class AsyncYBClient implements AutoCloseable {
     this.defaultAdminOperationTimeoutMs = b.defaultAdminOperationTimeoutMs;
     this.certFile = b.certFile;
     this.defaultSocketReadTimeoutMs = b.defaultSocketReadTimeoutMs;
+    this.tabletPrefetchCount = b.tabletPrefetchCount;
+    this.retryPolicy = b.retryPolicy != null ? b.retryPolicy : new ExponentialBackoffRetryPolicy();
+    this.connectionsPerServer = b.connectionsPerServer;
+    this.clientMetrics = new ClientMetrics(b.metricsEnabled);
+    this.replicaSelection = b.replicaSelection;
+    this.placement = b.placement;
+    this.conditionPollBaseDelayMs = b.conditionPollBaseDelayMs;
+    this.conditionPollMaxDelayMs = b.conditionPollMaxDelayMs;
+    this.connectionIdleTimeoutMs = b.connectionIdleTimeoutMs;
+    if (connectionIdleTimeoutMs > 0) {
+      newTimeout(new IdleConnectionReaper(), connectionIdleTimeoutMs);
+    }
   }
 
   /**
@@ -388,6 +473,59 @@ public class AsyncYBClient implements AutoCloseable {
     return d.addCallback(cb);
   }
 
+  /**
+   * Get changes for a given tablet and stream from the tablet's leader. The leader is found
+   * through the tablet cache, and the request follows leader changes like any other tablet RPC.
+   * @param table the table to get changes for.
+   * @param streamId the stream to get changes for.
+   * @param tabletId the tablet to get changes for.
+   * @param partitionKey the start key of the tablet's partition.
+   * @param term the leader term to start getting changes for.
+   * @param index the log index to start get changes for.
+   * @return a deferred object for the response from server.
+   */
+  public Deferred<GetChangesResponse> getChanges(
+          YBTable table, String streamId, String tabletId, byte[] partitionKey, long term,
+          long index) {
+    checkIsClosed();
+    GetChangesRequest rpc =
+        new GetChangesRequest(table, streamId, tabletId, partitionKey, term, index);
+    rpc.setTimeoutMillis(defaultOperationTimeoutMs);
+    return sendRpcToTablet(rpc);
+  }
+
+  /**
+   * Get the OpId of the latest entry in the log of one of a tablet's replicas, picked with the
+   * client's {@link ReplicaSelection}. Only the leader's OpId is current, the one of a follower
+   * may be behind.
+   * @param table the table the tablet belongs to.
+   * @param tabletId the tablet to get the latest OpId for.
+   * @param partitionKey the start key of the tablet's partition.
+   * @return a deferred object for the response from server.
+   */
+  public Deferred<GetLatestEntryOpIdResponse> getLatestEntryOpId(
+          YBTable table, String tabletId, byte[] partitionKey) {
+    return getLatestEntryOpId(table, tabletId, partitionKey, null);
+  }
+
+  /**
+   * Get the OpId of the latest entry in the log of one of a tablet's replicas.
+   * @param table the table the tablet belongs to.
+   * @param tabletId the tablet to get the latest OpId for.
+   * @param partitionKey the start key of the tablet's partition.
+   * @param replicaSelection how to pick the replica, or null to use the client's.
+   * @return a deferred object for the response from server.
+   */
+  public Deferred<GetLatestEntryOpIdResponse> getLatestEntryOpId(
+          YBTable table, String tabletId, byte[] partitionKey,
+          ReplicaSelection replicaSelection) {
+    checkIsClosed();
+    GetLatestEntryOpIdRequest rpc = new GetLatestEntryOpIdRequest(table, tabletId, partitionKey);
+    rpc.setTimeoutMillis(defaultOperationTimeoutMs);
+    rpc.setReplicaSelection(replicaSelection);
+    return sendRpcToTablet(rpc);
+  }
+
   /**
    * Check if the server is ready to serve requests.
    * @param hp host port of the server.
@@ -1086,7 +1224,12 @@ public class AsyncYBClient implements AutoCloseable {
     }
 
     if (tablet != null) {
-      TabletClient tabletClient = clientFor(tablet);
+      final ReplicaSelection selection = replicaSelectionFor(request);
+      final TabletClient replica = clientFor(tablet, selection);
+      if (replica != null && selection != ReplicaSelection.LEADER_ONLY) {
+        clientMetrics.onStaleReadRouted(proximity(replica) >= PROXIMITY_SAME_REGION);
+      }
+      TabletClient tabletClient = connectionFor(replica);
       if (tabletClient != null) {
         request.setTablet(tablet);
         final Deferred<R> d = request.getDeferred();
@@ -1143,7 +1286,7 @@ public class AsyncYBClient implements AutoCloseable {
    * Use {@code AsyncUtil.addCallbacksDeferring} to add this as the "errback" and
    * {@link RetryRpcCB} as the callback to the {@code Deferred} returned by
    * {@link #locateTablet(String, byte[])}.
-   * @see #delayedSendRpcToTablet(YRpc, YBException)
+   * @see #delayedSendRpcToTablet(YRpc, YBException, TabletClient, RetryPolicy.RetryReason)
    * @param <R> The type of the original RPC.
    */
   final class RetryRpcErrback<R> implements Callback<Deferred<R>, Exception> {
@@ -1162,7 +1305,8 @@ public class AsyncYBClient implements AutoCloseable {
         // TODO: Handle the situation when multiple in-flight RPCs are queued waiting
         // for the leader master to be determine (either after a failure or at initialization
         // time). This could re-use some of the existing piping in place for non-master tablets.
-        delayedSendRpcToTablet(request, (NoLeaderMasterFoundException) arg, null);
+        delayedSendRpcToTablet(request, (NoLeaderMasterFoundException) arg, null,
+                               RetryPolicy.RetryReason.LEADER_NOT_READY);
         return d;
       }
       // Pass all other exceptions through.
@@ -1237,7 +1381,10 @@ public class AsyncYBClient implements AutoCloseable {
         d.addCallbacks(retryCB, errback);
       }
     }
-    long sleepTime = getSleepTimeForRpc(rpc);
+    long sleepTime = getSleepTimeForRpc(rpc, RetryPolicy.RetryReason.TABLE_NOT_SERVED);
+    if (sleepTime < 0) {
+      return retryBudgetExhausted(rpc, null);
+    }
     if (rpc.deadlineTracker.wouldSleepingTimeout(sleepTime)) {
       return tooManyAttemptsOrTimeout(rpc, null);
     }
@@ -1282,7 +1429,13 @@ public class AsyncYBClient implements AutoCloseable {
   }
 
 
-  long getSleepTimeForRpc(YRpc<?> rpc) {
+  /**
+   * Asks the retry policy how long to wait before retrying the given RPC.
+   * @param rpc the RPC to retry
+   * @param reason why the RPC is being retried
+   * @return the delay in milliseconds, or a negative value if the RPC shouldn't be retried
+   */
+  long getSleepTimeForRpc(YRpc<?> rpc, RetryPolicy.RetryReason reason) {
     byte attemptCount = rpc.attempt;
     assert (attemptCount > 0);
     if (attemptCount == 0) {
@@ -1290,14 +1443,18 @@ public class AsyncYBClient implements AutoCloseable {
           new Exception("Exception created to collect stack trace"));
       attemptCount = 1;
     }
-    // TODO backoffs? Sleep in increments of 500 ms, plus some random time up to 50
-    long sleepTime = (attemptCount * SLEEP_TIME) + sleepRandomizer.nextInt(50);
+    long sleepTime = retryPolicy.getRetryDelayMs(reason, attemptCount);
     if (LOG.isDebugEnabled()) {
-      LOG.debug("Going to sleep for " + sleepTime + " at retry " + rpc.attempt);
+      LOG.debug("Going to sleep for " + sleepTime + " at retry " + rpc.attempt +
+          " because of " + reason);
     }
     return sleepTime;
   }
 
+  RetryPolicy getRetryPolicy() {
+    return retryPolicy;
+  }
+
   /**
    * Modifying the list returned by this method won't change how AsyncYBClient behaves,
    * but calling certain methods on the returned TabletClients can. For example,
@@ -1329,25 +1486,51 @@ public class AsyncYBClient implements AutoCloseable {
   }
 
   TabletClient clientFor(RemoteTablet tablet) {
+    return clientFor(tablet, ReplicaSelection.LEADER_ONLY);
+  }
+
+  /**
+   * Picks the replica of the given tablet to send an RPC to.
+   * @param tablet the tablet, may be null
+   * @param selection how to pick the replica
+   * @return the client connected to the replica, or null if there's no suitable replica
+   */
+  TabletClient clientFor(RemoteTablet tablet, ReplicaSelection selection) {
     if (tablet == null) {
       return null;
     }
+    return tablet.selectReplica(selection);
+  }
 
-    synchronized (tablet.tabletServers) {
-      if (tablet.tabletServers.isEmpty()) {
-        return null;
-      }
-      if (tablet.leaderIndex == RemoteTablet.NO_LEADER_INDEX) {
-        // TODO we don't know where the leader is, either because one wasn't provided or because
-        // we couldn't resolve its IP. We'll just send the client back so it retries and probably
-        // dies after too many attempts.
-        return null;
-      } else {
-        // TODO we currently always hit the leader, we probably don't need to except for writes
-        // and some reads.
-        return tablet.tabletServers.get(tablet.leaderIndex);
-      }
+  // Only RPCs that allow stale reads may go to a follower.
+  private ReplicaSelection replicaSelectionFor(YRpc<?> rpc) {
+    if (!rpc.allowsStaleReads()) {
+      return ReplicaSelection.LEADER_ONLY;
+    }
+    return rpc.getReplicaSelection() != null ? rpc.getReplicaSelection() : replicaSelection;
+  }
+
+  private static final int PROXIMITY_SAME_CLOUD = 1;
+  private static final int PROXIMITY_SAME_REGION = 2;
+  private static final int PROXIMITY_SAME_ZONE = 3;
+
+  /**
+   * Tells how close a server is to this client, from 0 when the placement of either is unknown or
+   * they're in different clouds, up to {@link #PROXIMITY_SAME_ZONE}.
+   */
+  private int proximity(TabletClient server) {
+    final Common.CloudInfoPB serverPlacement = server.getCloudInfo();
+    if (placement == null || serverPlacement == null ||
+        !placement.getPlacementCloud().equals(serverPlacement.getPlacementCloud())) {
+      return 0;
+    }
+    if (!placement.getPlacementRegion().equals(serverPlacement.getPlacementRegion())) {
+      return PROXIMITY_SAME_CLOUD;
     }
+    if (!placement.getPlacementZone().equals(serverPlacement.getPlacementZone())) {
+      return PROXIMITY_SAME_REGION;
+    }
+    return PROXIMITY_SAME_ZONE;
   }
 
   /**
@@ -1383,26 +1566,84 @@ public class AsyncYBClient implements AutoCloseable {
   }
 
   /**
-   * Sends a getTableLocations RPC to the master to find the table's tablets.
+   * Returns a {@link Deferred} containing an exception when the retry policy refused to retry
+   * an RPC, because the client is already retrying too many RPCs.
+   * @param request The RPC that won't be retried.
+   * @param cause What was cause of the last failed attempt, if known.
+   * You can pass {@code null} if the cause is unknown.
+   */
+  static <R> Deferred<R> retryBudgetExhausted(final YRpc<R> request,
+                                              final YBException cause) {
+    final Exception e = new NonRecoverableException("Retry budget exhausted: " + request, cause);
+    request.errback(e);
+    return Deferred.fromError(e);
+  }
+
+  /**
+   * Sends a getTableLocations RPC to the master to find the table's tablets. The lookup asks for
+   * the tablet holding the key and the ones following it, and concurrent lookups for the keys
+   * following the key of a lookup already in flight wait for it instead of going to the master.
    * @param table table to lookup
    * @param partitionKey can be null, if not we'll find the exact tablet that contains it
    * @return Deferred to track the progress
    */
   Deferred<Master.GetTableLocationsResponsePB> locateTablet(YBTable table, byte[] partitionKey) {
-    final boolean has_permit = acquireMasterLookupPermit();
+    return locateTablet(table, partitionKey, true);
+  }
+
+  /**
+   * Sends a getTableLocations RPC to the master to find the table's tablets.
+   * @param table table to lookup
+   * @param partitionKey can be null, if not we'll find the exact tablet that contains it
+   * @param mayWait whether the lookup may wait for a lookup already in flight instead
+   * @return Deferred to track the progress
+   */
+  private Deferred<Master.GetTableLocationsResponsePB> locateTablet(YBTable table,
+                                                                    byte[] partitionKey,
+                                                                    boolean mayWait) {
     String tableId = table.getTableId();
+    TableLookupStats stats = getLookupStats(tableId);
+    byte[] lookupKey = partitionKey == null ? EMPTY_ARRAY : partitionKey;
+    TreeMap<byte[], TabletLookup> tableLookups = pendingLookups.get(tableId);
+    if (tableLookups == null) {
+      tableLookups = new TreeMap<>(Bytes.MEMCMP);
+      TreeMap<byte[], TabletLookup> oldLookups = pendingLookups.putIfAbsent(tableId, tableLookups);
+      if (oldLookups != null) {
+        tableLookups = oldLookups;
+      }
+    }
+    final TabletLookup lookup;
+    final Deferred<Master.GetTableLocationsResponsePB> result;
+    synchronized (tableLookups) {
+      Map.Entry<byte[], TabletLookup> pending = tableLookups.floorEntry(lookupKey);
+      if (pending != null && mayWait) {
+        stats.coalescedLookups.incrementAndGet();
+        // The lookup in flight only returns the first tablets following its key, which may not
+        // reach this key.
+        return pending.getValue().addWaiter().addCallbackDeferring(
+            new CoalescedLookupCB(table, partitionKey));
+      }
+      lookup = new TabletLookup();
+      if (!tableLookups.containsKey(lookupKey)) {
+        tableLookups.put(lookupKey, lookup);
+      }
+      result = lookup.addWaiter();
+    }
+
+    final boolean has_permit = acquireMasterLookupPermit();
     if (!has_permit) {
       // If we failed to acquire a permit, it's worth checking if someone
       // looked up the tablet we're interested in.  Every once in a while
       // this will save us a Master lookup.
       RemoteTablet tablet = getTablet(tableId, partitionKey);
       if (tablet != null && clientFor(tablet) != null) {
-        return Deferred.fromResult(null);  // Looks like no lookup needed.
+        // Looks like no lookup needed.
+        completeLookup(tableLookups, lookupKey, lookup, null);
+        return result;
       }
     }
-    GetTableLocationsRequest rpc =
-        new GetTableLocationsRequest(masterTable, partitionKey, partitionKey, tableId);
-    rpc.setTimeoutMillis(defaultAdminOperationTimeoutMs);
+    stats.masterLookups.incrementAndGet();
+    clientMetrics.onMasterLookup();
     final Deferred<Master.GetTableLocationsResponsePB> d;
 
     // If we know this is going to the master, check the master consensus configuration (as specified by
@@ -1410,13 +1651,238 @@ public class AsyncYBClient implements AutoCloseable {
     if (isMasterTable(tableId)) {
       d = getMasterTableLocationsPB();
     } else {
+      // No end key, so that the master also returns the tablets after the one we need.
+      GetTableLocationsRequest rpc = new GetTableLocationsRequest(masterTable, partitionKey,
+          null, tableId, tabletPrefetchCount);
+      rpc.setTimeoutMillis(defaultAdminOperationTimeoutMs);
       d = sendRpcToTablet(rpc);
     }
     d.addCallback(new MasterLookupCB(table));
     if (has_permit) {
       d.addBoth(new ReleaseMasterLookupPermit<Master.GetTableLocationsResponsePB>());
     }
-    return d;
+    d.addBoth(new CompleteLookupCB<Master.GetTableLocationsResponsePB>(
+        tableLookups, lookupKey, lookup));
+    return result;
+  }
+
+  /**
+   * A master lookup in flight, along with the callers waiting for it.
+   */
+  private static final class TabletLookup {
+    private final List<Deferred<Master.GetTableLocationsResponsePB>> waiters = new ArrayList<>();
+
+    // Must be called with the lock of the per-table lookups map held.
+    Deferred<Master.GetTableLocationsResponsePB> addWaiter() {
+      Deferred<Master.GetTableLocationsResponsePB> d = new Deferred<>();
+      waiters.add(d);
+      return d;
+    }
+  }
+
+  /**
+   * Removes the lookup from the in-flight ones and hands its result, which may be an exception,
+   * to all the callers waiting for it.
+   */
+  private void completeLookup(TreeMap<byte[], TabletLookup> tableLookups, byte[] lookupKey,
+                              TabletLookup lookup, Object result) {
+    List<Deferred<Master.GetTableLocationsResponsePB>> waiters;
+    synchronized (tableLookups) {
+      tableLookups.remove(lookupKey, lookup);
+      waiters = new ArrayList<>(lookup.waiters);
+      lookup.waiters.clear();
+    }
+    for (Deferred<Master.GetTableLocationsResponsePB> waiter : waiters) {
+      waiter.callback(result);
+    }
+  }
+
+  /**
+   * Callback executed once the lookup a caller waited for is over. If that lookup did not reach
+   * the caller's key, a lookup for the key itself is sent right away, rather than having the
+   * caller's RPC retry and spend one of its attempts on it.
+   */
+  private final class CoalescedLookupCB
+      implements Callback<Deferred<Master.GetTableLocationsResponsePB>,
+                          Master.GetTableLocationsResponsePB> {
+    private final YBTable table;
+    private final byte[] partitionKey;
+
+    CoalescedLookupCB(YBTable table, byte[] partitionKey) {
+      this.table = table;
+      this.partitionKey = partitionKey;
+    }
+
+    public Deferred<Master.GetTableLocationsResponsePB> call(
+        final Master.GetTableLocationsResponsePB response) {
+      if (getTablet(table.getTableId(), partitionKey) != null) {
+        return Deferred.fromResult(response);
+      }
+      getLookupStats(table.getTableId()).missedCoalescedLookups.incrementAndGet();
+      return locateTablet(table, partitionKey, false);
+    }
+
+    public String toString() {
+      return "check coalesced master lookup";
+    }
+  }
+
+  /** Callback executed once the master lookup is over, whether it succeeded or not. */
+  private final class CompleteLookupCB<T> implements Callback<T, T> {
+    private final TreeMap<byte[], TabletLookup> tableLookups;
+    private final byte[] lookupKey;
+    private final TabletLookup lookup;
+
+    CompleteLookupCB(TreeMap<byte[], TabletLookup> tableLookups, byte[] lookupKey,
+                     TabletLookup lookup) {
+      this.tableLookups = tableLookups;
+      this.lookupKey = lookupKey;
+      this.lookup = lookup;
+    }
+
+    public T call(final T arg) {
+      completeLookup(tableLookups, lookupKey, lookup, arg);
+      return arg;
+    }
+
+    public String toString() {
+      return "complete master lookup";
+    }
+  }
+
+  private TableLookupStats getLookupStats(String tableId) {
+    TableLookupStats stats = lookupStats.get(tableId);
+    if (stats == null) {
+      stats = new TableLookupStats();
+      TableLookupStats oldStats = lookupStats.putIfAbsent(tableId, stats);
+      if (oldStats != null) {
+        stats = oldStats;
+      }
+    }
+    return stats;
+  }
+
+  /**
+   * Returns the tablet lookup counters of every table this client looked up, keyed by table ID.
+   * @return a read-only view of the counters
+   */
+  public Map<String, TableLookupStats> getTableLookupStats() {
+    return Collections.unmodifiableMap(lookupStats);
+  }
+
+  /**
+   * Counters of the tablet location lookups done for a table, to measure the load the client
+   * puts on the master.
+   */
+  public static final class TableLookupStats {
+    private final AtomicLong masterLookups = new AtomicLong();
+    private final AtomicLong coalescedLookups = new AtomicLong();
+    private final AtomicLong missedCoalescedLookups = new AtomicLong();
+    private final AtomicLong tabletsDiscovered = new AtomicLong();
+
+    /** @return the number of lookups sent to the master */
+    public long getMasterLookups() {
+      return masterLookups.get();
+    }
+
+    /** @return the number of lookups that waited for a lookup already in flight */
+    public long getCoalescedLookups() {
+      return coalescedLookups.get();
+    }
+
+    /**
+     * @return the number of lookups that waited for a lookup in flight that did not reach their
+     * key, and then went to the master
+     */
+    public long getMissedCoalescedLookups() {
+      return missedCoalescedLookups.get();
+    }
+
+    /** @return the number of tablets added to the cache by the lookups */
+    public long getTabletsDiscovered() {
+      return tabletsDiscovered.get();
+    }
+
+    @Override
+    public String toString() {
+      return "masterLookups=" + getMasterLookups() + ", coalescedLookups=" +
+          getCoalescedLookups() + ", tabletsDiscovered=" + getTabletsDiscovered();
+    }
+  }
+
+  ClientMetrics getClientMetrics() {
+    return clientMetrics;
+  }
+
+  /**
+   * Takes a snapshot of the RPC metrics of this client. The metrics are empty unless enabled with
+   * {@link AsyncYBClientBuilder#metricsEnabled}.
+   * @return the RPC latencies, retries, RPCs in flight and master lookups so far
+   */
+  public ClientMetrics.Snapshot getMetricsSnapshot() {
+    List<TabletClient> connections = getTableClients();
+    for (ConnectionGroup group : connectionGroups.values()) {
+      connections.addAll(group.getExtras());
+    }
+    return clientMetrics.snapshot(connections);
+  }
+
+  /**
+   * Returns the counters of the writes of RPCs to the servers, over all connections.
+   */
+  public WriteStats getWriteStats() {
+    return writeStats;
+  }
+
+  /**
+   * Counters of the writes to the servers' connections, to measure how many RPCs get coalesced
+   * into each write.
+   */
+  public static final class WriteStats {
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong rpcsWritten = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    void onFlush(int numRpcs, long numBytes) {
+      flushes.incrementAndGet();
+      rpcsWritten.addAndGet(numRpcs);
+      bytesWritten.addAndGet(numBytes);
+    }
+
+    /** @return the number of writes to the connections */
+    public long getFlushes() {
+      return flushes.get();
+    }
+
+    /** @return the number of RPCs written */
+    public long getRpcsWritten() {
+      return rpcsWritten.get();
+    }
+
+    /** @return the number of bytes written */
+    public long getBytesWritten() {
+      return bytesWritten.get();
+    }
+
+    /** @return the average number of RPCs per write */
+    public double getCoalescingRatio() {
+      final long numFlushes = getFlushes();
+      return numFlushes == 0 ? 0 : (double) getRpcsWritten() / numFlushes;
+    }
+
+    /** @return the average number of bytes per write */
+    public double getBytesPerFlush() {
+      final long numFlushes = getFlushes();
+      return numFlushes == 0 ? 0 : (double) getBytesWritten() / numFlushes;
+    }
+
+    @Override
+    public String toString() {
+      return "flushes=" + getFlushes() + ", rpcsWritten=" + getRpcsWritten() +
+          ", bytesWritten=" + getBytesWritten() +
+          String.format(", coalescingRatio=%.2f, bytesPerFlush=%.1f",
+              getCoalescingRatio(), getBytesPerFlush());
+    }
   }
 
   /**
@@ -1539,8 +2005,8 @@ public class AsyncYBClient implements AutoCloseable {
    * We're in the context of decode() meaning we need to either callback or retry later.
    */
   <R> void handleTabletNotFound(final YRpc<R> rpc, YBException ex, TabletClient server) {
-    invalidateTabletCache(rpc.getTablet(), server);
-    handleRetryableError(rpc, ex, server);
+    invalidateTabletCache(rpc.getTablet(), server.getPrimary());
+    handleRetryableError(rpc, ex, server, RetryPolicy.RetryReason.TABLET_NOT_FOUND);
   }
 
   /**
@@ -1548,16 +2014,23 @@ public class AsyncYBClient implements AutoCloseable {
    * a RPC, so we need to demote it and retry.
    */
   <R> void handleNotLeader(final YRpc<R> rpc, YBException ex, TabletClient server) {
-    rpc.getTablet().demoteLeader(server);
-    handleRetryableError(rpc, ex, server);
+    rpc.getTablet().demoteLeader(server.getPrimary());
+    handleRetryableError(rpc, ex, server, RetryPolicy.RetryReason.NOT_THE_LEADER);
   }
 
   <R> void handleRetryableError(final YRpc<R> rpc, YBException ex, TabletClient server) {
+    handleRetryableError(rpc, ex, server, RetryPolicy.RetryReason.OTHER);
+  }
+
+  <R> void handleRetryableError(final YRpc<R> rpc, YBException ex, TabletClient server,
+                                RetryPolicy.RetryReason reason) {
+    clientMetrics.onRetry(reason);
     // TODO we don't always need to sleep, maybe another replica can serve this RPC.
-    delayedSendRpcToTablet(rpc, ex, server);
+    delayedSendRpcToTablet(rpc, ex, server, reason);
   }
 
-  private <R> void delayedSendRpcToTablet(final YRpc<R> rpc, YBException ex, TabletClient server) {
+  private <R> void delayedSendRpcToTablet(final YRpc<R> rpc, YBException ex, TabletClient server,
+                                          RetryPolicy.RetryReason reason) {
     // Here we simply retry the RPC later. We might be doing this along with a lot of other RPCs
     // in parallel. Asynchbase does some hacking with a "probe" RPC while putting the other ones
     // on hold but we won't be doing this for the moment. Regions in HBase can move a lot,
@@ -1572,12 +2045,20 @@ public class AsyncYBClient implements AutoCloseable {
       }
     }
 
-    long sleepTime = getSleepTimeForRpc(rpc);
-    if (cannotRetryRequest(rpc) || rpc.deadlineTracker.wouldSleepingTimeout(sleepTime)) {
+    if (cannotRetryRequest(rpc)) {
       tooManyAttemptsOrTimeout(rpc, ex);
       // Don't let it retry.
       return;
     }
+    long sleepTime = getSleepTimeForRpc(rpc, reason);
+    if (sleepTime < 0) {
+      retryBudgetExhausted(rpc, ex);
+      return;
+    }
+    if (rpc.deadlineTracker.wouldSleepingTimeout(sleepTime)) {
+      tooManyAttemptsOrTimeout(rpc, ex);
+      return;
+    }
     newTimeout(new RetryTimer(), sleepTime);
   }
 
@@ -1677,6 +2158,7 @@ public class AsyncYBClient implements AutoCloseable {
       }
       LOG.info("Discovered tablet {} for table {} with partition {}",
                tabletId.toString(Charset.defaultCharset()), tableName, rt.getPartition());
+      getLookupStats(tableId).tabletsDiscovered.incrementAndGet();
       rt.refreshServers(tabletPb);
       // This is making this tablet available
       // Even if two clients were racing in this method they are putting the same RemoteTablet
@@ -1772,7 +2254,44 @@ public class AsyncYBClient implements AutoCloseable {
   // clients that are not explicitly bound to tablets, but tservers/masters for admin-style ops.
   TabletClient newSimpleClient(final HostAndPort hp) {
     String uuid = "fakeUUID -> " + hp.toString();
-    return newClient(uuid, hp.getHost(), hp.getPort());
+    // Connect by IP, as tablet lookups do, so that we reuse the connections already cached for
+    // the server instead of opening one per host name.
+    final String ip = getIP(hp.getHost());
+    if (ip == null) {
+      return null;
+    }
+    return connectionFor(newClient(uuid, ip, hp.getPort()));
+  }
+
+  /**
+   * Picks the connection to send the next RPC to a server on, round-robin over the connections
+   * opened to it. The extra connections are opened the first time they're picked.
+   * @param primary the client cached for the server, may be null
+   * @return the connection to use, or null if {@code primary} is null
+   */
+  TabletClient connectionFor(TabletClient primary) {
+    if (primary == null || connectionsPerServer <= 1) {
+      return primary;
+    }
+    final ConnectionGroup group = connectionGroups.get(primary);
+    if (group == null) {
+      return primary;
+    }
+    final int slot = Math.floorMod(group.next.getAndIncrement(), connectionsPerServer);
+    if (slot == 0) {
+      return primary;
+    }
+    synchronized (group) {
+      if (group.closed) {
+        return primary;
+      }
+      TabletClient connection = group.connections[slot];
+      if (connection == null || !connection.isAlive()) {
+        connection = newConnection(primary.getUuid(), group.host, group.port, primary);
+        group.connections[slot] = connection;
+      }
+      return connection;
+    }
   }
 
   TabletClient newClient(String uuid, final String host, final int port) {
@@ -1785,11 +2304,31 @@ public class AsyncYBClient implements AutoCloseable {
         return client;
       }
       final TabletClientPipeline pipeline = new TabletClientPipeline();
-      client = pipeline.init(uuid);
+      client = pipeline.init(uuid, null);
       chan = channelFactory.newChannel(pipeline);
       ip2client.put(hostport, client);  // This is guaranteed to return null.
     }
     this.client2tablets.put(client, new ArrayList<RemoteTablet>());
+    if (connectionsPerServer > 1) {
+      connectionGroups.put(client, new ConnectionGroup(host, port, connectionsPerServer));
+    }
+    connect(chan, host, port);
+    return client;
+  }
+
+  /**
+   * Opens an extra connection to the server {@code primary} is connected to. The connection isn't
+   * cached in {@link #ip2client}, it is only handed out by {@link #connectionFor}.
+   */
+  private TabletClient newConnection(String uuid, final String host, final int port,
+                                     TabletClient primary) {
+    final TabletClientPipeline pipeline = new TabletClientPipeline();
+    final TabletClient client = pipeline.init(uuid, primary);
+    connect(channelFactory.newChannel(pipeline), host, port);
+    return client;
+  }
+
+  private void connect(SocketChannel chan, final String host, final int port) {
     final SocketChannelConfig config = chan.getConfig();
     config.setConnectTimeoutMillis(5000);
     config.setTcpNoDelay(true);
@@ -1798,7 +2337,108 @@ public class AsyncYBClient implements AutoCloseable {
     // TCP_KEEPIDLE.  And of course the default timeout is >2h. Sigh.
     config.setKeepAlive(true);
     chan.connect(new InetSocketAddress(host, port));  // Won't block.
-    return client;
+  }
+
+  /**
+   * The connections opened to a server when more than one connection per server is configured,
+   * so that a large response doesn't hold up the small RPCs queued behind it.
+   */
+  private static final class ConnectionGroup {
+    final String host;
+    final int port;
+    // Slot 0 stands for the client cached in ip2client, the other slots are filled lazily.
+    @GuardedBy("this")
+    final TabletClient[] connections;
+    @GuardedBy("this")
+    boolean closed = false;
+    final AtomicInteger next = new AtomicInteger();
+
+    ConnectionGroup(String host, int port, int size) {
+      this.host = host;
+      this.port = port;
+      this.connections = new TabletClient[size];
+    }
+
+    /**
+     * Marks this group closed and returns the extra connections it had opened.
+     */
+    synchronized List<TabletClient> close() {
+      closed = true;
+      List<TabletClient> extras = new ArrayList<>();
+      for (int i = 1; i < connections.length; i++) {
+        if (connections[i] != null) {
+          extras.add(connections[i]);
+          connections[i] = null;
+        }
+      }
+      return extras;
+    }
+
+    synchronized void remove(TabletClient connection) {
+      for (int i = 1; i < connections.length; i++) {
+        if (connections[i] == connection) {
+          connections[i] = null;
+        }
+      }
+    }
+
+    synchronized List<TabletClient> getExtras() {
+      List<TabletClient> extras = new ArrayList<>();
+      for (int i = 1; i < connections.length; i++) {
+        if (connections[i] != null) {
+          extras.add(connections[i]);
+        }
+      }
+      return extras;
+    }
+  }
+
+  /**
+   * Periodically closes the connections that don't serve any tablet we know of, such as those
+   * opened for admin RPCs to a host, once they've gone without traffic for the idle timeout.
+   */
+  private final class IdleConnectionReaper implements TimerTask {
+    @Override
+    public void run(final Timeout timeout) {
+      if (closed) {
+        return;
+      }
+      try {
+        reapIdleConnections(MILLISECONDS.toNanos(connectionIdleTimeoutMs));
+      } finally {
+        newTimeout(this, connectionIdleTimeoutMs);
+      }
+    }
+  }
+
+  @VisibleForTesting
+  void reapIdleConnections(long idleNanos) {
+    for (TabletClient client : getTableClients()) {
+      ConnectionGroup group = connectionGroups.get(client);
+      List<TabletClient> extras =
+          group != null ? group.getExtras() : Collections.<TabletClient>emptyList();
+      boolean extrasIdle = true;
+      for (TabletClient extra : extras) {
+        if (extra.isIdle(idleNanos)) {
+          group.remove(extra);
+          extra.close();
+        } else {
+          extrasIdle = false;
+        }
+      }
+      ArrayList<RemoteTablet> tablets = client2tablets.get(client);
+      if (tablets == null) {
+        continue;
+      }
+      boolean noTablets;
+      synchronized (tablets) {
+        noTablets = tablets.isEmpty();
+      }
+      if (noTablets && extrasIdle && client.isIdle(idleNanos)) {
+        LOG.debug("Closing idle connection {}", client);
+        client.close();
+      }
+    }
   }
 
   /**
@@ -1853,7 +2493,13 @@ public class AsyncYBClient implements AutoCloseable {
     final class ReleaseResourcesCB implements Callback<ArrayList<Void>, ArrayList<Void>> {
       public ArrayList<Void> call(final ArrayList<Void> arg) {
         LOG.debug("Releasing all remaining resources");
-        timer.stop();
+        for (Timeout timeout : timer.stop()) {
+          // Don't leave the callers of the pending condition waits hanging.
+          if (timeout.getTask() instanceof ConditionWaiter) {
+            ((ConditionWaiter) timeout.getTask()).cancel();
+          }
+        }
+        conditionCheckExecutor.shutdown();
         new ShutdownThread().start();
         return arg;
       }
@@ -1890,6 +2536,11 @@ public class AsyncYBClient implements AutoCloseable {
     for (TabletClient ts : ip2client_copy.values()) {
       deferreds.add(ts.shutdown());
     }
+    for (ConnectionGroup group : connectionGroups.values()) {
+      for (TabletClient extra : group.close()) {
+        deferreds.add(extra.shutdown());
+      }
+    }
     final int size = deferreds.size();
     return Deferred.group(deferreds).addCallback(
         new Callback<ArrayList<Void>, ArrayList<Void>>() {
@@ -2002,9 +2653,29 @@ public class AsyncYBClient implements AutoCloseable {
       return;
     }
 
+    final TabletClient primary = client.getPrimary();
+    if (primary != client) {
+      // An extra connection: the server may still be reachable through the others.
+      ConnectionGroup group = connectionGroups.get(primary);
+      if (group != null) {
+        group.remove(client);
+      }
+      LOG.debug("Removed extra connection {" + hostport + "} -> {" + client + "}");
+      return;
+    }
+    ConnectionGroup group = connectionGroups.remove(client);
+    if (group != null) {
+      // Close the extra connections rather than shutting them down, so that the RPCs in flight
+      // on them get retried instead of cancelled.
+      for (TabletClient extra : group.close()) {
+        extra.close();
+      }
+    }
+
     TabletClient old;
     synchronized (ip2client) {
-      old = ip2client.remove(hostport);
+      // Only remove the entry if it's still ours, a new client may have replaced it already.
+      old = ip2client.remove(hostport, client) ? client : null;
     }
     LOG.debug("Removed from IP cache: {" + hostport + "} -> {" + client + "}");
     if (old == null) {
@@ -2052,8 +2723,8 @@ public class AsyncYBClient implements AutoCloseable {
      */
     private boolean disconnected = false;
 
-    TabletClient init(String uuid) {
-      final TabletClient client = new TabletClient(AsyncYBClient.this, uuid);
+    TabletClient init(String uuid, TabletClient primary) {
+      final TabletClient client = new TabletClient(AsyncYBClient.this, uuid, primary);
       if (certFile != null) {
         SslHandler sslHandler = this.createSslHandler(certFile);
         if (sslHandler != null) {
@@ -2214,6 +2885,421 @@ public class AsyncYBClient implements AutoCloseable {
     return port;
   }
 
+  /**
+   * A condition waited on by {@link #waitForCondition}. Checking it should not wait for the RPCs
+   * it sends: it returns a deferred that yields true once the condition holds.
+   */
+  public interface AsyncCondition {
+    Deferred<Boolean> check() throws Exception;
+  }
+
+  /**
+   * Waits for a condition without blocking any thread. The condition is checked again until it
+   * holds, with a delay between the checks that doubles from the poll base delay up to the poll
+   * max delay. The checks are scheduled on the client's timer but run on a separate thread pool,
+   * as they may block resolving the addresses of the servers they send RPCs to. Errors from the
+   * checks are logged and retried, up to {@link #MAX_CONDITION_ERRORS_TO_IGNORE} of them.
+   * @param condition the condition to wait for
+   * @param timeoutMs the amount of time, in MS, to wait
+   * @return a deferred that yields true if the condition held in time, false if the wait timed
+   * out, hit too many errors or the client was shut down
+   */
+  public Deferred<Boolean> waitForCondition(AsyncCondition condition, long timeoutMs) {
+    checkIsClosed();
+    ConditionWaiter waiter = new ConditionWaiter(condition, timeoutMs);
+    waiter.submitCheck();
+    return waiter.result;
+  }
+
+  /**
+   * Wait for the specific server to come online.
+   * @param hp the HostAndPort of the server
+   * @param timeoutMs the amount of time, in MS, to wait
+   * @return a deferred that yields true if the server responded to pings in the given time
+   */
+  public Deferred<Boolean> waitForServer(final HostAndPort hp, long timeoutMs) {
+    return waitForCondition(new AsyncCondition() {
+      @Override
+      public Deferred<Boolean> check() {
+        return ping(hp).addCallback(new Callback<Boolean, PingResponse>() {
+          @Override
+          public Boolean call(PingResponse resp) {
+            return true;
+          }
+        });
+      }
+    }, timeoutMs);
+  }
+
+  /**
+   * Wait for the tablet load to be balanced by master leader.
+   * @param timeoutMs the amount of time, in MS, to wait
+   * @param numServers expected number of servers which need to balanced.
+   * @return a deferred that yields true if the master leader does not return any error balance
+   * check in the given time
+   */
+  public Deferred<Boolean> waitForLoadBalance(long timeoutMs, final int numServers) {
+    return waitForCondition(new AsyncCondition() {
+      @Override
+      public Deferred<Boolean> check() {
+        return getIsLoadBalanced(numServers).addCallback(
+            new Callback<Boolean, IsLoadBalancedResponse>() {
+              @Override
+              public Boolean call(IsLoadBalancedResponse resp) {
+                return !resp.hasError();
+              }
+            });
+      }
+    }, timeoutMs);
+  }
+
+  /**
+   * Wait for the load balancer of the master leader to be idle.
+   * @param timeoutMs the amount of time, in MS, to wait
+   * @return a deferred that yields true if the load balancer is idle in the given time
+   */
+  public Deferred<Boolean> waitForLoadBalancerIdle(long timeoutMs) {
+    return waitForCondition(new AsyncCondition() {
+      @Override
+      public Deferred<Boolean> check() {
+        return getIsLoadBalancerIdle().addCallback(
+            new Callback<Boolean, IsLoadBalancerIdleResponse>() {
+              @Override
+              public Boolean call(IsLoadBalancerIdleResponse resp) {
+                return !resp.hasError();
+              }
+            });
+      }
+    }, timeoutMs);
+  }
+
+  /**
+   * Wait for the leader load to be balanced by master leader.
+   * @param timeoutMs the amount of time, in MS, to wait
+   * @return a deferred that yields true iff the leaders are on the preferred zones only within
+   * the given time
+   */
+  public Deferred<Boolean> waitForAreLeadersOnPreferredOnlyCondition(long timeoutMs) {
+    return waitForCondition(new AsyncCondition() {
+      @Override
+      public Deferred<Boolean> check() {
+        return getAreLeadersOnPreferredOnly().addCallback(
+            new Callback<Boolean, AreLeadersOnPreferredOnlyResponse>() {
+              @Override
+              public Boolean call(AreLeadersOnPreferredOnlyResponse resp) {
+                return !resp.hasError();
+              }
+            });
+      }
+    }, timeoutMs);
+  }
+
+  /**
+   * Wait for the replica count per tserver of a table to match the expected one.
+   * @param timeoutMs the amount of time, in MS, to wait
+   * @param table the table to wait for load balancing
+   * @param replicaMapExpected the expected map between cluster uuid and live, read replica count
+   * @return a deferred that yields true if the replica counts match within the given time
+   */
+  public Deferred<Boolean> waitForExpectedReplicaMap(
+      final long timeoutMs, final YBTable table,
+      final Map<String, List<List<Integer>>> replicaMapExpected) {
+    return waitForCondition(new AsyncCondition() {
+      @Override
+      public Deferred<Boolean> check() throws Exception {
+        return table.asyncGetMemberTypeCountsForEachTSType(timeoutMs).addCallback(
+            new Callback<Boolean, Map<String, List<List<Integer>>>>() {
+              @Override
+              public Boolean call(Map<String, List<List<Integer>>> replicaMap) {
+                return replicaMap.equals(replicaMapExpected);
+              }
+            });
+      }
+    }, timeoutMs);
+  }
+
+  /**
+   * Wait for a master to have a universe key in memory.
+   * @param timeoutMs the amount of time, in MS, to wait
+   * @param universeKeyId the id of the universe key
+   * @param hp the host and port of the master
+   * @return a deferred that yields true if the master has the key within the given time
+   */
+  public Deferred<Boolean> waitForMasterHasUniverseKeyInMemory(
+      long timeoutMs, final String universeKeyId, final HostAndPort hp) {
+    return waitForCondition(new AsyncCondition() {
+      @Override
+      public Deferred<Boolean> check() throws Exception {
+        return hasUniverseKeyInMemory(universeKeyId, hp).addCallback(
+            new Callback<Boolean, HasUniverseKeyInMemoryResponse>() {
+              @Override
+              public Boolean call(HasUniverseKeyInMemoryResponse resp) {
+                if (resp.getServerError() != null) {
+                  throw new RuntimeException("Could not add universe keys to " + hp.toString() +
+                      " with error: " + resp.getServerError().getStatus().getMessage());
+                }
+                return resp.hasKey();
+              }
+            });
+      }
+    }, timeoutMs);
+  }
+
+  /**
+   * Wait for the cluster to have successfully elected a master leader.
+   * @param timeoutMs the amount of time, in MS, to wait until a leader is present
+   * @return a deferred that yields true if one of the masters is the leader within the given time
+   */
+  public Deferred<Boolean> waitForMasterLeader(long timeoutMs) {
+    return waitForLeaderMasterUUID(timeoutMs).addCallback(new Callback<Boolean, String>() {
+      @Override
+      public Boolean call(String leaderUuid) {
+        return leaderUuid != null;
+      }
+    });
+  }
+
+  /**
+   * Wait for the cluster to have successfully elected a master leader, and get its uuid.
+   * @param timeoutMs the amount of time, in MS, to wait until a leader is present
+   * @return a deferred that yields the uuid of the leader master, or null if no master was the
+   * leader within the given time
+   */
+  public Deferred<String> waitForLeaderMasterUUID(long timeoutMs) {
+    final AtomicReference<String> leaderUuid = new AtomicReference<>();
+    return waitForCondition(new AsyncCondition() {
+      @Override
+      public Deferred<Boolean> check() {
+        return findLeaderMasterUUID().addCallback(new Callback<Boolean, String>() {
+          @Override
+          public Boolean call(String uuid) {
+            leaderUuid.set(uuid);
+            return uuid != null;
+          }
+        });
+      }
+    }, timeoutMs).addCallback(new Callback<String, Boolean>() {
+      @Override
+      public String call(Boolean met) {
+        return met ? leaderUuid.get() : null;
+      }
+    });
+  }
+
+  /**
+   * Asks all the masters for their role.
+   * @return a deferred that yields the uuid of the leader master, or null if none of the masters
+   * that answered is the leader
+   */
+  private Deferred<String> findLeaderMasterUUID() {
+    List<Deferred<String>> uuids = new ArrayList<>();
+    for (final HostAndPort hostAndPort : getMasterAddresses()) {
+      TabletClient clientForHostAndPort = newMasterClient(hostAndPort);
+      if (clientForHostAndPort == null) {
+        LOG.warn("Couldn't resolve this master's address {}", hostAndPort);
+        continue;
+      }
+      uuids.add(getMasterRegistration(clientForHostAndPort).addCallbacks(
+          new Callback<String, GetMasterRegistrationResponse>() {
+            @Override
+            public String call(GetMasterRegistrationResponse resp) {
+              if (resp.getRole() != Metadata.RaftPeerPB.Role.LEADER) {
+                return null;
+              }
+              return resp.getInstanceId().getPermanentUuid().toStringUtf8();
+            }
+          },
+          new Callback<String, Exception>() {
+            @Override
+            public String call(Exception e) {
+              LOG.warn("Couldn't get registration info for master {} due to error '{}'.",
+                       hostAndPort, e.getMessage());
+              return null;
+            }
+          }));
+    }
+    return Deferred.group(uuids).addCallback(new Callback<String, ArrayList<String>>() {
+      @Override
+      public String call(ArrayList<String> results) {
+        for (String uuid : results) {
+          if (uuid != null) {
+            return uuid;
+          }
+        }
+        return null;
+      }
+    });
+  }
+
+  /**
+   * Wait for a master to be initialized, that is to report its uuid.
+   * @param hp the host and port of the master
+   * @param timeoutMs the amount of time, in MS, to wait
+   * @return a deferred that yields true if the master reported its uuid within the given time
+   */
+  public Deferred<Boolean> waitForMasterUUID(final HostAndPort hp, long timeoutMs) {
+    return waitForCondition(new AsyncCondition() {
+      @Override
+      public Deferred<Boolean> check() {
+        TabletClient clientForHostAndPort = newMasterClient(hp);
+        if (clientForHostAndPort == null) {
+          LOG.warn("Couldn't resolve master's address at {}", hp);
+          return Deferred.fromResult(false);
+        }
+        return getMasterRegistration(clientForHostAndPort).addCallbacks(
+            new Callback<Boolean, GetMasterRegistrationResponse>() {
+              @Override
+              public Boolean call(GetMasterRegistrationResponse resp) {
+                return !resp.getInstanceId().getPermanentUuid().isEmpty();
+              }
+            },
+            new Callback<Boolean, Exception>() {
+              @Override
+              public Boolean call(Exception e) {
+                LOG.warn("Couldn't get registration info for master {} due to error '{}'.",
+                         hp, e.getMessage());
+                return false;
+              }
+            });
+      }
+    }, timeoutMs);
+  }
+
+  /**
+   * Makes the next check of a condition wait fail. Used to test the handling of errors.
+   */
+  @VisibleForTesting
+  void injectWaitError() {
+    injectWaitError.set(true);
+  }
+
+  /**
+   * Checks a condition until it holds, the wait times out or hits too many errors. The timer only
+   * schedules the checks, which run on the condition check executor. Checks never overlap: the
+   * next one is only scheduled once the current one is done.
+   */
+  private final class ConditionWaiter implements TimerTask, Runnable {
+    private final AsyncCondition condition;
+    private final long startNanos = System.nanoTime();
+    private final long timeoutNanos;
+    private final Deferred<Boolean> result = new Deferred<Boolean>();
+    private final AtomicBoolean done = new AtomicBoolean(false);
+    private volatile int numIters = 0;
+    private volatile int numErrors = 0;
+    private volatile Exception lastError = null;
+
+    ConditionWaiter(AsyncCondition condition, long timeoutMs) {
+      this.condition = condition;
+      this.timeoutNanos = MILLISECONDS.toNanos(timeoutMs);
+    }
+
+    @Override
+    public void run(final Timeout timeout) {
+      submitCheck();
+    }
+
+    @Override
+    public void run() {
+      check();
+    }
+
+    void submitCheck() {
+      try {
+        conditionCheckExecutor.execute(this);
+      } catch (RejectedExecutionException e) {
+        // The client has been shut down.
+        cancel();
+      }
+    }
+
+    private void check() {
+      numIters++;
+      if (numIters % LOG_CONDITION_EVERY_NUM_ITERS == 0) {
+        LOG.info("Tried operation {} times so far.", numIters);
+      }
+      final Deferred<Boolean> d;
+      try {
+        if (injectWaitError.compareAndSet(true, false)) {
+          String msg = "Simulated expection due to injected error.";
+          LOG.info(msg);
+          throw new RuntimeException(msg);
+        }
+        d = condition.check();
+      } catch (Exception e) {
+        onError(e);
+        return;
+      }
+      d.addCallbacks(new Callback<Void, Boolean>() {
+        @Override
+        public Void call(Boolean met) {
+          if (Boolean.TRUE.equals(met)) {
+            finish(true);
+          } else {
+            scheduleNextCheck();
+          }
+          return null;
+        }
+      }, new Callback<Void, Exception>() {
+        @Override
+        public Void call(Exception e) {
+          onError(e);
+          return null;
+        }
+      });
+    }
+
+    private void onError(Exception e) {
+      // We will get exceptions if we cannot connect to the other end. Keep them for the final
+      // debug if we never succeed.
+      lastError = e;
+      numErrors++;
+      if (numErrors % LOG_CONDITION_ERRORS_EVERY_NUM_ITERS == 0) {
+        LOG.warn("Hit {} errors so far. Latest is : {}.", numErrors, e.toString());
+      }
+      if (numErrors >= MAX_CONDITION_ERRORS_TO_IGNORE) {
+        LOG.error("Hit too many errors, final exception is " + e.toString());
+        finish(false);
+        return;
+      }
+      scheduleNextCheck();
+    }
+
+    private void scheduleNextCheck() {
+      if (closed) {
+        LOG.warn("Stopped waiting for operation, the client has been closed.");
+        finish(false);
+        return;
+      }
+      final long remainingNanos = timeoutNanos - (System.nanoTime() - startNanos);
+      if (remainingNanos <= 0) {
+        LOG.error("Timed out waiting for operation. Final exception was {}.",
+                  lastError != null ? lastError.toString() : "none");
+        finish(false);
+        return;
+      }
+      final int shift = Math.min(numIters - 1, 30);
+      final long delayMs = Math.min(
+          Math.min(conditionPollMaxDelayMs, conditionPollBaseDelayMs << shift),
+          NANOSECONDS.toMillis(remainingNanos) + 1);
+      newTimeout(this, delayMs);
+    }
+
+    void cancel() {
+      LOG.warn("Stopped waiting for operation, the client has been shut down.");
+      finish(false);
+    }
+
+    private void finish(boolean met) {
+      if (!done.compareAndSet(false, true)) {
+        return;
+      }
+      if (!met) {
+        LOG.error("Returning failure after {} iterations, num errors = {}.", numIters, numErrors);
+      }
+      result.callback(met);
+    }
+  }
+
   void newTimeout(final TimerTask task, final long timeout_ms) {
     try {
       timer.newTimeout(task, timeout_ms, MILLISECONDS);
@@ -2261,6 +3347,8 @@ public class AsyncYBClient implements AutoCloseable {
     private final ArrayList<TabletClient> tabletServers = new ArrayList<TabletClient>();
     private final Partition partition;
     private int leaderIndex = NO_LEADER_INDEX;
+    // Where the next replica selection starts looking, so that equally good replicas take turns.
+    private int nextReplica = 0;
 
     RemoteTablet(String tableId, Slice tabletId, Partition partition) {
       this.tabletId = tabletId;
@@ -2292,7 +3380,8 @@ public class AsyncYBClient implements AutoCloseable {
           // based on some kind of policy. For now just use the first always.
           try {
             addTabletClient(uuid, addresses.get(0).getHost(), addresses.get(0).getPort(),
-                replica.getRole().equals(Metadata.RaftPeerPB.Role.LEADER));
+                replica.getRole().equals(Metadata.RaftPeerPB.Role.LEADER),
+                replica.getTsInfo().getCloudInfo());
           } catch (UnknownHostException ex) {
             lookupExceptions.add(ex);
           }
@@ -2313,20 +3402,21 @@ public class AsyncYBClient implements AutoCloseable {
     }
 
     // Must be called with tabletServers synchronized
-    void addTabletClient(String uuid, String host, int port, boolean isLeader)
-        throws UnknownHostException {
+    void addTabletClient(String uuid, String host, int port, boolean isLeader,
+                         Common.CloudInfoPB cloudInfo) throws UnknownHostException {
       String ip = getIP(host);
       if (ip == null) {
         throw new UnknownHostException("Failed to resolve the IP of `" + host + "'");
       }
       TabletClient client = newClient(uuid, ip, port);
+      client.setCloudInfo(cloudInfo);
 
       final ArrayList<RemoteTablet> tablets = client2tablets.get(client);
 
       if (tablets == null) {
         // We raced with removeClientFromCache and lost. The client we got was just disconnected.
         // Reconnect.
-        addTabletClient(uuid, host, port, isLeader);
+        addTabletClient(uuid, host, port, isLeader, cloudInfo);
       } else {
         synchronized (tablets) {
           if (isLeader) {
@@ -2344,6 +3434,66 @@ public class AsyncYBClient implements AutoCloseable {
       return getTabletIdAsString();
     }
 
+    /**
+     * Adds a replica without resolving its address or connecting to it.
+     */
+    @VisibleForTesting
+    void addReplica(TabletClient client, boolean isLeader) {
+      synchronized (tabletServers) {
+        if (isLeader) {
+          tabletServers.add(0, client);
+          leaderIndex = 0;
+        } else {
+          tabletServers.add(client);
+        }
+      }
+    }
+
+    /**
+     * Picks the replica to send an RPC to.
+     * @param selection how to pick the replica
+     * @return the client connected to the replica, or null if there's none, or if the leader is
+     * needed and we don't know where it is
+     */
+    TabletClient selectReplica(ReplicaSelection selection) {
+      synchronized (tabletServers) {
+        if (tabletServers.isEmpty()) {
+          return null;
+        }
+        if (selection == ReplicaSelection.LEADER_ONLY || tabletServers.size() == 1) {
+          // When we don't know where the leader is, either because one wasn't provided or because
+          // we couldn't resolve its IP, we send the client back so it retries and probably dies
+          // after too many attempts.
+          return leaderIndex == NO_LEADER_INDEX ? null : tabletServers.get(leaderIndex);
+        }
+        final int numServers = tabletServers.size();
+        final int start = (nextReplica++ & Integer.MAX_VALUE) % numServers;
+        TabletClient best = null;
+        int bestScore = -1;
+        for (int i = 0; i < numServers; i++) {
+          final int index = (start + i) % numServers;
+          final boolean isLeader = index == leaderIndex;
+          final TabletClient server = tabletServers.get(index);
+          if (selection == ReplicaSelection.ROUND_ROBIN_FOLLOWERS) {
+            if (!isLeader) {
+              return server;
+            }
+            continue;
+          }
+          // Closer replicas win, then the leader among equally close ones.
+          final int score = proximity(server) * 2 + (isLeader ? 1 : 0);
+          if (score > bestScore) {
+            best = server;
+            bestScore = score;
+          }
+        }
+        if (best == null && leaderIndex != NO_LEADER_INDEX) {
+          best = tabletServers.get(leaderIndex);
+        }
+        return best;
+      }
+    }
+
     /**
      * Removes the passed TabletClient from this tablet's list of tablet servers. If it was the
      * leader, then we "promote" the next one unless it was the last one in the list.
@@ -2463,6 +3613,11 @@ public class AsyncYBClient implements AutoCloseable {
     private static final int DEFAULT_MASTER_PORT = 7100;
     private static final int DEFAULT_BOSS_COUNT = 1;
     private static final int DEFAULT_WORKER_COUNT = 2 * Runtime.getRuntime().availableProcessors();
+    private static final int DEFAULT_TABLET_PREFETCH_COUNT = 10;
+    private static final int DEFAULT_CONNECTIONS_PER_SERVER = 1;
+    private static final long DEFAULT_CONNECTION_IDLE_TIMEOUT_MS = 300000;
+    private static final long DEFAULT_CONDITION_POLL_BASE_DELAY_MS = 100;
+    private static final long DEFAULT_CONDITION_POLL_MAX_DELAY_MS = 2 * SLEEP_TIME;
 
     private final List<HostAndPort> masterAddresses;
     private long defaultAdminOperationTimeoutMs = DEFAULT_OPERATION_TIMEOUT_MS;
@@ -2475,6 +3630,15 @@ public class AsyncYBClient implements AutoCloseable {
     private Executor workerExecutor;
     private int bossCount = DEFAULT_BOSS_COUNT;
     private int workerCount = DEFAULT_WORKER_COUNT;
+    private int tabletPrefetchCount = DEFAULT_TABLET_PREFETCH_COUNT;
+    private RetryPolicy retryPolicy = null;
+    private int connectionsPerServer = DEFAULT_CONNECTIONS_PER_SERVER;
+    private long connectionIdleTimeoutMs = DEFAULT_CONNECTION_IDLE_TIMEOUT_MS;
+    private boolean metricsEnabled = false;
+    private ReplicaSelection replicaSelection = ReplicaSelection.LEADER_ONLY;
+    private Common.CloudInfoPB placement = null;
+    private long conditionPollBaseDelayMs = DEFAULT_CONDITION_POLL_BASE_DELAY_MS;
+    private long conditionPollMaxDelayMs = DEFAULT_CONDITION_POLL_MAX_DELAY_MS;
 
     /**
      * Creates a new builder for a client that will connect to the specified masters.
@@ -2600,6 +3764,110 @@ public class AsyncYBClient implements AutoCloseable {
       return this;
     }
 
+    /**
+     * Set the number of tablets a tablet location lookup asks the master for, starting at the
+     * tablet that holds the key being looked up, so that the following ones get cached too.
+     * Optional.
+     * If not provided, 10 is used.
+     */
+    public AsyncYBClientBuilder tabletPrefetchCount(int tabletPrefetchCount) {
+      Preconditions.checkArgument(tabletPrefetchCount > 0,
+          "tabletPrefetchCount should be greater than 0");
+      this.tabletPrefetchCount = tabletPrefetchCount;
+      return this;
+    }
+
+    /**
+     * Set the policy deciding how long to wait before retrying an RPC that failed with a
+     * retryable error, and whether to retry it at all.
+     * Optional.
+     * If not provided, each client gets its own {@link ExponentialBackoffRetryPolicy} with the
+     * default delays and retry budget.
+     */
+    public AsyncYBClientBuilder retryPolicy(RetryPolicy retryPolicy) {
+      this.retryPolicy = Preconditions.checkNotNull(retryPolicy);
+      return this;
+    }
+
+    /**
+     * Set the number of connections opened to each tablet server or master. RPCs are spread
+     * over them round-robin, so that a large response doesn't hold up the small RPCs behind it.
+     * Optional.
+     * If not provided, 1 is used.
+     */
+    public AsyncYBClientBuilder connectionsPerServer(int connectionsPerServer) {
+      Preconditions.checkArgument(connectionsPerServer > 0,
+          "connectionsPerServer should be greater than 0");
+      this.connectionsPerServer = connectionsPerServer;
+      return this;
+    }
+
+    /**
+     * Set how to pick the replica to send the RPCs that can read stale data to, such as
+     * {@link AsyncYBClient#getLatestEntryOpId}. Other RPCs always go to the leader.
+     * Optional.
+     * If not provided, {@link ReplicaSelection#LEADER_ONLY} is used.
+     */
+    public AsyncYBClientBuilder replicaSelection(ReplicaSelection replicaSelection) {
+      this.replicaSelection = Preconditions.checkNotNull(replicaSelection);
+      return this;
+    }
+
+    /**
+     * Set where the client runs, to find the replicas closest to it for
+     * {@link ReplicaSelection#CLOSEST_REPLICA}.
+     * Optional.
+     * If not provided, all the replicas are considered equally close.
+     */
+    public AsyncYBClientBuilder placement(String cloud, String region, String zone) {
+      this.placement = Common.CloudInfoPB.newBuilder()
+          .setPlacementCloud(cloud)
+          .setPlacementRegion(region)
+          .setPlacementZone(zone)
+          .build();
+      return this;
+    }
+
+    /**
+     * Set whether to record the RPC metrics returned by {@link AsyncYBClient#getMetricsSnapshot}.
+     * Optional.
+     * If not provided, metrics are disabled.
+     */
+    public AsyncYBClientBuilder metricsEnabled(boolean metricsEnabled) {
+      this.metricsEnabled = metricsEnabled;
+      return this;
+    }
+
+    /**
+     * Set how long a connection that doesn't serve any known tablet, such as one only used for
+     * admin RPCs to a host, can go without traffic before it gets closed. 0 keeps such
+     * connections open until the client is shut down.
+     * Optional.
+     * If not provided, defaults to 5 minutes.
+     */
+    public AsyncYBClientBuilder connectionIdleTimeoutMs(long connectionIdleTimeoutMs) {
+      Preconditions.checkArgument(connectionIdleTimeoutMs >= 0,
+          "connectionIdleTimeoutMs should be non-negative");
+      this.connectionIdleTimeoutMs = connectionIdleTimeoutMs;
+      return this;
+    }
+
+    /**
+     * Set the delays between the checks of the condition waits, such as
+     * {@link AsyncYBClient#waitForServer}: the delay starts at baseDelayMs and doubles after each
+     * check, up to maxDelayMs.
+     * Optional.
+     * If not provided, the delay starts at 100 ms and goes up to 1 second.
+     */
+    public AsyncYBClientBuilder conditionPollDelayMs(long baseDelayMs, long maxDelayMs) {
+      Preconditions.checkArgument(baseDelayMs > 0, "baseDelayMs should be greater than 0");
+      Preconditions.checkArgument(maxDelayMs >= baseDelayMs,
+          "maxDelayMs should not be smaller than baseDelayMs");
+      this.conditionPollBaseDelayMs = baseDelayMs;
+      this.conditionPollMaxDelayMs = maxDelayMs;
+      return this;
+    }
+
     /**
      * Creates the channel factory for Netty. The user can specify the executors, but
      * if they don't, we'll use a simple thread pool.
@@ -0,0 +1,115 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.client;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.netty.buffer.BigEndianHeapChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.yb.annotations.InterfaceAudience;
+
+/**
+ * Pool of the arrays RPCs get serialized into, so that sending many small RPCs doesn't allocate
+ * a new array for each of them.
+ * <p>
+ * Arrays are pooled by power-of-two size, from 512 bytes to 64KB, and the pool holds at most
+ * {@code maxPooledBytes} in total. Larger buffers are allocated, and dropped once released.
+ * A buffer must only be released once it is no longer in use, that is once it was written to the
+ * socket.
+ */
+@InterfaceAudience.Private
+final class BufferPool {
+
+  static final BufferPool INSTANCE = new BufferPool(8 << 20);
+
+  private static final int MIN_SHIFT = 9;
+  private static final int MAX_SHIFT = 16;
+
+  private final ConcurrentLinkedQueue<byte[]>[] buckets;
+
+  private final long maxPooledBytes;
+
+  private final AtomicLong pooledBytes = new AtomicLong();
+
+  @SuppressWarnings("unchecked")
+  BufferPool(long maxPooledBytes) {
+    this.maxPooledBytes = maxPooledBytes;
+    this.buckets = new ConcurrentLinkedQueue[MAX_SHIFT - MIN_SHIFT + 1];
+    for (int i = 0; i < buckets.length; i++) {
+      buckets[i] = new ConcurrentLinkedQueue<>();
+    }
+  }
+
+  /**
+   * Returns an empty heap buffer of at least the given capacity.
+   * @param size the number of bytes that will be written to the buffer
+   * @return a buffer with its writer index at 0
+   */
+  ChannelBuffer acquire(int size) {
+    final int bucket = bucketFor(size);
+    if (bucket < 0) {
+      return ChannelBuffers.buffer(size);
+    }
+    byte[] array = buckets[bucket].poll();
+    if (array != null) {
+      pooledBytes.addAndGet(-array.length);
+    } else {
+      array = new byte[1 << (bucket + MIN_SHIFT)];
+    }
+    return new PooledChannelBuffer(array);
+  }
+
+  /**
+   * Hands the array backing the given buffer back to the pool, if it came from it. Buffers that
+   * didn't come from {@link #acquire} are ignored.
+   */
+  void release(ChannelBuffer buf) {
+    if (!(buf instanceof PooledChannelBuffer)) {
+      return;
+    }
+    final byte[] array = buf.array();
+    if (pooledBytes.addAndGet(array.length) > maxPooledBytes) {
+      // The pool is full, let the array be garbage collected.
+      pooledBytes.addAndGet(-array.length);
+      return;
+    }
+    buckets[bucketFor(array.length)].offer(array);
+  }
+
+  /** @return the number of bytes held by the pool */
+  long getPooledBytes() {
+    return pooledBytes.get();
+  }
+
+  // Returns the index of the smallest bucket holding arrays of at least the given size, or -1 if
+  // the size is too large to be pooled.
+  private static int bucketFor(int size) {
+    if (size > 1 << MAX_SHIFT) {
+      return -1;
+    }
+    final int shift = Math.max(MIN_SHIFT, 32 - Integer.numberOfLeadingZeros(Math.max(size, 1) - 1));
+    return shift - MIN_SHIFT;
+  }
+
+  /**
+   * A buffer over an array that belongs to the pool.
+   */
+  private static final class PooledChannelBuffer extends BigEndianHeapChannelBuffer {
+    PooledChannelBuffer(byte[] array) {
+      super(array);
+      clear();
+    }
+  }
+}
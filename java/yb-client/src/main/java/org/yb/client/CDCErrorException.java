@@ -0,0 +1,35 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.client;
+
+import org.yb.annotations.InterfaceAudience;
+import org.yb.annotations.InterfaceStability;
+import org.yb.cdc.CdcService;
+
+/**
+ * This exception is thrown by the CDC service of a Tablet Server when something goes wrong
+ * processing a request.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+@SuppressWarnings("serial")
+public class CDCErrorException extends YBServerException {
+  private final CdcService.CDCErrorPB cdcError;
+
+  CDCErrorException(String serverUuid, CdcService.CDCErrorPB error) {
+    super(serverUuid, error.getStatus());
+    this.cdcError = error;
+  }
+
+  public CdcService.CDCErrorPB getCDCError() { return cdcError; }
+}
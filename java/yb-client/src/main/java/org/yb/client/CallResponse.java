@@ -54,8 +54,9 @@ final class CallResponse {
 
   /**
    * Performs some sanity checks on the sizes recorded in the packet
-   * referred to by {@code buf}. Assumes that {@code buf} has not been
-   * read from yet, and will only be accessed by this class.
+   * referred to by {@code buf}. Assumes that {@code buf} holds the whole
+   * packet, has not been read from yet, and will only be accessed by this
+   * class, so that the slices it hands out can point into it.
    *
    * Afterwards, this constructs the RpcHeader from the buffer.
    * @param buf Channel buffer which call response reads from.
@@ -71,7 +72,10 @@ final class CallResponse {
     this.totalResponseSize = buf.readInt();
     if (this.totalResponseSize > 0) {
       YRpc.checkArrayLength(buf, this.totalResponseSize);
-      TabletClient.ensureReadable(buf, this.totalResponseSize);
+      if (buf.readableBytes() < this.totalResponseSize) {
+        throw new IndexOutOfBoundsException("Response is " + this.totalResponseSize
+            + " bytes long but only " + buf.readableBytes() + " bytes were received");
+      }
 
       final int headerSize = Bytes.readVarInt32(buf);
       final Slice headerSlice = nextBytes(buf, headerSize);
@@ -175,6 +179,7 @@ final class CallResponse {
     if (buf.hasArray()) {  // Zero copy.
       payload = buf.array();
       offset = buf.arrayOffset() + buf.readerIndex();
+      buf.skipBytes(length);
     } else {  // We have to copy the entire payload out of the buffer :(
       payload = new byte[length];
       buf.readBytes(payload);
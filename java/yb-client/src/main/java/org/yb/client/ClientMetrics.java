@@ -0,0 +1,324 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.client;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.yb.annotations.InterfaceAudience;
+import org.yb.annotations.InterfaceStability;
+
+/**
+ * RPC metrics of an {@link AsyncYBClient}: the latency of the RPCs per service and method, the
+ * retries per reason, the RPCs in flight per server, the tablet location lookups sent to the
+ * master and how many of the RPCs allowing stale reads stayed in the client's region.
+ * <p>
+ * Metrics are only recorded when enabled with
+ * {@link AsyncYBClient.AsyncYBClientBuilder#metricsEnabled}, otherwise recording is a field read.
+ * Read them with {@link AsyncYBClient#getMetricsSnapshot()}.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public final class ClientMetrics {
+
+  private final boolean enabled;
+
+  // Latency of the RPC attempts, per service then method.
+  private final ConcurrentHashMap<String, ConcurrentHashMap<String, LatencyHistogram>>
+      rpcLatencies = new ConcurrentHashMap<>();
+
+  private final AtomicLongArray retries =
+      new AtomicLongArray(RetryPolicy.RetryReason.values().length);
+
+  private final AtomicLong masterLookups = new AtomicLong();
+
+  private final AtomicLong staleReads = new AtomicLong();
+
+  private final AtomicLong localStaleReads = new AtomicLong();
+
+  ClientMetrics(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /** @return true if this client records metrics */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Records the time between sending an RPC and receiving its response.
+   */
+  void onRpcCompleted(YRpc<?> rpc, long latencyNanos) {
+    if (!enabled) {
+      return;
+    }
+    final String service = rpc.serviceName();
+    ConcurrentHashMap<String, LatencyHistogram> methods = rpcLatencies.get(service);
+    if (methods == null) {
+      rpcLatencies.putIfAbsent(service, new ConcurrentHashMap<String, LatencyHistogram>());
+      methods = rpcLatencies.get(service);
+    }
+    final String method = rpc.method();
+    LatencyHistogram histogram = methods.get(method);
+    if (histogram == null) {
+      methods.putIfAbsent(method, new LatencyHistogram());
+      histogram = methods.get(method);
+    }
+    histogram.record(latencyNanos / 1000);
+  }
+
+  void onRetry(RetryPolicy.RetryReason reason) {
+    if (enabled) {
+      retries.incrementAndGet(reason.ordinal());
+    }
+  }
+
+  /**
+   * Counts an RPC allowing stale reads sent to the replica picked by the replica selection.
+   * @param local whether the replica is in the client's region
+   */
+  void onStaleReadRouted(boolean local) {
+    if (enabled) {
+      staleReads.incrementAndGet();
+      if (local) {
+        localStaleReads.incrementAndGet();
+      }
+    }
+  }
+
+  void onMasterLookup() {
+    if (enabled) {
+      masterLookups.incrementAndGet();
+    }
+  }
+
+  /**
+   * Takes a snapshot of the metrics.
+   * @param connections the connections to count the RPCs in flight of
+   */
+  Snapshot snapshot(List<TabletClient> connections) {
+    Map<String, HistogramSnapshot> latencies = new HashMap<>();
+    for (Map.Entry<String, ConcurrentHashMap<String, LatencyHistogram>> service :
+        rpcLatencies.entrySet()) {
+      for (Map.Entry<String, LatencyHistogram> method : service.getValue().entrySet()) {
+        latencies.put(service.getKey() + "." + method.getKey(), method.getValue().snapshot());
+      }
+    }
+    Map<RetryPolicy.RetryReason, Long> retryCounts = new EnumMap<>(RetryPolicy.RetryReason.class);
+    for (RetryPolicy.RetryReason reason : RetryPolicy.RetryReason.values()) {
+      retryCounts.put(reason, retries.get(reason.ordinal()));
+    }
+    Map<String, Integer> inFlight = new HashMap<>();
+    for (TabletClient connection : connections) {
+      // The extra connections to a server share its uuid, so they add up.
+      inFlight.merge(connection.getUuid(), connection.getInFlightCount(), Integer::sum);
+    }
+    return new Snapshot(latencies, retryCounts, inFlight, masterLookups.get(), staleReads.get(),
+        localStaleReads.get());
+  }
+
+  /**
+   * The metrics of a client at some point in time.
+   */
+  @InterfaceAudience.Public
+  @InterfaceStability.Evolving
+  public static final class Snapshot {
+    private final Map<String, HistogramSnapshot> rpcLatencies;
+    private final Map<RetryPolicy.RetryReason, Long> retries;
+    private final Map<String, Integer> inFlightRpcs;
+    private final long masterLookups;
+    private final long staleReads;
+    private final long localStaleReads;
+
+    Snapshot(Map<String, HistogramSnapshot> rpcLatencies,
+             Map<RetryPolicy.RetryReason, Long> retries,
+             Map<String, Integer> inFlightRpcs,
+             long masterLookups,
+             long staleReads,
+             long localStaleReads) {
+      this.rpcLatencies = Collections.unmodifiableMap(rpcLatencies);
+      this.retries = Collections.unmodifiableMap(retries);
+      this.inFlightRpcs = Collections.unmodifiableMap(inFlightRpcs);
+      this.masterLookups = masterLookups;
+      this.staleReads = staleReads;
+      this.localStaleReads = localStaleReads;
+    }
+
+    /** @return the latency of the RPC attempts, keyed by "service.method" */
+    public Map<String, HistogramSnapshot> getRpcLatencies() {
+      return rpcLatencies;
+    }
+
+    /** @return the number of RPCs retried, per reason */
+    public Map<RetryPolicy.RetryReason, Long> getRetries() {
+      return retries;
+    }
+
+    /** @return the number of RPCs in flight, keyed by server uuid */
+    public Map<String, Integer> getInFlightRpcs() {
+      return inFlightRpcs;
+    }
+
+    /** @return the number of tablet location lookups sent to the master */
+    public long getMasterLookups() {
+      return masterLookups;
+    }
+
+    /** @return the number of RPCs allowing stale reads routed by the replica selection */
+    public long getStaleReads() {
+      return staleReads;
+    }
+
+    /** @return the number of RPCs allowing stale reads sent to a replica in the client's region */
+    public long getLocalStaleReads() {
+      return localStaleReads;
+    }
+
+    @Override
+    public String toString() {
+      return "rpcLatencies=" + rpcLatencies + ", retries=" + retries + ", inFlightRpcs=" +
+          inFlightRpcs + ", masterLookups=" + masterLookups + ", staleReads=" + staleReads +
+          ", localStaleReads=" + localStaleReads;
+    }
+  }
+
+  /**
+   * A latency histogram with HDR-style log-linear buckets: every power of two range is split in
+   * 8 buckets, so that the percentiles are within 12.5% of the recorded values, from 1us up to
+   * about an hour, in a fixed 2KB of counters.
+   */
+  static final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final long MAX_VALUE = (1L << 32) - 1;
+    static final int NUM_BUCKETS = bucketFor(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long value) {
+      value = Math.max(0, Math.min(value, MAX_VALUE));
+      counts.incrementAndGet(bucketFor(value));
+      count.incrementAndGet();
+      sum.addAndGet(value);
+      long currentMax = max.get();
+      while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+        currentMax = max.get();
+      }
+    }
+
+    HistogramSnapshot snapshot() {
+      long[] copy = new long[NUM_BUCKETS];
+      for (int i = 0; i < NUM_BUCKETS; i++) {
+        copy[i] = counts.get(i);
+      }
+      return new HistogramSnapshot(copy, count.get(), sum.get(), max.get());
+    }
+
+    static int bucketFor(long value) {
+      if (value < SUB_BUCKETS) {
+        return (int) value;
+      }
+      final int exponent = 63 - Long.numberOfLeadingZeros(value);
+      final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+      return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    // Returns the largest value that falls in the given bucket.
+    static long bucketUpperBound(int bucket) {
+      if (bucket < SUB_BUCKETS) {
+        return bucket;
+      }
+      final int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+      final long subBucket = bucket % SUB_BUCKETS;
+      return ((SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+  }
+
+  /**
+   * The latencies recorded for an RPC method, in microseconds.
+   */
+  @InterfaceAudience.Public
+  @InterfaceStability.Evolving
+  public static final class HistogramSnapshot {
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    HistogramSnapshot(long[] counts, long count, long sum, long max) {
+      this.counts = counts;
+      this.count = count;
+      this.sum = sum;
+      this.max = max;
+    }
+
+    /** @return the number of values recorded */
+    public long getCount() {
+      return count;
+    }
+
+    /** @return the sum of the values recorded, in microseconds */
+    public long getSum() {
+      return sum;
+    }
+
+    /** @return the largest value recorded, in microseconds */
+    public long getMax() {
+      return max;
+    }
+
+    /** @return the mean of the values recorded, in microseconds */
+    public double getMean() {
+      return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return an upper bound, within 12.5%, of the given percentile of the values recorded, in
+     * microseconds, or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+      long total = 0;
+      for (long bucketCount : counts) {
+        total += bucketCount;
+      }
+      if (total == 0) {
+        return 0;
+      }
+      final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return Math.min(LatencyHistogram.bucketUpperBound(i), max);
+        }
+      }
+      return max;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("count=%d, mean=%.0fus, p50=%dus, p99=%dus, max=%dus", count,
+          getMean(), getValueAtPercentile(50), getValueAtPercentile(99), max);
+    }
+  }
+}
@@ -0,0 +1,97 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.client;
+
+import com.google.common.base.Preconditions;
+import org.yb.annotations.InterfaceAudience;
+import org.yb.annotations.InterfaceStability;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retry policy with capped exponential backoff and full jitter: the delay before attempt n is
+ * picked uniformly between 0 and min(maxDelayMs, baseDelayMs * 2^(n-1)), so that clients that
+ * failed together don't retry together.
+ * <p>
+ * Retries that add load to an overloaded server (see {@link RetryReason#isOverload()}) also need
+ * a token from the client-wide {@link RetryBudget}, and back off faster when the server reported
+ * it was too busy. Retries that follow a leader change or a tablet move only wait for the client
+ * to learn the new location, and retries while a leader is elected or gets ready to serve only
+ * wait for it, so they don't use the budget: a leader election would otherwise drain it, and
+ * leave no tokens for the overload it is meant to limit.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public class ExponentialBackoffRetryPolicy implements RetryPolicy {
+  public static final long DEFAULT_BASE_DELAY_MS = 100;
+  public static final long DEFAULT_MAX_DELAY_MS = 10000;
+  public static final int DEFAULT_BUDGET_CAPACITY = 500;
+  public static final double DEFAULT_BUDGET_REFILL_PER_SECOND = 50;
+
+  // A busy server starts this many doublings ahead of the other retries.
+  private static final int SERVER_TOO_BUSY_EXTRA_SHIFT = 2;
+
+  // Caps the shift so that the delay doesn't overflow.
+  private static final int MAX_SHIFT = 30;
+
+  private final long baseDelayMs;
+  private final long maxDelayMs;
+  private final RetryBudget budget;
+
+  /**
+   * Creates a policy with the default delays and its own default budget.
+   */
+  public ExponentialBackoffRetryPolicy() {
+    this(DEFAULT_BASE_DELAY_MS, DEFAULT_MAX_DELAY_MS,
+         new RetryBudget(DEFAULT_BUDGET_CAPACITY, DEFAULT_BUDGET_REFILL_PER_SECOND));
+  }
+
+  /**
+   * @param baseDelayMs the upper bound of the delay before the first retry
+   * @param maxDelayMs the upper bound of the delay before any retry
+   * @param budget the budget for overload retries, or null to not limit them
+   */
+  public ExponentialBackoffRetryPolicy(long baseDelayMs, long maxDelayMs, RetryBudget budget) {
+    Preconditions.checkArgument(baseDelayMs > 0, "baseDelayMs should be greater than 0");
+    Preconditions.checkArgument(maxDelayMs >= baseDelayMs,
+        "maxDelayMs should not be smaller than baseDelayMs");
+    this.baseDelayMs = baseDelayMs;
+    this.maxDelayMs = maxDelayMs;
+    this.budget = budget;
+  }
+
+  @Override
+  public long getRetryDelayMs(RetryReason reason, int attempt) {
+    if (reason.isOverload() && budget != null && !budget.tryAcquire()) {
+      return -1;
+    }
+    return ThreadLocalRandom.current().nextLong(getMaxDelayMs(reason, attempt) + 1);
+  }
+
+  /**
+   * @return the upper bound of the delay before the given attempt
+   */
+  long getMaxDelayMs(RetryReason reason, int attempt) {
+    int shift = Math.max(attempt, 1) - 1;
+    if (reason == RetryReason.SERVER_TOO_BUSY) {
+      shift += SERVER_TOO_BUSY_EXTRA_SHIFT;
+    }
+    shift = Math.min(shift, MAX_SHIFT);
+    return Math.min(maxDelayMs, baseDelayMs << shift);
+  }
+
+  public RetryBudget getBudget() {
+    return budget;
+  }
+}
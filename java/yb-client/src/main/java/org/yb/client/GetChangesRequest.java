@@ -22,20 +22,36 @@ import org.yb.util.Pair;
 import org.yb.cdc.CdcService.GetChangesRequestPB;
 import org.yb.cdc.CdcService.GetChangesResponsePB;
 
-public class GetChangesRequest extends YRpc<GetChangesResponse> {
+public class GetChangesRequest extends YRpc<GetChangesResponse> implements YRpc.HasKey {
   private final String streamId;
   private final String tabletId;
+  private final byte[] partitionKey;
   private final long term;
   private final long index;
 
   public GetChangesRequest(YBTable table, String streamId, String tabletId, long term, long index) {
+    this(table, streamId, tabletId, null, term, index);
+  }
+
+  /**
+   * @param partitionKey start key of the tablet's partition, used to send the request to the
+   *                     tablet's leader through the tablet cache
+   */
+  public GetChangesRequest(YBTable table, String streamId, String tabletId, byte[] partitionKey,
+                           long term, long index) {
     super(table);
     this.streamId = streamId;
     this.tabletId = tabletId;
+    this.partitionKey = partitionKey;
     this.term = term;
     this.index = index;
   }
 
+  @Override
+  public byte[] partitionKey() {
+    return partitionKey;
+  }
+
   @Override
   ChannelBuffer serialize(Message header) {
     assert header.isInitialized();
@@ -48,9 +48,16 @@ class GetTableLocationsRequest extends YRpc<Master.GetTableLocationsResponsePB>
   private final byte[] startPartitionKey;
   private final byte[] endKey;
   private final String tableId;
+  // Maximum number of tablets to return, 0 to use the master's default.
+  private final int maxReturnedLocations;
 
   GetTableLocationsRequest(YBTable table, byte[] startPartitionKey,
                            byte[] endPartitionKey, String tableId) {
+    this(table, startPartitionKey, endPartitionKey, tableId, 0);
+  }
+
+  GetTableLocationsRequest(YBTable table, byte[] startPartitionKey,
+                           byte[] endPartitionKey, String tableId, int maxReturnedLocations) {
     super(table);
     if (startPartitionKey != null && endPartitionKey != null
         && Bytes.memcmp(startPartitionKey, endPartitionKey) > 0) {
@@ -60,6 +67,7 @@ class GetTableLocationsRequest extends YRpc<Master.GetTableLocationsResponsePB>
     this.startPartitionKey = startPartitionKey;
     this.endKey = endPartitionKey;
     this.tableId = tableId;
+    this.maxReturnedLocations = maxReturnedLocations;
   }
 
   @Override
@@ -94,6 +102,9 @@ class GetTableLocationsRequest extends YRpc<Master.GetTableLocationsResponsePB>
     if (endKey != null) {
       builder.setPartitionKeyEnd(UnsafeByteOperations.unsafeWrap(endKey));
     }
+    if (maxReturnedLocations > 0) {
+      builder.setMaxReturnedLocations(maxReturnedLocations);
+    }
     return toChannelBuffer(header, builder.build());
   }
 }
@@ -0,0 +1,36 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.client;
+
+import org.yb.annotations.InterfaceAudience;
+import org.yb.annotations.InterfaceStability;
+
+/**
+ * How the client picks the replica of a tablet to send an RPC to. Only RPCs that can read stale
+ * data are sent to followers, the others always go to the leader.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public enum ReplicaSelection {
+  /** Always send to the leader. */
+  LEADER_ONLY,
+
+  /**
+   * Send to the replica closest to the client, matching its zone, then region, then cloud. Among
+   * equally close replicas, the leader is preferred.
+   */
+  CLOSEST_REPLICA,
+
+  /** Spread the RPCs over the followers, falling back to the leader if there is none. */
+  ROUND_ROBIN_FOLLOWERS
+}
@@ -0,0 +1,82 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.client;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import org.yb.annotations.InterfaceAudience;
+import org.yb.annotations.InterfaceStability;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * A token bucket limiting the rate of retries of a client. Each retry takes a token, and the
+ * bucket refills at a fixed rate up to its capacity. Once it is empty, retries fail instead of
+ * piling more load onto servers that are already overloaded.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public class RetryBudget {
+  private final Ticker ticker;
+  private final double capacity;
+  private final double tokensPerNano;
+  private double tokens;
+  private long lastRefillNanos;
+
+  /**
+   * Creates a full bucket.
+   * @param capacity the maximum number of retries that can be made in a burst
+   * @param refillPerSecond the sustained number of retries allowed per second
+   */
+  public RetryBudget(int capacity, double refillPerSecond) {
+    this(capacity, refillPerSecond, Ticker.systemTicker());
+  }
+
+  RetryBudget(int capacity, double refillPerSecond, Ticker ticker) {
+    Preconditions.checkArgument(capacity > 0, "capacity should be greater than 0");
+    Preconditions.checkArgument(refillPerSecond >= 0, "refillPerSecond should not be negative");
+    this.ticker = ticker;
+    this.capacity = capacity;
+    this.tokensPerNano = refillPerSecond / SECONDS.toNanos(1);
+    this.tokens = capacity;
+    this.lastRefillNanos = ticker.read();
+  }
+
+  /**
+   * Takes a token if one is available.
+   * @return true if the retry may go ahead
+   */
+  public synchronized boolean tryAcquire() {
+    refill();
+    if (tokens < 1) {
+      return false;
+    }
+    tokens -= 1;
+    return true;
+  }
+
+  /**
+   * @return the number of whole tokens currently available
+   */
+  public synchronized int getAvailableTokens() {
+    refill();
+    return (int) tokens;
+  }
+
+  private void refill() {
+    long now = ticker.read();
+    tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+    lastRefillNanos = now;
+  }
+}
@@ -0,0 +1,63 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.client;
+
+import org.yb.annotations.InterfaceAudience;
+import org.yb.annotations.InterfaceStability;
+
+/**
+ * Decides how long the client waits before retrying an RPC that failed with a retryable error,
+ * and whether it retries at all.
+ * <p>
+ * A policy is shared by all the RPCs of a client, so implementations must be thread-safe.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public interface RetryPolicy {
+
+  /**
+   * Why an RPC is being retried.
+   */
+  enum RetryReason {
+    /** The server rejected the RPC because its queues are full. */
+    SERVER_TOO_BUSY,
+    /** The leader exists but is not ready to serve yet, or the service is unavailable. */
+    LEADER_NOT_READY,
+    /** The server is not the leader, the RPC is retried against the new leader. */
+    NOT_THE_LEADER,
+    /** The server does not host the tablet, or the connection to it was lost. */
+    TABLET_NOT_FOUND,
+    /** The table is still being created. */
+    TABLE_NOT_SERVED,
+    /** Any other retryable error. */
+    OTHER;
+
+    /**
+     * @return true if retrying for this reason adds load to a server that is already struggling,
+     *         as opposed to retrying after the client learned where to send the RPC, or while a
+     *         leader is being elected or getting ready to serve
+     */
+    public boolean isOverload() {
+      return this == SERVER_TOO_BUSY || this == OTHER;
+    }
+  }
+
+  /**
+   * Returns the delay before the next attempt of an RPC.
+   * @param reason why the RPC is being retried
+   * @param attempt the number of attempts made so far, starting at 1
+   * @return the delay in milliseconds, or a negative value to fail the RPC instead of retrying it
+   */
+  long getRetryDelayMs(RetryReason reason, int attempt);
+}
@@ -45,8 +45,10 @@ import com.stumbleupon.async.Deferred;
 
 import org.jboss.netty.channel.ConnectTimeoutException;
 import org.jboss.netty.handler.timeout.ReadTimeoutException;
+import org.yb.Common;
 import org.yb.WireProtocol;
 import org.yb.annotations.InterfaceAudience;
+import org.yb.cdc.CdcService;
 import org.yb.master.Master;
 import org.yb.rpc.RpcHeader;
 import org.yb.tserver.Tserver;
@@ -62,8 +64,7 @@ import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.ChannelStateEvent;
 import org.jboss.netty.channel.Channels;
 import org.jboss.netty.channel.ExceptionEvent;
-import org.jboss.netty.handler.codec.replay.ReplayingDecoder;
-import org.jboss.netty.handler.codec.replay.VoidEnum;
+import org.jboss.netty.handler.codec.frame.FrameDecoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -72,8 +73,11 @@ import javax.security.sasl.SaslException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -96,7 +100,7 @@ import java.util.concurrent.atomic.AtomicInteger;
  * channel isn't connected.
  */
 @InterfaceAudience.Private
-public class TabletClient extends ReplayingDecoder<VoidEnum> {
+public class TabletClient extends FrameDecoder {
 
   public static final Logger LOG = LoggerFactory.getLogger(TabletClient.class);
 
@@ -148,13 +152,48 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
 
   private final long socketReadTimeoutMs;
 
+  /**
+   * The connection cached in {@link AsyncYBClient}'s connection cache for this server, when this
+   * is one of the extra connections opened to it, or {@code null} when this is that connection.
+   */
+  private final TabletClient primary;
+
+  /**
+   * Once this many bytes of serialized RPCs are waiting to be written, they get written right away
+   * instead of waiting for the IO thread to pick them up.
+   */
+  static final int MAX_COALESCED_BYTES = 64 * 1024;
+
+  /**
+   * Serialized RPCs waiting to be written to the channel. RPCs sent from any thread are queued
+   * here and written together by {@link #flushOutbound}, in one write of a composite buffer.
+   */
+  private final ConcurrentLinkedQueue<ChannelBuffer> outbound = new ConcurrentLinkedQueue<>();
+
+  private final AtomicInteger outboundBytes = new AtomicInteger();
+
+  // Whether a flush of the outbound queue is scheduled on the IO thread.
+  private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+  // Placement of the server, as reported by the master, or null if we don't know it.
+  private volatile Common.CloudInfoPB cloudInfo;
+
+  /** Last time, in {@link System#nanoTime()}, an RPC was sent or a response received. */
+  private volatile long lastActivityNanos = System.nanoTime();
+
   public TabletClient(AsyncYBClient client, String uuid) {
+    this(client, uuid, null);
+  }
+
+  TabletClient(AsyncYBClient client, String uuid, TabletClient primary) {
     this.ybClient = client;
     this.uuid = uuid;
+    this.primary = primary;
     this.socketReadTimeoutMs = client.getDefaultSocketReadTimeoutMs();
   }
 
   <R> void sendRpc(YRpc<R> rpc) {
+    lastActivityNanos = System.nanoTime();
     if (!rpc.deadlineTracker.hasDeadline()) {
       LOG.warn(getPeerUuidLoggingString() + " sending an rpc without a timeout " + rpc);
     }
@@ -166,7 +205,7 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
 
       final Channel chan = this.chan;  // Volatile read.
       if (chan != null) {  // Double check if we disconnected during encode().
-        Channels.write(chan, serialized);
+        queueWrite(chan, serialized);
         return;
       }
     }
@@ -198,6 +237,60 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
     }
   }
 
+  /**
+   * Queues a serialized RPC to be written to the channel. The first RPC queued schedules a flush
+   * on the channel's IO thread, and the RPCs queued until that flush runs get written along with
+   * it, which saves a write per RPC when many are sent at once. The queue also gets flushed right
+   * away once it holds {@link #MAX_COALESCED_BYTES}.
+   */
+  private void queueWrite(final Channel chan, final ChannelBuffer serialized) {
+    outbound.add(serialized);
+    if (outboundBytes.addAndGet(serialized.readableBytes()) >= MAX_COALESCED_BYTES) {
+      flushOutbound(chan);
+    } else if (flushScheduled.compareAndSet(false, true)) {
+      // Runs right away if we're already on the IO thread.
+      chan.getPipeline().execute(new Runnable() {
+        @Override
+        public void run() {
+          flushOutbound(chan);
+        }
+      });
+    }
+  }
+
+  /**
+   * Writes all the queued RPCs to the channel in one write, and hands their buffers back to the
+   * pool once written.
+   */
+  private void flushOutbound(final Channel chan) {
+    // Clear the flag first, so that an RPC queued while we drain schedules another flush.
+    flushScheduled.set(false);
+    final List<ChannelBuffer> buffers = new ArrayList<>();
+    int bytes = 0;
+    ChannelBuffer buf;
+    while ((buf = outbound.poll()) != null) {
+      buffers.add(buf);
+      bytes += buf.readableBytes();
+    }
+    if (buffers.isEmpty()) {
+      return;
+    }
+    outboundBytes.addAndGet(-bytes);
+    final ChannelBuffer batch = buffers.size() == 1 ? buffers.get(0) :
+        ChannelBuffers.wrappedBuffer(buffers.toArray(new ChannelBuffer[buffers.size()]));
+    ybClient.getWriteStats().onFlush(buffers.size(), bytes);
+    Channels.write(chan, batch).addListener(new ChannelFutureListener() {
+      @Override
+      public void operationComplete(final ChannelFuture future) {
+        // Whether the write succeeded or not, the buffers aren't needed anymore: on failure the
+        // channel gets closed and the RPCs are retried or failed from rpcs_inflight.
+        for (ChannelBuffer written : buffers) {
+          BufferPool.INSTANCE.release(written);
+        }
+      }
+    });
+  }
+
   private <R> ChannelBuffer encode(final YRpc<R> rpc) {
     final int rpcid = this.rpcid.incrementAndGet();
     ChannelBuffer payload;
@@ -231,6 +324,9 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
         rpc.errback(e);  // Make the RPC fail with the exception.
         return null;
     }
+    if (ybClient.getClientMetrics().isEnabled()) {
+      rpc.sendTimeNanos = System.nanoTime();
+    }
     final YRpc<?> oldrpc = rpcs_inflight.put(rpcid, rpc);
     if (oldrpc != null) {
       final String wtf = getPeerUuidLoggingString() +
@@ -250,6 +346,21 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
     return payload;
   }
 
+  /**
+   * Closes the connection without cancelling the RPCs on it: unlike {@link #shutdown()}, the
+   * RPCs sent to a tablet get retried, as they would be if the server had disconnected.
+   */
+  void close() {
+    final Channel chancopy = chan;
+    if (chancopy == null) {
+      // Still connecting: fail the RPCs queued so far, as shutdown() does, since they can't be
+      // handed back before the channel exists.
+      shutdown();
+      return;
+    }
+    Channels.close(chancopy);
+  }
+
   public Deferred<Void> shutdown() {
     // First, check whether we have RPCs in flight and cancel them.
     for (Iterator<YRpc<?>> ite = rpcs_inflight.values().iterator(); ite
@@ -319,15 +430,17 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
    */
   @Override
   @SuppressWarnings("unchecked")
-  protected Object decode(ChannelHandlerContext ctx, Channel chan, ChannelBuffer buf,
-                              VoidEnum voidEnum) {
+  protected Object decode(ChannelHandlerContext ctx, Channel chan, ChannelBuffer in) {
     final long start = System.nanoTime();
-    final int rdx = buf.readerIndex();
-    LOG.debug("------------------>> ENTERING DECODE >>------------------");
-
+    lastActivityNanos = start;
+    // Only start decoding once the whole response is in, so that a response arriving in many
+    // segments is parsed once rather than from the start on every segment.
+    final ChannelBuffer buf = nextFrame(in);
     if (buf == null) {
       return null;
     }
+    final int rdx = buf.readerIndex();
+    LOG.debug("------------------>> ENTERING DECODE >>------------------");
 
     CallResponse response = new CallResponse(buf);
     if (response.isEmpty()) {
@@ -400,10 +513,12 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
         throw new NonRecoverableException("RPC not found");
       }
     }
+    ybClient.getClientMetrics().onRpcCompleted(rpc, start - rpc.sendTimeNanos);
 
     // This check is specifically for the ERROR_SERVER_TOO_BUSY case above.
     if (retryableHeaderException != null) {
-      ybClient.handleRetryableError(rpc, retryableHeaderException, this);
+      ybClient.handleRetryableError(rpc, retryableHeaderException, this,
+                                    RetryPolicy.RetryReason.SERVER_TOO_BUSY);
       return null;
     }
 
@@ -431,6 +546,14 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
         } else {
           decoded = null;
         }
+
+      } else if (decoded.getSecond() instanceof CdcService.CDCErrorPB &&
+                 rpc.getTablet() != null) {
+        // Only CDC RPCs sent through the tablet cache can follow the leader. The other errors
+        // stay in the response for the caller to handle.
+        if (dispatchCDCError(rpc, (CdcService.CDCErrorPB) decoded.getSecond())) {
+          return null;
+        }
       }
     }
 
@@ -474,7 +597,7 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
                  Tserver.TabletServerErrorPB.Code.LEADER_NOT_READY_TO_STEP_DOWN ||
                error.getCode() ==
                  Tserver.TabletServerErrorPB.Code.LEADER_NOT_READY_TO_SERVE) {
-      ybClient.handleRetryableError(rpc, ex, this);
+      ybClient.handleRetryableError(rpc, ex, this, RetryPolicy.RetryReason.LEADER_NOT_READY);
       // The following error codes are an indication that the tablet isn't a leader, or, in case
       // of LEADER_HAS_NO_LEASE, might no longer be the leader due to failing to replicate a leader
       // lease, so we retry looking up the leader anyway.
@@ -502,20 +625,44 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
     MasterErrorException ex = new MasterErrorException(uuid, error);
     if (error.getCode() == Master.MasterErrorPB.Code.NOT_THE_LEADER) {
       ybClient.handleNotLeader(rpc, ex, this);
-    } else if (error.getCode() == Master.MasterErrorPB.Code.CATALOG_MANAGER_NOT_INITIALIZED ||
-               error.getCode() == Master.MasterErrorPB.Code.CAN_RETRY_LOAD_BALANCE_CHECK) {
+    } else if (error.getCode() == Master.MasterErrorPB.Code.CATALOG_MANAGER_NOT_INITIALIZED) {
+      ybClient.handleRetryableError(rpc, ex, this, RetryPolicy.RetryReason.LEADER_NOT_READY);
+    } else if (error.getCode() == Master.MasterErrorPB.Code.CAN_RETRY_LOAD_BALANCE_CHECK) {
       ybClient.handleRetryableError(rpc, ex, this);
     } else if (code == WireProtocol.AppStatusPB.ErrorCode.SERVICE_UNAVAILABLE &&
         (!(rpc instanceof GetMasterRegistrationRequest))) {
       // TODO: This is a crutch until we either don't have to retry RPCs going to the
       // same server or use retry policies.
-      ybClient.handleRetryableError(rpc, ex, this);
+      ybClient.handleRetryableError(rpc, ex, this, RetryPolicy.RetryReason.LEADER_NOT_READY);
     } else {
       return ex;
     }
     return null;
   }
 
+  /**
+   * Retries the CDC RPCs that reached a server that isn't the tablet's leader, or a leader that
+   * isn't ready to serve yet.
+   * @param rpc The original RPC call that triggered the error.
+   * @param error The error the CDC service sent.
+   * @return true if the RPC is being retried, false if the caller should get the response.
+   */
+  private boolean dispatchCDCError(YRpc rpc, CdcService.CDCErrorPB error) {
+    CDCErrorException ex = new CDCErrorException(uuid, error);
+    switch (error.getCode()) {
+      // The CDC service reports a tablet that has no leader peer here as TABLET_NOT_FOUND.
+      case TABLET_NOT_FOUND:
+      case NOT_LEADER:
+        ybClient.handleNotLeader(rpc, ex, this);
+        return true;
+      case LEADER_NOT_READY:
+        ybClient.handleRetryableError(rpc, ex, this, RetryPolicy.RetryReason.LEADER_NOT_READY);
+        return true;
+      default:
+        return false;
+    }
+  }
+
   /**
    * Decodes the response of an RPC and triggers its {@link Deferred}.
    * <p>
@@ -530,8 +677,7 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
   @Override
   protected Object decodeLast(final ChannelHandlerContext ctx,
                               final Channel chan,
-                              final ChannelBuffer buf,
-                              final VoidEnum unused) {
+                              final ChannelBuffer buf) {
     // When we disconnect, decodeLast is called instead of decode.
     // We simply check whether there's any data left in the buffer, in which
     // case we attempt to process it.  But if there's no data left, then we
@@ -539,7 +685,7 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
     // doesn't contain enough data, which unnecessarily pollutes the logs.
     if (buf.readable()) {
       try {
-        return decode(ctx, chan, buf, unused);
+        return decode(ctx, chan, buf);
       } finally {
         if (buf.readable()) {
           LOG.error(getPeerUuidLoggingString() + "After decoding the last message on " + chan
@@ -575,18 +721,71 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
     return !dead;
   }
 
+  Common.CloudInfoPB getCloudInfo() {
+    return cloudInfo;
+  }
+
+  void setCloudInfo(Common.CloudInfoPB cloudInfo) {
+    this.cloudInfo = cloudInfo;
+  }
+
   /**
-   * Ensures that at least a {@code nbytes} are readable from the given buffer.
-   * If there aren't enough bytes in the buffer this will raise an exception
-   * and cause the {@link ReplayingDecoder} to undo whatever we did thus far
-   * so we can wait until we read more from the socket.
-   * @param buf Buffer to check.
-   * @param nbytes Number of bytes desired.
+   * @return the number of RPCs sent on this connection that are waiting for a response
    */
-  static void ensureReadable(final ChannelBuffer buf, final int nbytes) {
-    buf.markReaderIndex();
-    buf.skipBytes(nbytes); // can puke with Throwable
-    buf.resetReaderIndex();
+  int getInFlightCount() {
+    return rpcs_inflight.size();
+  }
+
+  /**
+   * Returns the connection this one is an extra connection for, or this connection itself.
+   */
+  TabletClient getPrimary() {
+    return primary != null ? primary : this;
+  }
+
+  /**
+   * @param idleNanos how long the connection must have gone without any traffic
+   * @return true if no RPC is in flight or pending on this connection, and none was sent or
+   * answered in the last {@code idleNanos} nanoseconds
+   */
+  boolean isIdle(long idleNanos) {
+    if (!rpcs_inflight.isEmpty()) {
+      return false;
+    }
+    synchronized (this) {
+      if (pending_rpcs != null && !pending_rpcs.isEmpty()) {
+        return false;
+      }
+    }
+    return System.nanoTime() - lastActivityNanos >= idleNanos;
+  }
+
+  /**
+   * Takes the next response off the given buffer, once all of it has been received. Each response
+   * is prefixed with its length on 4 bytes.
+   * @param buf Buffer accumulating the bytes read from the socket.
+   * @return A buffer holding the whole response, length prefix included, that the caller owns, or
+   * {@code null} if the response hasn't been fully received yet, in which case nothing is read
+   * from {@code buf}.
+   * @throws IllegalArgumentException If the length prefix isn't within reasonable limits as
+   * defined by {@link YRpc#checkArrayLength(ChannelBuffer, long)}.
+   */
+  static ChannelBuffer nextFrame(final ChannelBuffer buf) {
+    if (buf.readableBytes() < 4) {
+      return null;
+    }
+    final int length = buf.getInt(buf.readerIndex());
+    // Fail on a bogus length right away, rather than buffering until we run out of memory.
+    YRpc.checkArrayLength(buf, length);
+    final int frameLength = 4 + length;
+    if (buf.readableBytes() < frameLength) {
+      return null;
+    }
+    // Copy the frame out of the cumulation buffer, which gets reused for the following bytes, so
+    // that the slices handed to protobuf parsing can point straight into it.
+    final ChannelBuffer frame = ChannelBuffers.buffer(frameLength);
+    buf.readBytes(frame, frameLength);
+    return frame;
   }
 
   @Override
@@ -612,7 +811,7 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
   public void channelDisconnected(final ChannelHandlerContext ctx,
                                   final ChannelStateEvent e) throws Exception {
     chan = null;
-    super.channelDisconnected(ctx, e);  // Let the ReplayingDecoder cleanup.
+    super.channelDisconnected(ctx, e);  // Let the FrameDecoder cleanup.
     cleanup(e.getChannel());
   }
 
@@ -623,7 +822,7 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
     // No need to call super.channelClosed() because we already called
     // super.channelDisconnected().  If we get here without getting a
     // DISCONNECTED event, then we were never connected in the first place so
-    // the ReplayingDecoder has nothing to cleanup.
+    // the FrameDecoder has nothing to cleanup.
     cleanup(e.getChannel());
   }
 
@@ -694,7 +893,7 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
     } else if (e instanceof ReadTimeoutException) {
       LOG.debug(getPeerUuidLoggingString() + "Encountered a read timeout");
       // Doing the cleanup here since we want to invalidate all the RPCs right _now_, and not let
-      // the ReplayingDecoder continue decoding through Channels.close() below.
+      // the FrameDecoder continue decoding through Channels.close() below.
       cleanup(c);
     } else {
       LOG.debug(getPeerUuidLoggingString() + "Unexpected exception " + e.getMessage() +
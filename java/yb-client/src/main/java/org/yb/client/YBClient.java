@@ -36,6 +36,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 
 import org.slf4j.Logger;
@@ -52,6 +53,7 @@ import org.yb.master.Master;
 import org.yb.tserver.Tserver;
 
 import com.google.common.net.HostAndPort;
+import com.stumbleupon.async.Callback;
 import com.stumbleupon.async.Deferred;
 import org.yb.util.Pair;
 
@@ -82,19 +84,6 @@ public class YBClient implements AutoCloseable {
   // Redis key column name.
   public static final String REDIS_KEY_COLUMN_NAME = "key";
 
-  // Number of response errors to tolerate.
-  private static final int MAX_ERRORS_TO_IGNORE = 2500;
-
-  // Log errors every so many errors.
-  private static final int LOG_ERRORS_EVERY_NUM_ITERS = 100;
-
-  // Log info after these many iterations.
-  private static final int LOG_EVERY_NUM_ITERS = 200;
-
-  // Simple way to inject an error on Wait based APIs. If enabled, after first inject,
-  // it will be turned off. We can enhance it to use more options like every-N etc.
-  private boolean injectWaitError = false;
-
   public YBClient(AsyncYBClient asyncClient) {
     this.asyncClient = asyncClient;
   }
@@ -401,12 +390,7 @@ public class YBClient implements AutoCloseable {
       return false;
     }
 
-    long start = System.currentTimeMillis();
-    while (System.currentTimeMillis() - start < timeoutMS &&
-      getMasterUUID(hp.getHost(), hp.getPort()) == null) {
-      Thread.sleep(AsyncYBClient.SLEEP_TIME);
-    }
-    return getMasterUUID(hp.getHost(), hp.getPort()) != null;
+    return toCompletableFuture(asyncClient.waitForMasterUUID(hp, timeoutMS)).join();
   }
 
   /**
@@ -499,23 +483,12 @@ public class YBClient implements AutoCloseable {
    * @return Master leader uuid on success, null otherwise.
    */
   private String waitAndGetLeaderMasterUUID(long timeoutMs) throws Exception {
-    long start = System.currentTimeMillis();
-
     // Retry till we get a valid UUID (or timeout) for the new leader.
-    do {
-      String leaderUuid = getLeaderMasterUUID();
-
-      // Done if we got a valid one.
-      if (leaderUuid != null) {
-        return leaderUuid;
-      }
-
-      Thread.sleep(asyncClient.SLEEP_TIME);
-    } while (System.currentTimeMillis() - start < timeoutMs);
-
-    LOG.error("Timed out getting leader uuid.");
-
-    return null;
+    String leaderUuid = toCompletableFuture(asyncClient.waitForLeaderMasterUUID(timeoutMs)).join();
+    if (leaderUuid == null) {
+      LOG.error("Timed out getting leader uuid.");
+    }
+    return leaderUuid;
   }
 
  /**
@@ -674,13 +647,19 @@ public class YBClient implements AutoCloseable {
   * @param timeoutMs the amount of time, in MS, to wait until a Leader is present
   */
   public void waitForMasterLeader(long timeoutMs) throws Exception {
-    String leaderUuid = waitAndGetLeaderMasterUUID(timeoutMs);
-
-    if (leaderUuid == null) {
+    if (!waitForMasterLeaderAsync(timeoutMs).join()) {
       throw new RuntimeException("Timed out waiting for Master Leader.");
     }
   }
 
+  /**
+   * Asynchronous version of {@link #waitForMasterLeader}.
+   * @return a future that yields true if a master leader was elected within timeoutMs
+   */
+  public CompletableFuture<Boolean> waitForMasterLeaderAsync(long timeoutMs) {
+    return toCompletableFuture(asyncClient.waitForMasterLeader(timeoutMs));
+  }
+
   /**
    * Enable encryption at rest using the key file specified
    */
@@ -821,157 +800,33 @@ public class YBClient implements AutoCloseable {
     boolean get() throws Exception;
   }
 
-  /**
-   * Checks the ping of the given ip and port.
-   */
-  private class ServerCondition implements Condition {
-    private HostAndPort hp;
-    public ServerCondition(HostAndPort hp) {
-      this.hp = hp;
-    }
-    @Override
-    public boolean get() throws Exception {
-      return ping(hp.getHost(), hp.getPort());
-    }
-  }
-
-  /**
-   * Checks whether the IsLoadBalancedResponse has no error.
-   */
-  private class LoadBalanceCondition implements Condition {
-    private int numServers;
-    public LoadBalanceCondition(int numServers) {
-      this.numServers = numServers;
-    }
-    @Override
-    public boolean get() throws Exception {
-      IsLoadBalancedResponse resp = getIsLoadBalanced(numServers);
-      return !resp.hasError();
-    }
-  }
-
-  /**
-   * Checks whether the IsLoadBalancerIdleResponse has no error.
-   */
-  private class LoadBalancerIdleCondition implements Condition {
-    public LoadBalancerIdleCondition() {
-    }
-    @Override
-    public boolean get() throws Exception {
-      IsLoadBalancerIdleResponse resp = getIsLoadBalancerIdle();
-      return !resp.hasError();
-    }
-  }
-
-  private class AreLeadersOnPreferredOnlyCondition implements Condition {
-    @Override
-    public boolean get() throws Exception {
-      AreLeadersOnPreferredOnlyResponse resp = getAreLeadersOnPreferredOnly();
-      return !resp.hasError();
-    }
-  }
-
-  private class ReplicaMapCondition implements Condition {
-    private YBTable table;
-    Map<String, List<List<Integer>>> replicaMapExpected;
-    private long deadline;
-    public ReplicaMapCondition(YBTable table,
-                               Map<String, List<List<Integer>>> replicaMapExpected,
-                               long deadline) {
-      this.table = table;
-      this.replicaMapExpected = replicaMapExpected;
-      this.deadline = deadline;
-    }
-    @Override
-    public boolean get() throws Exception {
-      Map<String, List<List<Integer>>> replicaMap =
-          table.getMemberTypeCountsForEachTSType(deadline);
-      return replicaMap.equals(replicaMapExpected);
-    }
-  }
-
-  private class MasterHasUniverseKeyInMemoryCondition implements Condition {
-    private String universeKeyId;
-    private HostAndPort hp;
-    public MasterHasUniverseKeyInMemoryCondition(String universeKeyId, HostAndPort hp) {
-      this.universeKeyId = universeKeyId;
-      this.hp = hp;
-    }
-
-    @Override
-    public boolean get() throws Exception {
-      return hasUniverseKeyInMemory(universeKeyId, hp);
-    }
-  }
-
   /**
    * Quick and dirty error injection on Wait based API's.
    * After every use, for now, will get automatically disabled.
    */
   public void injectWaitError() {
-    injectWaitError = true;
+    asyncClient.injectWaitError();
   }
 
   /**
-   * Helper method that loops on a condition every 500ms until it returns true or the
-   * operation times out.
-   * @param condition the Condition which implements a boolean get() method.
-   * @param timeoutMs the amount of time, in MS, to wait.
-   * @return true if the condition is true within the time frame, false otherwise.
+   * Adapts a deferred result of the {@link AsyncYBClient} to a {@link CompletableFuture}.
    */
-  private boolean waitForCondition(Condition condition, final long timeoutMs) {
-    Exception finalException = null;
-    long start = System.currentTimeMillis();
-    int numErrors = 0;
-    int numIters = 0;
-    String errorMessage = null;
-    do {
-      try {
-        if (injectWaitError) {
-          Thread.sleep(AsyncYBClient.SLEEP_TIME);
-          injectWaitError = false;
-          String msg = "Simulated expection due to injected error.";
-          LOG.info(msg);
-          throw new RuntimeException(msg);
-        }
-        if (condition.get()) {
-          return true;
-        }
-      } catch (Exception e) {
-        // We will get exceptions if we cannot connect to the other end. Catch them and save for
-        // final debug if we never succeed.
-        finalException = e;
-        numErrors++;
-        if (numErrors % LOG_ERRORS_EVERY_NUM_ITERS == 0) {
-          LOG.warn("Hit {} errors so far. Latest is : {}.", numErrors, finalException.toString());
-        }
-        if (numErrors >= MAX_ERRORS_TO_IGNORE) {
-          errorMessage = "Hit too many errors, final exception is " + finalException.toString();
-          break;
-        }
+  private static <T> CompletableFuture<T> toCompletableFuture(Deferred<T> d) {
+    final CompletableFuture<T> future = new CompletableFuture<>();
+    d.addCallbacks(new Callback<Void, T>() {
+      @Override
+      public Void call(T result) {
+        future.complete(result);
+        return null;
       }
-
-      numIters++;
-      if (numIters % LOG_EVERY_NUM_ITERS == 0) {
-        LOG.info("Tried operation {} times so far.", numIters);
+    }, new Callback<Void, Exception>() {
+      @Override
+      public Void call(Exception e) {
+        future.completeExceptionally(e);
+        return null;
       }
-
-      // Need to wait even when ping has an exception, so the sleep is outside the above try block.
-      try {
-        Thread.sleep(AsyncYBClient.SLEEP_TIME);
-      } catch (Exception e) {}
-    } while (System.currentTimeMillis() - start < timeoutMs);
-
-    if (errorMessage == null) {
-      LOG.error("Timed out waiting for operation. Final exception was {}.",
-                finalException != null ? finalException.toString() : "none");
-    } else {
-      LOG.error(errorMessage);
-    }
-
-    LOG.error("Returning failure after {} iterations, num errors = {}.", numIters, numErrors);
-
-    return false;
+    });
+    return future;
   }
 
   /**
@@ -981,8 +836,15 @@ public class YBClient implements AutoCloseable {
   * @return true if the server responded to pings in the given time, false otherwise
   */
   public boolean waitForServer(final HostAndPort hp, final long timeoutMs) {
-    Condition serverCondition = new ServerCondition(hp);
-    return waitForCondition(serverCondition, timeoutMs);
+    return waitForServerAsync(hp, timeoutMs).join();
+  }
+
+  /**
+   * Asynchronous version of {@link #waitForServer}, which doesn't block any thread while waiting.
+   */
+  public CompletableFuture<Boolean> waitForServerAsync(final HostAndPort hp,
+                                                       final long timeoutMs) {
+    return toCompletableFuture(asyncClient.waitForServer(hp, timeoutMs));
   }
 
   /**
@@ -992,8 +854,15 @@ public class YBClient implements AutoCloseable {
   * @return true if the master leader does not return any error balance check.
   */
   public boolean waitForLoadBalance(final long timeoutMs, int numServers) {
-    Condition loadBalanceCondition = new LoadBalanceCondition(numServers);
-    return waitForCondition(loadBalanceCondition, timeoutMs);
+    return waitForLoadBalanceAsync(timeoutMs, numServers).join();
+  }
+
+  /**
+   * Asynchronous version of {@link #waitForLoadBalance}.
+   */
+  public CompletableFuture<Boolean> waitForLoadBalanceAsync(final long timeoutMs,
+                                                            int numServers) {
+    return toCompletableFuture(asyncClient.waitForLoadBalance(timeoutMs, numServers));
   }
 
   /**
@@ -1002,8 +871,14 @@ public class YBClient implements AutoCloseable {
   * @return true if the master leader does not return any error balance check.
   */
   public boolean waitForLoadBalancerIdle(final long timeoutMs) {
-    Condition loadBalancerIdleCondition = new LoadBalancerIdleCondition();
-    return waitForCondition(loadBalancerIdleCondition, timeoutMs);
+    return waitForLoadBalancerIdleAsync(timeoutMs).join();
+  }
+
+  /**
+   * Asynchronous version of {@link #waitForLoadBalancerIdle}.
+   */
+  public CompletableFuture<Boolean> waitForLoadBalancerIdleAsync(final long timeoutMs) {
+    return toCompletableFuture(asyncClient.waitForLoadBalancerIdle(timeoutMs));
   }
 
   /**
@@ -1012,9 +887,15 @@ public class YBClient implements AutoCloseable {
    * @return true iff the leader count is balanced within timeoutMs.
    */
   public boolean waitForAreLeadersOnPreferredOnlyCondition(final long timeoutMs) {
-    Condition areLeadersOnPreferredOnlyCondition =
-        new AreLeadersOnPreferredOnlyCondition();
-    return waitForCondition(areLeadersOnPreferredOnlyCondition, timeoutMs);
+    return waitForAreLeadersOnPreferredOnlyConditionAsync(timeoutMs).join();
+  }
+
+  /**
+   * Asynchronous version of {@link #waitForAreLeadersOnPreferredOnlyCondition}.
+   */
+  public CompletableFuture<Boolean> waitForAreLeadersOnPreferredOnlyConditionAsync(
+      final long timeoutMs) {
+    return toCompletableFuture(asyncClient.waitForAreLeadersOnPreferredOnlyCondition(timeoutMs));
   }
 
   /**
@@ -1030,14 +911,14 @@ public class YBClient implements AutoCloseable {
    */
   public boolean waitForExpectedReplicaMap(final long timeoutMs, YBTable table,
                                             Map<String, List<List<Integer>>> replicaMapExpected) {
-    Condition replicaMapCondition = new ReplicaMapCondition(table, replicaMapExpected, timeoutMs);
-    return waitForCondition(replicaMapCondition, timeoutMs);
+    return toCompletableFuture(
+        asyncClient.waitForExpectedReplicaMap(timeoutMs, table, replicaMapExpected)).join();
   }
 
   public boolean waitForMasterHasUniverseKeyInMemory(
           final long timeoutMs, String universeKeyId, HostAndPort hp) {
-    Condition universeKeyCondition = new MasterHasUniverseKeyInMemoryCondition(universeKeyId, hp);
-    return waitForCondition(universeKeyCondition, timeoutMs);
+    return toCompletableFuture(
+        asyncClient.waitForMasterHasUniverseKeyInMemory(timeoutMs, universeKeyId, hp)).join();
   }
 
   /**
@@ -1238,6 +1119,14 @@ public class YBClient implements AutoCloseable {
     return asyncClient.getDefaultAdminOperationTimeoutMs();
   }
 
+  /**
+   * Takes a snapshot of the RPC metrics of this client, see
+   * {@link AsyncYBClient#getMetricsSnapshot()}.
+   */
+  public ClientMetrics.Snapshot getMetricsSnapshot() {
+    return asyncClient.getMetricsSnapshot();
+  }
+
   /**
    * Builder class to use in order to connect to YB.
    * All the parameters beyond those in the constructors are optional.
@@ -1360,6 +1249,81 @@ public class YBClient implements AutoCloseable {
       return this;
     }
 
+    /**
+     * Set the policy deciding how long to wait before retrying an RPC that failed with a
+     * retryable error, and whether to retry it at all.
+     * Optional.
+     * If not provided, an {@link ExponentialBackoffRetryPolicy} with the defaults is used.
+     */
+    public YBClientBuilder retryPolicy(RetryPolicy retryPolicy) {
+      clientBuilder.retryPolicy(retryPolicy);
+      return this;
+    }
+
+    /**
+     * Set the number of connections opened to each tablet server or master, RPCs are spread
+     * over them round-robin.
+     * Optional.
+     * If not provided, 1 is used.
+     */
+    public YBClientBuilder connectionsPerServer(int connectionsPerServer) {
+      clientBuilder.connectionsPerServer(connectionsPerServer);
+      return this;
+    }
+
+    /**
+     * Set how long a connection that doesn't serve any known tablet can stay idle before it
+     * gets closed, 0 disables closing idle connections.
+     * Optional.
+     * If not provided, defaults to 5 minutes.
+     */
+    public YBClientBuilder connectionIdleTimeoutMs(long connectionIdleTimeoutMs) {
+      clientBuilder.connectionIdleTimeoutMs(connectionIdleTimeoutMs);
+      return this;
+    }
+
+    /**
+     * Set the delays between the checks of the condition waits, such as
+     * {@link YBClient#waitForServer}: the delay starts at baseDelayMs and doubles after each
+     * check, up to maxDelayMs.
+     * Optional.
+     * If not provided, the delay starts at 100 ms and goes up to 1 second.
+     */
+    public YBClientBuilder conditionPollDelayMs(long baseDelayMs, long maxDelayMs) {
+      clientBuilder.conditionPollDelayMs(baseDelayMs, maxDelayMs);
+      return this;
+    }
+
+    /**
+     * Set how to pick the replica to send the RPCs that can read stale data to, such as
+     * {@link AsyncYBClient#getLatestEntryOpId}. Other RPCs always go to the leader.
+     * Optional.
+     * If not provided, {@link ReplicaSelection#LEADER_ONLY} is used.
+     */
+    public YBClientBuilder replicaSelection(ReplicaSelection replicaSelection) {
+      clientBuilder.replicaSelection(replicaSelection);
+      return this;
+    }
+
+    /**
+     * Set where the client runs, to find the replicas closest to it.
+     * Optional.
+     */
+    public YBClientBuilder placement(String cloud, String region, String zone) {
+      clientBuilder.placement(cloud, region, zone);
+      return this;
+    }
+
+    /**
+     * Set whether to record the RPC metrics returned by {@link YBClient#getMetricsSnapshot}.
+     * Optional.
+     * If not provided, metrics are disabled.
+     */
+    public YBClientBuilder metricsEnabled(boolean metricsEnabled) {
+      clientBuilder.metricsEnabled(metricsEnabled);
+      return this;
+    }
+
     /**
      * Creates a new client that connects to the masters.
      * Doesn't block and won't throw an exception if the masters don't exist.
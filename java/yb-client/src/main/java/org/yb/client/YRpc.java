@@ -48,7 +48,6 @@ import org.yb.annotations.InterfaceAudience;
 import org.yb.util.Pair;
 import org.yb.util.Slice;
 import org.jboss.netty.buffer.ChannelBuffer;
-import org.jboss.netty.buffer.ChannelBuffers;
 
 import java.io.IOException;
 
@@ -112,6 +111,9 @@ public abstract class YRpc<R> {
    */
   byte attempt;  // package-private for TabletClient and AsyncYBClient only.
 
+  // When the current attempt was sent, in System.nanoTime(), only set when metrics are enabled.
+  long sendTimeNanos;
+
   // Maximum number of attempts to try the RPC. Default 100 times.
   byte maxAttempts = 100;
 
@@ -120,6 +122,9 @@ public abstract class YRpc<R> {
   // tablet.
   private volatile boolean retrySameServer;
 
+  // How to pick the replica this RPC gets sent to, null to use the client's default.
+  private ReplicaSelection replicaSelection;
+
   YRpc(YBTable table) {
     this.table = table;
     this.deadlineTracker = new DeadlineTracker();
@@ -228,6 +233,25 @@ public abstract class YRpc<R> {
     this.retrySameServer = retrySameServer;
   }
 
+  /**
+   * Whether this RPC can be served by a follower, which may not have applied the latest writes.
+   * Only such RPCs follow the client's or the RPC's {@link ReplicaSelection}.
+   */
+  boolean allowsStaleReads() {
+    return false;
+  }
+
+  ReplicaSelection getReplicaSelection() {
+    return replicaSelection;
+  }
+
+  /**
+   * Overrides the client's replica selection for this RPC, if it allows stale reads.
+   */
+  void setReplicaSelection(ReplicaSelection replicaSelection) {
+    this.replicaSelection = replicaSelection;
+  }
+
   void setTimeoutMillis(long timeout) {
     deadlineTracker.setDeadline(timeout);
   }
@@ -273,11 +297,11 @@ public abstract class YRpc<R> {
 
   static ChannelBuffer toChannelBuffer(Message header, Message pb) {
     int totalSize = IPCUtil.getTotalSizeWhenWrittenDelimited(header, pb);
-    byte[] buf = new byte[totalSize+4];
-    ChannelBuffer chanBuf = ChannelBuffers.wrappedBuffer(buf);
-    chanBuf.clear();
+    // The buffer goes back to the pool once TabletClient has written it to the socket.
+    ChannelBuffer chanBuf = BufferPool.INSTANCE.acquire(totalSize + 4);
     chanBuf.writeInt(totalSize);
-    final CodedOutputStream out = CodedOutputStream.newInstance(buf, 4, totalSize);
+    final CodedOutputStream out =
+        CodedOutputStream.newInstance(chanBuf.array(), chanBuf.arrayOffset() + 4, totalSize);
     try {
       out.writeRawVarint32(header.getSerializedSize());
       header.writeTo(out);
@@ -286,9 +310,10 @@ public abstract class YRpc<R> {
       pb.writeTo(out);
       out.checkNoSpaceLeft();
     } catch (IOException e) {
+      BufferPool.INSTANCE.release(chanBuf);
       throw new NonRecoverableException("Cannot serialize the following message " + pb, e);
     }
-    chanBuf.writerIndex(buf.length);
+    chanBuf.writerIndex(totalSize + 4);
     return chanBuf;
   }
 
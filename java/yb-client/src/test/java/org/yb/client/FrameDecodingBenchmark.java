@@ -0,0 +1,142 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.client;
+
+import com.google.protobuf.CodedOutputStream;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.handler.codec.embedder.DecoderEmbedder;
+import org.jboss.netty.handler.codec.frame.FrameDecoder;
+import org.jboss.netty.handler.codec.replay.ReplayingDecoder;
+import org.jboss.netty.handler.codec.replay.VoidEnum;
+import org.yb.rpc.RpcHeader;
+import org.yb.util.Slice;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the CPU spent decoding large RPC responses that arrive in many small segments, with
+ * the length-prefixed frame decoding {@link TabletClient} uses and with the ReplayingDecoder
+ * based decoding it replaced, which parsed each response again from its start on every segment.
+ *
+ * Usage: FrameDecodingBenchmark [response bytes] [segment bytes] [responses]
+ */
+public class FrameDecodingBenchmark {
+
+  /**
+   * Builds a response as sent by the server: its length on 4 bytes, then the length-delimited
+   * header and the length-delimited message.
+   */
+  static ChannelBuffer newFrame(int callId, byte[] message) throws IOException {
+    ByteArrayOutputStream body = new ByteArrayOutputStream(message.length + 32);
+    RpcHeader.ResponseHeader.newBuilder().setCallId(callId).build().writeDelimitedTo(body);
+    CodedOutputStream out = CodedOutputStream.newInstance(body);
+    out.writeUInt32NoTag(message.length);
+    out.flush();
+    body.write(message);
+    ChannelBuffer frame = ChannelBuffers.buffer(4 + body.size());
+    frame.writeInt(body.size());
+    frame.writeBytes(body.toByteArray());
+    return frame;
+  }
+
+  /**
+   * Splits the given bytes in segments, as the socket would hand them to the pipeline.
+   */
+  static List<ChannelBuffer> fragment(ChannelBuffer buf, int segmentSize) {
+    List<ChannelBuffer> segments = new ArrayList<>();
+    while (buf.readable()) {
+      int length = Math.min(segmentSize, buf.readableBytes());
+      segments.add(ChannelBuffers.copiedBuffer(buf.readSlice(length)));
+    }
+    return segments;
+  }
+
+  /** Decodes responses the way {@link TabletClient} does. */
+  private static final class FramedDecoder extends FrameDecoder {
+    @Override
+    protected Object decode(ChannelHandlerContext ctx, Channel chan, ChannelBuffer buf) {
+      ChannelBuffer frame = TabletClient.nextFrame(buf);
+      if (frame == null) {
+        return null;
+      }
+      CallResponse response = new CallResponse(frame);
+      return response.getPBMessage();
+    }
+  }
+
+  /** Decodes responses the way {@link TabletClient} did before it used a frame decoder. */
+  private static final class ReplayDecoder extends ReplayingDecoder<VoidEnum> {
+    @Override
+    protected Object decode(ChannelHandlerContext ctx, Channel chan, ChannelBuffer buf,
+                            VoidEnum state) {
+      final int size = buf.readInt();
+      buf.markReaderIndex();
+      buf.skipBytes(size);  // Throws to wait for more bytes until the response is complete.
+      buf.resetReaderIndex();
+      final byte[] header = new byte[Bytes.readVarInt32(buf)];
+      buf.readBytes(header);
+      RpcHeader.ResponseHeader.Builder builder = RpcHeader.ResponseHeader.newBuilder();
+      YRpc.readProtobuf(new Slice(header), builder);
+      final byte[] message = new byte[Bytes.readVarInt32(buf)];
+      buf.readBytes(message);
+      return new Slice(message);
+    }
+  }
+
+  private static long run(DecoderEmbedder<Slice> decoder, List<List<ChannelBuffer>> responses) {
+    long start = System.nanoTime();
+    int decoded = 0;
+    for (List<ChannelBuffer> segments : responses) {
+      for (ChannelBuffer segment : segments) {
+        segment.readerIndex(0);
+        decoder.offer(segment);
+      }
+      while (decoder.poll() != null) {
+        decoded++;
+      }
+    }
+    if (decoded != responses.size()) {
+      throw new IllegalStateException("Decoded " + decoded + " of " + responses.size());
+    }
+    return System.nanoTime() - start;
+  }
+
+  public static void main(String[] args) throws Exception {
+    int responseSize = args.length > 0 ? Integer.parseInt(args[0]) : 4 << 20;
+    int segmentSize = args.length > 1 ? Integer.parseInt(args[1]) : 16 << 10;
+    int numResponses = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+    byte[] message = new byte[responseSize];
+    new Random(0).nextBytes(message);
+    List<List<ChannelBuffer>> responses = new ArrayList<>();
+    for (int i = 0; i < numResponses; i++) {
+      responses.add(fragment(newFrame(i, message), segmentSize));
+    }
+    double megabytes = (double) responseSize * numResponses / (1 << 20);
+
+    for (int round = 0; round < 5; round++) {
+      long framed = run(new DecoderEmbedder<Slice>(new FramedDecoder()), responses);
+      long replayed = run(new DecoderEmbedder<Slice>(new ReplayDecoder()), responses);
+      System.out.println(String.format(
+          "round %d: frame decoder %.2f ms/MB, replaying decoder %.2f ms/MB", round,
+          framed / 1e6 / megabytes, replayed / 1e6 / megabytes));
+    }
+  }
+}
@@ -32,8 +32,13 @@
 package org.yb.client;
 
 import com.google.common.base.Charsets;
+import com.google.common.net.HostAndPort;
 import com.google.protobuf.ByteString;
 import com.stumbleupon.async.Deferred;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -59,6 +64,151 @@ public class TestAsyncYBClient extends BaseYBClientTest {
     table = createTable(TABLE_NAME, hashKeySchema, options);
   }
 
+  @Test
+  public void testConcurrentTabletLookupsCoalesced() throws Exception {
+    String tableId = table.getTableId();
+    client.emptyTabletsCacheForTable(tableId);
+    long masterLookups = 0;
+    long coalescedLookups = 0;
+    AsyncYBClient.TableLookupStats stats = client.getTableLookupStats().get(tableId);
+    if (stats != null) {
+      masterLookups = stats.getMasterLookups();
+      coalescedLookups = stats.getCoalescedLookups();
+    }
+
+    // The second lookup starts while the first one is in flight, so it waits for it.
+    Deferred<Master.GetTableLocationsResponsePB> d1 = client.locateTablet(table, null);
+    Deferred<Master.GetTableLocationsResponsePB> d2 = client.locateTablet(table, null);
+    d1.join(DEFAULT_SLEEP);
+    d2.join(DEFAULT_SLEEP);
+
+    stats = client.getTableLookupStats().get(tableId);
+    assertEquals(masterLookups + 1, stats.getMasterLookups());
+    assertEquals(coalescedLookups + 1, stats.getCoalescedLookups());
+    assertNotNull(client.getTablet(tableId, AsyncYBClient.EMPTY_ARRAY));
+  }
+
+  @Test
+  public void testCoalescedLookupBeyondPrefetchedTablets() throws Exception {
+    CreateTableOptions options = new CreateTableOptions();
+    options.setNumTablets(4);
+    YBTable splitTable = createTable(TABLE_NAME + "-split", hashKeySchema, options);
+    List<LocatedTablet> tablets = splitTable.getTabletsLocations(DEFAULT_SLEEP);
+    byte[] lastKey = tablets.get(tablets.size() - 1).getPartition().getPartitionKeyStart();
+    AsyncYBClient prefetchClient = new AsyncYBClient.AsyncYBClientBuilder(masterAddresses)
+        .tabletPrefetchCount(1)
+        .build();
+    try {
+      YBTable prefetchTable = prefetchClient.openTableByUUID(splitTable.getTableId())
+          .join(DEFAULT_SLEEP);
+      String tableId = prefetchTable.getTableId();
+
+      // The second lookup waits for the first one, which only returns the first tablet, and then
+      // looks up its own key.
+      Deferred<Master.GetTableLocationsResponsePB> d1 =
+          prefetchClient.locateTablet(prefetchTable, null);
+      Deferred<Master.GetTableLocationsResponsePB> d2 =
+          prefetchClient.locateTablet(prefetchTable, lastKey);
+      d1.join(DEFAULT_SLEEP);
+      d2.join(DEFAULT_SLEEP);
+
+      AsyncYBClient.TableLookupStats stats = prefetchClient.getTableLookupStats().get(tableId);
+      assertEquals(1, stats.getCoalescedLookups());
+      assertEquals(1, stats.getMissedCoalescedLookups());
+      assertEquals(2, stats.getMasterLookups());
+      assertNotNull(prefetchClient.getTablet(tableId, lastKey));
+    } finally {
+      prefetchClient.shutdown().join(DEFAULT_SLEEP);
+    }
+  }
+
+  @Test
+  public void testHostRpcsShareConnections() throws Exception {
+    HostAndPort hp = miniCluster.getTabletServers().keySet().iterator().next();
+    AsyncYBClient pooledClient = new AsyncYBClient.AsyncYBClientBuilder(masterAddresses)
+        .connectionsPerServer(2)
+        .connectionIdleTimeoutMs(0)
+        .build();
+    try {
+      // Host RPCs are spread over both connections, and keep reusing them.
+      TabletClient first = pooledClient.newSimpleClient(hp);
+      TabletClient second = pooledClient.newSimpleClient(hp);
+      assertNotSame(first, second);
+      assertSame(first, second.getPrimary());
+      assertSame(first, pooledClient.newSimpleClient(hp));
+      assertSame(second, pooledClient.newSimpleClient(hp));
+      pooledClient.ping(hp).join(DEFAULT_SLEEP);
+      pooledClient.ping(hp).join(DEFAULT_SLEEP);
+      assertEquals(1, pooledClient.getTableClients().size());
+
+      // Connections without tablets get closed once idle.
+      pooledClient.reapIdleConnections(0);
+      TestUtils.waitFor(() -> pooledClient.getTableClients().isEmpty(), DEFAULT_SLEEP);
+      assertFalse(first.isAlive());
+      assertFalse(second.isAlive());
+    } finally {
+      pooledClient.shutdown().join(DEFAULT_SLEEP);
+    }
+  }
+
+  @Test
+  public void testConditionWaits() throws Exception {
+    HostAndPort hp = miniCluster.getTabletServers().keySet().iterator().next();
+    AsyncYBClient waitingClient = new AsyncYBClient.AsyncYBClientBuilder(masterAddresses)
+        .conditionPollDelayMs(10, 40)
+        .build();
+    try {
+      // The condition is checked again on the timer until it holds.
+      final AtomicInteger numChecks = new AtomicInteger(0);
+      Deferred<Boolean> met = waitingClient.waitForCondition(
+          () -> Deferred.fromResult(numChecks.incrementAndGet() == 5), DEFAULT_SLEEP);
+      assertTrue(met.join(DEFAULT_SLEEP));
+      assertEquals(5, numChecks.get());
+
+      // A condition that never holds times out.
+      assertFalse(waitingClient.waitForCondition(
+          () -> Deferred.fromResult(false), 200).join(DEFAULT_SLEEP));
+
+      // An injected error is retried.
+      waitingClient.injectWaitError();
+      assertTrue(waitingClient.waitForServer(hp, DEFAULT_SLEEP).join(DEFAULT_SLEEP));
+      assertTrue(waitingClient.waitForMasterLeader(DEFAULT_SLEEP).join(DEFAULT_SLEEP));
+      assertNotNull(waitingClient.waitForLeaderMasterUUID(DEFAULT_SLEEP).join(DEFAULT_SLEEP));
+      HostAndPort masterHp = waitingClient.getMasterAddresses().get(0);
+      assertTrue(waitingClient.waitForMasterUUID(masterHp, DEFAULT_SLEEP).join(DEFAULT_SLEEP));
+    } finally {
+      waitingClient.shutdown().join(DEFAULT_SLEEP);
+    }
+  }
+
+  @Test
+  public void testBlockingConditionDoesNotHoldUpOthers() throws Exception {
+    AsyncYBClient waitingClient = new AsyncYBClient.AsyncYBClientBuilder(masterAddresses)
+        .conditionPollDelayMs(10, 40)
+        .build();
+    final CountDownLatch unblock = new CountDownLatch(1);
+    try {
+      // The first check blocks, as a check resolving an unreachable address would.
+      Deferred<Boolean> blocked = waitingClient.waitForCondition(() -> {
+        unblock.await();
+        return Deferred.fromResult(true);
+      }, DEFAULT_SLEEP);
+
+      // The other waits keep being checked on time.
+      final AtomicInteger numChecks = new AtomicInteger(0);
+      assertTrue(waitingClient.waitForCondition(
+          () -> Deferred.fromResult(numChecks.incrementAndGet() == 5), DEFAULT_SLEEP)
+          .join(DEFAULT_SLEEP));
+      assertEquals(1, unblock.getCount());
+
+      unblock.countDown();
+      assertTrue(blocked.join(DEFAULT_SLEEP));
+    } finally {
+      unblock.countDown();
+      waitingClient.shutdown().join(DEFAULT_SLEEP);
+    }
+  }
+
   @Test
   public void testBadHostnames() throws Exception {
     String badHostname = "some-unknown-host-hopefully";
@@ -0,0 +1,68 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.client;
+
+import static org.yb.AssertionWrappers.*;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.junit.Test;
+
+import org.yb.YBTestRunner;
+
+import org.junit.runner.RunWith;
+
+@RunWith(value=YBTestRunner.class)
+public class TestBufferPool {
+
+  @Test
+  public void testReuse() {
+    BufferPool pool = new BufferPool(1 << 20);
+    ChannelBuffer buf = pool.acquire(600);
+    assertEquals(1024, buf.capacity());
+    assertEquals(0, buf.writerIndex());
+    byte[] array = buf.array();
+    pool.release(buf);
+    assertEquals(1024, pool.getPooledBytes());
+
+    // Any size in the same bucket gets the released array back.
+    ChannelBuffer reused = pool.acquire(1000);
+    assertSame(array, reused.array());
+    assertEquals(0, reused.writerIndex());
+    assertEquals(0, pool.getPooledBytes());
+    assertEquals(512, pool.acquire(1).capacity());
+  }
+
+  @Test
+  public void testUnpooled() {
+    BufferPool pool = new BufferPool(1 << 20);
+    // Too large to be pooled.
+    ChannelBuffer large = pool.acquire((64 << 10) + 1);
+    pool.release(large);
+    assertEquals(0, pool.getPooledBytes());
+
+    // Buffers that don't come from the pool are ignored.
+    pool.release(ChannelBuffers.buffer(1024));
+    assertEquals(0, pool.getPooledBytes());
+  }
+
+  @Test
+  public void testMaxPooledBytes() {
+    BufferPool pool = new BufferPool(1024);
+    ChannelBuffer first = pool.acquire(1024);
+    ChannelBuffer second = pool.acquire(1024);
+    pool.release(first);
+    pool.release(second);
+    assertEquals(1024, pool.getPooledBytes());
+  }
+}
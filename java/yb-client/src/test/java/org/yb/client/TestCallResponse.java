@@ -0,0 +1,71 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.client;
+
+import static org.yb.AssertionWrappers.*;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.junit.Test;
+import org.yb.util.Slice;
+
+import java.util.List;
+
+import org.yb.YBTestRunner;
+
+import org.junit.runner.RunWith;
+
+@RunWith(value=YBTestRunner.class)
+public class TestCallResponse {
+
+  @Test
+  public void testFragmentedFrame() throws Exception {
+    byte[] message = "a response message".getBytes();
+    ChannelBuffer frame = FrameDecodingBenchmark.newFrame(42, message);
+    int frameLength = frame.readableBytes();
+    List<ChannelBuffer> segments = FrameDecodingBenchmark.fragment(frame, 3);
+
+    // Nothing gets read until the whole frame is in.
+    ChannelBuffer cumulation = ChannelBuffers.dynamicBuffer();
+    for (int i = 0; i < segments.size() - 1; i++) {
+      cumulation.writeBytes(segments.get(i));
+      assertNull(TabletClient.nextFrame(cumulation));
+      assertEquals(0, cumulation.readerIndex());
+    }
+    cumulation.writeBytes(segments.get(segments.size() - 1));
+    cumulation.writeInt(0);  // The start of the next frame.
+    ChannelBuffer received = TabletClient.nextFrame(cumulation);
+    assertNotNull(received);
+    assertEquals(frameLength, received.readableBytes());
+    assertEquals(4, cumulation.readableBytes());
+
+    CallResponse response = new CallResponse(received);
+    assertEquals(42, response.getHeader().getCallId());
+    Slice slice = response.getPBMessage();
+    assertEquals(message.length, slice.length());
+    // The message isn't copied out of the frame.
+    assertSame(received.array(), slice.getRawArray());
+    assertEquals(new String(message), new String(slice.getRawArray(), slice.getRawOffset(),
+        slice.length()));
+
+    // An empty frame is a heartbeat.
+    assertTrue(new CallResponse(TabletClient.nextFrame(cumulation)).isEmpty());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadFrameLength() {
+    ChannelBuffer buf = ChannelBuffers.buffer(4);
+    buf.writeInt(-1);
+    TabletClient.nextFrame(buf);
+  }
+}
@@ -0,0 +1,84 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.client;
+
+import static org.yb.AssertionWrappers.*;
+
+import org.junit.Test;
+import org.yb.client.ClientMetrics.HistogramSnapshot;
+import org.yb.client.ClientMetrics.LatencyHistogram;
+
+import java.util.Collections;
+
+import org.yb.YBTestRunner;
+
+import org.junit.runner.RunWith;
+
+@RunWith(value=YBTestRunner.class)
+public class TestClientMetrics {
+
+  @Test
+  public void testBuckets() {
+    for (long value = 0; value < 100000; value++) {
+      int bucket = LatencyHistogram.bucketFor(value);
+      assertTrue(value <= LatencyHistogram.bucketUpperBound(bucket));
+      if (bucket > 0) {
+        assertTrue(value > LatencyHistogram.bucketUpperBound(bucket - 1));
+      }
+      // Buckets are at most 12.5% wide.
+      assertTrue(LatencyHistogram.bucketUpperBound(bucket) - value <= value / 8);
+    }
+    assertEquals(LatencyHistogram.NUM_BUCKETS - 1,
+        LatencyHistogram.bucketFor((1L << 32) - 1));
+  }
+
+  @Test
+  public void testPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    HistogramSnapshot empty = histogram.snapshot();
+    assertEquals(0, empty.getCount());
+    assertEquals(0, empty.getValueAtPercentile(99));
+
+    for (int value = 1; value <= 1000; value++) {
+      histogram.record(value);
+    }
+    HistogramSnapshot snapshot = histogram.snapshot();
+    assertEquals(1000, snapshot.getCount());
+    assertEquals(500500, snapshot.getSum());
+    assertEquals(1000, snapshot.getMax());
+    long p50 = snapshot.getValueAtPercentile(50);
+    assertTrue(p50 >= 500 && p50 <= 500 * 9 / 8);
+    long p99 = snapshot.getValueAtPercentile(99);
+    assertTrue(p99 >= 990 && p99 <= 1000);
+    assertEquals(1000, snapshot.getValueAtPercentile(100));
+  }
+
+  @Test
+  public void testDisabled() {
+    ClientMetrics metrics = new ClientMetrics(false);
+    metrics.onRetry(RetryPolicy.RetryReason.SERVER_TOO_BUSY);
+    metrics.onMasterLookup();
+    ClientMetrics.Snapshot snapshot =
+        metrics.snapshot(Collections.<TabletClient>emptyList());
+    assertEquals(0, snapshot.getMasterLookups());
+    assertEquals(0L, (long) snapshot.getRetries().get(RetryPolicy.RetryReason.SERVER_TOO_BUSY));
+    assertTrue(snapshot.getRpcLatencies().isEmpty());
+
+    metrics = new ClientMetrics(true);
+    metrics.onRetry(RetryPolicy.RetryReason.SERVER_TOO_BUSY);
+    metrics.onMasterLookup();
+    snapshot = metrics.snapshot(Collections.<TabletClient>emptyList());
+    assertEquals(1, snapshot.getMasterLookups());
+    assertEquals(1L, (long) snapshot.getRetries().get(RetryPolicy.RetryReason.SERVER_TOO_BUSY));
+  }
+}
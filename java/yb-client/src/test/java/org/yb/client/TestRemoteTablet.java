@@ -0,0 +1,138 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.client;
+
+import static org.yb.AssertionWrappers.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.yb.Common;
+import org.yb.util.Slice;
+
+import org.yb.YBTestRunner;
+
+import org.junit.runner.RunWith;
+
+@RunWith(value=YBTestRunner.class)
+public class TestRemoteTablet {
+
+  private AsyncYBClient client;
+  private AsyncYBClient.RemoteTablet tablet;
+
+  @Before
+  public void setUp() {
+    // The client never connects: the replicas are added without resolving their addresses.
+    client = new AsyncYBClient.AsyncYBClientBuilder("127.0.0.1:7100")
+        .placement("cloud1", "region1", "zone1")
+        .build();
+    tablet = newTablet();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    client.shutdown().join();
+  }
+
+  private AsyncYBClient.RemoteTablet newTablet() {
+    Partition partition = new Partition(AsyncYBClient.EMPTY_ARRAY, AsyncYBClient.EMPTY_ARRAY,
+                                        new ArrayList<Integer>());
+    return client.new RemoteTablet("table", new Slice("tablet".getBytes()), partition);
+  }
+
+  private TabletClient addReplica(String uuid, boolean isLeader, String region, String zone) {
+    TabletClient replica = new TabletClient(client, uuid);
+    replica.setCloudInfo(Common.CloudInfoPB.newBuilder()
+        .setPlacementCloud("cloud1")
+        .setPlacementRegion(region)
+        .setPlacementZone(zone)
+        .build());
+    tablet.addReplica(replica, isLeader);
+    return replica;
+  }
+
+  @Test
+  public void testNoReplicas() {
+    for (ReplicaSelection selection : ReplicaSelection.values()) {
+      assertNull(tablet.selectReplica(selection));
+    }
+  }
+
+  @Test
+  public void testLeaderOnly() {
+    TabletClient leader = addReplica("leader", true, "region2", "zone2");
+    addReplica("follower", false, "region1", "zone1");
+    for (int i = 0; i < 4; i++) {
+      assertSame(leader, tablet.selectReplica(ReplicaSelection.LEADER_ONLY));
+    }
+  }
+
+  @Test
+  public void testLeaderOnlyWithoutKnownLeader() {
+    addReplica("follower", false, "region1", "zone1");
+    assertNull(tablet.selectReplica(ReplicaSelection.LEADER_ONLY));
+  }
+
+  @Test
+  public void testRoundRobinFollowers() {
+    TabletClient leader = addReplica("leader", true, "region1", "zone1");
+    TabletClient follower1 = addReplica("follower1", false, "region1", "zone1");
+    TabletClient follower2 = addReplica("follower2", false, "region1", "zone1");
+    Set<TabletClient> picked = new HashSet<>();
+    for (int i = 0; i < 6; i++) {
+      TabletClient replica = tablet.selectReplica(ReplicaSelection.ROUND_ROBIN_FOLLOWERS);
+      assertNotSame(leader, replica);
+      picked.add(replica);
+    }
+    assertTrue(picked.contains(follower1));
+    assertTrue(picked.contains(follower2));
+  }
+
+  @Test
+  public void testRoundRobinFollowersFallsBackToLeader() {
+    TabletClient leader = addReplica("leader", true, "region1", "zone1");
+    assertSame(leader, tablet.selectReplica(ReplicaSelection.ROUND_ROBIN_FOLLOWERS));
+  }
+
+  @Test
+  public void testClosestReplicaPrefersSameZone() {
+    addReplica("leader", true, "region2", "zone2");
+    addReplica("sameRegion", false, "region1", "zone2");
+    TabletClient sameZone = addReplica("sameZone", false, "region1", "zone1");
+    for (int i = 0; i < 4; i++) {
+      assertSame(sameZone, tablet.selectReplica(ReplicaSelection.CLOSEST_REPLICA));
+    }
+  }
+
+  @Test
+  public void testClosestReplicaPrefersLeaderAmongEquallyClose() {
+    TabletClient leader = addReplica("leader", true, "region1", "zone1");
+    addReplica("follower", false, "region1", "zone1");
+    addReplica("farFollower", false, "region2", "zone2");
+    for (int i = 0; i < 4; i++) {
+      assertSame(leader, tablet.selectReplica(ReplicaSelection.CLOSEST_REPLICA));
+    }
+  }
+
+  @Test
+  public void testClosestReplicaWithoutPlacement() {
+    TabletClient leader = new TabletClient(client, "leader");
+    tablet.addReplica(leader, true);
+    tablet.addReplica(new TabletClient(client, "follower"), false);
+    assertSame(leader, tablet.selectReplica(ReplicaSelection.CLOSEST_REPLICA));
+  }
+}
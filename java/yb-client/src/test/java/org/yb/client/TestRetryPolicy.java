@@ -0,0 +1,81 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.client;
+
+import static org.yb.AssertionWrappers.*;
+
+import com.google.common.base.Ticker;
+import org.junit.Test;
+import org.yb.client.RetryPolicy.RetryReason;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.yb.YBTestRunner;
+
+import org.junit.runner.RunWith;
+
+@RunWith(value=YBTestRunner.class)
+public class TestRetryPolicy {
+
+  @Test
+  public void testBackoffIsCapped() {
+    ExponentialBackoffRetryPolicy policy = new ExponentialBackoffRetryPolicy(100, 1000, null);
+    assertEquals(100, policy.getMaxDelayMs(RetryReason.NOT_THE_LEADER, 1));
+    assertEquals(200, policy.getMaxDelayMs(RetryReason.NOT_THE_LEADER, 2));
+    assertEquals(800, policy.getMaxDelayMs(RetryReason.NOT_THE_LEADER, 4));
+    assertEquals(1000, policy.getMaxDelayMs(RetryReason.NOT_THE_LEADER, 5));
+    assertEquals(1000, policy.getMaxDelayMs(RetryReason.NOT_THE_LEADER, 100));
+    // A busy server backs off faster.
+    assertEquals(400, policy.getMaxDelayMs(RetryReason.SERVER_TOO_BUSY, 1));
+
+    for (int attempt = 1; attempt < 20; attempt++) {
+      long delay = policy.getRetryDelayMs(RetryReason.LEADER_NOT_READY, attempt);
+      assertTrue(delay >= 0);
+      assertTrue(delay <= policy.getMaxDelayMs(RetryReason.LEADER_NOT_READY, attempt));
+    }
+  }
+
+  @Test
+  public void testBudget() {
+    final AtomicLong nanos = new AtomicLong();
+    Ticker ticker = new Ticker() {
+      @Override
+      public long read() {
+        return nanos.get();
+      }
+    };
+    RetryBudget budget = new RetryBudget(2, 10, ticker);
+    ExponentialBackoffRetryPolicy policy = new ExponentialBackoffRetryPolicy(100, 1000, budget);
+
+    assertTrue(policy.getRetryDelayMs(RetryReason.SERVER_TOO_BUSY, 1) >= 0);
+    assertTrue(policy.getRetryDelayMs(RetryReason.OTHER, 1) >= 0);
+    assertTrue(policy.getRetryDelayMs(RetryReason.SERVER_TOO_BUSY, 1) < 0);
+    // Routing retries and leader election retries don't need a token.
+    assertTrue(policy.getRetryDelayMs(RetryReason.NOT_THE_LEADER, 1) >= 0);
+    assertTrue(policy.getRetryDelayMs(RetryReason.TABLET_NOT_FOUND, 1) >= 0);
+    assertTrue(policy.getRetryDelayMs(RetryReason.LEADER_NOT_READY, 1) >= 0);
+    assertEquals(0, budget.getAvailableTokens());
+
+    // 100ms at 10 tokens per second gives back one token.
+    nanos.set(100 * 1000000L);
+    assertEquals(1, budget.getAvailableTokens());
+    assertTrue(policy.getRetryDelayMs(RetryReason.SERVER_TOO_BUSY, 2) >= 0);
+    assertTrue(policy.getRetryDelayMs(RetryReason.SERVER_TOO_BUSY, 3) < 0);
+
+    // The bucket never holds more than its capacity.
+    nanos.set(10000 * 1000000L);
+    assertTrue(budget.tryAcquire());
+    assertTrue(budget.tryAcquire());
+    assertFalse(budget.tryAcquire());
+  }
+}
@@ -5,11 +5,19 @@ package com.yugabyte.yw.commissioner;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.yugabyte.yw.common.HealthManager;
@@ -27,6 +35,8 @@ import com.yugabyte.yw.forms.UniverseDefinitionTaskParams;
 import com.yugabyte.yw.models.Universe.UniverseUpdater;
 import com.yugabyte.yw.models.helpers.NodeDetails;
 
+import io.prometheus.client.Gauge;
+
 import play.Configuration;
 import play.api.Play;
 import play.libs.Json;
@@ -35,17 +45,34 @@ public abstract class AbstractTaskBase implements ITask {
 
   public static final Logger LOG = LoggerFactory.getLogger(AbstractTaskBase.class);
 
-  // Number of concurrent tasks to execute at a time.
-  private static final int TASK_THREADS = 10;
-
   // The maximum time that excess idle threads will wait for new tasks before terminating.
   // The unit is specified in the API (and is seconds).
   private static final long THREAD_ALIVE_TIME = 60L;
 
+  // Number of threads that evaluate the conditions of waiting tasks.
+  private static final int WAIT_POLL_THREADS = 16;
+
+  // Times the polls of all the waiting tasks, so that a waiting task does not hold a thread.
+  private static final ScheduledExecutorService waitScheduler =
+      Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder().setNameFormat("TaskWaitScheduler-%d").setDaemon(true).build());
+
+  // Evaluates the conditions of the waiting tasks once their poll is due.
+  private static final ThreadPoolExecutor waitPollExecutor;
+  static {
+    waitPollExecutor = new ThreadPoolExecutor(WAIT_POLL_THREADS, WAIT_POLL_THREADS,
+        THREAD_ALIVE_TIME, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactoryBuilder().setNameFormat("TaskWaitPoll-%d").setDaemon(true).build());
+    waitPollExecutor.allowCoreThreadTimeOut(true);
+  }
+
+  private static final Gauge parkedWaiters = Gauge.build(
+      "yb_task_parked_waiters", "Number of task waits parked until their next poll").register();
+
   // The params for this task.
   protected ITaskParams taskParams;
 
-  // The threadpool on which the tasks are executed.
+  // The executor on which the subtasks are executed, a view of the shared SubTaskExecutor.
   protected ExecutorService executor;
 
   // The sequence of task lists that should be executed.
@@ -84,15 +111,151 @@ public abstract class AbstractTaskBase implements ITask {
   @Override
   public abstract void run();
 
-  // Create an task pool which can handle an unbounded number of tasks, while using an initial set
-  // of threads which get spawned upto TASK_THREADS limit.
+  // Create the executor for the subtasks. It can take an unbounded number of subtasks, which run
+  // on the threads shared by all the tasks, within the limits of the SubTaskExecutor.
   public void createThreadpool() {
-    ThreadFactory namedThreadFactory =
-        new ThreadFactoryBuilder().setNameFormat("TaskPool-" + getName() + "-%d").build();
-    executor =
-        new ThreadPoolExecutor(TASK_THREADS, TASK_THREADS, THREAD_ALIVE_TIME,
-                               TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
-                               namedThreadFactory);
+    executor = SubTaskExecutor.getInstance().newTaskExecutor(getClass().getSimpleName(),
+                                                             getSubTaskGroupKey());
+  }
+
+  /**
+   * Returns the key of the group of tasks that this task shares its subtask concurrency limit
+   * with, or null for the task to be in a group of its own.
+   */
+  protected Object getSubTaskGroupKey() {
+    return null;
+  }
+
+  /**
+   * Starts the task on the given executor and returns a future that completes when it is done.
+   * Tasks that spend most of their time waiting override this to hand the wait to waitFor, so
+   * that they release the executor thread until the wait is over.
+   */
+  public CompletableFuture<Void> runAsync(Executor executor) {
+    return CompletableFuture.runAsync(this, executor);
+  }
+
+  /**
+   * Starts a wait on the executor and returns a future that completes with the wait, for the
+   * tasks that override runAsync. Cancelling the returned future skips starting the wait if it
+   * has not started yet, and cancels the wait otherwise.
+   *
+   * @param startWait starts the wait, for instance with waitFor, and returns its future.
+   * @param executor the executor to start the wait on.
+   */
+  protected static CompletableFuture<Void> startWaitAsync(
+      Supplier<CompletableFuture<Void>> startWait, Executor executor) {
+    CompletableFuture<Void> result = new CompletableFuture<>();
+    CompletableFuture.supplyAsync(() -> result.isDone() ? null : startWait.get(), executor)
+        .whenComplete((wait, e) -> {
+          if (e != null) {
+            result.completeExceptionally(e);
+            return;
+          }
+          if (wait == null) {
+            return;
+          }
+          wait.whenComplete((r, t) -> {
+            if (t != null) {
+              result.completeExceptionally(t);
+            } else {
+              result.complete(null);
+            }
+          });
+          result.whenComplete((r, t) -> wait.cancel(false));
+        });
+    return result;
+  }
+
+  /**
+   * Polls the condition until it returns true, without holding a thread in between the polls.
+   * The first poll happens right away, after which the delay between polls doubles from
+   * initialDelayMs up to maxDelayMs.
+   *
+   * @param condition the condition to poll, an exception thrown by it fails the wait.
+   * @param initialDelayMs the delay after the first poll.
+   * @param maxDelayMs the maximum delay between two polls.
+   * @param timeoutMs the time after which the wait fails with a TimeoutException, 0 to wait
+   *                  forever.
+   * @return a future that completes once the condition holds. Cancelling it stops the polling.
+   */
+  protected CompletableFuture<Void> waitFor(Callable<Boolean> condition, long initialDelayMs,
+                                            long maxDelayMs, long timeoutMs) {
+    ConditionPoller poller = new ConditionPoller(condition, initialDelayMs, maxDelayMs,
+        timeoutMs <= 0 ? 0 : System.currentTimeMillis() + timeoutMs);
+    waitPollExecutor.execute(poller);
+    return poller.future;
+  }
+
+  /**
+   * Waits for the future returned by runAsync, for the callers that run the task in place.
+   */
+  protected static void join(CompletableFuture<Void> future) {
+    try {
+      future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private class ConditionPoller implements Runnable {
+    final CompletableFuture<Void> future = new CompletableFuture<>();
+    final Callable<Boolean> condition;
+    final long maxDelayMs;
+    final long deadlineMs;
+    long delayMs;
+    // The parked poll, dropped as soon as the future completes, for instance when cancelled.
+    volatile ScheduledFuture<?> nextPoll = null;
+
+    ConditionPoller(Callable<Boolean> condition, long initialDelayMs, long maxDelayMs,
+                    long deadlineMs) {
+      this.condition = condition;
+      this.delayMs = Math.max(initialDelayMs, 1);
+      this.maxDelayMs = Math.max(maxDelayMs, this.delayMs);
+      this.deadlineMs = deadlineMs;
+      future.whenComplete((r, e) -> cancelNextPoll());
+    }
+
+    private void cancelNextPoll() {
+      ScheduledFuture<?> poll = nextPoll;
+      // Only a poll that did not fire yet is still counted as parked.
+      if (poll != null && poll.cancel(false)) {
+        parkedWaiters.dec();
+      }
+    }
+
+    @Override
+    public void run() {
+      if (future.isDone()) {
+        return;
+      }
+      try {
+        if (condition.call()) {
+          future.complete(null);
+          return;
+        }
+      } catch (Exception e) {
+        future.completeExceptionally(e);
+        return;
+      }
+      if (deadlineMs > 0 && System.currentTimeMillis() >= deadlineMs) {
+        future.completeExceptionally(new TimeoutException(getName() + " timed out waiting."));
+        return;
+      }
+      parkedWaiters.inc();
+      nextPoll = waitScheduler.schedule(() -> {
+        parkedWaiters.dec();
+        waitPollExecutor.execute(this);
+      }, delayMs, TimeUnit.MILLISECONDS);
+      delayMs = Math.min(delayMs * 2, maxDelayMs);
+      // The wait may have been cancelled while the condition was being checked.
+      if (future.isDone()) {
+        cancelNextPoll();
+      }
+    }
   }
 
   @Override
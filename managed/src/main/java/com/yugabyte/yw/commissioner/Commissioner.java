@@ -2,7 +2,10 @@
 
 package com.yugabyte.yw.commissioner;
 
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.UUID;
@@ -13,6 +16,8 @@ import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
+import com.yugabyte.yw.common.CustomerTaskManager;
+import com.yugabyte.yw.common.Util;
 import com.yugabyte.yw.forms.ITaskParams;
 import com.yugabyte.yw.models.CustomerTask;
 import com.yugabyte.yw.models.helpers.TaskType;
@@ -22,8 +27,10 @@ import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
+import play.Configuration;
 import play.libs.Json;
 
 @Singleton
@@ -38,8 +45,30 @@ public class Commissioner {
   // The unit is specified in the API (and is seconds).
   private static final long THREAD_ALIVE_TIME = 60L;
 
+  // The default interval after which progress monitor wakes up and heartbeats the live tasks.
+  private static final long DEFAULT_HEARTBEAT_INTERVAL_MS = 300;
+
+  // The default time without a heartbeat after which a task is considered abandoned.
+  private static final long DEFAULT_STALE_TASK_THRESHOLD_MS = 300000;
+
+  // The default interval at which the DB is scanned for abandoned tasks.
+  private static final long DEFAULT_STALE_TASK_CHECK_INTERVAL_MS = 60000;
+
+  // Keys of the limits of the shared subtask executor.
+  private static final String SUBTASK_THREADS_KEY = "yb.commissioner.subtask_threads";
+  private static final String SUBTASK_THREADS_PER_TASK_KEY =
+      "yb.commissioner.subtask_threads_per_task";
+  private static final String SUBTASK_THREADS_PER_UNIVERSE_KEY =
+      "yb.commissioner.subtask_threads_per_universe";
+
   // The interval after which progress monitor wakes up and does work.
-  private final long PROGRESS_MONITOR_SLEEP_INTERVAL = 300;
+  private final long heartbeatIntervalMs;
+
+  private final long staleTaskThresholdMs;
+
+  private final long staleTaskCheckIntervalMs;
+
+  private final CustomerTaskManager taskManager;
 
   // The background progress monitor for the tasks.
   static ProgressMonitor progressMonitor;
@@ -52,7 +81,17 @@ public class Commissioner {
   // persisted before removing the task from this map.
   static Map<UUID, TaskRunner> runningTasks = new ConcurrentHashMap<UUID, TaskRunner>();
 
-  public Commissioner() {
+  @Inject
+  public Commissioner(Configuration config, CustomerTaskManager taskManager) {
+    this.taskManager = taskManager;
+    this.heartbeatIntervalMs = getConfigMs(config, "yb.commissioner.heartbeat_interval_ms",
+                                           DEFAULT_HEARTBEAT_INTERVAL_MS);
+    this.staleTaskThresholdMs = getConfigMs(config, "yb.commissioner.stale_task_threshold_ms",
+                                            DEFAULT_STALE_TASK_THRESHOLD_MS);
+    this.staleTaskCheckIntervalMs = getConfigMs(config,
+                                                "yb.commissioner.stale_task_check_interval_ms",
+                                                DEFAULT_STALE_TASK_CHECK_INTERVAL_MS);
+
     // Initialize the tasks threadpool.
     ThreadFactory namedThreadFactory =
         new ThreadFactoryBuilder().setNameFormat("TaskPool-%d").build();
@@ -64,7 +103,14 @@ public class Commissioner {
                                namedThreadFactory);
     LOG.info("Started Commissioner TaskPool.");
 
-    // TODO: Conisder replacing simple thread sleep with ScheduledExecutorService
+    // Bound the threads running the subtasks of all the tasks.
+    SubTaskExecutor.getInstance().setLimits(
+        getConfigInt(config, SUBTASK_THREADS_KEY, SubTaskExecutor.DEFAULT_MAX_THREADS),
+        getConfigInt(config, SUBTASK_THREADS_PER_TASK_KEY,
+                     SubTaskExecutor.DEFAULT_MAX_THREADS_PER_TASK),
+        getConfigInt(config, SUBTASK_THREADS_PER_UNIVERSE_KEY,
+                     SubTaskExecutor.DEFAULT_MAX_THREADS_PER_GROUP));
+
     // Initialize the task manager.
     progressMonitor = new ProgressMonitor();
     progressMonitor.start();
@@ -127,29 +173,46 @@ public class Commissioner {
     throw new RuntimeException("Not able to find task " + taskUUID);
   }
 
+  private static long getConfigMs(Configuration config, String key, long defaultValue) {
+    Long value = config.getLong(key);
+    return value == null ? defaultValue : value;
+  }
+
+  private static int getConfigInt(Configuration config, String key, int defaultValue) {
+    Integer value = config.getInt(key);
+    return value == null || value <= 0 ? defaultValue : value;
+  }
+
   /**
    * A progress monitor to constantly write a last updated timestamp in the DB so that this
-   * process and all its subtasks are considered to be alive.
+   * process and all its subtasks are considered to be alive. The timestamps of all the live tasks
+   * are written in a single batch per interval. The monitor also claims and fails tasks that
+   * another platform process stopped heartbeating, so their universes do not stay locked.
    */
   private class ProgressMonitor extends Thread {
 
+    private final TaskHeartbeatWriter heartbeatWriter = new TaskHeartbeatWriter();
+
+    private final String owner;
+
+    private long lastStaleTaskCheckMs = 0;
+
     public ProgressMonitor() {
       setName("TaskProgressMonitor");
+      owner = Util.getHostname();
     }
 
     @Override
     public void run() {
       while (true) {
+        List<UUID> liveTasks = new ArrayList<>();
         // Loop through all the active tasks.
         Iterator<Entry<UUID, TaskRunner>> iter = runningTasks.entrySet().iterator();
         while (iter.hasNext()) {
           Entry<UUID, TaskRunner> entry = iter.next();
           TaskRunner taskRunner = entry.getValue();
 
-          // If the task is still running, update its latest timestamp as a part of the heartbeat.
-          if (taskRunner.isTaskRunning()) {
-            taskRunner.doHeartbeat();
-          } else if (taskRunner.hasTaskSucceeded()) {
+          if (taskRunner.hasTaskSucceeded()) {
             LOG.info("Task " + taskRunner.toString() + " has succeeded.");
             // Remove task from the set of live tasks.
             iter.remove();
@@ -157,17 +220,47 @@ public class Commissioner {
             LOG.info("Task " + taskRunner.toString() + " has failed.");
             // Remove task from the set of live tasks.
             iter.remove();
+          } else {
+            // The task is still queued or running, update its latest timestamp as a part of the
+            // heartbeat.
+            liveTasks.add(entry.getKey());
           }
         }
+        heartbeatWriter.write(liveTasks);
 
-        // TODO: Scan the DB for tasks that have failed to make progress and claim one if possible.
+        long now = System.currentTimeMillis();
+        if (now - lastStaleTaskCheckMs >= staleTaskCheckIntervalMs) {
+          lastStaleTaskCheckMs = now;
+          failStaleTasks(new Date(now - staleTaskThresholdMs));
+        }
 
         // Sleep for the required interval.
         try {
-          Thread.sleep(PROGRESS_MONITOR_SLEEP_INTERVAL);
+          Thread.sleep(heartbeatIntervalMs);
         } catch (InterruptedException e) {
         }
       }
     }
+
+    // Tasks cannot be resumed from where they stopped, so a claimed task is failed in the same way
+    // as the incomplete tasks found at startup.
+    private void failStaleTasks(Date heartbeatBefore) {
+      try {
+        for (TaskInfo taskInfo : TaskInfo.getStaleTasks(heartbeatBefore)) {
+          if (runningTasks.containsKey(taskInfo.getTaskUUID()) ||
+              !taskInfo.claimIfStale(heartbeatBefore, owner)) {
+            continue;
+          }
+          CustomerTask customerTask = CustomerTask.findByTaskUUID(taskInfo.getTaskUUID());
+          if (customerTask == null) {
+            continue;
+          }
+          LOG.info("Claimed stale task " + taskInfo.getTaskUUID() + ", failing it.");
+          taskManager.failPendingTask(customerTask, taskInfo);
+        }
+      } catch (Exception e) {
+        LOG.error("Error checking for stale tasks", e);
+      }
+    }
   }
 }
@@ -11,12 +11,21 @@
 package com.yugabyte.yw.commissioner;
 
 import java.util.ArrayList;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -43,6 +52,7 @@ import play.libs.Json;
 
 import akka.actor.ActorSystem;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.concurrent.TimeUnit;
 import scala.concurrent.ExecutionContext;
 import scala.concurrent.duration.Duration;
@@ -61,6 +71,21 @@ public class HealthChecker {
   public static final String kUnivNameLabel = "univ_name";
   public static final String kCheckLabel = "check_name";
   public static final String kNodeLabel = "node";
+  public static final String kLastCheckMetricName = "yb_univ_health_last_check_time";
+  public static final String kCheckDurationMetricName = "yb_univ_health_check_duration_seconds";
+
+  // Default number of universes checked at the same time.
+  private static final int DEFAULT_MAX_PARALLEL_CHECKS = 4;
+
+  // Default time a single universe check may take before it is cancelled: 10 minutes.
+  private static final long DEFAULT_CHECK_TIMEOUT_MS = 600000;
+
+  // Default interval at which universes are looked at to see if they are due for a check.
+  private static final long DEFAULT_DISPATCH_INTERVAL_MS = 10000;
+
+  // Fraction of the check interval by which each universe's schedule is randomly shifted, so
+  // that the universes do not all get checked in the same sweep.
+  private static final double CHECK_JITTER_FRACTION = 0.1;
 
   play.Configuration config;
 
@@ -75,7 +100,18 @@ public class HealthChecker {
 
   private Gauge healthMetric = null;
 
-  private final AtomicBoolean running = new AtomicBoolean(false);
+  private Gauge lastCheckMetric = null;
+
+  private Gauge checkDurationMetric = null;
+
+  // Scheduling state of every universe seen by the scheduled runner.
+  private final Map<UUID, UniverseCheckState> universeStates = new ConcurrentHashMap<>();
+
+  // Runs the universe checks submitted by the scheduled runner.
+  private final ThreadPoolExecutor checkExecutor;
+
+  // Cancels the universe checks that run past their deadline.
+  private final ScheduledExecutorService deadlineExecutor;
 
   private final ActorSystem actorSystem;
 
@@ -95,6 +131,16 @@ public class HealthChecker {
     this.healthManager = healthManager;
     this.promRegistry = promRegistry;
 
+    int numThreads = config.getInt("yb.health.max_parallel_checks", DEFAULT_MAX_PARALLEL_CHECKS);
+    if (numThreads <= 0) {
+      numThreads = DEFAULT_MAX_PARALLEL_CHECKS;
+    }
+    this.checkExecutor = new ThreadPoolExecutor(numThreads, numThreads, 0L, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(),
+        new ThreadFactoryBuilder().setNameFormat("HealthCheck-%d").setDaemon(true).build());
+    this.deadlineExecutor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("HealthCheckDeadline-%d").setDaemon(true).build());
+
     this.initialize();
   }
 
@@ -110,10 +156,11 @@ public class HealthChecker {
   }
 
   private void initialize() {
-    LOG.info("Scheduling health checker every " + this.healthCheckIntervalMs() + " ms");
+    LOG.info("Scheduling health checker every " + this.healthCheckIntervalMs() + " ms, with " +
+             checkExecutor.getMaximumPoolSize() + " parallel checks");
     this.actorSystem.scheduler().schedule(
       Duration.create(0, TimeUnit.MILLISECONDS), // initialDelay
-      Duration.create(this.healthCheckIntervalMs(), TimeUnit.MILLISECONDS), // interval
+      Duration.create(this.dispatchIntervalMs(), TimeUnit.MILLISECONDS), // interval
       this::scheduleRunner,
       this.executionContext
     );
@@ -127,6 +174,18 @@ public class HealthChecker {
       LOG.warn("Failed to build prometheus gauge for name: " + kUnivMetricName);
     }
 
+    try {
+      lastCheckMetric = Gauge.build(kLastCheckMetricName,
+                                    "Unix time in seconds of the last health check result").
+        labelNames(kUnivUUIDLabel, kUnivNameLabel, kNodeLabel).
+        register(this.promRegistry);
+      checkDurationMetric = Gauge.build(kCheckDurationMetricName,
+                                        "Duration in seconds of the last health check").
+        labelNames(kUnivUUIDLabel, kUnivNameLabel, kNodeLabel).
+        register(this.promRegistry);
+    } catch (IllegalArgumentException e) {
+      LOG.warn("Failed to build prometheus gauges for the health check timings");
+    }
   }
 
   // The interval at which the checker will run.
@@ -143,11 +202,40 @@ public class HealthChecker {
     return interval == null ? 0 : interval;
   }
 
+  // The interval at which the scheduled runner looks for universes that are due for a check.
+  private long dispatchIntervalMs() {
+    Long interval = config.getLong("yb.health.dispatch_interval_ms");
+    return (interval == null || interval <= 0) ? DEFAULT_DISPATCH_INTERVAL_MS : interval;
+  }
+
+  // The time a single universe check may take, once it starts running, before it is cancelled.
+  private long checkTimeoutMs() {
+    Long timeout = config.getLong("yb.health.check_timeout_ms");
+    return (timeout == null || timeout <= 0) ? DEFAULT_CHECK_TIMEOUT_MS : timeout;
+  }
+
+  private long getCheckIntervalMs(AlertingData alertingData) {
+    return alertingData.checkIntervalMs <= 0
+      ? healthCheckIntervalMs()
+      : alertingData.checkIntervalMs;
+  }
+
+  private long getStatusUpdateIntervalMs(AlertingData alertingData) {
+    return alertingData.statusUpdateIntervalMs <= 0
+      ? statusUpdateIntervalMs()
+      : alertingData.statusUpdateIntervalMs;
+  }
+
+  private SmtpData getSmtpData(Customer c) {
+    CustomerConfig smtpConfig = CustomerConfig.getSmtpConfig(c.uuid);
+    return smtpConfig == null ? null : Json.fromJson(smtpConfig.data, SmtpData.class);
+  }
+
   private String ybAlertEmail() {
     return config.getString("yb.health.default_email");
   }
 
-  private void processResults(Universe u, String response) {
+  private void processResults(Universe u, String response, long durationMs) {
     boolean hasErrors = false;
     try {
       JsonNode healthJSON = Util.convertStringToJson(response);
@@ -156,11 +244,13 @@ public class HealthChecker {
                   healthJSON.path("mail_error").asText());
       }
 
+      Set<String> nodeNames = new HashSet<>();
       for (JsonNode entry : healthJSON.path("data")) {
         String nodeName = entry.path("node").asText();
         String checkName = entry.path("message").asText();
         boolean checkResult = entry.path("has_error").asBoolean();
         hasErrors = checkResult || hasErrors;
+        nodeNames.add(nodeName);
         if (null == healthMetric) continue;
 
         Gauge.Child prometheusVal = healthMetric.labels(
@@ -171,6 +261,14 @@ public class HealthChecker {
         );
         prometheusVal.set(checkResult ? 1 : 0);
       }
+      if (null != lastCheckMetric && null != checkDurationMetric) {
+        double nowSecs = System.currentTimeMillis() / 1000.0;
+        for (String nodeName : nodeNames) {
+          lastCheckMetric.labels(u.universeUUID.toString(), u.name, nodeName).set(nowSecs);
+          checkDurationMetric.labels(u.universeUUID.toString(), u.name, nodeName)
+            .set(durationMs / 1000.0);
+        }
+      }
       LOG.info("Health check for universe " + u.name +
                (hasErrors ? " reported errors." : " reported success."));
      } catch (Exception e) {
@@ -178,26 +276,143 @@ public class HealthChecker {
     }
   }
 
-  @VisibleForTesting
-  void scheduleRunner() {
-    if (running.get()) {
-      LOG.info("Previous run still underway");
-      return;
+  // Scheduling state of a single universe.
+  private static class UniverseCheckState {
+    // Time at which the next check is due, shifted by a random jitter.
+    long nextCheckTimeMs;
+    long lastStatusUpdateTimeMs = 0;
+    // The check currently queued or running, if any.
+    UniverseCheck pendingCheck = null;
+
+    UniverseCheckState(long nextCheckTimeMs) {
+      this.nextCheckTimeMs = nextCheckTimeMs;
     }
+  }
 
-    LOG.info("Running health checker");
-    running.set(true);
+  private static long jitterMs(long intervalMs) {
+    long bound = (long) (intervalMs * CHECK_JITTER_FRACTION);
+    return bound <= 0 ? 0 : ThreadLocalRandom.current().nextLong(-bound, bound + 1);
+  }
+
+  /**
+   * Hands every universe that is due for a check to the check executor. Each universe keeps its
+   * own jittered schedule, so a slow universe only delays itself and the checks get spread over
+   * the interval instead of running as one sweep.
+   */
+  @VisibleForTesting
+  synchronized void scheduleRunner() {
+    long now = System.currentTimeMillis();
+    Set<UUID> seenUniverses = new HashSet<>();
     // TODO(bogdan): This will not be too DB friendly when we go multi-tenant.
     for (Customer c : Customer.getAll()) {
       try {
-        checkCustomer(c);
+        seenUniverses.addAll(c.getUniverseUUIDs());
+        scheduleCustomer(c, now);
       } catch (Exception ex) {
-        LOG.error("Error running health check for customer " + c.uuid, ex);
+        LOG.error("Error scheduling health check for customer " + c.uuid, ex);
       }
     }
+    // Forget about the universes that are gone.
+    universeStates.keySet().retainAll(seenUniverses);
+  }
 
-    LOG.info("Completed running health checker.");
-    running.set(false);
+  private void scheduleCustomer(Customer c, long now) {
+    // We need an alerting config to do work.
+    CustomerConfig config = CustomerConfig.getAlertConfig(c.uuid);
+    if (config == null) {
+      return;
+    }
+
+    AlertingData alertingData = Json.fromJson(config.data, AlertingData.class);
+    long checkIntervalMs = getCheckIntervalMs(alertingData);
+    long statusUpdateIntervalMs = getStatusUpdateIntervalMs(alertingData);
+    SmtpData smtpData = null;
+    boolean smtpDataLoaded = false;
+    for (UUID universeUUID : c.getUniverseUUIDs()) {
+      UniverseCheckState state = universeStates.computeIfAbsent(universeUUID,
+          uuid -> new UniverseCheckState(now + Math.abs(jitterMs(checkIntervalMs))));
+      // A cancelled check is done right away, but may still be running until it returns.
+      if (state.pendingCheck != null && !state.pendingCheck.hasReturned()) {
+        continue;
+      }
+      boolean shouldSendStatusUpdate =
+          (now - statusUpdateIntervalMs) > state.lastStatusUpdateTimeMs;
+      // Always do a check if it's time for a status update OR if it's time for a check.
+      if (!shouldSendStatusUpdate && now < state.nextCheckTimeMs) {
+        continue;
+      }
+      state.nextCheckTimeMs = now + checkIntervalMs + jitterMs(checkIntervalMs);
+      if (shouldSendStatusUpdate) {
+        state.lastStatusUpdateTimeMs = now;
+      }
+      if (!smtpDataLoaded) {
+        smtpData = getSmtpData(c);
+        smtpDataLoaded = true;
+      }
+      state.pendingCheck = submitCheck(universeUUID, c, config, shouldSendStatusUpdate, smtpData);
+    }
+  }
+
+  private UniverseCheck submitCheck(UUID universeUUID, Customer c, CustomerConfig config,
+                                boolean shouldSendStatusUpdate, SmtpData smtpData) {
+    UniverseCheck check = new UniverseCheck(universeUUID, checkTimeoutMs(), () -> {
+      try {
+        Universe u = Universe.getReadOnly(universeUUID);
+        checkSingleUniverse(u, c, config, shouldSendStatusUpdate, smtpData);
+      } catch (Exception ex) {
+        LOG.error("Error running health check for universe " + universeUUID, ex);
+      }
+    });
+    checkExecutor.execute(check);
+    return check;
+  }
+
+  // A universe check, cancelled if it runs past its deadline. The deadline is only armed once
+  // the check starts running, so the time it waits in the queue behind the checks of the other
+  // universes is not counted against it.
+  private class UniverseCheck extends FutureTask<Void> {
+    private final UUID universeUUID;
+    private final long timeoutMs;
+    // Set once run() returns, which can be well after the check is cancelled, as the check does
+    // not stop on an interrupt while it accesses the DB or sends emails.
+    private volatile boolean returned = false;
+
+    UniverseCheck(UUID universeUUID, long timeoutMs, Runnable check) {
+      super(check, null);
+      this.universeUUID = universeUUID;
+      this.timeoutMs = timeoutMs;
+    }
+
+    @Override
+    public void run() {
+      ScheduledFuture<?> deadline = deadlineExecutor.schedule(() -> {
+        if (!isDone()) {
+          LOG.warn("Health check for universe " + universeUUID + " did not finish within " +
+                   timeoutMs + " ms, cancelling it.");
+          cancel(true);
+        }
+      }, timeoutMs, TimeUnit.MILLISECONDS);
+      try {
+        super.run();
+      } finally {
+        deadline.cancel(false);
+        returned = true;
+      }
+    }
+
+    boolean hasReturned() {
+      return returned;
+    }
+  }
+
+  // Waits for the checks submitted by the scheduled runner to finish.
+  @VisibleForTesting
+  synchronized void waitForPendingChecks() throws Exception {
+    for (UniverseCheckState state : universeStates.values()) {
+      if (state.pendingCheck != null) {
+        state.pendingCheck.get();
+      }
+    }
   }
 
   public void checkCustomer(Customer c) {
@@ -210,14 +425,10 @@ public class HealthChecker {
 
     AlertingData alertingData = Json.fromJson(config.data, AlertingData.class);
     long now = (new Date()).getTime();
-    long checkIntervalMs = alertingData.checkIntervalMs <= 0
-      ? healthCheckIntervalMs()
-      : alertingData.checkIntervalMs;
+    long checkIntervalMs = getCheckIntervalMs(alertingData);
     boolean shouldRunCheck = (now - checkIntervalMs) >
         lastCheckTimeMap.getOrDefault(c.uuid, 0L);
-    long statusUpdateIntervalMs = alertingData.statusUpdateIntervalMs <= 0
-      ? statusUpdateIntervalMs()
-      : alertingData.statusUpdateIntervalMs;
+    long statusUpdateIntervalMs = getStatusUpdateIntervalMs(alertingData);
     boolean shouldSendStatusUpdate = (now - statusUpdateIntervalMs) >
         lastStatusUpdateTimeMap.getOrDefault(c.uuid, 0L);
     // Always do a check if it's time for a status update OR if it's time for a check.
@@ -227,24 +438,19 @@ public class HealthChecker {
       if (shouldSendStatusUpdate) {
         lastStatusUpdateTimeMap.put(c.uuid, now);
       }
-      CustomerConfig smtpConfig = CustomerConfig.getSmtpConfig(c.uuid);
-      SmtpData smtpData = null;
-      if (smtpConfig != null) {
-        smtpData =  Json.fromJson(smtpConfig.data, SmtpData.class);
-      }
-
-      checkAllUniverses(c, config, shouldSendStatusUpdate, smtpData);
+      checkAllUniverses(c, config, shouldSendStatusUpdate, getSmtpData(c));
     }
   }
 
   public void checkAllUniverses(
       Customer c, CustomerConfig config, boolean shouldSendStatusUpdate, SmtpData smtpData) {
-    // Process all of a customer's universes.
-    for (Universe u : c.getUniverses()) {
+    // Process all of a customer's universes. The checks only read the universe details.
+    for (UUID universeUUID : c.getUniverseUUIDs()) {
       try {
+        Universe u = Universe.getReadOnly(universeUUID);
         checkSingleUniverse(u, c, config, shouldSendStatusUpdate, smtpData);
       } catch (Exception ex) {
-        LOG.error("Error running health check for universe " + u.universeUUID, ex);
+        LOG.error("Error running health check for universe " + universeUUID, ex);
       }
      }
   }
@@ -398,6 +604,7 @@ public class HealthChecker {
                                alertingData.reportOnlyErrors;
     boolean sendMailAlways = (shouldSendStatusUpdate || lastCheckHadErrors);
     // Call devops and process response.
+    long startMs = System.currentTimeMillis();
     ShellProcessHandler.ShellResponse response = healthManager.runCommand(
       mainProvider,
       new ArrayList<>(clusterMetadata.values()),
@@ -411,7 +618,7 @@ public class HealthChecker {
     );
 
     if (response.code == 0) {
-      processResults(u, response.message);
+      processResults(u, response.message, System.currentTimeMillis() - startMs);
       HealthCheck.addAndPrune(u.universeUUID, u.customerId, response.message);
     } else {
       LOG.error(String.format(
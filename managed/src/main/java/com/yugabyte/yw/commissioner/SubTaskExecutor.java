@@ -0,0 +1,331 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.commissioner;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
+
+/**
+ * Runs the subtasks of all the tasks on one shared set of threads. Each task gets its own
+ * executor view with {@link #newTaskExecutor}, and the views share the threads fairly:
+ * - a task never runs more than maxThreadsPerTask subtasks at a time,
+ * - the tasks of a universe together never run more than maxThreadsPerGroup subtasks at a time,
+ * - universes that have subtasks waiting take turns for the free threads.
+ * So the number of threads stays bounded however many tasks run concurrently.
+ */
+public class SubTaskExecutor {
+
+  public static final Logger LOG = LoggerFactory.getLogger(SubTaskExecutor.class);
+
+  // Total number of threads running subtasks.
+  static final int DEFAULT_MAX_THREADS = 64;
+
+  // Number of subtasks of a single task that can run at a time.
+  static final int DEFAULT_MAX_THREADS_PER_TASK = 10;
+
+  // Number of subtasks of all the tasks of a universe that can run at a time.
+  static final int DEFAULT_MAX_THREADS_PER_GROUP = 20;
+
+  // The maximum time that idle threads will wait for new subtasks before terminating.
+  private static final long THREAD_ALIVE_TIME = 60L;
+
+  private static final Gauge queueDepth = Gauge.build(
+      "yb_subtask_queue_depth", "Number of subtasks waiting for a thread")
+      .labelNames("task_type").register();
+
+  private static final Gauge activeThreads = Gauge.build(
+      "yb_subtask_active_threads", "Number of threads running subtasks")
+      .labelNames("task_type").register();
+
+  private static final Histogram waitTime = Histogram.build(
+      "yb_subtask_wait_time_seconds", "Time a subtask waited for a thread")
+      .labelNames("task_type").register();
+
+  private static final SubTaskExecutor INSTANCE = new SubTaskExecutor(DEFAULT_MAX_THREADS,
+      DEFAULT_MAX_THREADS_PER_TASK, DEFAULT_MAX_THREADS_PER_GROUP);
+
+  public static SubTaskExecutor getInstance() {
+    return INSTANCE;
+  }
+
+  private final ThreadPoolExecutor workers;
+
+  // The groups with subtasks waiting, in the order they get their next turn. Guarded by this.
+  private final Deque<Group> waitingGroups = new ArrayDeque<>();
+
+  // All the groups with subtasks waiting or running, by key. Guarded by this.
+  private final Map<Object, Group> groups = new HashMap<>();
+
+  private int maxThreads;
+  private int maxThreadsPerTask;
+  private int maxThreadsPerGroup;
+  private int numRunning = 0;
+
+  @VisibleForTesting
+  SubTaskExecutor(int maxThreads, int maxThreadsPerTask, int maxThreadsPerGroup) {
+    workers = new ThreadPoolExecutor(maxThreads, maxThreads, THREAD_ALIVE_TIME, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactoryBuilder().setNameFormat("SubTaskPool-%d").setDaemon(true).build());
+    workers.allowCoreThreadTimeOut(true);
+    setLimits(maxThreads, maxThreadsPerTask, maxThreadsPerGroup);
+  }
+
+  /**
+   * Changes the concurrency limits. Subtasks already running are not interrupted.
+   */
+  public synchronized void setLimits(int maxThreads, int maxThreadsPerTask,
+                                     int maxThreadsPerGroup) {
+    if (maxThreads <= 0 || maxThreadsPerTask <= 0 || maxThreadsPerGroup <= 0) {
+      throw new IllegalArgumentException("Subtask thread limits should be positive: " +
+          maxThreads + ", " + maxThreadsPerTask + ", " + maxThreadsPerGroup);
+    }
+    if (maxThreads > workers.getMaximumPoolSize()) {
+      workers.setMaximumPoolSize(maxThreads);
+      workers.setCorePoolSize(maxThreads);
+    } else {
+      workers.setCorePoolSize(maxThreads);
+      workers.setMaximumPoolSize(maxThreads);
+    }
+    this.maxThreads = maxThreads;
+    this.maxThreadsPerTask = maxThreadsPerTask;
+    this.maxThreadsPerGroup = maxThreadsPerGroup;
+    dispatch();
+  }
+
+  /**
+   * Creates the executor for the subtasks of a task.
+   *
+   * @param taskType the type of the task, used to label the metrics.
+   * @param groupKey the key of the group the task shares its limit with, such as the universe it
+   *                 operates on, or null to put the task in a group of its own.
+   * @return the executor.
+   */
+  public TaskExecutor newTaskExecutor(String taskType, Object groupKey) {
+    return new TaskExecutor(taskType, groupKey);
+  }
+
+  @VisibleForTesting
+  synchronized int getNumRunning() {
+    return numRunning;
+  }
+
+  private synchronized void enqueue(TaskExecutor taskExecutor, Runnable command) {
+    if (taskExecutor.shutdown) {
+      throw new RejectedExecutionException(
+          "Executor of " + taskExecutor.taskType + " is shut down");
+    }
+    Group group = groups.get(taskExecutor.groupKey);
+    if (group == null) {
+      group = new Group(taskExecutor.groupKey);
+      groups.put(taskExecutor.groupKey, group);
+    }
+    if (taskExecutor.pending.isEmpty()) {
+      group.waitingTasks.add(taskExecutor);
+    }
+    taskExecutor.pending.add(new SubTask(taskExecutor, command));
+    queueDepth.labels(taskExecutor.taskType).inc();
+    if (!group.waiting) {
+      group.waiting = true;
+      waitingGroups.add(group);
+    }
+    dispatch();
+  }
+
+  // Hands subtasks to the free threads, one per waiting group in turn. Called with the lock held.
+  private void dispatch() {
+    int numGroupsSkipped = 0;
+    while (numRunning < maxThreads && numGroupsSkipped < waitingGroups.size()) {
+      Group group = waitingGroups.poll();
+      if (group.waitingTasks.isEmpty()) {
+        // All its waiting subtasks were dropped by shutdownNow.
+        group.waiting = false;
+        if (group.running == 0) {
+          groups.remove(group.key);
+        }
+        continue;
+      }
+      SubTask subTask = group.running < maxThreadsPerGroup ? group.next(maxThreadsPerTask) : null;
+      if (subTask == null) {
+        // The group is at one of its limits, it waits for one of its subtasks to finish.
+        waitingGroups.add(group);
+        numGroupsSkipped++;
+        continue;
+      }
+      numGroupsSkipped = 0;
+      if (group.waitingTasks.isEmpty()) {
+        group.waiting = false;
+      } else {
+        waitingGroups.add(group);
+      }
+      numRunning++;
+      group.running++;
+      subTask.taskExecutor.running++;
+      queueDepth.labels(subTask.taskExecutor.taskType).dec();
+      workers.execute(subTask);
+    }
+  }
+
+  private synchronized void onFinished(TaskExecutor taskExecutor) {
+    numRunning--;
+    taskExecutor.running--;
+    Group group = groups.get(taskExecutor.groupKey);
+    group.running--;
+    if (group.running == 0 && !group.waiting) {
+      groups.remove(group.key);
+    }
+    if (taskExecutor.isTerminated()) {
+      notifyAll();
+    }
+    dispatch();
+  }
+
+  // The tasks sharing a limit, usually the ones operating on the same universe.
+  private static class Group {
+    final Object key;
+    // The tasks of the group with subtasks waiting, in the order they get their next turn.
+    final Deque<TaskExecutor> waitingTasks = new ArrayDeque<>();
+    int running = 0;
+    boolean waiting = false;
+
+    Group(Object key) {
+      this.key = key;
+    }
+
+    // Takes the next subtask of the first task in turn that is below its limit.
+    SubTask next(int maxThreadsPerTask) {
+      Iterator<TaskExecutor> iter = waitingTasks.iterator();
+      while (iter.hasNext()) {
+        TaskExecutor taskExecutor = iter.next();
+        if (taskExecutor.running < maxThreadsPerTask) {
+          iter.remove();
+          SubTask subTask = taskExecutor.pending.poll();
+          if (!taskExecutor.pending.isEmpty()) {
+            waitingTasks.add(taskExecutor);
+          }
+          return subTask;
+        }
+      }
+      return null;
+    }
+  }
+
+  private class SubTask implements Runnable {
+    final TaskExecutor taskExecutor;
+    final Runnable command;
+    final long submitTimeNanos = System.nanoTime();
+
+    SubTask(TaskExecutor taskExecutor, Runnable command) {
+      this.taskExecutor = taskExecutor;
+      this.command = command;
+    }
+
+    @Override
+    public void run() {
+      waitTime.labels(taskExecutor.taskType)
+          .observe((System.nanoTime() - submitTimeNanos) / 1e9);
+      activeThreads.labels(taskExecutor.taskType).inc();
+      try {
+        command.run();
+      } catch (Throwable t) {
+        LOG.error("Error running subtask of " + taskExecutor.taskType, t);
+      } finally {
+        activeThreads.labels(taskExecutor.taskType).dec();
+        onFinished(taskExecutor);
+      }
+    }
+  }
+
+  /**
+   * The executor of the subtasks of one task. It owns no threads: its subtasks wait in its queue
+   * until the shared executor gives them a thread. The fields are guarded by the shared executor.
+   */
+  public class TaskExecutor extends AbstractExecutorService {
+    final String taskType;
+    final Object groupKey;
+    final Deque<SubTask> pending = new ArrayDeque<>();
+    int running = 0;
+    boolean shutdown = false;
+
+    TaskExecutor(String taskType, Object groupKey) {
+      this.taskType = taskType;
+      this.groupKey = groupKey != null ? groupKey : this;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+      enqueue(this, command);
+    }
+
+    @Override
+    public void shutdown() {
+      synchronized (SubTaskExecutor.this) {
+        shutdown = true;
+      }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      synchronized (SubTaskExecutor.this) {
+        shutdown = true;
+        List<Runnable> dropped = new ArrayList<>();
+        for (SubTask subTask : pending) {
+          dropped.add(subTask.command);
+        }
+        queueDepth.labels(taskType).dec(pending.size());
+        pending.clear();
+        Group group = groups.get(groupKey);
+        if (group != null) {
+          group.waitingTasks.remove(this);
+        }
+        return dropped;
+      }
+    }
+
+    @Override
+    public boolean isShutdown() {
+      synchronized (SubTaskExecutor.this) {
+        return shutdown;
+      }
+    }
+
+    @Override
+    public boolean isTerminated() {
+      synchronized (SubTaskExecutor.this) {
+        return shutdown && running == 0 && pending.isEmpty();
+      }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+      long deadlineNanos = System.nanoTime() + unit.toNanos(timeout);
+      synchronized (SubTaskExecutor.this) {
+        while (!isTerminated()) {
+          long remainingNanos = deadlineNanos - System.nanoTime();
+          if (remainingNanos <= 0) {
+            return false;
+          }
+          TimeUnit.NANOSECONDS.timedWait(SubTaskExecutor.this, remainingNanos);
+        }
+        return true;
+      }
+    }
+  }
+}
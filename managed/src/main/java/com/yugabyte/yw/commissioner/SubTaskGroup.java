@@ -2,16 +2,24 @@
 
 package com.yugabyte.yw.commissioner;
 
-import java.net.InetAddress;
-import java.net.UnknownHostException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.yugabyte.yw.common.Util;
 import com.yugabyte.yw.models.TaskInfo;
 import com.yugabyte.yw.models.helpers.TaskType;
 import org.slf4j.Logger;
@@ -21,6 +29,13 @@ public class SubTaskGroup implements Runnable {
 
   public static final Logger LOG = LoggerFactory.getLogger(SubTaskGroup.class);
 
+  // Fires the deadlines of the tasks of the task lists that have a timeout. It only fails the
+  // task lists and interrupts the tasks, the TaskInfos of the tasks that timed out are saved on
+  // the executor of their list.
+  private static final ScheduledExecutorService timeoutScheduler =
+      Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+          .setNameFormat("SubTaskGroupTimeout-%d").setDaemon(true).build());
+
   // User facing subtask. If this field is 'Invalid', the state of this task list  should
   // not be exposed to the user. Note that multiple task lists can be combined into a single user
   // facing entry by providing the same subtask id.
@@ -36,10 +51,22 @@ public class SubTaskGroup implements Runnable {
   private Map<AbstractTaskBase, TaskInfo> taskMap;
 
   // The list of futures to wait for.
-  private Map<Future<?>, TaskInfo> futuresMap;
+  private Map<CompletableFuture<Void>, TaskInfo> futuresMap;
 
   private AtomicInteger numTasksCompleted;
 
+  private final AtomicInteger numTasksPending = new AtomicInteger(0);
+
+  // Completes with the outcome of the task list, true if all its tasks succeeded.
+  private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+  // Set once a task failed.
+  private volatile boolean failed = false;
+
+  // Set once the tasks that did not complete were cancelled, after which their errors are not
+  // recorded.
+  private final AtomicBoolean tasksCancelled = new AtomicBoolean(false);
+
   // The number of threads to run in parallel.
   int numThreads;
 
@@ -52,6 +79,16 @@ public class SubTaskGroup implements Runnable {
   // Flag to denote if an exception needs to be thrown on failure.
   boolean ignoreErrors = false;
 
+  // Flag to denote that the TaskInfos were saved. They are first saved all together when the task
+  // list is added to the queue, rather than one by one as the tasks are added. Guarded by this.
+  private boolean persisted = false;
+
+  // Flag to fail on the first failed task, without waiting for the other tasks.
+  private boolean cancelOnFailure = false;
+
+  // The time each task has to complete once it starts running, 0 for no timeout.
+  private long timeoutMs = 0;
+
   /**
    * Creates the task list.
    *
@@ -82,7 +119,9 @@ public class SubTaskGroup implements Runnable {
     this.subTaskGroupType = subTaskGroupType;
     for (TaskInfo taskInfo : taskMap.values()) {
       taskInfo.setSubTaskGroupType(subTaskGroupType);
-      taskInfo.save();
+    }
+    if (persisted) {
+      TaskInfo.saveAll(taskMap.values());
     }
   }
 
@@ -94,8 +133,9 @@ public class SubTaskGroup implements Runnable {
     this.userSubTaskState = userTaskState;
     for (TaskInfo taskInfo : taskMap.values()) {
       taskInfo.setTaskState(userTaskState);
-      taskInfo.save();
     }
+    TaskInfo.saveAll(taskMap.values());
+    persisted = true;
   }
 
   public synchronized TaskInfo.State getUserSubTaskState() {
@@ -118,18 +158,12 @@ public class SubTaskGroup implements Runnable {
     TaskInfo taskInfo = new TaskInfo(taskType);
     taskInfo.setTaskDetails(task.getTaskDetails());
     // Set the owner info in the TaskInfo.
-    String hostname = "";
-    try {
-      hostname = InetAddress.getLocalHost().getHostName();
-    } catch (UnknownHostException e) {
-      LOG.error("Could not determine the hostname", e);
-    }
-    taskInfo.setOwner(hostname);
+    taskInfo.setOwner(Util.getHostname());
     // Set the SubTaskGroupType in TaskInfo
     if (this.subTaskGroupType != null) {
       taskInfo.setSubTaskGroupType(this.subTaskGroupType);
     }
-    taskInfo.save();
+    // The TaskInfo is saved along with the others once the task list is added to the queue.
     taskMap.put(task, taskInfo);
   }
 
@@ -141,12 +175,38 @@ public class SubTaskGroup implements Runnable {
     return numTasksCompleted.get();
   }
 
-  public void setTaskContext(int position, UUID userTaskUUID) {
+  public synchronized void setTaskContext(int position, UUID userTaskUUID) {
     for (TaskInfo taskInfo : taskMap.values()) {
       taskInfo.setPosition(position);
       taskInfo.setParentUuid(userTaskUUID);
-      taskInfo.save();
     }
+    TaskInfo.saveAll(taskMap.values());
+    persisted = true;
+  }
+
+  /**
+   * Makes the first failed task fail the task list right away: the tasks that have not started
+   * yet are cancelled, and waitFor() returns without waiting for the running ones to finish.
+   * The running tasks are left behind and keep running after waitFor() returned, so this is only
+   * meant for task lists whose tasks only check the state of the universe.
+   */
+  public void setCancelOnFailure(boolean cancelOnFailure) {
+    this.cancelOnFailure = cancelOnFailure;
+  }
+
+  /**
+   * Sets the time each task has to complete, counted from when the task starts running, so that
+   * the time a task waits for a thread is not counted. A task that does not complete in time
+   * fails the task list and is interrupted. The tasks that have not started yet are skipped, and
+   * the waits handed to AbstractTaskBase.waitFor are cancelled. The other running tasks are not
+   * interrupted, and are only stopped by their own deadline. The task list only completes once
+   * all the tasks that started have returned, so that none of them is left behind changing the
+   * universe, and a task that ignores the interrupt holds up the task list until it returns.
+   *
+   * @param timeoutMs the timeout, 0 for no timeout.
+   */
+  public void setTimeout(long timeoutMs) {
+    this.timeoutMs = timeoutMs;
   }
 
   /**
@@ -158,43 +218,207 @@ public class SubTaskGroup implements Runnable {
     if (taskMap.isEmpty()) {
       LOG.error("No tasks in task list {}.", getName());
       tasksDone = true;
+      result.complete(true);
       return;
     }
     LOG.info("Running task list {}.", getName());
+    // The futures that complete once the tasks are done. With a timeout, that is only once the
+    // thread of a cancelled task returned.
+    Map<CompletableFuture<Void>, TaskInfo> doneMap = new HashMap<>();
     for (AbstractTaskBase task : taskMap.keySet()) {
-      Future<?> future = executor.submit(task);
-      futuresMap.put(future, taskMap.get(task));
+      TaskInfo taskInfo = taskMap.get(task);
+      if (timeoutMs > 0) {
+        TaskDeadline deadline = new TaskDeadline(taskInfo);
+        CompletableFuture<Void> future = task.runAsync(deadline);
+        deadline.setFuture(future);
+        futuresMap.put(future, taskInfo);
+        doneMap.put(deadline.stopped.thenCompose(v -> future), taskInfo);
+      } else {
+        CompletableFuture<Void> future = task.runAsync(executor);
+        futuresMap.put(future, taskInfo);
+        doneMap.put(future, taskInfo);
+      }
+    }
+    // The tasks are handled in the order they complete, so that a failure is noticed right away
+    // and the count of completed tasks stays current.
+    numTasksPending.set(doneMap.size());
+    for (Map.Entry<CompletableFuture<Void>, TaskInfo> entry : doneMap.entrySet()) {
+      entry.getKey().whenComplete((r, e) -> onTaskDone(entry.getValue(), e));
     }
   }
 
-  public boolean waitFor() {
-    String errorString = null;
-    for (Future<?> future : futuresMap.keySet()) {
-      // Wait for each future to finish.
-      try {
-        if (future.get() == null) {
-          // Task succeeded.
-          numTasksCompleted.incrementAndGet();
-        } else {
-          errorString = "ERROR: task " + future.toString() + " get() returned null.";
-          LOG.error(errorString);
+  /**
+   * Runs a task on the executor of the task list, and arms the deadline of the task when the
+   * executor starts running it. Keeps track of the thread running the task, so that the task can
+   * be interrupted, and of when the task stopped: its future is done and no thread still runs it.
+   */
+  private class TaskDeadline implements Executor {
+    private final TaskInfo taskInfo;
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    // Completes once the future of the task is done and its thread returned.
+    private final CompletableFuture<Void> stopped = new CompletableFuture<>();
+    private volatile ScheduledFuture<?> deadline = null;
+    // Guarded by this.
+    private Thread runner = null;
+    private int numRunning = 0;
+    private boolean futureDone = false;
+
+    TaskDeadline(TaskInfo taskInfo) {
+      this.taskInfo = taskInfo;
+      stopped.whenComplete((r, e) -> {
+        ScheduledFuture<?> armedDeadline = deadline;
+        if (armedDeadline != null) {
+          armedDeadline.cancel(false);
         }
-      } catch (Exception e) {
-        errorString = "Failed to execute task " + future.toString() + ", hit error " +
-            e.getMessage() + ".";
-        LOG.error(errorString, e);
-      } finally {
-        if (errorString != null) {
-          TaskInfo taskInfo = futuresMap.get(future);
-          ObjectNode details = taskInfo.getTaskDetails().deepCopy();
-          details.put("errorString", errorString);
-          taskInfo.setTaskDetails(details);
-          taskInfo.save();
-          return false;
+      });
+    }
+
+    void setFuture(CompletableFuture<Void> future) {
+      future.whenComplete((r, e) -> {
+        boolean isStopped;
+        synchronized (this) {
+          futureDone = true;
+          isStopped = numRunning == 0;
+        }
+        if (isStopped) {
+          stopped.complete(null);
         }
+      });
+    }
+
+    synchronized void interrupt() {
+      if (runner != null) {
+        runner.interrupt();
       }
     }
 
-    return true;
+    @Override
+    public void execute(Runnable command) {
+      executor.execute(() -> {
+        synchronized (this) {
+          numRunning++;
+          runner = Thread.currentThread();
+        }
+        try {
+          // A task that hands its waits back to the executor only starts once.
+          if (started.compareAndSet(false, true)) {
+            // The task cannot stop before this returns, so the deadline gets cancelled.
+            deadline = timeoutScheduler.schedule(() -> onTimeout(this), timeoutMs,
+                TimeUnit.MILLISECONDS);
+          }
+          command.run();
+        } finally {
+          boolean isStopped;
+          synchronized (this) {
+            numRunning--;
+            runner = null;
+            // Don't leave an interrupt meant for this task to the next task of the thread.
+            Thread.interrupted();
+            isStopped = futureDone && numRunning == 0;
+          }
+          if (isStopped) {
+            stopped.complete(null);
+          }
+        }
+      });
+    }
+  }
+
+  private void onTaskDone(TaskInfo taskInfo, Throwable error) {
+    if (error == null) {
+      numTasksCompleted.incrementAndGet();
+    } else if (!result.isDone() && !tasksCancelled.get()) {
+      // The errors of the tasks cancelled after the task list failed are not recorded.
+      if (error instanceof CompletionException && error.getCause() != null) {
+        error = error.getCause();
+      }
+      String errorString = "Failed to execute task " + taskInfo.getTaskType() + ", hit error " +
+          error.getMessage() + ".";
+      LOG.error(errorString, error);
+      setErrorString(taskInfo, errorString);
+      saveTaskInfo(taskInfo);
+      failed = true;
+      if (cancelOnFailure) {
+        fail();
+      }
+    }
+    if (numTasksPending.decrementAndGet() == 0) {
+      tasksDone = true;
+      result.complete(!failed);
+    }
+  }
+
+  // Called on the timeout scheduler, so the TaskInfo is saved on the executor of the task list,
+  // which may be busy with the tasks that hang.
+  private void onTimeout(TaskDeadline taskDeadline) {
+    if (taskDeadline.stopped.isDone()) {
+      return;
+    }
+    TaskInfo taskInfo = taskDeadline.taskInfo;
+    String errorString = "Task " + taskInfo.getTaskType() + " did not complete in " + timeoutMs +
+        " ms.";
+    LOG.error(errorString);
+    setErrorString(taskInfo, errorString);
+    failed = true;
+    cancelTasks();
+    taskDeadline.interrupt();
+    try {
+      executor.execute(() -> saveTaskInfo(taskInfo));
+    } catch (RejectedExecutionException e) {
+      LOG.warn("Could not save the error of task {} of task list {}.", taskInfo.getTaskType(),
+          getName(), e);
+    }
+  }
+
+  // Fails the task list right away and cancels the tasks that have not completed.
+  private void fail() {
+    if (result.complete(false)) {
+      cancelTasks();
+    }
+  }
+
+  // Cancels the tasks that have not completed: the ones that have not started yet are skipped,
+  // and the waits of the running ones are cancelled.
+  private void cancelTasks() {
+    if (!tasksCancelled.compareAndSet(false, true)) {
+      return;
+    }
+    int numCancelled = 0;
+    for (CompletableFuture<Void> future : futuresMap.keySet()) {
+      if (future.cancel(false)) {
+        numCancelled++;
+      }
+    }
+    LOG.info("Task list {} failed, cancelled {} of its {} tasks.", getName(), numCancelled,
+        futuresMap.size());
+  }
+
+  private synchronized void setErrorString(TaskInfo taskInfo, String errorString) {
+    ObjectNode details = taskInfo.getTaskDetails().deepCopy();
+    details.put("errorString", errorString);
+    taskInfo.setTaskDetails(details);
+  }
+
+  private synchronized void saveTaskInfo(TaskInfo taskInfo) {
+    if (persisted) {
+      taskInfo.save();
+    }
+  }
+
+  /**
+   * Returns a future that completes once the outcome of the task list is known: all the tasks
+   * are done, or it failed early. After that waitFor() returns without blocking.
+   */
+  public CompletableFuture<Void> whenDone() {
+    return result.thenApply(success -> null);
+  }
+
+  /**
+   * Waits for the tasks to complete.
+   *
+   * @return true if all the tasks succeeded, false as soon as the task list failed.
+   */
+  public boolean waitFor() {
+    return result.join();
   }
 }
@@ -2,20 +2,56 @@
 
 package com.yugabyte.yw.commissioner;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
 import com.yugabyte.yw.models.TaskInfo;
+import io.prometheus.client.Histogram;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * The subtask groups of a task and the order to run them in. A group added with add(group) runs
+ * after all the groups added before it, so by default the groups run one after another. A group
+ * can instead declare the groups it depends on, and then runs as soon as those are done, in
+ * parallel with the other groups that are ready.
+ */
 public class SubTaskGroupQueue {
 
   public static final Logger LOG = LoggerFactory.getLogger(SubTaskGroupQueue.class);
 
+  // Labelled by the type of the group, as its name includes the names of the nodes.
+  private static final Histogram groupDuration = Histogram.build(
+      "yb_subtask_group_duration_seconds", "Time to run a subtask group")
+      .labelNames("group_type").register();
+
   // The list of tasks lists in this task list sequence.
   CopyOnWriteArrayList<SubTaskGroup> subTaskGroups = new CopyOnWriteArrayList<SubTaskGroup>();
 
+  // The groups each group waits for before it runs.
+  private final Map<SubTaskGroup, List<SubTaskGroup>> dependencies = new IdentityHashMap<>();
+
+  // The groups no other group depends on yet, the ones add(group) makes the new group wait for.
+  private final Set<SubTaskGroup> lastGroups = new LinkedHashSet<>();
+
+  // The groups that made up the longest chain of the last run.
+  private List<SubTaskGroup> criticalPath = Collections.emptyList();
+
   private UUID userTaskUUID;
 
   public SubTaskGroupQueue(UUID userTaskUUID) {
@@ -23,45 +59,238 @@ public class SubTaskGroupQueue {
   }
 
   /**
-   * Add a task list to this sequence.
+   * Add a task list to this sequence. It runs after all the task lists added before it.
    */
   public boolean add(SubTaskGroup subTaskGroup) {
+    return add(subTaskGroup, new ArrayList<>(lastGroups));
+  }
+
+  /**
+   * Add a task list that runs once the given task lists are done, in parallel with the other task
+   * lists that are ready to run.
+   *
+   * @param subTaskGroup the task list to add.
+   * @param dependsOn the task lists, already in the queue, to wait for. If empty, the task list
+   *                  runs right away.
+   */
+  public boolean add(SubTaskGroup subTaskGroup, Collection<SubTaskGroup> dependsOn) {
+    checkDependencies(subTaskGroups.size(), dependsOn);
     subTaskGroup.setTaskContext(subTaskGroups.size(), userTaskUUID);
+    dependencies.put(subTaskGroup, new ArrayList<>(dependsOn));
+    lastGroups.removeAll(dependsOn);
+    lastGroups.add(subTaskGroup);
     return subTaskGroups.add(subTaskGroup);
   }
 
   /**
-   * Execute the sequence of task lists in a sequential manner.
+   * Replaces the task lists a task list already in the queue waits for, for the task lists that
+   * the create helpers add in sequence but that do not need to run in sequence. The task lists
+   * added afterwards with add(group) still wait for it. Does nothing if the task list is not in
+   * the queue, as the helpers skip adding the task lists that have nothing to do.
+   *
+   * @param subTaskGroup the task list to change.
+   * @param dependsOn the task lists, added before it, to wait for.
+   */
+  public void setDependencies(SubTaskGroup subTaskGroup, Collection<SubTaskGroup> dependsOn) {
+    int index = subTaskGroups.indexOf(subTaskGroup);
+    if (index < 0) {
+      return;
+    }
+    checkDependencies(index, dependsOn);
+    dependencies.put(subTaskGroup, new ArrayList<>(dependsOn));
+    lastGroups.clear();
+    lastGroups.addAll(subTaskGroups);
+    for (List<SubTaskGroup> groupDependencies : dependencies.values()) {
+      lastGroups.removeAll(groupDependencies);
+    }
+  }
+
+  // Only the groups added before a group can be its dependencies, so the groups cannot form a
+  // cycle.
+  private void checkDependencies(int index, Collection<SubTaskGroup> dependsOn) {
+    for (SubTaskGroup dependency : dependsOn) {
+      int dependencyIndex = subTaskGroups.indexOf(dependency);
+      if (dependencyIndex < 0 || dependencyIndex >= index) {
+        throw new IllegalArgumentException("SubTaskGroup " + dependency.getName() +
+            " should be added to the queue before the groups depending on it.");
+      }
+    }
+  }
+
+  @VisibleForTesting
+  List<SubTaskGroup> getCriticalPath() {
+    return criticalPath;
+  }
+
+  /**
+   * Execute the task lists, each one as soon as the task lists it depends on are done. If a task
+   * list fails, the ones not started yet are not run, unless it ignores errors.
    */
   public void run() {
-    boolean runSuccess = true;
+    Map<SubTaskGroup, GroupRun> runs = new IdentityHashMap<>();
+    for (SubTaskGroup subTaskGroup : subTaskGroups) {
+      runs.put(subTaskGroup, new GroupRun(subTaskGroup));
+    }
+    Deque<GroupRun> readyRuns = new ArrayDeque<>();
     for (SubTaskGroup subTaskGroup : subTaskGroups) {
+      GroupRun groupRun = runs.get(subTaskGroup);
+      for (SubTaskGroup dependency : dependencies.get(subTaskGroup)) {
+        groupRun.dependencies.add(runs.get(dependency));
+        runs.get(dependency).dependents.add(groupRun);
+      }
+    }
+    // Start the ready groups in the order they were added.
+    for (SubTaskGroup subTaskGroup : subTaskGroups) {
+      if (dependencies.get(subTaskGroup).isEmpty()) {
+        readyRuns.add(runs.get(subTaskGroup));
+      }
+    }
+
+    BlockingQueue<GroupRun> doneRuns = new LinkedBlockingQueue<>();
+    boolean runSuccess = true;
+    Throwable failure = null;
+    int numRunning = 0;
+    while (true) {
+      while (failure == null && !readyRuns.isEmpty()) {
+        GroupRun groupRun = readyRuns.poll();
+        SubTaskGroup subTaskGroup = groupRun.subTaskGroup;
+        subTaskGroup.setUserSubTaskState(TaskInfo.State.Running);
+        groupRun.startNanos = System.nanoTime();
+        try {
+          subTaskGroup.run();
+          subTaskGroup.whenDone().thenRun(() -> doneRuns.add(groupRun));
+          numRunning++;
+        } catch (Throwable t) {
+          // Update task state to failure
+          groupRun.endNanos = System.nanoTime();
+          subTaskGroup.setUserSubTaskState(TaskInfo.State.Failure);
+          runSuccess = false;
+          if (!subTaskGroup.ignoreErrors) {
+            failure = t;
+          } else {
+            readyRuns.addAll(groupRun.onDone());
+          }
+        }
+      }
+      if (numRunning == 0) {
+        break;
+      }
+
+      GroupRun groupRun;
+      try {
+        groupRun = doneRuns.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while running the subTaskGroups.", e);
+      }
+      numRunning--;
+      SubTaskGroup subTaskGroup = groupRun.subTaskGroup;
       boolean subTaskGroupSuccess = false;
-      subTaskGroup.setUserSubTaskState(TaskInfo.State.Running);
+      Throwable waitError = null;
       try {
-        subTaskGroup.run();
         subTaskGroupSuccess = subTaskGroup.waitFor();
       } catch (Throwable t) {
-        // Update task state to failure
-        subTaskGroup.setUserSubTaskState(TaskInfo.State.Failure);
-        if (!subTaskGroup.ignoreErrors) {
-          throw t;
-        }
+        LOG.error("SubTaskGroup '{}' waitFor() failed.", subTaskGroup.toString(), t);
+        waitError = t;
       }
+      groupRun.endNanos = System.nanoTime();
+      groupDuration.labels(subTaskGroup.getSubTaskGroupType().name())
+          .observe(groupRun.getDurationMs() / 1000.0);
 
       if (!subTaskGroupSuccess) {
         LOG.error("SubTaskGroup '{}' waitFor() returned failed status.", subTaskGroup.toString());
         subTaskGroup.setUserSubTaskState(TaskInfo.State.Failure);
+        runSuccess = false;
         if (!subTaskGroup.ignoreErrors) {
-          throw new RuntimeException(subTaskGroup.toString() + " failed.");
+          if (failure == null) {
+            failure = waitError != null ? waitError :
+                new RuntimeException(subTaskGroup.toString() + " failed.");
+          }
+          continue;
         }
+      } else {
+        subTaskGroup.setUserSubTaskState(TaskInfo.State.Success);
       }
+      readyRuns.addAll(groupRun.onDone());
+    }
 
-      runSuccess = runSuccess && subTaskGroupSuccess;
+    logCriticalPath(runs.values());
+    if (failure != null) {
+      Throwables.throwIfUnchecked(failure);
+      throw new RuntimeException(failure);
+    }
+    if (!runSuccess) throw new RuntimeException("One or more subTaskGroups failed while running.");
+  }
 
-      if (subTaskGroupSuccess) subTaskGroup.setUserSubTaskState(TaskInfo.State.Success);
+  // Logs the chain of groups that the run waited for the longest, ending with the group that
+  // finished last: speeding up the other groups would not make the task any faster.
+  private void logCriticalPath(Collection<GroupRun> groupRuns) {
+    GroupRun last = null;
+    for (GroupRun groupRun : groupRuns) {
+      if (groupRun.endNanos != 0 && (last == null || groupRun.endNanos > last.endNanos)) {
+        last = groupRun;
+      }
+    }
+    if (last == null) {
+      criticalPath = Collections.emptyList();
+      return;
     }
+    Deque<GroupRun> path = new ArrayDeque<>();
+    for (GroupRun groupRun = last; groupRun != null; groupRun = groupRun.lastDependency()) {
+      path.addFirst(groupRun);
+    }
+    List<SubTaskGroup> pathGroups = new ArrayList<>();
+    StringBuilder sb = new StringBuilder();
+    for (GroupRun groupRun : path) {
+      pathGroups.add(groupRun.subTaskGroup);
+      if (sb.length() > 0) {
+        sb.append(" -> ");
+      }
+      sb.append(groupRun.subTaskGroup.getName()).append(" (")
+          .append(groupRun.getDurationMs()).append(" ms)");
+    }
+    criticalPath = pathGroups;
+    LOG.info("Critical path of task {}: {}, total {} ms.", userTaskUUID, sb,
+        TimeUnit.NANOSECONDS.toMillis(last.endNanos - path.getFirst().startNanos));
+  }
 
-    if (!runSuccess) throw new RuntimeException("One or more subTaskGroups failed while running.");
+  // The state of a group during a run, accessed only by the thread running the queue.
+  private static class GroupRun {
+    final SubTaskGroup subTaskGroup;
+    final List<GroupRun> dependencies = new ArrayList<>();
+    final List<GroupRun> dependents = new ArrayList<>();
+    int numDependenciesDone = 0;
+    long startNanos = 0;
+    long endNanos = 0;
+
+    GroupRun(SubTaskGroup subTaskGroup) {
+      this.subTaskGroup = subTaskGroup;
+    }
+
+    // Returns the dependents that became ready to run.
+    List<GroupRun> onDone() {
+      List<GroupRun> ready = new ArrayList<>();
+      for (GroupRun dependent : dependents) {
+        if (++dependent.numDependenciesDone == dependent.dependencies.size()) {
+          ready.add(dependent);
+        }
+      }
+      return ready;
+    }
+
+    // The dependency that finished last, the one that held this group back.
+    GroupRun lastDependency() {
+      GroupRun last = null;
+      for (GroupRun dependency : dependencies) {
+        if (last == null || dependency.endNanos > last.endNanos) {
+          last = dependency;
+        }
+      }
+      return last;
+    }
+
+    long getDurationMs() {
+      return TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos);
+    }
   }
 }
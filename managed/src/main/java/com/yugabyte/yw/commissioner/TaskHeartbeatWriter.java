@@ -0,0 +1,55 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.commissioner;
+
+import java.util.Collection;
+import java.util.UUID;
+
+import com.yugabyte.yw.models.TaskInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
+
+/**
+ * Writes the heartbeats of all the live tasks owned by this process as one batched update, instead
+ * of saving each task individually.
+ */
+public class TaskHeartbeatWriter {
+
+  public static final Logger LOG = LoggerFactory.getLogger(TaskHeartbeatWriter.class);
+
+  private static final Gauge batchSize = Gauge.build(
+      "yb_task_heartbeat_batch_size", "Number of tasks in the last heartbeat batch").register();
+
+  private static final Histogram writeLatency = Histogram.build(
+      "yb_task_heartbeat_write_latency_seconds", "Latency of a batched task heartbeat write")
+      .register();
+
+  /**
+   * Heartbeats the given tasks.
+   *
+   * @param taskUUIDs the live tasks to heartbeat.
+   * @return true if the heartbeat was written.
+   */
+  public boolean write(Collection<UUID> taskUUIDs) {
+    batchSize.set(taskUUIDs.size());
+    if (taskUUIDs.isEmpty()) {
+      return true;
+    }
+    Histogram.Timer timer = writeLatency.startTimer();
+    try {
+      int numUpdated = TaskInfo.updateHeartbeats(taskUUIDs);
+      if (numUpdated != taskUUIDs.size()) {
+        LOG.warn("Heartbeat updated {} of {} tasks.", numUpdated, taskUUIDs.size());
+      }
+      return true;
+    } catch (Exception e) {
+      LOG.error("Error writing heartbeat for " + taskUUIDs.size() + " tasks", e);
+      return false;
+    } finally {
+      timer.observeDuration();
+    }
+  }
+}
@@ -2,8 +2,6 @@
 
 package com.yugabyte.yw.commissioner;
 
-import java.net.InetAddress;
-import java.net.UnknownHostException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -15,6 +13,7 @@ import com.yugabyte.yw.models.CustomerTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.yugabyte.yw.common.Util;
 import com.yugabyte.yw.forms.ITaskParams;
 import com.yugabyte.yw.models.TaskInfo;
 
@@ -91,13 +90,7 @@ public class TaskRunner implements Runnable {
     // Set the task details.
     taskInfo.setTaskDetails(task.getTaskDetails());
     // Set the owner info.
-    String hostname = "";
-    try {
-      hostname = InetAddress.getLocalHost().getHostName();
-    } catch (UnknownHostException e) {
-      LOG.error("Could not determine the hostname", e);
-    }
-    taskInfo.setOwner(hostname);
+    taskInfo.setOwner(Util.getHostname());
   }
 
   public UUID getTaskUUID() {
@@ -123,16 +116,6 @@ public class TaskRunner implements Runnable {
     return taskInfo.getTaskState() == TaskInfo.State.Failure;
   }
 
-  /**
-   * This method does two things. First, it updates the timestamp on the task to indicate progress.
-   * Second, it gives the underlying task to checkpoint its work if needed.
-   */
-  public void doHeartbeat() {
-    // Set the last updated timestamp of the task to now by force saving it.
-    taskInfo.markAsDirty();
-    taskInfo.save();
-  }
-
   @Override
   public void run() {
     LOG.info("Running task");
@@ -10,6 +10,9 @@
 
 package com.yugabyte.yw.commissioner.tasks;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 import org.slf4j.Logger;
@@ -113,24 +116,34 @@ public class CreateUniverse extends UniverseDefinitionTaskBase {
       }
 
       // Wait for a master leader to hear from all the tservers.
-      createWaitForTServerHeartBeatsTask()
-          .setSubTaskGroupType(SubTaskGroupType.ConfigureUniverse);
+      SubTaskGroup heartBeatsTask = createWaitForTServerHeartBeatsTask();
+      heartBeatsTask.setSubTaskGroupType(SubTaskGroupType.ConfigureUniverse);
+
+      // The swamper target file, the redis table and the DNS entry do not depend on each other,
+      // so they are set up in parallel once the tservers are up.
+      List<SubTaskGroup> configureTasks = new ArrayList<>();
 
       // Update the swamper target file.
-      createSwamperTargetUpdateTask(false /* removeFile */);
+      configureTasks.add(createSwamperTargetUpdateTask(false /* removeFile */));
 
       if (primaryCluster.userIntent.enableYEDIS) {
         // Create a simple redis table.
-        createTableTask(Common.TableType.REDIS_TABLE_TYPE, YBClient.REDIS_DEFAULT_TABLE_NAME, null)
-            .setSubTaskGroupType(SubTaskGroupType.ConfigureUniverse);
+        SubTaskGroup tableTask = createTableTask(Common.TableType.REDIS_TABLE_TYPE,
+            YBClient.REDIS_DEFAULT_TABLE_NAME, null);
+        tableTask.setSubTaskGroupType(SubTaskGroupType.ConfigureUniverse);
+        configureTasks.add(tableTask);
       }
 
       // Update the DNS entry for all the nodes once, using the primary cluster type.
-      createDnsManipulationTask(DnsManager.DnsCommandType.Create, false,
-                                primaryCluster.userIntent.providerType,
-                                primaryCluster.userIntent.provider,
-                                primaryCluster.userIntent.universeName)
-          .setSubTaskGroupType(SubTaskGroupType.ConfigureUniverse);
+      SubTaskGroup dnsTask = createDnsManipulationTask(DnsManager.DnsCommandType.Create, false,
+          primaryCluster.userIntent.providerType, primaryCluster.userIntent.provider,
+          primaryCluster.userIntent.universeName);
+      dnsTask.setSubTaskGroupType(SubTaskGroupType.ConfigureUniverse);
+      configureTasks.add(dnsTask);
+
+      for (SubTaskGroup configureTask : configureTasks) {
+        subTaskGroupQueue.setDependencies(configureTask, Collections.singletonList(heartBeatsTask));
+      }
 
       // Marks the update of this universe as a success only if all the tasks before it succeeded.
       createMarkUniverseUpdateSuccessTasks()
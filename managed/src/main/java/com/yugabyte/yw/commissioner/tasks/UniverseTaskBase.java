@@ -188,6 +188,12 @@ public abstract class UniverseTaskBase extends AbstractTaskBase {
     return super.getName() + "(" + taskParams().universeUUID + ")";
   }
 
+  // The tasks of a universe share its subtask concurrency limit.
+  @Override
+  protected Object getSubTaskGroupKey() {
+    return taskParams().universeUUID;
+  }
+
   /**
    * Locks the universe for updates by setting the 'updateInProgress' flag. If the universe is
    * already being modified, then throws an exception.
@@ -456,8 +462,9 @@ public abstract class UniverseTaskBase extends AbstractTaskBase {
    * Create a task to update the swamper target file
    *
    * @param removeFile, flag to state if we want to remove the swamper or not
+   * @return subtask group
    */
-  public void createSwamperTargetUpdateTask(boolean removeFile) {
+  public SubTaskGroup createSwamperTargetUpdateTask(boolean removeFile) {
     SubTaskGroup subTaskGroup = new SubTaskGroup("SwamperTargetFileUpdate", executor);
     SwamperTargetsFileUpdate.Params params = new SwamperTargetsFileUpdate.Params();
     SwamperTargetsFileUpdate task = new SwamperTargetsFileUpdate();
@@ -467,6 +474,7 @@ public abstract class UniverseTaskBase extends AbstractTaskBase {
     subTaskGroup.setSubTaskGroupType(SubTaskGroupType.ConfigureUniverse);
     subTaskGroup.addTask(task);
     subTaskGroupQueue.add(subTaskGroup);
+    return subTaskGroup;
   }
 
   /**
@@ -531,6 +539,8 @@ public abstract class UniverseTaskBase extends AbstractTaskBase {
       task.initialize(params);
       subTaskGroup.addTask(task);
     }
+    // The waits only check the servers, the others need not finish once one of them failed.
+    subTaskGroup.setCancelOnFailure(true);
     subTaskGroupQueue.add(subTaskGroup);
     return subTaskGroup;
   }
@@ -1051,7 +1061,11 @@ public abstract class UniverseTaskBase extends AbstractTaskBase {
 
     HostAndPort hp = HostAndPort.fromParts(node.cloudInfo.private_ip,
         server == ServerType.MASTER ? node.masterRpcPort : node.tserverRpcPort);
-    return client.waitForServer(hp, 5000);
+    try {
+      return client.waitForServer(hp, 5000);
+    } finally {
+      ybService.closeClient(client, masterAddrs);
+    }
   }
 
   public boolean isMasterAliveOnNode(NodeDetails node, String masterAddrs) {
@@ -37,6 +37,8 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 public class KubernetesWaitForPod extends AbstractTaskBase {
@@ -64,6 +66,9 @@ public class KubernetesWaitForPod extends AbstractTaskBase {
   // Time to sleep on each iteration of the pod to come up.
   private static final int SLEEP_TIME = 10;
 
+  // Number of times the pod status was checked.
+  private int iters = 0;
+
   @Override
   public void initialize(ITaskParams params) {
     this.kubernetesManager = Play.current().injector().instanceOf(KubernetesManager.class);
@@ -88,28 +93,32 @@ public class KubernetesWaitForPod extends AbstractTaskBase {
 
   @Override
   public void run() {
+    join(runAsync(Runnable::run));
+  }
+
+  @Override
+  public CompletableFuture<Void> runAsync(Executor executor) {
     // TODO: add checks for the shell process handler return values.
     switch (taskParams().commandType) {
       case WAIT_FOR_POD:
-        int iters = 0;
-        String status;
-        do {
-          status = waitForPod();
-          iters++;
-          if (status.equals("Running")) {
-            break;
-          }
-          try {
-            TimeUnit.SECONDS.sleep(SLEEP_TIME);
-          } catch (InterruptedException ex) {
-            // Do nothing
-          }
-        } while (!status.equals("Running") && iters < MAX_ITERS);
-        if (iters > MAX_ITERS) {
-          throw new RuntimeException("Pod " + taskParams().podName + " creation taking too long.");
-        }
-        break;
+        // Poll every SLEEP_TIME seconds, without holding a thread in between.
+        long sleepMs = TimeUnit.SECONDS.toMillis(SLEEP_TIME);
+        return startWaitAsync(
+            () -> waitFor(this::isPodRunning, sleepMs, sleepMs, 0 /* timeoutMs */), executor);
+    }
+    return CompletableFuture.completedFuture(null);
+  }
+
+  private boolean isPodRunning() {
+    String status = waitForPod();
+    iters++;
+    if (status.equals("Running")) {
+      return true;
+    }
+    if (iters >= MAX_ITERS) {
+      throw new RuntimeException("Pod " + taskParams().podName + " creation taking too long.");
     }
+    return false;
   }
 
   // Waits for pods as well as the containers inside the pod.
@@ -23,21 +23,31 @@ import com.yugabyte.yw.models.Universe;
 
 import play.api.Play;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 public class WaitForDataMove extends AbstractTaskBase {
   public static final Logger LOG = LoggerFactory.getLogger(WaitForDataMove.class);
 
   // The YB client to use.
   private YBClientService ybService;
 
-  // Time to wait (in millisec) during each iteration of load move completion check.
+  // Time to wait (in millisec) after the first load move completion check.
   private static final int WAIT_EACH_ATTEMPT_MS = 100;
 
+  // The wait between two checks backs off up to this many millisecs.
+  private static final int MAX_WAIT_EACH_ATTEMPT_MS = 2000;
+
   // Number of response errors to tolerate.
   private static final int MAX_ERRORS_TO_IGNORE = 128;
 
   // Log after these many iterations
   private static final int LOG_EVERY_NUM_ITERS = 100;
 
+  // Progress of the wait, only touched by one poll at a time.
+  private int numErrors = 0;
+  private int numIters = 0;
+
   // Parameters for data move wait task.
   public static class Params extends UniverseTaskParams { }
 
@@ -53,60 +63,66 @@ public class WaitForDataMove extends AbstractTaskBase {
 
   @Override
   public void run() {
-    String errorMsg = null;
-    YBClient client = null;
-    int numErrors = 0;
-    double percent = 0;
-    int numIters = 0;
+    join(runAsync(Runnable::run));
+  }
+
+  @Override
+  public CompletableFuture<Void> runAsync(Executor executor) {
+    return startWaitAsync(this::waitForDataMove, executor);
+  }
+
+  private CompletableFuture<Void> waitForDataMove() {
     // Get the master addresses and certificate info.
     Universe universe = Universe.get(taskParams().universeUUID);
     String masterAddresses = universe.getMasterAddresses();
     String certificate = universe.getCertificate();
     LOG.info("Running {} on masterAddress = {}.", getName(), masterAddresses);
 
+    YBClient client = ybService.getClient(masterAddresses, certificate);
+    CompletableFuture<Void> wait;
     try {
-
-      client = ybService.getClient(masterAddresses, certificate);
       LOG.info("Leader Master UUID={}.", client.getLeaderMasterUUID());
-
       // TODO: Have a mechanism to send this percent to the parent task completion.
-      while (percent < (double)100) {
-        GetLoadMovePercentResponse response = client.getLoadMoveCompletion();
-
-        if (response.hasError()) {
-          LOG.warn("{} response has error {}.", getName(), response.errorMessage());
-          numErrors++;
-          // If there are more than the threshold of response errors, bail out.
-          if (numErrors >= MAX_ERRORS_TO_IGNORE) {
-            errorMsg = getName() + ": hit too many errors during data move completion wait.";
-            break;
-          }
-          Thread.sleep(WAIT_EACH_ATTEMPT_MS);
-          continue;
-        }
-
-        percent = response.getPercentCompleted();
-        // No need to wait if completed (as in, percent == 100).
-        if (percent < (double)100) {
-          Thread.sleep(WAIT_EACH_ATTEMPT_MS);
-        }
-
-        numIters++;
-        if (numIters % LOG_EVERY_NUM_ITERS == 0) {
-          LOG.info("Info: iters={}, percent={}, numErrors={}.", numIters, percent, numErrors);
-        }
-        // For now, we wait until load moves out fully. TODO: Add an overall timeout as needed.
-      }
+      // For now, we wait until load moves out fully. TODO: Add an overall timeout as needed.
+      wait = waitFor(() -> isDataMoveDone(client), WAIT_EACH_ATTEMPT_MS, MAX_WAIT_EACH_ATTEMPT_MS,
+                     0 /* timeoutMs */);
     } catch (Exception e) {
+      ybService.closeClient(client, masterAddresses);
       LOG.error("{} hit error {}.", getName(), e.getMessage(), e);
       throw new RuntimeException(getName() + " hit error: " , e);
-    } finally {
-      ybService.closeClient(client, masterAddresses);
+    }
+    // The wait itself is returned, so that cancelling it stops the polling and releases the client.
+    wait.whenComplete((v, t) -> ybService.closeClient(client, masterAddresses));
+    return wait;
+  }
+
+  private boolean isDataMoveDone(YBClient client) {
+    GetLoadMovePercentResponse response;
+    try {
+      response = client.getLoadMoveCompletion();
+    } catch (Exception e) {
+      LOG.error("{} hit error {}.", getName(), e.getMessage(), e);
+      throw new RuntimeException(getName() + " hit error: " , e);
+    }
+
+    if (response.hasError()) {
+      LOG.warn("{} response has error {}.", getName(), response.errorMessage());
+      numErrors++;
+      // If there are more than the threshold of response errors, bail out.
+      if (numErrors >= MAX_ERRORS_TO_IGNORE) {
+        String errorMsg = getName() + ": hit too many errors during data move completion wait.";
+        LOG.error(errorMsg);
+        throw new RuntimeException(errorMsg);
+      }
+      return false;
     }
 
-    if (errorMsg != null) {
-      LOG.error(errorMsg);
-      throw new RuntimeException(errorMsg);
+    double percent = response.getPercentCompleted();
+    numIters++;
+    if (numIters % LOG_EVERY_NUM_ITERS == 0) {
+      LOG.info("Info: iters={}, percent={}, numErrors={}.", numIters, percent, numErrors);
     }
+    // No need to wait if completed (as in, percent == 100).
+    return percent >= (double)100;
   }
 }
@@ -63,19 +63,26 @@ public class ShellProcessHandler {
 
         File tempOutputFile = null;
         File tempErrorFile = null;
+        Process process = null;
         try {
             tempOutputFile = File.createTempFile("shell_process_out", "tmp");
             tempErrorFile = File.createTempFile("shell_process_err", "tmp");
             pb.redirectOutput(tempOutputFile);
             pb.redirectError(tempErrorFile);
-            Process process = pb.start();
+            process = pb.start();
             response.code = process.waitFor();
             String processOutput = fetchStream(new FileInputStream(tempOutputFile), logCmdOutput);
             String processError = fetchStream(new FileInputStream(tempErrorFile), logCmdOutput);
             response.message = (response.code == 0) ? processOutput : processError;
-        } catch (IOException | InterruptedException e) {
+        } catch (IOException e) {
             LOG.error(e.getMessage());
             response.message = e.getMessage();
+        } catch (InterruptedException e) {
+            // The caller gave up on the command, so don't leave the process running.
+            LOG.error("Interrupted while waiting for command " + command.get(0));
+            process.destroyForcibly();
+            response.message = "Interrupted while waiting for command";
+            Thread.currentThread().interrupt();
         } finally {
             if (tempOutputFile != null && tempOutputFile.exists()) {
                 tempOutputFile.delete();
@@ -19,9 +19,11 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.UnknownHostException;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.text.SimpleDateFormat;
@@ -34,6 +36,27 @@ import static com.yugabyte.yw.common.PlacementInfoUtil.getNumMasters;
 public class Util {
   public static final Logger LOG = LoggerFactory.getLogger(Util.class);
 
+  // The name of this host, resolved on first use.
+  private static volatile String hostname = null;
+
+  /**
+   * Returns the name of this host, used to record the owner of the tasks. It is resolved once,
+   * since resolving it can take a DNS lookup.
+   *
+   * @return the hostname, or an empty string if it could not be determined.
+   */
+  public static String getHostname() {
+    if (hostname == null) {
+      try {
+        hostname = InetAddress.getLocalHost().getHostName();
+      } catch (UnknownHostException e) {
+        LOG.error("Could not determine the hostname", e);
+        return "";
+      }
+    }
+    return hostname;
+  }
+
   /**
    * Convert a list of {@link HostAndPort} objects to a comma separate string.
    *
@@ -91,7 +114,7 @@ public class Util {
    * Returns a list of Inet address objects in the proxy tier. This is needed by Cassandra clients.
    */
   public static List<InetSocketAddress> getNodesAsInet(UUID universeUUID) {
-    Universe universe = Universe.get(universeUUID);
+    Universe universe = Universe.getReadOnly(universeUUID);
     List<InetSocketAddress> inetAddrs = new ArrayList<>();
     for (String address : universe.getYQLServerAddresses().split(",")) {
       String[] splitAddress = address.split(":");
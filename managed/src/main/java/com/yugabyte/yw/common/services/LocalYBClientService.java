@@ -2,17 +2,103 @@
 
 package com.yugabyte.yw.common.services;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import org.yb.client.ClientMetrics;
 import org.yb.client.YBClient;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+
+import play.Configuration;
+
+/**
+ * Keeps a pool of long-lived YBClient instances keyed by the set of master addresses and the
+ * certificate file. Each client is reference counted: getClient acquires a reference and
+ * closeClient releases it. A client with no references is kept around for reuse and is only
+ * closed once it has been idle for longer than yb.client.pool_idle_timeout_ms. When the masters
+ * of a universe change the new address set maps to a new key, so a fresh client gets built and
+ * the stale one ages out of the pool. The idle clients are also swept periodically, so that a
+ * master set nobody asks for anymore does not keep its client threads forever.
+ */
 @Singleton
 public class LocalYBClientService implements YBClientService {
   public static final Logger LOG = LoggerFactory.getLogger(LocalYBClientService.class);
 
+  // Default time an unreferenced client stays in the pool: 10 minutes.
+  private static final long DEFAULT_IDLE_TIMEOUT_MS = 600000;
+
+  // Bounds on how often the idle clients are swept, which is otherwise once per idle timeout.
+  private static final long MIN_SWEEP_INTERVAL_MS = 1000;
+  private static final long MAX_SWEEP_INTERVAL_MS = 60000;
+
+  // Sweeps the idle clients of the pools, which only hold plain references to their clients.
+  private static final ScheduledExecutorService sweepScheduler =
+      Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+          .setNameFormat("YBClientPoolSweep-%d").setDaemon(true).build());
+
+  private static final Counter poolHits = Counter.build(
+      "yb_client_pool_hits", "Number of YBClient requests served from the pool").register();
+
+  private static final Counter poolMisses = Counter.build(
+      "yb_client_pool_misses", "Number of YBClient requests that built a new client").register();
+
+  private static final Counter poolEvictions = Counter.build(
+      "yb_client_pool_evictions", "Number of idle YBClient instances closed").register();
+
+  private static final Gauge poolSize = Gauge.build(
+      "yb_client_pool_size", "Number of YBClient instances in the pool").register();
+
+  private final long idleTimeoutMs;
+
+  private final boolean metricsEnabled;
+
+  private final Map<ClientKey, PooledClient> clientPool = new HashMap<>();
+
+  // Reverse lookup, since callers release a client without handing back the certificate.
+  private final Map<YBClient, PooledClient> clientToEntry = new IdentityHashMap<>();
+
+  @Inject
+  public LocalYBClientService(Configuration config) {
+    Long idleTimeout = config.getLong("yb.client.pool_idle_timeout_ms");
+    this.idleTimeoutMs = idleTimeout == null ? DEFAULT_IDLE_TIMEOUT_MS : idleTimeout;
+    Boolean metricsEnabled = config.getBoolean("yb.client.metrics_enabled");
+    this.metricsEnabled = metricsEnabled == null || metricsEnabled;
+    if (this.metricsEnabled) {
+      try {
+        new YBClientMetricsCollector(this::getMetricsSnapshots)
+            .register(CollectorRegistry.defaultRegistry);
+      } catch (IllegalArgumentException e) {
+        LOG.warn("Failed to register the YBClient metrics collector: " + e.getMessage());
+      }
+    }
+    long sweepIntervalMs = Math.min(Math.max(idleTimeoutMs, MIN_SWEEP_INTERVAL_MS),
+        MAX_SWEEP_INTERVAL_MS);
+    sweepScheduler.scheduleWithFixedDelay(this::sweepIdleClients, sweepIntervalMs,
+        sweepIntervalMs, TimeUnit.MILLISECONDS);
+  }
+
   @Override
   public synchronized YBClient getClient(String masterHostPorts) {
     return getClient(masterHostPorts, null);
@@ -20,30 +106,167 @@ public class LocalYBClientService implements YBClientService {
 
   @Override
   public synchronized YBClient getClient(String masterHostPorts, String certFile) {
-    if (masterHostPorts != null) {
-      return getNewClient(masterHostPorts, certFile);
+    if (masterHostPorts == null) {
+      return null;
+    }
+    evictIdleClients();
+    ClientKey key = new ClientKey(masterHostPorts, certFile);
+    PooledClient entry = clientPool.get(key);
+    if (entry == null) {
+      poolMisses.inc();
+      LOG.info("Creating client masters={}.", masterHostPorts);
+      entry = new PooledClient(key, getNewClient(masterHostPorts, certFile));
+      clientPool.put(key, entry);
+      clientToEntry.put(entry.client, entry);
+      poolSize.set(clientPool.size());
+    } else {
+      poolHits.inc();
     }
-    return null;
+    entry.refCount++;
+    entry.lastUsedMs = System.currentTimeMillis();
+    return entry.client;
   }
 
   @Override
   public synchronized void closeClient(YBClient client, String masterHostPorts) {
-    if (client != null) {
-      LOG.info("Closing client masters={}.", masterHostPorts);
-      try {
-        client.close();
-      } catch (Exception e) {
-        LOG.warn("Closing client with masters={} hit error {}", masterHostPorts, e.getMessage());
-      }
-    } else {
+    if (client == null) {
       LOG.warn("Client for masters {} was null, cannot close", masterHostPorts);
+      return;
+    }
+    PooledClient entry = clientToEntry.get(client);
+    if (entry == null) {
+      // Not one of ours, so nobody else can be sharing it.
+      closeQuietly(client, masterHostPorts);
+      return;
+    }
+    if (entry.refCount > 0) {
+      entry.refCount--;
+    } else {
+      LOG.warn("Client for masters {} released more times than acquired.", masterHostPorts);
+    }
+    entry.lastUsedMs = System.currentTimeMillis();
+    evictIdleClients();
+  }
+
+  /**
+   * Closes every client that has no references and has not been used for the idle timeout.
+   */
+  @VisibleForTesting
+  synchronized void evictIdleClients() {
+    long now = System.currentTimeMillis();
+    List<PooledClient> evicted = new ArrayList<>();
+    Iterator<PooledClient> iter = clientPool.values().iterator();
+    while (iter.hasNext()) {
+      PooledClient entry = iter.next();
+      if (entry.refCount == 0 && now - entry.lastUsedMs >= idleTimeoutMs) {
+        iter.remove();
+        clientToEntry.remove(entry.client);
+        evicted.add(entry);
+      }
+    }
+    if (evicted.isEmpty()) {
+      return;
+    }
+    poolSize.set(clientPool.size());
+    for (PooledClient entry : evicted) {
+      poolEvictions.inc();
+      closeQuietly(entry.client, entry.key.masterHostPorts);
+    }
+  }
+
+  // An exception would stop the periodic sweep, so it is only logged.
+  private void sweepIdleClients() {
+    try {
+      evictIdleClients();
+    } catch (Exception e) {
+      LOG.error("Failed to evict the idle YBClient instances.", e);
+    }
+  }
+
+  /**
+   * Returns the RPC metrics of every pooled client, keyed by the masters it connects to.
+   */
+  Map<String, ClientMetrics.Snapshot> getMetricsSnapshots() {
+    List<PooledClient> entries;
+    synchronized (this) {
+      entries = new ArrayList<>(clientPool.values());
+    }
+    // Take the snapshots outside of the lock, since they lock each client's connection cache.
+    Map<String, ClientMetrics.Snapshot> snapshots = new HashMap<>();
+    for (PooledClient entry : entries) {
+      ClientMetrics.Snapshot snapshot = entry.client.getMetricsSnapshot();
+      if (snapshot != null) {
+        String masters = entry.key.normalizedMasters;
+        snapshots.put(entry.key.certFile == null ? masters : masters + " (tls)", snapshot);
+      }
+    }
+    return snapshots;
+  }
+
+  @VisibleForTesting
+  synchronized int getPoolSize() {
+    return clientPool.size();
+  }
+
+  private void closeQuietly(YBClient client, String masterHostPorts) {
+    LOG.info("Closing client masters={}.", masterHostPorts);
+    try {
+      client.close();
+    } catch (Exception e) {
+      LOG.warn("Closing client with masters={} hit error {}", masterHostPorts, e.getMessage());
     }
   }
 
-  private YBClient getNewClient(String masterHPs, String certFile) {
+  @VisibleForTesting
+  YBClient getNewClient(String masterHPs, String certFile) {
     return new YBClient.YBClientBuilder(masterHPs)
                        .defaultAdminOperationTimeoutMs(120000)
                        .sslCertFile(certFile)
+                       .metricsEnabled(metricsEnabled)
                        .build();
   }
+
+  private static class PooledClient {
+    final ClientKey key;
+    final YBClient client;
+    int refCount = 0;
+    long lastUsedMs;
+
+    PooledClient(ClientKey key, YBClient client) {
+      this.key = key;
+      this.client = client;
+    }
+  }
+
+  private static class ClientKey {
+    final String masterHostPorts;
+    final String normalizedMasters;
+    final String certFile;
+
+    ClientKey(String masterHostPorts, String certFile) {
+      this.masterHostPorts = masterHostPorts;
+      // Order of the masters does not matter to the client, so don't let it split the pool.
+      this.normalizedMasters = Arrays.stream(masterHostPorts.split(","))
+                                     .map(String::trim)
+                                     .filter(hp -> !hp.isEmpty())
+                                     .sorted()
+                                     .collect(Collectors.joining(","));
+      this.certFile = certFile;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof ClientKey)) {
+        return false;
+      }
+      ClientKey that = (ClientKey) other;
+      return normalizedMasters.equals(that.normalizedMasters) &&
+             Objects.equals(certFile, that.certFile);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(normalizedMasters, certFile);
+    }
+  }
 }
@@ -0,0 +1,73 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.common.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.yb.client.ClientMetrics;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.CounterMetricFamily;
+import io.prometheus.client.GaugeMetricFamily;
+import io.prometheus.client.SummaryMetricFamily;
+
+/**
+ * Exports the RPC metrics of the pooled YBClient instances to Prometheus, labeled by the masters
+ * each client connects to.
+ */
+public class YBClientMetricsCollector extends Collector {
+
+  private static final List<Double> QUANTILES = Arrays.asList(0.5, 0.9, 0.99, 0.999);
+
+  private final Supplier<Map<String, ClientMetrics.Snapshot>> snapshots;
+
+  /**
+   * @param snapshots returns the metrics of each client, keyed by the masters it connects to.
+   */
+  public YBClientMetricsCollector(Supplier<Map<String, ClientMetrics.Snapshot>> snapshots) {
+    this.snapshots = snapshots;
+  }
+
+  @Override
+  public List<MetricFamilySamples> collect() {
+    SummaryMetricFamily latency = new SummaryMetricFamily("yb_client_rpc_latency_seconds",
+        "Latency of the RPCs sent by YBClient", Arrays.asList("masters", "service", "method"),
+        QUANTILES);
+    CounterMetricFamily retries = new CounterMetricFamily("yb_client_rpc_retries_total",
+        "Number of RPCs retried by YBClient", Arrays.asList("masters", "reason"));
+    GaugeMetricFamily inFlight = new GaugeMetricFamily("yb_client_rpcs_in_flight",
+        "Number of RPCs waiting for a response", Arrays.asList("masters", "server"));
+    CounterMetricFamily masterLookups = new CounterMetricFamily(
+        "yb_client_master_lookups_total", "Number of tablet location lookups sent to the master",
+        Collections.singletonList("masters"));
+
+    for (Map.Entry<String, ClientMetrics.Snapshot> entry : snapshots.get().entrySet()) {
+      String masters = entry.getKey();
+      ClientMetrics.Snapshot snapshot = entry.getValue();
+      for (Map.Entry<String, ClientMetrics.HistogramSnapshot> rpc :
+          snapshot.getRpcLatencies().entrySet()) {
+        // Keys are "service.method", and service names are dotted themselves.
+        int dot = rpc.getKey().lastIndexOf('.');
+        ClientMetrics.HistogramSnapshot histogram = rpc.getValue();
+        List<Double> quantileValues = new ArrayList<>();
+        for (double quantile : QUANTILES) {
+          quantileValues.add(histogram.getValueAtPercentile(quantile * 100) / 1e6);
+        }
+        latency.addMetric(
+            Arrays.asList(masters, rpc.getKey().substring(0, dot), rpc.getKey().substring(dot + 1)),
+            histogram.getCount(), histogram.getSum() / 1e6, quantileValues);
+      }
+      snapshot.getRetries().forEach((reason, count) ->
+          retries.addMetric(Arrays.asList(masters, reason.name()), count));
+      snapshot.getInFlightRpcs().forEach((server, count) ->
+          inFlight.addMetric(Arrays.asList(masters, server), count));
+      masterLookups.addMetric(Collections.singletonList(masters), snapshot.getMasterLookups());
+    }
+    return Arrays.asList(latency, retries, inFlight, masterLookups);
+  }
+}
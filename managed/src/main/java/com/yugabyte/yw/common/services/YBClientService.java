@@ -4,8 +4,31 @@ package com.yugabyte.yw.common.services;
 
 import org.yb.client.YBClient;
 
+/**
+ * Hands out YBClient instances for a set of masters. Clients may be shared between callers, so a
+ * caller must not close the returned client itself: every getClient call has to be paired with a
+ * closeClient call once the caller is done with it.
+ */
 public interface YBClientService {
+  /**
+   * Acquires a client for the given masters.
+   * @param masterHostPorts comma-separated list of "host:port" pairs of the masters
+   * @return a client, or null if masterHostPorts is null
+   */
   YBClient getClient(String masterHostPorts);
+
+  /**
+   * Acquires a client for the given masters, using the given certificate for TLS.
+   * @param masterHostPorts comma-separated list of "host:port" pairs of the masters
+   * @param certFile path to the root certificate, or null if TLS is not enabled
+   * @return a client, or null if masterHostPorts is null
+   */
   YBClient getClient(String masterHostPorts, String certFile);
+
+  /**
+   * Releases a client previously returned by getClient.
+   * @param client the client to release
+   * @param masterHostPorts the masters the client was acquired for, used for logging
+   */
   void closeClient(YBClient client, String masterHostPorts);
 }
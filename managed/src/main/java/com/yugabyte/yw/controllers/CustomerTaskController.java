@@ -34,6 +34,7 @@ public class CustomerTaskController extends AuthenticatedController {
   Commissioner commissioner;
 
   protected static final int TASK_HISTORY_LIMIT = 6;
+  protected static final int TASK_PAGE_MAX_LIMIT = 500;
   public static final Logger LOG = LoggerFactory.getLogger(CustomerTaskController.class);
 
   private List<SubTaskFormData> fetchFailedSubTasks(UUID parentUUID) {
@@ -56,6 +57,58 @@ public class CustomerTaskController extends AuthenticatedController {
     return subTasks;
   }
 
+  /**
+   * Builds the task history entries of the given tasks with few queries: the completed tasks
+   * carry their own summary, and the state and progress of the others come from one query for
+   * their TaskInfos and one aggregate query over their subtasks, per chunk of tasks.
+   */
+  private List<CustomerTaskFormData> toFormData(List<CustomerTask> tasks) {
+    List<UUID> liveTaskUUIDs = new ArrayList<>();
+    for (CustomerTask task : tasks) {
+      if (task.getTaskState() == null) {
+        liveTaskUUIDs.add(task.getTaskUUID());
+      }
+    }
+    Map<UUID, TaskInfo> liveTaskInfos = new HashMap<>();
+    Map<UUID, Map<TaskInfo.State, Integer>> subTaskStateCounts = new HashMap<>();
+    if (!liveTaskUUIDs.isEmpty()) {
+      for (TaskInfo taskInfo : TaskInfo.getAll(liveTaskUUIDs)) {
+        liveTaskInfos.put(taskInfo.getTaskUUID(), taskInfo);
+      }
+      subTaskStateCounts = TaskInfo.getSubTaskStateCounts(liveTaskUUIDs);
+    }
+
+    List<CustomerTaskFormData> taskList = new ArrayList<>();
+    for (CustomerTask task : tasks) {
+      CustomerTaskFormData taskData = new CustomerTaskFormData();
+      if (task.getTaskState() != null) {
+        taskData.percentComplete = task.getPercentComplete();
+        taskData.status = task.getTaskState().toString();
+      } else {
+        TaskInfo taskInfo = liveTaskInfos.get(task.getTaskUUID());
+        // If the task progress is not available, we will log it and not add that task
+        // to the task list for UI rendering.
+        if (taskInfo == null) {
+          LOG.error("Error fetching Task Progress for " +  task.getTaskUUID() +
+            ", TaskInfo with that taskUUID not found");
+          continue;
+        }
+        taskData.percentComplete = (int) TaskInfo.getPercentCompleted(
+            subTaskStateCounts.get(task.getTaskUUID()));
+        taskData.status = taskInfo.getTaskState().toString();
+      }
+      taskData.id = task.getTaskUUID();
+      taskData.title = task.getFriendlyDescription();
+      taskData.createTime = task.getCreateTime();
+      taskData.completionTime = task.getCompletionTime();
+      taskData.target = task.getTarget().name();
+      taskData.type = task.getType().getFriendlyName();
+      taskData.targetUUID = task.getTargetUUID();
+      taskList.add(taskData);
+    }
+    return taskList;
+  }
+
   private Map<UUID, List<CustomerTaskFormData>> fetchTasks(UUID customerUUID, UUID targetUUID) {
     Query<CustomerTask> customerTaskQuery = CustomerTask.find.query().where()
       .eq("customer_uuid", customerUUID)
@@ -65,42 +118,40 @@ public class CustomerTaskController extends AuthenticatedController {
       customerTaskQuery.where().eq("target_uuid", targetUUID);
     }
 
-    Set<CustomerTask> pendingTasks = customerTaskQuery.findSet();
-
     Map<UUID, List<CustomerTaskFormData>> taskListMap = new HashMap<>();
+    for (CustomerTaskFormData taskData : toFormData(customerTaskQuery.findList())) {
+      taskListMap.computeIfAbsent(taskData.targetUUID, uuid -> new ArrayList<>()).add(taskData);
+    }
+    return taskListMap;
+  }
 
-    for (CustomerTask task : pendingTasks) {
-      try {
-        CustomerTaskFormData taskData = new CustomerTaskFormData();
+  /**
+   * Lists the tasks of a customer page by page, newest first.
+   *
+   * @param limit the maximum number of tasks in the page, capped to TASK_PAGE_MAX_LIMIT.
+   * @param cursor the nextCursor returned with the previous page, or null for the first page.
+   * @param targetUUID only list the tasks of this target, or null for all the targets.
+   */
+  public Result listPage(UUID customerUUID, Integer limit, Long cursor, UUID targetUUID) {
+    Customer customer = Customer.get(customerUUID);
+    if (customer == null) {
+      return ApiResponse.error(BAD_REQUEST, "Invalid Customer UUID: " + customerUUID);
+    }
+    if (limit == null || limit <= 0) {
+      return ApiResponse.error(BAD_REQUEST, "Invalid limit: " + limit);
+    }
 
-        JsonNode taskProgress = commissioner.getStatus(task.getTaskUUID());
-        // If the task progress API returns error, we will log it and not add that task
-        // to the task list for UI rendering.
-        if (taskProgress.has("error")) {
-          LOG.error("Error fetching Task Progress for " + task.getTaskUUID() +
-            ", Error: " + taskProgress.get("error"));
-        } else {
-          taskData.percentComplete = taskProgress.get("percent").asInt();
-          taskData.status = taskProgress.get("status").asText();
-          taskData.id = task.getTaskUUID();
-          taskData.title = task.getFriendlyDescription();
-          taskData.createTime = task.getCreateTime();
-          taskData.completionTime = task.getCompletionTime();
-          taskData.target = task.getTarget().name();
-          taskData.type = task.getType().getFriendlyName();
-          taskData.targetUUID = task.getTargetUUID();
-
-          List<CustomerTaskFormData> taskList = taskListMap.getOrDefault(task.getTargetUUID(),
-            new ArrayList<>());
-          taskList.add(taskData);
-          taskListMap.put(task.getTargetUUID(), taskList);
-        }
-      } catch(RuntimeException e) {
-        LOG.error("Error fetching Task Progress for " +  task.getTaskUUID() +
-          ", TaskInfo with that taskUUID not found");
-      }
+    int pageSize = Math.min(limit, TASK_PAGE_MAX_LIMIT);
+    List<CustomerTask> tasks = CustomerTask.getPage(customerUUID, targetUUID, cursor, pageSize);
+    ObjectNode responseJson = Json.newObject();
+    responseJson.set("tasks", Json.toJson(toFormData(tasks)));
+    // A full page may be followed by more tasks, the cursor resumes after its last one.
+    if (tasks.size() == pageSize) {
+      responseJson.put("nextCursor", tasks.get(tasks.size() - 1).getId());
+    } else {
+      responseJson.putNull("nextCursor");
     }
-    return taskListMap;
+    return ok(responseJson);
   }
 
   public Result list(UUID customerUUID) {
@@ -154,7 +154,6 @@ public class TablesController extends AuthenticatedController {
       client = ybService.getClient(masterAddresses, certificate);
       GetTableSchemaResponse schemaResponse = client.getTableSchemaByUUID(
           tableUUID.toString().replace("-", ""));
-      ybService.closeClient(client, masterAddresses);
       if (schemaResponse == null) {
         String errMsg = "No table for UUID: " + tableUUID;
         LOG.error(errMsg);
@@ -1408,7 +1408,6 @@ public class UniverseController extends AuthenticatedController {
       client = ybService.getClient(hostPorts, certificate);
       ObjectNode result = Json.newObject()
         .put("privateIP", client.getLeaderMasterHostAndPort().getHost());
-      ybService.closeClient(client, hostPorts);
       return ApiResponse.success(result);
     } catch (RuntimeException e) {
       return ApiResponse.error(BAD_REQUEST, e.getMessage());
@@ -1519,12 +1518,12 @@ public class UniverseController extends AuthenticatedController {
       return;
     }
     for (CustomerTask task : existingTasks) {
-      task.markAsCompleted();
       TaskInfo taskInfo = TaskInfo.get(task.getTaskUUID());
       if (taskInfo != null) {
         taskInfo.setTaskState(TaskInfo.State.Failure);
         taskInfo.save();
       }
+      task.markAsCompleted();
     }
   }
 
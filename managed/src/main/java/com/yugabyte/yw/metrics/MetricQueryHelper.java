@@ -6,33 +6,66 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.yugabyte.yw.common.ApiHelper;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import play.libs.Json;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Singleton
 public class MetricQueryHelper {
 
   public static final Logger LOG = LoggerFactory.getLogger(MetricQueryHelper.class);
   public static final Integer STEP_SIZE =  100;
-  public static final Integer QUERY_EXECUTOR_THREAD_POOL = 5;
+  public static final Integer QUERY_EXECUTOR_THREAD_POOL = 20;
+
+  // Idle query threads are released after this many seconds.
+  private static final long THREAD_ALIVE_TIME = 60L;
+
+  // Responses are reused for this long by default.
+  private static final long DEFAULT_CACHE_TTL_MS = 10000;
+
+  private static final long CACHE_MAX_ENTRIES = 1000;
+
+  // Query parameters that hold timestamps, aligned to the step in the cache key.
+  private static final String[] TIME_PARAMS = {"start", "end", "time", "_"};
+
+  private static final Counter cacheHits = Counter.build(
+      "yb_metric_query_cache_hits", "Number of metric queries served from the cache").register();
+
+  private static final Counter cacheMisses = Counter.build(
+      "yb_metric_query_cache_misses", "Number of metric queries sent upstream").register();
+
+  private static final Histogram upstreamLatency = Histogram.build(
+      "yb_metric_query_upstream_latency_seconds", "Latency of metric queries sent upstream")
+      .register();
+
   @Inject
   play.Configuration appConfig;
 
@@ -41,6 +74,12 @@ public class MetricQueryHelper {
 
   @Inject
   YBMetricQueryComponent ybMetricQueryComponent;
+
+  // Shared by all the queries, created on first use.
+  private ExecutorService threadPool;
+
+  private Cache<List<Object>, JsonNode> responseCache;
+
   /**
    * Query prometheus for a given metricType and query params
    * @param params, Query params like start, end timestamps, even filters
@@ -103,21 +142,23 @@ public class MetricQueryHelper {
       return responseJson;
     }
 
-    ExecutorService threadPool = Executors.newFixedThreadPool(QUERY_EXECUTOR_THREAD_POOL);
+    ExecutorService queryPool = getThreadPool();
     Set<Future<JsonNode>> futures = new HashSet<Future<JsonNode>>();
     for (String metricKey : metricKeys) {
-      Map<String, String> queryParams = params;
+      Map<String, String> queryParams = new HashMap<>(params);
       queryParams.put("queryKey", metricKey);
 
+      Map<String, String> metricFilters = new HashMap<>(additionalFilters);
       Map<String, String> specificFilters = filterOverrides.getOrDefault(metricKey, null);
       if (specificFilters != null) {
-        additionalFilters.putAll(specificFilters);
+        metricFilters.putAll(specificFilters);
       }
 
       Callable<JsonNode> callable = new MetricQueryExecutor(appConfig, apiHelper,
-                                                            queryParams, additionalFilters,
+                                                            queryParams, metricFilters,
                                                             ybMetricQueryComponent);
-      Future<JsonNode> future = threadPool.submit(callable);
+      Future<JsonNode> future = queryPool.submit(
+          () -> getCachedResponse(queryParams, metricFilters, callable));
       futures.add(future);
     }
 
@@ -136,10 +177,106 @@ public class MetricQueryHelper {
 
       responseJson.set(response.get("queryKey").asText(), response);
     }
-    threadPool.shutdown();
     return responseJson;
   }
 
+  private synchronized ExecutorService getThreadPool() {
+    if (threadPool == null) {
+      int numThreads = appConfig.getInt("yb.metrics.query_threads", QUERY_EXECUTOR_THREAD_POOL);
+      if (numThreads <= 0) {
+        numThreads = QUERY_EXECUTOR_THREAD_POOL;
+      }
+      ThreadFactory namedThreadFactory =
+          new ThreadFactoryBuilder().setNameFormat("MetricQuery-%d").setDaemon(true).build();
+      ThreadPoolExecutor executor =
+          new ThreadPoolExecutor(numThreads, numThreads, THREAD_ALIVE_TIME, TimeUnit.SECONDS,
+                                 new LinkedBlockingQueue<Runnable>(), namedThreadFactory);
+      executor.allowCoreThreadTimeOut(true);
+      threadPool = executor;
+    }
+    return threadPool;
+  }
+
+  private synchronized Cache<List<Object>, JsonNode> getResponseCache() {
+    if (responseCache == null) {
+      long ttlMs = appConfig.getLong("yb.metrics.cache_ttl_ms", DEFAULT_CACHE_TTL_MS);
+      responseCache = CacheBuilder.newBuilder()
+                                  .expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS)
+                                  .maximumSize(CACHE_MAX_ENTRIES)
+                                  .build();
+    }
+    return responseCache;
+  }
+
+  /**
+   * Runs the query unless an identical one was answered recently. The time range is aligned to
+   * the step, so that viewers refreshing the same graph a few seconds apart share the same
+   * upstream request. Concurrent misses for the same key wait for a single load.
+   */
+  private JsonNode getCachedResponse(Map<String, String> queryParams,
+                                     Map<String, String> filters,
+                                     Callable<JsonNode> query) throws Exception {
+    List<Object> cacheKey = getCacheKey(queryParams, filters);
+    try {
+      boolean[] loaded = {false};
+      JsonNode response = getResponseCache().get(cacheKey, () -> {
+        loaded[0] = true;
+        cacheMisses.inc();
+        Histogram.Timer timer = upstreamLatency.startTimer();
+        try {
+          JsonNode result = query.call();
+          if (result.has("error")) {
+            throw new UncacheableResponseException(result);
+          }
+          return result;
+        } finally {
+          timer.observeDuration();
+        }
+      });
+      if (!loaded[0]) {
+        cacheHits.inc();
+      }
+      return response;
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      if (e.getCause() instanceof UncacheableResponseException) {
+        return ((UncacheableResponseException) e.getCause()).response;
+      }
+      throw e;
+    }
+  }
+
+  private static List<Object> getCacheKey(Map<String, String> queryParams,
+                                          Map<String, String> filters) {
+    Map<String, String> keyParams = new TreeMap<>(queryParams);
+    long step = 1;
+    try {
+      step = Math.max(1, Long.parseLong(queryParams.getOrDefault("step", "1")));
+    } catch (NumberFormatException e) {
+      // Leave the time range unaligned.
+    }
+    for (String timeParam : TIME_PARAMS) {
+      String value = keyParams.get(timeParam);
+      if (value == null) {
+        continue;
+      }
+      try {
+        keyParams.put(timeParam, Long.toString(Long.parseLong(value) / step));
+      } catch (NumberFormatException e) {
+        // Keep the raw value as part of the key.
+      }
+    }
+    return Arrays.asList(keyParams, new TreeMap<>(filters));
+  }
+
+  // Carries an error response out of the cache loader so that it is returned but not cached.
+  private static class UncacheableResponseException extends Exception {
+    final JsonNode response;
+
+    UncacheableResponseException(JsonNode response) {
+      this.response = response;
+    }
+  }
+
 
 
   /**
@@ -3,7 +3,9 @@ package com.yugabyte.yw.metrics;
 
 import com.datastax.driver.core.Cluster;
 import com.datastax.driver.core.JdkSSLOptions;
+import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.SSLOptions;
@@ -12,6 +14,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
@@ -41,9 +44,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NavigableMap;
+import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
@@ -106,8 +113,11 @@ public class YBMetricQueryComponent {
                                                 "\"result\":%s}}";
 
   private static final String METRICS_TABLE = "system.metrics";
-  private static final String QUERY_FORMAT = "select * from %s where metric = '%s' " +
-                                             "and node = '%s' and ts >= %d and ts < %d";
+  private static final String QUERY_FORMAT = "select * from %s where metric = ? " +
+                                             "and node = ? and ts >= ? and ts < ?";
+
+  // Connections to a universe that have not been used for this long are closed.
+  private static final long CONNECTION_IDLE_TIMEOUT_MS = 600000;
 
   // Array of metrics whose values should be retrieved from details column instead of value column.
   private static final List<String> METRICS_WITH_DETAILS_VALUE = Arrays.asList(
@@ -135,29 +145,157 @@ public class YBMetricQueryComponent {
     Average
   }
 
-  private class CassandraConnection {
+  static class CassandraConnection {
+    final List<InetSocketAddress> addresses;
+    final String certificate;
     Cluster cluster = null;
     Session session = null;
+    PreparedStatement selectStatement = null;
+    // The universe the connection is shared in, whose lock guards the fields below.
+    UniverseConnection owner = null;
+    // Number of queries currently using the connection.
+    int refCount = 0;
+    long lastUsedMs = 0;
+    // Set once the connection was replaced, it is closed when the last query releases it.
+    boolean retired = false;
+
+    CassandraConnection(List<InetSocketAddress> addresses, String certificate) {
+      this.addresses = addresses;
+      this.certificate = certificate;
+    }
+
+    void close() {
+      if (session != null) session.closeAsync();
+      if (cluster != null) cluster.closeAsync();
+    }
+  }
+
+  // The connection to a universe. Its lock is only held by the queries on that universe, so a
+  // slow or unreachable universe does not hold up the queries on the others. The entries are
+  // kept once created, so that two threads never lock different entries for the same universe.
+  static class UniverseConnection {
+    final ReentrantLock lock = new ReentrantLock();
+    CassandraConnection connection = null;
   }
 
-  private CassandraConnection createCassandraConnection(UUID universeUUID) {
-    CassandraConnection cc = new CassandraConnection();
-    List<InetSocketAddress> addresses = Util.getNodesAsInet(universeUUID);
+  // Connections to the universes queried so far, reused across queries.
+  private final ConcurrentMap<UUID, UniverseConnection> connections = new ConcurrentHashMap<>();
+
+  @VisibleForTesting
+  long connectionIdleTimeoutMs = CONNECTION_IDLE_TIMEOUT_MS;
+
+  @VisibleForTesting
+  CassandraConnection createCassandraConnection(List<InetSocketAddress> addresses,
+                                                String certificate) {
+    CassandraConnection cc = new CassandraConnection(addresses, certificate);
     if (addresses.isEmpty()) {
       return cc;
     }
     Cluster.Builder builder = Cluster.builder()
                               .addContactPointsWithPorts(addresses);
-    String certificate = Universe.get(universeUUID).getCertificate();
     if (certificate != null) {
       builder.withSSL(SslHelper.getSSLOptions(certificate));
     }
     cc.cluster = builder.build();
 
     cc.session = cc.cluster.connect();
+    cc.selectStatement = cc.session.prepare(String.format(QUERY_FORMAT, METRICS_TABLE));
     return cc;
   }
 
+  @VisibleForTesting
+  List<InetSocketAddress> getNodeAddresses(UUID universeUUID) {
+    return Util.getNodesAsInet(universeUUID);
+  }
+
+  @VisibleForTesting
+  String getCertificate(UUID universeUUID) {
+    return Universe.getReadOnly(universeUUID).getCertificate();
+  }
+
+  /**
+   * Returns a connection to the given universe, reusing the existing one unless the nodes or the
+   * certificate of the universe changed. Every call must be paired with releaseConnection.
+   */
+  @VisibleForTesting
+  CassandraConnection acquireConnection(UUID universeUUID) {
+    closeIdleConnections();
+    List<InetSocketAddress> addresses = getNodeAddresses(universeUUID);
+    String certificate = getCertificate(universeUUID);
+    UniverseConnection uc = connections.computeIfAbsent(universeUUID,
+        uuid -> new UniverseConnection());
+    uc.lock.lock();
+    try {
+      CassandraConnection cc = uc.connection;
+      if (cc != null &&
+          (!cc.addresses.equals(addresses) || !Objects.equals(cc.certificate, certificate))) {
+        uc.connection = null;
+        retireConnection(cc);
+        cc = null;
+      }
+      if (cc == null) {
+        cc = createCassandraConnection(addresses, certificate);
+        if (cc.session == null) {
+          return cc;
+        }
+        cc.owner = uc;
+        uc.connection = cc;
+      }
+      cc.refCount++;
+      cc.lastUsedMs = System.currentTimeMillis();
+      return cc;
+    } finally {
+      uc.lock.unlock();
+    }
+  }
+
+  @VisibleForTesting
+  void releaseConnection(CassandraConnection cc) {
+    if (cc.owner == null) {
+      // The universe had no nodes to connect to.
+      return;
+    }
+    cc.owner.lock.lock();
+    try {
+      if (cc.refCount > 0) {
+        cc.refCount--;
+      }
+      cc.lastUsedMs = System.currentTimeMillis();
+      if (cc.retired && cc.refCount == 0) {
+        cc.close();
+      }
+    } finally {
+      cc.owner.lock.unlock();
+    }
+  }
+
+  // Called with the lock of the universe of the connection held.
+  private void retireConnection(CassandraConnection cc) {
+    cc.retired = true;
+    if (cc.refCount == 0) {
+      cc.close();
+    }
+  }
+
+  private void closeIdleConnections() {
+    long now = System.currentTimeMillis();
+    for (UniverseConnection uc : connections.values()) {
+      // A universe busy connecting is left for a later pass rather than waited for.
+      if (!uc.lock.tryLock()) {
+        continue;
+      }
+      try {
+        CassandraConnection cc = uc.connection;
+        if (cc != null && cc.refCount == 0 && now - cc.lastUsedMs >= connectionIdleTimeoutMs) {
+          uc.connection = null;
+          retireConnection(cc);
+        }
+      } finally {
+        uc.lock.unlock();
+      }
+    }
+  }
+
   private Double getValue(Row r) {
     if (METRICS_WITH_DETAILS_VALUE.contains(r.getString("metric"))) {
       return Util.convertStringToJson(r.getString("details")).get("value").asDouble();
@@ -208,15 +346,11 @@ public class YBMetricQueryComponent {
     return new TServerMappings(nameToUUID, uuidToIP);
   }
 
-  private ResultSet cassandraTserverSelectQuery(String metric, String tserverUUID,
-                                                Session session, Universe universe,
-                                                long startMs, long endMs) {
-    int count = 0;
-    ResultSet rs = null;
-    String queryString = String.format(QUERY_FORMAT, METRICS_TABLE, metric,
-                                       tserverUUID.toString(), (startMs * 1000),
-                                       (endMs * 1000));
-    return session.execute(queryString);
+  private ResultSetFuture cassandraTserverSelectQuery(String metric, String tserverUUID,
+                                                      CassandraConnection cc,
+                                                      long startMs, long endMs) {
+    return cc.session.executeAsync(cc.selectStatement.bind(
+        metric, tserverUUID, new Date(startMs * 1000), new Date(endMs * 1000)));
   }
 
   // Convert the map to the required output format.
@@ -330,30 +464,29 @@ public class YBMetricQueryComponent {
     return timeRangeMap;
   }
 
-  private List<ResultSet> queryRunner(String metricName, Session session,
+  private List<ResultSet> queryRunner(String metricName, CassandraConnection cc,
                                       Map<String, String> tserverMap,
                                       JsonNode params, Universe universe,
                                       long start, long end) {
-    List<ResultSet> results = new ArrayList<>();
+    List<ResultSetFuture> futures = new ArrayList<>();
     // Check if metric needs to be reported for only a single tserver.
     if (params.has("exported_instance")) {
       String tserverName = params.path("exported_instance").asText();
-      ResultSet rs = cassandraTserverSelectQuery(metricName,
-                                                 tserverMap.get(tserverName),
-                                                 session, universe,
-                                                 start, end);
-      if (rs != null && rs.iterator().hasNext()) {
-        results.add(rs);
+      String tserverUUID = tserverMap.get(tserverName);
+      if (tserverUUID != null) {
+        futures.add(cassandraTserverSelectQuery(metricName, tserverUUID, cc, start, end));
       }
     } else {
-      // TODO: Maybe query for all tservers and split here rather than make more
-      // database calls.
+      // Query all the tservers concurrently.
       for (Entry<String, String> entry : tserverMap.entrySet()) {
-        ResultSet rs = cassandraTserverSelectQuery(metricName, entry.getValue(),
-                                                   session, universe, start, end);
-        if (rs != null && rs.iterator().hasNext()) {
-          results.add(rs);
-        }
+        futures.add(cassandraTserverSelectQuery(metricName, entry.getValue(), cc, start, end));
+      }
+    }
+    List<ResultSet> results = new ArrayList<>();
+    for (ResultSetFuture future : futures) {
+      ResultSet rs = future.getUninterruptibly();
+      if (rs != null && rs.iterator().hasNext()) {
+        results.add(rs);
       }
     }
     return results;
@@ -405,179 +538,181 @@ public class YBMetricQueryComponent {
       if (universe == null) {
         return null;
       }
-      universe = Universe.get(universe.universeUUID);
+      universe = Universe.getReadOnly(universe.universeUUID);
       TServerMappings tserverMaps = getTservers(universe);
       CassandraConnection cc = null;
 
-      switch (queryKey) {
-        case "total_rpcs_per_sec":
-          cc = createCassandraConnection(universe.universeUUID);
-          if (cc.session == null) {
-            return responseJson;
-          }
-          for (String method : serviceMethods) {
-            String metricName = String.format(COUNT_METRIC_STRING, method);
-            List<ResultSet> results = queryRunner(
-              metricName,
-              cc.session,
+      try {
+        switch (queryKey) {
+          case "total_rpcs_per_sec":
+            cc = acquireConnection(universe.universeUUID);
+            if (cc.session == null) {
+              return responseJson;
+            }
+            for (String method : serviceMethods) {
+              String metricName = String.format(COUNT_METRIC_STRING, method);
+              List<ResultSet> results = queryRunner(
+                metricName,
+                cc,
+                tserverMaps.nameToUUID,
+                params,
+                universe,
+                startTime,
+                endTime
+              );
+              NavigableMap<Long, Double> metricsVals = calculateRate(results, Function.Sum,
+                                                                     results.size());
+              insertMetrics(metricResults, metricsVals, method);
+            }
+            break;
+          case "tserver_ops_latency":
+            cc = acquireConnection(universe.universeUUID);
+            if (cc.session == null) {
+              return responseJson;
+            }
+            for (String method : serviceMethods) {
+              String metricCount = String.format(COUNT_METRIC_STRING, method);
+              String metricSum = String.format(SUM_METRIC_STRING, method);
+              List<ResultSet> resultCount = queryRunner(
+                metricCount,
+                cc,
+                tserverMaps.nameToUUID,
+                params,
+                universe,
+                startTime,
+                endTime
+              );
+              List<ResultSet> resultSum = queryRunner(
+                metricSum,
+                cc,
+                tserverMaps.nameToUUID,
+                params,
+                universe,
+                startTime,
+                endTime
+              );
+              NavigableMap<Long, Double> metricsCount = calculateRate(resultCount, Function.Average,
+                                                                      resultCount.size());
+              NavigableMap<Long, Double> metricsSum = calculateRate(resultSum, Function.Average,
+                                                                    resultSum.size());
+              TreeMap<Long, Double> metricsVals = metricDivide(metricsSum, metricsCount);
+              insertMetrics(metricResults, metricsVals, method);
+            }
+            break;
+          case "disk_usage":
+            cc = acquireConnection(universe.universeUUID);
+            if (cc.session == null) {
+              return responseJson;
+            }
+            List<ResultSet> totalDiskRaw = queryRunner(
+              TOTAL_DISK_STRING,
+              cc,
               tserverMaps.nameToUUID,
               params,
               universe,
               startTime,
               endTime
             );
-            NavigableMap<Long, Double> metricsVals = calculateRate(results, Function.Sum,
-                                                                   results.size());
-            insertMetrics(metricResults, metricsVals, method);
-          }
-          break;
-        case "tserver_ops_latency":
-          cc = createCassandraConnection(universe.universeUUID);
-          if (cc.session == null) {
-            return responseJson;
-          }
-          for (String method : serviceMethods) {
-            String metricCount = String.format(COUNT_METRIC_STRING, method);
-            String metricSum = String.format(SUM_METRIC_STRING, method);
-            List<ResultSet> resultCount = queryRunner(
-              metricCount,
-              cc.session,
+            List<ResultSet> freeDiskRaw = queryRunner(
+              FREE_DISK_STRING,
+              cc,
               tserverMaps.nameToUUID,
               params,
               universe,
               startTime,
               endTime
             );
-            List<ResultSet> resultSum = queryRunner(
-              metricSum,
-              cc.session,
+            NavigableMap<Long, Double> totalDiskMetrics = convertToGb(totalDiskRaw);
+            NavigableMap<Long, Double> freeDiskMetrics = convertToGb(freeDiskRaw);
+            insertMetrics(metricResults, totalDiskMetrics, "size");
+            insertMetrics(metricResults, freeDiskMetrics, "free");
+            break;
+          case "cpu_usage":
+            cc = acquireConnection(universe.universeUUID);
+            if (cc.session == null) {
+              return responseJson;
+            }
+            List<ResultSet> userCpuRaw = queryRunner(
+              CPU_USAGE_USER_STRING,
+              cc,
               tserverMaps.nameToUUID,
               params,
               universe,
               startTime,
               endTime
             );
-            NavigableMap<Long, Double> metricsCount = calculateRate(resultCount, Function.Average,
-                                                                    resultCount.size());
-            NavigableMap<Long, Double> metricsSum = calculateRate(resultSum, Function.Average,
-                                                                  resultSum.size());
-            TreeMap<Long, Double> metricsVals = metricDivide(metricsSum, metricsCount);
-            insertMetrics(metricResults, metricsVals, method);
-          }
-          break;
-        case "disk_usage":
-          cc = createCassandraConnection(universe.universeUUID);
-          if (cc.session == null) {
-            return responseJson;
-          }
-          List<ResultSet> totalDiskRaw = queryRunner(
-            TOTAL_DISK_STRING,
-            cc.session,
-            tserverMaps.nameToUUID,
-            params,
-            universe,
-            startTime,
-            endTime
-          );
-          List<ResultSet> freeDiskRaw = queryRunner(
-            FREE_DISK_STRING,
-            cc.session,
-            tserverMaps.nameToUUID,
-            params,
-            universe,
-            startTime,
-            endTime
-          );
-          NavigableMap<Long, Double> totalDiskMetrics = convertToGb(totalDiskRaw);
-          NavigableMap<Long, Double> freeDiskMetrics = convertToGb(freeDiskRaw);
-          insertMetrics(metricResults, totalDiskMetrics, "size");
-          insertMetrics(metricResults, freeDiskMetrics, "free");
-          break;
-        case "cpu_usage":
-          cc = createCassandraConnection(universe.universeUUID);
-          if (cc.session == null) {
-            return responseJson;
-          }
-          List<ResultSet> userCpuRaw = queryRunner(
-            CPU_USAGE_USER_STRING,
-            cc.session,
-            tserverMaps.nameToUUID,
-            params,
-            universe,
-            startTime,
-            endTime
-          );
-          List<ResultSet> systemCpuRaw = queryRunner(
-            CPU_USAGE_SYSTEM_STRING,
-            cc.session,
-            tserverMaps.nameToUUID,
-            params,
-            universe,
-            startTime,
-            endTime
-          );
-          NavigableMap<Long, Double> userCpuMetrics = divideByConstant(userCpuRaw, 0.01);
-          NavigableMap<Long, Double> systemCpuMetrics = divideByConstant(systemCpuRaw, 0.01);
-          insertMetrics(metricResults, userCpuMetrics, "user");
-          insertMetrics(metricResults, systemCpuMetrics, "system");
-          break;
-        case "node_up":
-          cc = createCassandraConnection(universe.universeUUID);
-          if (cc.session == null) {
-            return responseJson;
-          }
-          List<ResultSet> results = queryRunner(
-            "node_up",
-            cc.session,
-            tserverMaps.nameToUUID,
-            params,
-            universe,
-            startTime,
-            endTime
-          );
-          Map<String, List<String>> nodeUpMetrics = new HashMap<>();
-          for (ResultSet rs : results) {
-            Iterator<Row> rowIter = rs.iterator();
-            while (rowIter.hasNext()) {
-              Row row = rowIter.next();
-              String nodeIP = tserverMaps.uuidToIP.get(row.getString("node"));
-
-              if (null != nodeIP) {
-                long timestampSec = row.getTimestamp("ts").getTime() / 1000;
-                double val = (double) getValue(row);
-                String valStr = String.format(DATA_ENTRY_FORMAT, timestampSec, val);
-
-                if (null == nodeUpMetrics.get(nodeIP)) {
-                  nodeUpMetrics.put(nodeIP, new ArrayList<String>());
+            List<ResultSet> systemCpuRaw = queryRunner(
+              CPU_USAGE_SYSTEM_STRING,
+              cc,
+              tserverMaps.nameToUUID,
+              params,
+              universe,
+              startTime,
+              endTime
+            );
+            NavigableMap<Long, Double> userCpuMetrics = divideByConstant(userCpuRaw, 0.01);
+            NavigableMap<Long, Double> systemCpuMetrics = divideByConstant(systemCpuRaw, 0.01);
+            insertMetrics(metricResults, userCpuMetrics, "user");
+            insertMetrics(metricResults, systemCpuMetrics, "system");
+            break;
+          case "node_up":
+            cc = acquireConnection(universe.universeUUID);
+            if (cc.session == null) {
+              return responseJson;
+            }
+            List<ResultSet> results = queryRunner(
+              "node_up",
+              cc,
+              tserverMaps.nameToUUID,
+              params,
+              universe,
+              startTime,
+              endTime
+            );
+            Map<String, List<String>> nodeUpMetrics = new HashMap<>();
+            for (ResultSet rs : results) {
+              Iterator<Row> rowIter = rs.iterator();
+              while (rowIter.hasNext()) {
+                Row row = rowIter.next();
+                String nodeIP = tserverMaps.uuidToIP.get(row.getString("node"));
+
+                if (null != nodeIP) {
+                  long timestampSec = row.getTimestamp("ts").getTime() / 1000;
+                  double val = (double) getValue(row);
+                  String valStr = String.format(DATA_ENTRY_FORMAT, timestampSec, val);
+
+                  if (null == nodeUpMetrics.get(nodeIP)) {
+                    nodeUpMetrics.put(nodeIP, new ArrayList<String>());
+                  }
+                  nodeUpMetrics.get(nodeIP).add(valStr);
                 }
-                nodeUpMetrics.get(nodeIP).add(valStr);
               }
             }
-          }
 
-          for (Entry<String, List<String>> nodeUpMetric : nodeUpMetrics.entrySet()) {
-            metricResults.add(String.format(
-              NODE_METRIC_FORMAT,
-              nodeUpMetric.getKey(),
-              universe.getUniverseDetails().communicationPorts.masterHttpPort,
-              nodeUpMetric.getValue()
-            ));
-            metricResults.add(String.format(
-              NODE_METRIC_FORMAT,
-              nodeUpMetric.getKey(),
-              universe.getUniverseDetails().communicationPorts.tserverHttpPort,
-              nodeUpMetric.getValue()
-            ));
-            // Note that we are passing a List<String> to the %s parameter and expecting
-            // it to be serialized as [ s1, s2 ], which also matches the json array format
-          }
-          break;
-        default:
-          LOG.warn("Query: " + queryKey + " not supported.");
-      }
-      if (cc != null) {
-        if (cc.session != null) cc.session.close();
-        if (cc.cluster != null) cc.cluster.close();
+            for (Entry<String, List<String>> nodeUpMetric : nodeUpMetrics.entrySet()) {
+              metricResults.add(String.format(
+                NODE_METRIC_FORMAT,
+                nodeUpMetric.getKey(),
+                universe.getUniverseDetails().communicationPorts.masterHttpPort,
+                nodeUpMetric.getValue()
+              ));
+              metricResults.add(String.format(
+                NODE_METRIC_FORMAT,
+                nodeUpMetric.getKey(),
+                universe.getUniverseDetails().communicationPorts.tserverHttpPort,
+                nodeUpMetric.getValue()
+              ));
+              // Note that we are passing a List<String> to the %s parameter and expecting
+              // it to be serialized as [ s1, s2 ], which also matches the json array format
+            }
+            break;
+          default:
+            LOG.warn("Query: " + queryKey + " not supported.");
+        }
+      } finally {
+        if (cc != null) {
+          releaseConnection(cc);
+        }
       }
       if (!metricResults.isEmpty()) {
         String returnJson = String.format(RESPONSE_FORMAT, metricResults);
@@ -167,6 +167,7 @@ public class CustomerTask extends Model {
     name="customer_task_id_seq", sequenceName="customer_task_id_seq", allocationSize=1)
   @GeneratedValue(strategy = GenerationType.SEQUENCE, generator="customer_task_id_seq")
   private Long id;
+  public Long getId() { return id; }
 
   @Constraints.Required
   @Column(nullable = false)
@@ -208,9 +209,25 @@ public class CustomerTask extends Model {
   @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
   private Date completionTime;
   public Date getCompletionTime() { return completionTime; }
+
+  // Final state and progress of the task, recorded when it completes so that listing the task
+  // history doesn't need to look at its subtasks. Null while the task is running.
+  @Column
+  private TaskInfo.State taskState;
+  public TaskInfo.State getTaskState() { return taskState; }
+
+  @Column
+  private Integer percentComplete;
+  public Integer getPercentComplete() { return percentComplete; }
+
   public void markAsCompleted() {
     if (completionTime == null) {
       completionTime = new Date();
+      TaskInfo taskInfo = TaskInfo.get(taskUUID);
+      if (taskInfo != null) {
+        taskState = taskInfo.getTaskState();
+        percentComplete = (int) taskInfo.getPercentCompleted();
+      }
       this.save();
     }
   }
@@ -249,6 +266,28 @@ public class CustomerTask extends Model {
     return find.query().where().eq("task_uuid", taskUUID).findOne();
   }
 
+  /**
+   * Returns a page of the tasks of a customer, newest first.
+   *
+   * @param customerUUID the customer.
+   * @param targetUUID only return the tasks of this target, or null for all the targets.
+   * @param beforeId only return the tasks older than the one with this id, or null to start with
+   *                 the newest task.
+   * @param limit the maximum number of tasks to return.
+   * @return the tasks.
+   */
+  public static List<CustomerTask> getPage(UUID customerUUID, UUID targetUUID, Long beforeId,
+                                           int limit) {
+    ExpressionList<CustomerTask> query = find.query().where().eq("customer_uuid", customerUUID);
+    if (targetUUID != null) {
+      query.eq("target_uuid", targetUUID);
+    }
+    if (beforeId != null) {
+      query.lt("id", beforeId);
+    }
+    return query.orderBy("id desc").setMaxRows(limit).findList();
+  }
+
   public static List<CustomerTask> findIncompleteByTargetUUID(UUID targetUUID) {
     return find.query().where()
       .eq("target_uuid", targetUUID)
@@ -2,6 +2,9 @@
 
 package com.yugabyte.yw.models;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -20,6 +23,7 @@ import io.ebean.annotation.DbJson;
 import io.ebean.annotation.EnumValue;
 import io.ebean.annotation.UpdatedTimestamp;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.collect.Iterables;
 
 import com.yugabyte.yw.commissioner.UserTaskDetails;
 import com.yugabyte.yw.commissioner.UserTaskDetails.SubTaskDetails;
@@ -182,6 +186,50 @@ public class TaskInfo extends Model {
 
   public static final Finder<UUID, TaskInfo> find = new Finder<UUID, TaskInfo>(TaskInfo.class){};
 
+  // The number of statements sent to the database at a time when saving many tasks.
+  private static final int SAVE_BATCH_SIZE = 100;
+
+  // The number of tasks looked up per query, to stay well below the limit of parameters of a
+  // statement, 32767 with PostgreSQL.
+  static final int MAX_TASKS_PER_QUERY = 1000;
+
+  /**
+   * Looks up the given tasks, with one query per MAX_TASKS_PER_QUERY of them.
+   *
+   * @param taskUUIDs the tasks to look up.
+   * @return the tasks found.
+   */
+  public static List<TaskInfo> getAll(Collection<UUID> taskUUIDs) {
+    List<TaskInfo> taskInfos = new ArrayList<>();
+    for (List<UUID> uuids : Iterables.partition(taskUUIDs, MAX_TASKS_PER_QUERY)) {
+      taskInfos.addAll(TaskInfo.find.query().where().in("uuid", uuids).findList());
+    }
+    return taskInfos;
+  }
+
+  /**
+   * Saves the given tasks, inserting the new ones and updating the changed fields of the others,
+   * in a single transaction that sends the statements to the database in batches.
+   *
+   * @param taskInfos the tasks to save.
+   */
+  public static void saveAll(Collection<TaskInfo> taskInfos) {
+    if (taskInfos.isEmpty()) {
+      return;
+    }
+    Transaction transaction = Ebean.beginTransaction();
+    try {
+      transaction.setBatchMode(true);
+      transaction.setBatchSize(SAVE_BATCH_SIZE);
+      for (TaskInfo taskInfo : taskInfos) {
+        taskInfo.save();
+      }
+      Ebean.commitTransaction();
+    } finally {
+      Ebean.endTransaction();
+    }
+  }
+
   public static TaskInfo get(UUID taskUUID) {
     // Return the instance details object.
     return find.byId(taskUUID);
@@ -202,6 +250,117 @@ public class TaskInfo extends Model {
       .findList();
   }
 
+  /**
+   * Counts the subtasks in each state for each of the given parent tasks, with one aggregate
+   * query per MAX_TASKS_PER_QUERY parent tasks.
+   *
+   * @param parentUUIDs the parent tasks.
+   * @return the number of subtasks per state, per parent task. Tasks without subtasks are absent.
+   */
+  public static Map<UUID, Map<State, Integer>> getSubTaskStateCounts(Collection<UUID> parentUUIDs) {
+    Map<UUID, Map<State, Integer>> stateCounts = new HashMap<>();
+    if (parentUUIDs.isEmpty()) {
+      return stateCounts;
+    }
+    for (List<UUID> uuids : Iterables.partition(parentUUIDs, MAX_TASKS_PER_QUERY)) {
+      String placeholders = String.join(",", Collections.nCopies(uuids.size(), "?"));
+      SqlQuery query = Ebean.createSqlQuery(
+          "SELECT parent_uuid, task_state, COUNT(*) AS num_tasks FROM task_info " +
+          "WHERE parent_uuid IN (" + placeholders + ") GROUP BY parent_uuid, task_state");
+      int position = 1;
+      for (UUID parentUUID : uuids) {
+        query.setParameter(position++, parentUUID);
+      }
+      for (SqlRow row : query.findList()) {
+        stateCounts.computeIfAbsent(row.getUUID("parent_uuid"), uuid -> new HashMap<>())
+            .put(State.valueOf(row.getString("task_state")), row.getInteger("num_tasks"));
+      }
+    }
+    return stateCounts;
+  }
+
+  /**
+   * Returns the percentage of subtasks that succeeded.
+   *
+   * @param subTaskStateCounts the number of subtasks per state, or null if there are none.
+   * @return a number between 0.0 and 100.0.
+   */
+  public static double getPercentCompleted(Map<State, Integer> subTaskStateCounts) {
+    if (subTaskStateCounts == null) {
+      return 0.0;
+    }
+    int numSubtasks = subTaskStateCounts.values().stream().mapToInt(Integer::intValue).sum();
+    if (numSubtasks == 0) {
+      return 0.0;
+    }
+    return subTaskStateCounts.getOrDefault(State.Success, 0) * 100.0 / numSubtasks;
+  }
+
+  /**
+   * Bumps the update time of all the given tasks to now, with one statement per
+   * MAX_TASKS_PER_QUERY tasks, so that they are considered alive by other platform instances.
+   *
+   * @param taskUUIDs the tasks to heartbeat.
+   * @return the number of tasks updated.
+   */
+  public static int updateHeartbeats(Collection<UUID> taskUUIDs) {
+    if (taskUUIDs.isEmpty()) {
+      return 0;
+    }
+    Date now = new Date();
+    int numUpdated = 0;
+    for (List<UUID> uuids : Iterables.partition(taskUUIDs, MAX_TASKS_PER_QUERY)) {
+      String placeholders = String.join(",", Collections.nCopies(uuids.size(), "?"));
+      SqlUpdate update = Ebean.createSqlUpdate(
+          "UPDATE task_info SET update_time = ? WHERE uuid IN (" + placeholders + ")");
+      int position = 1;
+      update.setParameter(position++, now);
+      for (UUID taskUUID : uuids) {
+        update.setParameter(position++, taskUUID);
+      }
+      numUpdated += Ebean.execute(update);
+    }
+    return numUpdated;
+  }
+
+  /**
+   * Returns the incomplete user-level tasks whose last heartbeat is older than the given time.
+   *
+   * @param heartbeatBefore the cutoff for the last heartbeat.
+   * @return the list of stale tasks.
+   */
+  public static List<TaskInfo> getStaleTasks(Date heartbeatBefore) {
+    Object[] incompleteStates = {State.Created, State.Initializing, State.Running};
+    return TaskInfo.find.query().where()
+      .isNull("parent_uuid")
+      .in("task_state", incompleteStates)
+      .lt("update_time", heartbeatBefore)
+      .findList();
+  }
+
+  /**
+   * Atomically takes over ownership of a stale task. Only one of several platform instances
+   * racing for the same task will succeed, since a successful claim also refreshes the heartbeat.
+   *
+   * @param heartbeatBefore the cutoff for the last heartbeat used to find the task.
+   * @param owner the identifier of the process claiming the task.
+   * @return true if the task was claimed by this call.
+   */
+  public boolean claimIfStale(Date heartbeatBefore, String owner) {
+    SqlUpdate update = Ebean.createSqlUpdate(
+        "UPDATE task_info SET owner = :owner, update_time = :now " +
+        "WHERE uuid = :uuid AND update_time < :heartbeatBefore");
+    update.setParameter("owner", owner);
+    update.setParameter("now", new Date());
+    update.setParameter("uuid", uuid);
+    update.setParameter("heartbeatBefore", heartbeatBefore);
+    if (Ebean.execute(update) == 0) {
+      return false;
+    }
+    this.owner = owner;
+    return true;
+  }
+
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder();
@@ -261,19 +420,8 @@ public class TaskInfo extends Model {
    * @return a number between 0.0 and 100.0.
    */
   public double getPercentCompleted() {
-    Query<TaskInfo> subTaskQuery = TaskInfo.find.query().where()
-        .eq("parent_uuid", getTaskUUID())
-        .orderBy("position asc");
-    List<TaskInfo> result = subTaskQuery.findList();
-    if (result == null || result.size() == 0) {
-      return 0.0;
-    }
-    int numSubtasksCompleted = 0;
-    for (TaskInfo taskInfo : result) {
-      if (taskInfo.getTaskState().equals(TaskInfo.State.Success)) {
-        ++numSubtasksCompleted;
-      }
-    }
-    return numSubtasksCompleted * 100.0 / result.size();
+    UUID taskUUID = getTaskUUID();
+    return getPercentCompleted(
+        getSubTaskStateCounts(Collections.singletonList(taskUUID)).get(taskUUID));
   }
 }
@@ -16,6 +16,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 import javax.persistence.Column;
@@ -35,6 +37,8 @@ import org.slf4j.LoggerFactory;
 
 import io.ebean.*;
 import io.ebean.annotation.DbJson;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -217,6 +221,17 @@ public class Universe extends Model {
   public static final Finder<UUID, Universe> find = new Finder<UUID, Universe>(Universe.class) {
   };
 
+  // Cache of parsed universe details, keyed by universe UUID.
+  private static final Map<UUID, CachedDetails> detailsCache = new ConcurrentHashMap<>();
+
+  private static final Counter detailsCacheHits = Counter.build(
+      "yb_universe_details_cache_hits", "Number of universe reads served from the cache")
+      .register();
+
+  private static final Counter detailsCacheMisses = Counter.build(
+      "yb_universe_details_cache_misses", "Number of universe reads that parsed the details json")
+      .register();
+
   // Prefix added to read only node.
   public static final String READONLY = "-readonly";
 
@@ -249,6 +264,7 @@ public class Universe extends Model {
         universe.universeUUID, universe.universeDetailsJson, universe.name);
     // Save the object.
     universe.save();
+    invalidateCache(universe.universeUUID);
     return universe;
   }
 
@@ -271,20 +287,67 @@ public class Universe extends Model {
   }
 
   /**
-   * Returns the Universe object given its uuid.
+   * Returns the Universe object given its uuid. The caller gets its own copy of the universe
+   * details and is free to modify it.
    *
    * @param universeUUID
    * @return the universe object
    */
   public static Universe get(UUID universeUUID) {
-    // Find the universe.
-    Universe universe = find.byId(universeUUID);
-    if (universe == null) {
-      throw new RuntimeException("Cannot find universe " + universeUUID);
+    return get(universeUUID, false /* readOnly */);
+  }
+
+  /**
+   * Returns the Universe object given its uuid, with universe details that may be shared with
+   * other callers. Meant for hot read paths; the returned details must not be modified.
+   *
+   * @param universeUUID
+   * @return the universe object
+   */
+  public static Universe getReadOnly(UUID universeUUID) {
+    return get(universeUUID, true /* readOnly */);
+  }
+
+  private static Universe get(UUID universeUUID, boolean readOnly) {
+    Universe universe = null;
+    CachedDetails cached = detailsCache.get(universeUUID);
+    if (cached != null) {
+      // Fetch everything but the details json, and only reuse the cached details if the version
+      // still matches.
+      universe = find.query()
+          .select("universeUUID, version, creationDate, name, customerId, config")
+          .where().idEq(universeUUID)
+          .findOne();
+      if (universe == null) {
+        detailsCache.remove(universeUUID);
+        throw new RuntimeException("Cannot find universe " + universeUUID);
+      }
+      if (universe.version != cached.version) {
+        cached = null;
+      }
     }
 
-    JsonNode detailsJson = Json.parse(universe.universeDetailsJson);
-    universe.universeDetails = Json.fromJson(detailsJson, UniverseDefinitionTaskParams.class);
+    if (cached == null) {
+      detailsCacheMisses.inc();
+      // Find the universe.
+      universe = find.byId(universeUUID);
+      if (universe == null) {
+        throw new RuntimeException("Cannot find universe " + universeUUID);
+      }
+      cached = new CachedDetails(universe.version, Json.parse(universe.universeDetailsJson));
+      detailsCache.put(universeUUID, cached);
+    } else {
+      detailsCacheHits.inc();
+    }
+    universe.universeDetails = readOnly ? cached.getSharedDetails() : parseDetails(cached.json);
+
+    // Return the universe object.
+    return universe;
+  }
+
+  private static UniverseDefinitionTaskParams parseDetails(JsonNode detailsJson) {
+    UniverseDefinitionTaskParams details =
+        Json.fromJson(detailsJson, UniverseDefinitionTaskParams.class);
 
     // For backwards compatibility from {universeDetails: {"userIntent": <foo>, "placementInfo": <bar>}}
     // to {universeDetails: {clusters: [{"userIntent": <foo>, "placementInfo": <bar>},...]}}
@@ -292,11 +355,40 @@ public class Universe extends Model {
         (!detailsJson.has("clusters") || detailsJson.get("clusters").size() == 0)) {
       UserIntent userIntent = Json.fromJson(detailsJson.get("userIntent"), UserIntent.class);
       PlacementInfo placementInfo = Json.fromJson(detailsJson.get("placementInfo"), PlacementInfo.class);
-      universe.universeDetails.upsertPrimaryCluster(userIntent, placementInfo);
+      details.upsertPrimaryCluster(userIntent, placementInfo);
     }
+    return details;
+  }
 
-    // Return the universe object.
-    return universe;
+  /**
+   * Drops the cached details of the given universe, so that the next read goes to the DB.
+   *
+   * @param universeUUID
+   */
+  public static void invalidateCache(UUID universeUUID) {
+    detailsCache.remove(universeUUID);
+  }
+
+  // Parsed details json of a universe, valid for a single version of the universe row.
+  private static class CachedDetails {
+    final int version;
+    final JsonNode json;
+    // Bound lazily, the first time a read-only caller asks for it.
+    private volatile UniverseDefinitionTaskParams sharedDetails;
+
+    CachedDetails(int version, JsonNode json) {
+      this.version = version;
+      this.json = json;
+    }
+
+    UniverseDefinitionTaskParams getSharedDetails() {
+      UniverseDefinitionTaskParams details = sharedDetails;
+      if (details == null) {
+        details = parseDetails(json);
+        sharedDetails = details;
+      }
+      return details;
+    }
   }
 
   public static Set<Universe> get(Set<UUID> universeUUIDs) {
@@ -322,17 +414,75 @@ public class Universe extends Model {
     void run(Universe universe);
   }
 
+  // Lock serializing the local updates to a single universe. Updates from other processes are
+  // still caught by the version check in compareAndSwap.
+  private static class UniverseLock extends ReentrantLock {
+    // The number of threads holding or waiting for the lock. Only changed within the compute
+    // calls on universeLocks, so that the entry is removed only once nobody uses the lock.
+    int numUsers = 0;
+
+    String getOwnerName() {
+      Thread owner = getOwner();
+      return owner == null ? "none" : owner.getName();
+    }
+  }
+
+  // The locks of the universes being updated. An entry is removed once no thread holds or waits
+  // for its lock, so that a deleted universe leaves nothing behind.
+  private static final Map<UUID, UniverseLock> universeLocks = new ConcurrentHashMap<>();
+
+  // Waits longer than this are logged along with the thread holding the lock.
+  private static final long LOCK_WAIT_WARN_MS = 1000;
+
+  private static final Histogram lockWaitTime = Histogram.build(
+      "yb_universe_lock_wait_seconds", "Time spent waiting for the universe update lock")
+      .register();
+
   // Helper api to make an atomic read of universe version, and compare and swap the
   // updated version to disk.
-  private static synchronized Universe readModifyWrite(UUID universeUUID,
-                                                       UniverseUpdater updater)
+  private static Universe readModifyWrite(UUID universeUUID,
+                                          UniverseUpdater updater)
       throws ConcurrentModificationException {
-    Universe universe = Universe.get(universeUUID);
-    // Update the universe object which is supplied as a lambda function.
-    updater.run(universe);
-    // Save the universe object by doing a compare and swap.
-    universe.compareAndSwap();
-    return universe;
+    UniverseLock lock = universeLocks.compute(universeUUID, (uuid, universeLock) -> {
+      if (universeLock == null) {
+        universeLock = new UniverseLock();
+      }
+      universeLock.numUsers++;
+      return universeLock;
+    });
+    try {
+      return readModifyWrite(universeUUID, updater, lock);
+    } finally {
+      universeLocks.computeIfPresent(universeUUID,
+          (uuid, universeLock) -> --universeLock.numUsers == 0 ? null : universeLock);
+    }
+  }
+
+  private static Universe readModifyWrite(UUID universeUUID, UniverseUpdater updater,
+                                          UniverseLock lock) {
+    if (!lock.tryLock()) {
+      String holder = lock.getOwnerName();
+      long startMs = System.currentTimeMillis();
+      lock.lock();
+      long waitMs = System.currentTimeMillis() - startMs;
+      lockWaitTime.observe(waitMs / 1000.0);
+      if (waitMs > LOCK_WAIT_WARN_MS) {
+        LOG.warn("Waited {} ms for the update lock of universe {}, held by {}.",
+                 waitMs, universeUUID, holder);
+      }
+    } else {
+      lockWaitTime.observe(0);
+    }
+    try {
+      Universe universe = Universe.get(universeUUID);
+      // Update the universe object which is supplied as a lambda function.
+      updater.run(universe);
+      // Save the universe object by doing a compare and swap.
+      universe.compareAndSwap();
+      return universe;
+    } finally {
+      lock.unlock();
+    }
   }
 
   /**
@@ -383,6 +533,7 @@ public class Universe extends Model {
     // Delete the universe.
     LOG.info("Deleting universe " + universe.name + ":" + universeUUID);
     universe.delete();
+    invalidateCache(universeUUID);
   }
 
   /**
@@ -662,6 +813,9 @@ public class Universe extends Model {
       System.exit(1);
     }
 
+    // The cached details are for the old version now.
+    invalidateCache(universeUUID);
+
     // Update and return the current version number.
     this.version = newVersion;
     return this.version;
@@ -6,6 +6,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.yugabyte.yw.common.ApiHelper;
@@ -27,19 +28,38 @@ import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Singleton
 public class LiveQueryHelper {
   public static final Logger LOG = LoggerFactory.getLogger(LiveQueryHelper.class);
-  public static final Integer QUERY_EXECUTOR_THREAD_POOL = 5;
+  public static final Integer QUERY_EXECUTOR_THREAD_POOL = 20;
+
+  // Idle query threads are released after this many seconds.
+  private static final long THREAD_ALIVE_TIME = 60L;
 
   @Inject
   ApiHelper apiHelper;
 
+  // Shared by all the queries, so concurrent requests are bounded by the pool size.
+  private final ExecutorService threadPool;
+
+  public LiveQueryHelper() {
+    ThreadFactory namedThreadFactory =
+        new ThreadFactoryBuilder().setNameFormat("LiveQuery-%d").setDaemon(true).build();
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(QUERY_EXECUTOR_THREAD_POOL, QUERY_EXECUTOR_THREAD_POOL,
+                               THREAD_ALIVE_TIME, TimeUnit.SECONDS,
+                               new LinkedBlockingQueue<Runnable>(), namedThreadFactory);
+    executor.allowCoreThreadTimeOut(true);
+    threadPool = executor;
+  }
+
   public JsonNode query(Universe universe) {
-    ExecutorService threadPool = Executors.newFixedThreadPool(QUERY_EXECUTOR_THREAD_POOL);
     Set<Future<JsonNode>> futures = new HashSet<Future<JsonNode>>();
     ObjectNode responseJson = Json.newObject();
     ObjectNode ysqlJson = Json.newObject();
@@ -101,14 +121,11 @@ public class LiveQueryHelper {
     } catch (ExecutionException e) {
       LOG.error("Error fetching live query data", e);
       e.printStackTrace();
-    } finally {
-      threadPool.shutdown();
     }
 
     responseJson.set("ysql", ysqlJson);
     responseJson.set("ycql", ycqlJson);
 
-    threadPool.shutdown();
     return responseJson;
   }
 
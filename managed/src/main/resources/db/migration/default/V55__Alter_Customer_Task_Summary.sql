@@ -0,0 +1,12 @@
+-- Copyright (c) YugaByte, Inc.
+ALTER TABLE customer_task ADD COLUMN task_state varchar(50), ADD COLUMN percent_complete integer;
+
+-- Record the summary of the tasks completed before the columns existed, as the task history
+-- only looks at the subtasks of the tasks without one.
+UPDATE customer_task SET
+  task_state = (SELECT ti.task_state FROM task_info ti WHERE ti.uuid = customer_task.task_uuid),
+  percent_complete = COALESCE((
+    SELECT (100 * SUM(CASE WHEN st.task_state = 'Success' THEN 1 ELSE 0 END)) /
+           NULLIF(COUNT(*), 0)
+    FROM task_info st WHERE st.parent_uuid = customer_task.task_uuid), 0)
+WHERE completion_time IS NOT NULL;
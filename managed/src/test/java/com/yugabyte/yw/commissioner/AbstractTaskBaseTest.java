@@ -0,0 +1,116 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.commissioner;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AbstractTaskBaseTest {
+
+  private static class WaitingTask extends AbstractTaskBase {
+    @Override
+    public void run() {
+    }
+  }
+
+  @Test
+  public void testWaitForPollsUntilConditionHolds() throws Exception {
+    AtomicInteger numPolls = new AtomicInteger(0);
+    CompletableFuture<Void> wait = new WaitingTask().waitFor(
+        () -> numPolls.incrementAndGet() == 3, 1, 4, 0);
+    assertNull(wait.get(10, TimeUnit.SECONDS));
+    assertEquals(3, numPolls.get());
+  }
+
+  @Test
+  public void testWaitForFailsWithConditionError() throws Exception {
+    CompletableFuture<Void> wait = new WaitingTask().waitFor(() -> {
+      throw new IllegalStateException("bad state");
+    }, 1, 4, 0);
+    try {
+      wait.get(10, TimeUnit.SECONDS);
+      fail("Wait should have failed");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+  }
+
+  @Test
+  public void testWaitForTimesOut() throws Exception {
+    CompletableFuture<Void> wait = new WaitingTask().waitFor(() -> false, 1, 4, 50);
+    try {
+      wait.get(10, TimeUnit.SECONDS);
+      fail("Wait should have timed out");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof TimeoutException);
+    }
+  }
+
+  @Test
+  public void testCancelledWaitStopsPolling() throws Exception {
+    AtomicInteger numPolls = new AtomicInteger(0);
+    CountDownLatch polled = new CountDownLatch(3);
+    CompletableFuture<Void> wait = new WaitingTask().waitFor(() -> {
+      numPolls.incrementAndGet();
+      polled.countDown();
+      return false;
+    }, 1, 4, 0);
+    assertTrue(polled.await(10, TimeUnit.SECONDS));
+    assertTrue(wait.cancel(false));
+
+    // Lets a poll that was already running when the wait got cancelled finish.
+    Thread.sleep(50);
+    int numPollsAfterCancel = numPolls.get();
+    Thread.sleep(200);
+    assertEquals(numPollsAfterCancel, numPolls.get());
+    assertFalse(wait.complete(null));
+  }
+
+  @Test
+  public void testCancelledStartWaitAsyncCancelsWait() throws Exception {
+    CompletableFuture<Void> wait = new CompletableFuture<>();
+    CompletableFuture<Void> future = AbstractTaskBase.startWaitAsync(() -> wait, Runnable::run);
+    assertTrue(future.cancel(false));
+    assertTrue(wait.isCancelled());
+  }
+
+  @Test
+  public void testCancelledStartWaitAsyncSkipsStart() throws Exception {
+    AtomicInteger numStarts = new AtomicInteger(0);
+    CountDownLatch gate = new CountDownLatch(1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      executor.execute(() -> {
+        try {
+          gate.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+      });
+      CompletableFuture<Void> future = AbstractTaskBase.startWaitAsync(() -> {
+        numStarts.incrementAndGet();
+        return CompletableFuture.completedFuture(null);
+      }, executor);
+      assertTrue(future.cancel(false));
+      gate.countDown();
+      executor.submit(() -> { }).get(10, TimeUnit.SECONDS);
+      assertEquals(0, numStarts.get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
@@ -40,6 +40,7 @@ import play.libs.Json;
 import scala.concurrent.ExecutionContext;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import io.prometheus.client.CollectorRegistry;
 
 import static org.junit.Assert.*;
@@ -500,6 +501,105 @@ public class HealthCheckerTest extends FakeDBApplication {
     );
   }
 
+  @Test
+  public void testScheduledRunner() throws Exception {
+    Universe u = setupUniverse("univ1");
+    setupAlertingData(null, false, false);
+    healthChecker.scheduleRunner();
+    healthChecker.waitForPendingChecks();
+    verifyHealthManager(u, null);
+
+    String[] labels = { HealthChecker.kUnivUUIDLabel, HealthChecker.kUnivNameLabel,
+                        HealthChecker.kNodeLabel };
+    String [] labelValues = { u.universeUUID.toString(), u.name, dummyNode };
+    assertNotNull(testRegistry.getSampleValue(HealthChecker.kLastCheckMetricName, labels,
+                                              labelValues));
+    assertNotNull(testRegistry.getSampleValue(HealthChecker.kCheckDurationMetricName, labels,
+                                              labelValues));
+  }
+
+  @Test
+  public void testScheduledRunnerDeadlineStartsWithCheck() throws Exception {
+    long checkMs = 300;
+    // One check at a time, each taking most of its deadline, so that the second check only
+    // starts once the deadline it would have had from being queued is almost over.
+    when(mockConfig.getInt("yb.health.max_parallel_checks", 4)).thenReturn(1);
+    when(mockConfig.getLong("yb.health.check_timeout_ms")).thenReturn(checkMs + 200);
+    ShellProcessHandler.ShellResponse dummyShellResponse =
+        ShellProcessHandler.ShellResponse.create(0, "{\"error\": false, \"data\": []}");
+    when(mockHealthManager.runCommand(
+        any(), any(), any(), any(), any(), any(), any(), any(), any())
+    ).thenAnswer(invocation -> {
+      Thread.sleep(checkMs);
+      return dummyShellResponse;
+    });
+    healthChecker = new HealthChecker(
+      mockActorSystem,
+      mockConfig,
+      mockExecutionContext,
+      mockHealthManager,
+      testRegistry
+    );
+    setupUniverse("univ1");
+    setupUniverse("univ2");
+    setupAlertingData(null, false, false);
+
+    healthChecker.scheduleRunner();
+    // A cancelled check would fail the wait.
+    healthChecker.waitForPendingChecks();
+    verify(mockHealthManager, times(2)).runCommand(
+        any(), any(), any(), any(), any(), any(), any(), any(), any());
+  }
+
+  @Test
+  public void testCancelledCheckNotRescheduledUntilItReturns() throws Exception {
+    long checkMs = 500;
+    when(mockConfig.getLong("yb.health.check_timeout_ms")).thenReturn(50L);
+    AtomicInteger numRunning = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    AtomicInteger numChecks = new AtomicInteger();
+    ShellProcessHandler.ShellResponse dummyShellResponse =
+        ShellProcessHandler.ShellResponse.create(0, "{\"error\": false, \"data\": []}");
+    when(mockHealthManager.runCommand(
+        any(), any(), any(), any(), any(), any(), any(), any(), any())
+    ).thenAnswer(invocation -> {
+      numChecks.incrementAndGet();
+      maxRunning.accumulateAndGet(numRunning.incrementAndGet(), Math::max);
+      // Keeps running past the deadline, like a check stuck in the DB.
+      long endMs = System.currentTimeMillis() + checkMs;
+      while (System.currentTimeMillis() < endMs) {
+        try {
+          Thread.sleep(10);
+        } catch (InterruptedException e) {
+          // Ignored.
+        }
+      }
+      numRunning.decrementAndGet();
+      return dummyShellResponse;
+    });
+    healthChecker = new HealthChecker(
+      mockActorSystem,
+      mockConfig,
+      mockExecutionContext,
+      mockHealthManager,
+      testRegistry
+    );
+    setupUniverse("univ1");
+    AlertingData data = new AlertingData();
+    data.checkIntervalMs = 1;
+    data.statusUpdateIntervalMs = 1;
+    customerConfig = CustomerConfig.createAlertConfig(defaultCustomer.uuid, Json.toJson(data));
+
+    // The universe is due for a check on every dispatch, but its first check is still running.
+    long endMs = System.currentTimeMillis() + checkMs + 300;
+    while (System.currentTimeMillis() < endMs) {
+      healthChecker.scheduleRunner();
+      Thread.sleep(20);
+    }
+    assertEquals(1, maxRunning.get());
+    assertTrue(numChecks.get() <= 2);
+  }
+
   @Test
   public void testScriptFailure() {
     ShellProcessHandler.ShellResponse dummyShellResponseFail =
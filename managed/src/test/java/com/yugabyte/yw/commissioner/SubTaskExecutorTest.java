@@ -0,0 +1,102 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.commissioner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SubTaskExecutorTest {
+
+  @Test
+  public void testTaskLimit() throws Exception {
+    SubTaskExecutor subTaskExecutor = new SubTaskExecutor(4, 2, 4);
+    ExecutorService executor = subTaskExecutor.newTaskExecutor("TestTask", null);
+    AtomicInteger numRunning = new AtomicInteger(0);
+    AtomicInteger maxRunning = new AtomicInteger(0);
+    CountDownLatch done = new CountDownLatch(6);
+    for (int i = 0; i < 6; i++) {
+      executor.execute(() -> {
+        maxRunning.accumulateAndGet(numRunning.incrementAndGet(), Math::max);
+        try {
+          Thread.sleep(20);
+        } catch (InterruptedException e) {
+          // Ignore in test.
+        }
+        numRunning.decrementAndGet();
+        done.countDown();
+      });
+    }
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(2, maxRunning.get());
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    assertEquals(0, subTaskExecutor.getNumRunning());
+  }
+
+  @Test
+  public void testGroupsTakeTurns() throws Exception {
+    SubTaskExecutor subTaskExecutor = new SubTaskExecutor(1, 10, 10);
+    UUID universe1 = UUID.randomUUID();
+    UUID universe2 = UUID.randomUUID();
+    ExecutorService executor1 = subTaskExecutor.newTaskExecutor("TestTask", universe1);
+    ExecutorService executor2 = subTaskExecutor.newTaskExecutor("TestTask", universe2);
+    List<String> order = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch gate = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(4);
+
+    // The first subtask holds the only thread while the others queue up.
+    executor1.execute(() -> {
+      try {
+        gate.await();
+      } catch (InterruptedException e) {
+        // Ignore in test.
+      }
+      order.add("a1");
+      done.countDown();
+    });
+    for (String name : Arrays.asList("a2", "a3")) {
+      executor1.execute(() -> {
+        order.add(name);
+        done.countDown();
+      });
+    }
+    executor2.execute(() -> {
+      order.add("b1");
+      done.countDown();
+    });
+    gate.countDown();
+
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(Arrays.asList("a1", "a2", "b1", "a3"), order);
+  }
+
+  @Test
+  public void testShutdownNowDropsPendingSubTasks() throws Exception {
+    SubTaskExecutor subTaskExecutor = new SubTaskExecutor(1, 1, 1);
+    ExecutorService executor = subTaskExecutor.newTaskExecutor("TestTask", null);
+    CountDownLatch gate = new CountDownLatch(1);
+    executor.execute(() -> {
+      try {
+        gate.await();
+      } catch (InterruptedException e) {
+        // Ignore in test.
+      }
+    });
+    executor.execute(() -> { });
+    assertEquals(1, executor.shutdownNow().size());
+    gate.countDown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+  }
+}
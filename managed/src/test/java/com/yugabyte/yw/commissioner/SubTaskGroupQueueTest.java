@@ -0,0 +1,183 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.commissioner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.yugabyte.yw.models.TaskInfo;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SubTaskGroupQueueTest {
+
+  private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+  // A group with no real tasks, which runs the given action on its own thread.
+  private class TestGroup extends SubTaskGroup {
+    private final Runnable action;
+    private final boolean success;
+    private CompletableFuture<Void> future;
+
+    TestGroup(String name, Runnable action, boolean success) {
+      super(name, null);
+      this.action = action;
+      this.success = success;
+    }
+
+    TestGroup(String name) {
+      this(name, () -> { }, true);
+    }
+
+    @Override
+    public void run() {
+      events.add("start " + getName());
+      future = CompletableFuture.runAsync(() -> {
+        action.run();
+        events.add("end " + getName());
+      });
+    }
+
+    @Override
+    public CompletableFuture<Void> whenDone() {
+      return future;
+    }
+
+    @Override
+    public boolean waitFor() {
+      future.join();
+      return success;
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      assertTrue(latch.await(10, TimeUnit.SECONDS));
+    } catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Test
+  public void testGroupsRunInSequenceByDefault() {
+    SubTaskGroupQueue queue = new SubTaskGroupQueue(UUID.randomUUID());
+    queue.add(new TestGroup("a"));
+    queue.add(new TestGroup("b"));
+    queue.add(new TestGroup("c"));
+    queue.run();
+    assertEquals(Arrays.asList("start a", "end a", "start b", "end b", "start c", "end c"),
+        events);
+    assertEquals(3, queue.getCriticalPath().size());
+  }
+
+  @Test
+  public void testIndependentGroupsRunInParallel() {
+    SubTaskGroupQueue queue = new SubTaskGroupQueue(UUID.randomUUID());
+    CountDownLatch bothStarted = new CountDownLatch(2);
+    SubTaskGroup first = new TestGroup("first");
+    // Each of the two groups waits for the other one to start, so they have to run in parallel.
+    SubTaskGroup left = new TestGroup("left", () -> {
+      bothStarted.countDown();
+      await(bothStarted);
+    }, true);
+    SubTaskGroup right = new TestGroup("right", () -> {
+      bothStarted.countDown();
+      await(bothStarted);
+    }, true);
+    SubTaskGroup last = new TestGroup("last");
+    queue.add(first);
+    queue.add(left, Collections.singletonList(first));
+    queue.add(right, Collections.singletonList(first));
+    queue.add(last);
+    queue.run();
+
+    assertEquals("start first", events.get(0));
+    assertEquals("end first", events.get(1));
+    assertEquals("start last", events.get(6));
+    assertEquals("end last", events.get(7));
+    List<SubTaskGroup> criticalPath = queue.getCriticalPath();
+    assertEquals(3, criticalPath.size());
+    assertEquals(first, criticalPath.get(0));
+    assertEquals(last, criticalPath.get(2));
+  }
+
+  @Test
+  public void testSetDependencies() {
+    SubTaskGroupQueue queue = new SubTaskGroupQueue(UUID.randomUUID());
+    CountDownLatch gate = new CountDownLatch(1);
+    SubTaskGroup first = new TestGroup("first");
+    SubTaskGroup slow = new TestGroup("slow", () -> await(gate), true);
+    SubTaskGroup fast = new TestGroup("fast", gate::countDown, true);
+    queue.add(first);
+    queue.add(slow);
+    queue.add(fast);
+    queue.setDependencies(fast, Collections.singletonList(first));
+    queue.add(new TestGroup("last"));
+    // Groups not in the queue are left out.
+    queue.setDependencies(new TestGroup("other"), Collections.emptyList());
+    queue.run();
+
+    // The slow group only ends once the fast one has run next to it.
+    assertTrue(events.indexOf("start fast") < events.indexOf("end slow"));
+    assertTrue(events.indexOf("end fast") < events.indexOf("start last"));
+    assertTrue(events.indexOf("end slow") < events.indexOf("start last"));
+  }
+
+  @Test
+  public void testFailureStopsDependentGroups() {
+    SubTaskGroupQueue queue = new SubTaskGroupQueue(UUID.randomUUID());
+    SubTaskGroup failing = new TestGroup("failing", () -> { }, false);
+    queue.add(failing);
+    queue.add(new TestGroup("next"));
+    try {
+      queue.run();
+      fail("Run should have failed");
+    } catch (RuntimeException e) {
+      assertTrue(e.getMessage().contains("failing"));
+    }
+    assertEquals(Arrays.asList("start failing", "end failing"), events);
+    assertEquals(TaskInfo.State.Failure, failing.getUserSubTaskState());
+  }
+
+  @Test
+  public void testErrorFailsGroup() {
+    SubTaskGroupQueue queue = new SubTaskGroupQueue(UUID.randomUUID());
+    SubTaskGroup failing = new TestGroup("failing") {
+      @Override
+      public boolean waitFor() {
+        super.waitFor();
+        throw new Error("Simulated error");
+      }
+    };
+    queue.add(failing);
+    queue.add(new TestGroup("next"));
+    try {
+      queue.run();
+      fail("Run should have failed");
+    } catch (Error e) {
+      assertEquals("Simulated error", e.getMessage());
+    }
+    assertEquals(Arrays.asList("start failing", "end failing"), events);
+    assertEquals(TaskInfo.State.Failure, failing.getUserSubTaskState());
+  }
+
+  @Test
+  public void testDependencyShouldBeAddedFirst() {
+    SubTaskGroupQueue queue = new SubTaskGroupQueue(UUID.randomUUID());
+    try {
+      queue.add(new TestGroup("a"), Collections.singletonList(new TestGroup("b")));
+      fail("Add should have failed");
+    } catch (IllegalArgumentException e) {
+      // Expected.
+    }
+  }
+}
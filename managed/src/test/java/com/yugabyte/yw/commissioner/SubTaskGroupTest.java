@@ -0,0 +1,258 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.commissioner;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.yugabyte.yw.common.FakeDBApplication;
+import com.yugabyte.yw.forms.AbstractTaskParams;
+import com.yugabyte.yw.models.TaskInfo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class SubTaskGroupTest extends FakeDBApplication {
+  public static final Logger LOG = LoggerFactory.getLogger(SubTaskGroupTest.class);
+
+  // Named after a task type, so that the group can create its TaskInfo.
+  private static class WaitForServer extends AbstractTaskBase {
+    private final Runnable action;
+
+    WaitForServer(Runnable action) {
+      this.action = action;
+      initialize(new AbstractTaskParams());
+    }
+
+    @Override
+    public void run() {
+      action.run();
+    }
+  }
+
+  private ExecutorService executor;
+  private CountDownLatch gate;
+  private UUID userTaskUUID;
+
+  @Before
+  public void setUp() {
+    userTaskUUID = UUID.randomUUID();
+    executor = Executors.newCachedThreadPool();
+    gate = new CountDownLatch(1);
+  }
+
+  @After
+  public void tearDown() {
+    gate.countDown();
+    executor.shutdown();
+  }
+
+  private void waitForGate() {
+    try {
+      gate.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  // Returns the only task that recorded an error.
+  private TaskInfo getFailedTaskInfo() {
+    TaskInfo taskInfo = null;
+    for (TaskInfo info : TaskInfo.find.all()) {
+      if (info.getTaskDetails().path("errorString").isTextual()) {
+        assertEquals(null, taskInfo);
+        taskInfo = info;
+      }
+    }
+    return taskInfo;
+  }
+
+  @Test
+  public void testCompletedTasksAreCountedRightAway() throws Exception {
+    SubTaskGroup subTaskGroup = new SubTaskGroup("TestGroup", executor);
+    subTaskGroup.addTask(new WaitForServer(() -> { }));
+    subTaskGroup.addTask(new WaitForServer(this::waitForGate));
+    subTaskGroup.setTaskContext(0, userTaskUUID);
+    subTaskGroup.run();
+
+    long deadlineMs = System.currentTimeMillis() + 10000;
+    while (subTaskGroup.getNumTasksDone() < 1 && System.currentTimeMillis() < deadlineMs) {
+      Thread.sleep(10);
+    }
+    assertEquals(1, subTaskGroup.getNumTasksDone());
+    assertFalse(subTaskGroup.whenDone().isDone());
+
+    gate.countDown();
+    assertTrue(subTaskGroup.waitFor());
+    assertEquals(2, subTaskGroup.getNumTasksDone());
+  }
+
+  @Test
+  public void testFailureIsNoticedRightAway() {
+    SubTaskGroup subTaskGroup = new SubTaskGroup("TestGroup", executor);
+    subTaskGroup.setCancelOnFailure(true);
+    subTaskGroup.addTask(new WaitForServer(this::waitForGate));
+    subTaskGroup.addTask(new WaitForServer(() -> {
+      throw new RuntimeException("Server is down");
+    }));
+    subTaskGroup.setTaskContext(0, userTaskUUID);
+    subTaskGroup.run();
+
+    // The first task is still running.
+    assertFalse(subTaskGroup.waitFor());
+    assertEquals(1, gate.getCount());
+    TaskInfo taskInfo = getFailedTaskInfo();
+    assertThat(taskInfo.getTaskDetails().get("errorString").asText(),
+        containsString("Server is down"));
+  }
+
+  @Test
+  public void testTimeout() throws Exception {
+    SubTaskGroup subTaskGroup = new SubTaskGroup("TestGroup", executor);
+    subTaskGroup.setTimeout(50);
+    subTaskGroup.addTask(new WaitForServer(() -> { }));
+    subTaskGroup.addTask(new WaitForServer(this::waitForGate));
+    subTaskGroup.setTaskContext(0, userTaskUUID);
+    subTaskGroup.run();
+
+    assertFalse(subTaskGroup.waitFor());
+    assertEquals(1, gate.getCount());
+    // The error is saved on the executor, after the task list failed.
+    long deadlineMs = System.currentTimeMillis() + 10000;
+    while (getFailedTaskInfo() == null && System.currentTimeMillis() < deadlineMs) {
+      Thread.sleep(10);
+    }
+    TaskInfo taskInfo = getFailedTaskInfo();
+    assertThat(taskInfo.getTaskDetails().get("errorString").asText(),
+        containsString("did not complete in 50 ms"));
+  }
+
+  @Test
+  public void testTimeoutCountsFromTaskStart() {
+    // The tasks run one after another, and together take longer than the timeout of each.
+    ExecutorService singleThread = Executors.newSingleThreadExecutor();
+    try {
+      SubTaskGroup subTaskGroup = new SubTaskGroup("TestGroup", singleThread);
+      subTaskGroup.setTimeout(500);
+      for (int i = 0; i < 3; i++) {
+        subTaskGroup.addTask(new WaitForServer(() -> sleep(200)));
+      }
+      subTaskGroup.setTaskContext(0, userTaskUUID);
+      subTaskGroup.run();
+
+      assertTrue(subTaskGroup.waitFor());
+      assertEquals(3, subTaskGroup.getNumTasksDone());
+      assertEquals(null, getFailedTaskInfo());
+    } finally {
+      singleThread.shutdown();
+    }
+  }
+
+  @Test
+  public void testTimeoutInterruptsTaskAndWaitsForIt() {
+    ExecutorService singleThread = Executors.newSingleThreadExecutor();
+    AtomicBoolean hung = new AtomicBoolean(false);
+    AtomicBoolean interrupted = new AtomicBoolean(false);
+    AtomicBoolean returned = new AtomicBoolean(false);
+    AtomicBoolean queuedTaskRan = new AtomicBoolean(false);
+    // The first task to start hangs until interrupted, and holds the only thread.
+    Runnable action = () -> {
+      if (!hung.compareAndSet(false, true)) {
+        queuedTaskRan.set(true);
+        return;
+      }
+      try {
+        Thread.sleep(10000);
+      } catch (InterruptedException e) {
+        interrupted.set(true);
+        // Takes a while to stop, which the task list waits for.
+        sleep(100);
+      } finally {
+        returned.set(true);
+      }
+    };
+    try {
+      SubTaskGroup subTaskGroup = new SubTaskGroup("TestGroup", singleThread);
+      subTaskGroup.setTimeout(50);
+      subTaskGroup.addTask(new WaitForServer(action));
+      subTaskGroup.addTask(new WaitForServer(action));
+      subTaskGroup.setTaskContext(0, userTaskUUID);
+      subTaskGroup.run();
+
+      assertFalse(subTaskGroup.waitFor());
+      assertTrue(interrupted.get());
+      assertTrue(returned.get());
+      // The queued task was skipped.
+      sleep(100);
+      assertFalse(queuedTaskRan.get());
+    } finally {
+      singleThread.shutdown();
+    }
+  }
+
+  @Test
+  public void testTaskInfosSavedWhenAddedToQueue() {
+    SubTaskGroupQueue queue = new SubTaskGroupQueue(userTaskUUID);
+    SubTaskGroup subTaskGroup = new SubTaskGroup("TestGroup", executor);
+    subTaskGroup.addTask(new WaitForServer(() -> { }));
+    subTaskGroup.setSubTaskGroupType(UserTaskDetails.SubTaskGroupType.ConfigureUniverse);
+    assertEquals(0, TaskInfo.find.query().findCount());
+
+    queue.add(subTaskGroup);
+    queue.run();
+    List<TaskInfo> taskInfos = TaskInfo.find.all();
+    assertEquals(1, taskInfos.size());
+    assertEquals(userTaskUUID, taskInfos.get(0).getParentUUID());
+    assertEquals(TaskInfo.State.Success, taskInfos.get(0).getTaskState());
+    assertEquals(UserTaskDetails.SubTaskGroupType.ConfigureUniverse,
+        taskInfos.get(0).getSubTaskGroupType());
+  }
+
+  // Times setting up the subtasks of a large universe, which saves the TaskInfos in batches.
+  @Test
+  public void testLargeUniverseTaskSetup() {
+    int numNodes = 200;
+    long startMs = System.currentTimeMillis();
+    SubTaskGroupQueue queue = new SubTaskGroupQueue(userTaskUUID);
+    for (int i = 0; i < 5; i++) {
+      SubTaskGroup subTaskGroup = new SubTaskGroup("TestGroup" + i, executor);
+      for (int j = 0; j < numNodes; j++) {
+        subTaskGroup.addTask(new WaitForServer(() -> { }));
+      }
+      queue.add(subTaskGroup);
+      subTaskGroup.setSubTaskGroupType(UserTaskDetails.SubTaskGroupType.Provisioning);
+    }
+    long setupMs = System.currentTimeMillis() - startMs;
+    queue.run();
+    LOG.info("Set up {} subtasks in {} ms, ran them in {} ms.", 5 * numNodes, setupMs,
+        System.currentTimeMillis() - startMs - setupMs);
+
+    assertEquals(5 * numNodes, TaskInfo.find.query().where()
+        .eq("parent_uuid", userTaskUUID)
+        .eq("task_state", TaskInfo.State.Success)
+        .eq("sub_task_group_type", UserTaskDetails.SubTaskGroupType.Provisioning)
+        .findCount());
+    assertEquals(numNodes, TaskInfo.find.query().where().eq("position", 4).findCount());
+  }
+}
@@ -0,0 +1,104 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.common.services;
+
+import org.junit.Test;
+import org.yb.client.YBClient;
+
+import play.Configuration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class LocalYBClientServiceTest {
+
+  private LocalYBClientService newService(Long idleTimeoutMs) {
+    Configuration config = mock(Configuration.class);
+    when(config.getLong("yb.client.pool_idle_timeout_ms")).thenReturn(idleTimeoutMs);
+    return new LocalYBClientService(config) {
+      @Override
+      YBClient getNewClient(String masterHPs, String certFile) {
+        return mock(YBClient.class);
+      }
+    };
+  }
+
+  @Test
+  public void testNullMasters() {
+    LocalYBClientService service = newService(null);
+    assertNull(service.getClient(null));
+    assertEquals(0, service.getPoolSize());
+  }
+
+  @Test
+  public void testClientIsShared() throws Exception {
+    LocalYBClientService service = newService(null);
+    YBClient client1 = service.getClient("host1:7100,host2:7100", "/tmp/ca.crt");
+    YBClient client2 = service.getClient("host2:7100,host1:7100", "/tmp/ca.crt");
+    assertSame(client1, client2);
+    assertEquals(1, service.getPoolSize());
+
+    service.closeClient(client1, "host1:7100,host2:7100");
+    service.closeClient(client2, "host2:7100,host1:7100");
+    verify(client1, never()).close();
+    assertEquals(1, service.getPoolSize());
+  }
+
+  @Test
+  public void testClientKeyedByCertAndMasters() {
+    LocalYBClientService service = newService(null);
+    YBClient client1 = service.getClient("host1:7100", null);
+    YBClient client2 = service.getClient("host1:7100", "/tmp/ca.crt");
+    YBClient client3 = service.getClient("host3:7100", null);
+    assertNotSame(client1, client2);
+    assertNotSame(client1, client3);
+    assertEquals(3, service.getPoolSize());
+  }
+
+  @Test
+  public void testIdleClientEvicted() throws Exception {
+    LocalYBClientService service = newService(0L);
+    YBClient client1 = service.getClient("host1:7100");
+    YBClient client2 = service.getClient("host1:7100");
+    service.closeClient(client1, "host1:7100");
+    // Still referenced by the second caller.
+    verify(client1, never()).close();
+    assertEquals(1, service.getPoolSize());
+
+    service.closeClient(client2, "host1:7100");
+    verify(client1, times(1)).close();
+    assertEquals(0, service.getPoolSize());
+    assertNotSame(client1, service.getClient("host1:7100"));
+  }
+
+  @Test
+  public void testIdleClientSweptWithoutCalls() throws Exception {
+    LocalYBClientService service = newService(100L);
+    YBClient client = service.getClient("host1:7100");
+    service.closeClient(client, "host1:7100");
+    assertEquals(1, service.getPoolSize());
+
+    // No more calls come for these masters, so only the periodic sweep can close the client.
+    long deadlineMs = System.currentTimeMillis() + 10000;
+    while (service.getPoolSize() > 0 && System.currentTimeMillis() < deadlineMs) {
+      Thread.sleep(10);
+    }
+    assertEquals(0, service.getPoolSize());
+    verify(client, times(1)).close();
+  }
+
+  @Test
+  public void testUnpooledClientClosed() throws Exception {
+    LocalYBClientService service = newService(null);
+    YBClient client = mock(YBClient.class);
+    service.closeClient(client, "host1:7100");
+    verify(client, times(1)).close();
+  }
+}
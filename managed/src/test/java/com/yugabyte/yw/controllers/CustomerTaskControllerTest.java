@@ -94,6 +94,17 @@ public class CustomerTaskControllerTest extends FakeDBApplication {
     UUID taskUUID = UUID.randomUUID();
     CustomerTask task = CustomerTask.create(customer, targetUUID, taskUUID, targetType, taskType,
         targetName);
+    // Persist the task and ten subtasks, enough of which succeeded to make up its progress.
+    TaskInfo taskInfo = new TaskInfo(TaskType.CreateUniverse);
+    taskInfo.setTaskUUID(taskUUID);
+    taskInfo.setTaskDetails(Json.newObject());
+    taskInfo.setOwner("foobar");
+    taskInfo.setTaskState(TaskInfo.State.valueOf(status));
+    taskInfo.save();
+    for (int position = 0; position < 10; position++) {
+      createSubTask(taskUUID, position, TaskType.AnsibleSetupServer,
+          position * 10 < percentComplete ? TaskInfo.State.Success : TaskInfo.State.Created);
+    }
     responseJson.put("status", status);
     responseJson.put("percent", percentComplete);
     responseJson.put("title", task.getFriendlyDescription());
@@ -217,6 +228,61 @@ public class CustomerTaskControllerTest extends FakeDBApplication {
     assertAuditEntry(0, customer.uuid);
   }
 
+  @Test
+  public void testTaskHistoryPages() {
+    String authToken = user.createAuthToken();
+    UUID universeUUID = UUID.randomUUID();
+    UUID taskUUID1 = createTaskWithStatus(universeUUID, CustomerTask.TargetType.Universe,
+        Create, "Foo", "Success", 100.0);
+    UUID taskUUID2 = createTaskWithStatus(universeUUID, CustomerTask.TargetType.Universe,
+        Update, "Foo", "Running", 50.0);
+    UUID taskUUID3 = createTaskWithStatus(UUID.randomUUID(), CustomerTask.TargetType.Provider,
+        Create, "Bar", "Running", 10.0);
+
+    String url = "/api/customers/" + customer.uuid + "/tasks_page?limit=2";
+    Result result = FakeApiHelper.doRequestWithAuthToken("GET", url, authToken);
+    assertEquals(OK, result.status());
+    JsonNode json = Json.parse(contentAsString(result));
+    JsonNode tasks = json.get("tasks");
+    assertEquals(2, tasks.size());
+    assertEquals(taskUUID3.toString(), tasks.get(0).get("id").asText());
+    assertEquals(10, tasks.get(0).get("percentComplete").asInt());
+    assertEquals(taskUUID2.toString(), tasks.get(1).get("id").asText());
+    assertEquals(50, tasks.get(1).get("percentComplete").asInt());
+    assertEquals("Running", tasks.get(1).get("status").asText());
+
+    // The last page holds the completed task, served from its summary.
+    url = "/api/customers/" + customer.uuid + "/tasks_page?limit=2&cursor=" +
+        json.get("nextCursor").asLong();
+    result = FakeApiHelper.doRequestWithAuthToken("GET", url, authToken);
+    assertEquals(OK, result.status());
+    json = Json.parse(contentAsString(result));
+    tasks = json.get("tasks");
+    assertEquals(1, tasks.size());
+    assertEquals(taskUUID1.toString(), tasks.get(0).get("id").asText());
+    assertEquals(100, tasks.get(0).get("percentComplete").asInt());
+    assertEquals("Success", tasks.get(0).get("status").asText());
+    assertTrue(json.get("nextCursor").isNull());
+
+    url = "/api/customers/" + customer.uuid + "/tasks_page?targetUUID=" + universeUUID;
+    result = FakeApiHelper.doRequestWithAuthToken("GET", url, authToken);
+    assertEquals(OK, result.status());
+    json = Json.parse(contentAsString(result));
+    assertValues(json.get("tasks"), "id",
+        ImmutableList.of(taskUUID1.toString(), taskUUID2.toString()));
+    assertEquals(2, json.get("tasks").size());
+    assertAuditEntry(0, customer.uuid);
+  }
+
+  @Test
+  public void testTaskHistoryInvalidPageLimit() {
+    String authToken = user.createAuthToken();
+    String url = "/api/customers/" + customer.uuid + "/tasks_page?limit=0";
+    Result result = FakeApiHelper.doRequestWithAuthToken("GET", url, authToken);
+    assertEquals(BAD_REQUEST, result.status());
+    assertAuditEntry(0, customer.uuid);
+  }
+
   @Test
   public void testTaskCompletionTime() {
     String authToken = user.createAuthToken();
@@ -34,8 +34,10 @@ import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyMap;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -147,6 +149,32 @@ public class MetricQueryHelperTest extends FakeDBApplication {
     assertThat(Integer.parseInt(graphQueryParam.get("step")), allOf(notNullValue(), equalTo(6)));
   }
 
+  @Test
+  public void testQueryResponseCached() {
+    HashMap<String, String> params = new HashMap<>();
+    params.put("start", "1481147528");
+    params.put("end", "1481148128");
+
+    JsonNode responseJson = Json.parse("{\"status\":\"success\",\"data\":{\"resultType\":\"vector\",\"result\":[{\"metric\":\n" +
+                                         " {\"cpu\":\"system\"},\"value\":[1479278137,\"0.027751899056199826\"]}]}}");
+
+    when(mockAppConfig.getLong(eq("yb.metrics.cache_ttl_ms"), anyLong())).thenReturn(60000L);
+    when(mockApiHelper.getRequest(anyString(), anyMap(), anyMap())).thenReturn(responseJson);
+    JsonNode result1 = metricQueryHelper.query(ImmutableList.of("valid_metric"), new HashMap<>(params));
+    // A range shifted by less than the step falls into the same bucket.
+    params.put("start", "1481147529");
+    params.put("end", "1481148129");
+    JsonNode result2 = metricQueryHelper.query(ImmutableList.of("valid_metric"), new HashMap<>(params));
+    verify(mockApiHelper, times(1)).getRequest(anyString(), anyMap(), anyMap());
+    assertEquals(result1, result2);
+
+    // A different time bucket goes upstream again.
+    params.put("start", "1481157528");
+    params.put("end", "1481158128");
+    metricQueryHelper.query(ImmutableList.of("valid_metric"), new HashMap<>(params));
+    verify(mockApiHelper, times(2)).getRequest(anyString(), anyMap(), anyMap());
+  }
+
   @Test
   public void testDirectQuerySingleValue() {
 
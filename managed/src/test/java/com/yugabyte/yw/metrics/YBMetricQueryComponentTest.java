@@ -4,6 +4,7 @@ package com.yugabyte.yw.metrics;
 
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -22,6 +23,7 @@ import org.mockito.InjectMocks;
 import org.mockito.stubbing.OngoingStubbing;
 import play.libs.Json;
 
+import java.net.InetSocketAddress;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.List;
@@ -29,10 +31,22 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyMap;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
@@ -41,6 +55,7 @@ import static org.mockito.Mockito.when;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.core.AllOf.allOf;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 import static com.yugabyte.yw.metrics.YBMetricQueryComponent.Function.Sum;
@@ -209,4 +224,140 @@ public class YBMetricQueryComponentTest extends FakeDBApplication {
                                                        2323253L, (400.0 / 3) * 3);
     assertEquals(expectedValues, ybMetricQueryComponent.calculateRate(allRS, Sum, 3));
   }
+
+  // Connects to fake universes: each connection gets a mock session, and the nodes of each
+  // universe can be changed by the test.
+  private static class TestQueryComponent extends YBMetricQueryComponent {
+    final Map<UUID, List<InetSocketAddress>> nodes = new ConcurrentHashMap<>();
+    final AtomicInteger numConnects = new AtomicInteger(0);
+    volatile CountDownLatch connectGate = null;
+    final CountDownLatch connectStarted = new CountDownLatch(1);
+
+    @Override
+    CassandraConnection createCassandraConnection(List<InetSocketAddress> addresses,
+                                                  String certificate) {
+      CountDownLatch gate = connectGate;
+      if (gate != null) {
+        connectStarted.countDown();
+        try {
+          gate.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+      }
+      numConnects.incrementAndGet();
+      CassandraConnection cc = new CassandraConnection(addresses, certificate);
+      cc.session = Mockito.mock(Session.class);
+      return cc;
+    }
+
+    @Override
+    List<InetSocketAddress> getNodeAddresses(UUID universeUUID) {
+      return nodes.get(universeUUID);
+    }
+
+    @Override
+    String getCertificate(UUID universeUUID) {
+      return null;
+    }
+  }
+
+  private static List<InetSocketAddress> addresses(String... hosts) {
+    List<InetSocketAddress> addresses = new ArrayList<>();
+    for (String host : hosts) {
+      addresses.add(InetSocketAddress.createUnresolved(host, 9042));
+    }
+    return addresses;
+  }
+
+  @Test
+  public void testConnectionReused() {
+    TestQueryComponent component = new TestQueryComponent();
+    UUID universeUUID = UUID.randomUUID();
+    component.nodes.put(universeUUID, addresses("host1", "host2"));
+
+    YBMetricQueryComponent.CassandraConnection cc1 = component.acquireConnection(universeUUID);
+    YBMetricQueryComponent.CassandraConnection cc2 = component.acquireConnection(universeUUID);
+    component.releaseConnection(cc1);
+    component.releaseConnection(cc2);
+    YBMetricQueryComponent.CassandraConnection cc3 = component.acquireConnection(universeUUID);
+    component.releaseConnection(cc3);
+
+    assertSame(cc1, cc2);
+    assertSame(cc1, cc3);
+    assertEquals(1, component.numConnects.get());
+    verify(cc1.session, never()).closeAsync();
+  }
+
+  @Test
+  public void testConnectionReplacedWhenNodesChange() {
+    TestQueryComponent component = new TestQueryComponent();
+    UUID universeUUID = UUID.randomUUID();
+    component.nodes.put(universeUUID, addresses("host1"));
+    YBMetricQueryComponent.CassandraConnection oldConnection =
+        component.acquireConnection(universeUUID);
+
+    component.nodes.put(universeUUID, addresses("host1", "host2"));
+    YBMetricQueryComponent.CassandraConnection newConnection =
+        component.acquireConnection(universeUUID);
+    assertNotSame(oldConnection, newConnection);
+    // The old connection is still used by the first query.
+    verify(oldConnection.session, never()).closeAsync();
+
+    component.releaseConnection(oldConnection);
+    verify(oldConnection.session).closeAsync();
+    component.releaseConnection(newConnection);
+    verify(newConnection.session, never()).closeAsync();
+  }
+
+  @Test
+  public void testIdleConnectionEvicted() {
+    TestQueryComponent component = new TestQueryComponent();
+    component.connectionIdleTimeoutMs = 0;
+    UUID universe1 = UUID.randomUUID();
+    UUID universe2 = UUID.randomUUID();
+    component.nodes.put(universe1, addresses("host1"));
+    component.nodes.put(universe2, addresses("host2"));
+
+    YBMetricQueryComponent.CassandraConnection cc1 = component.acquireConnection(universe1);
+    YBMetricQueryComponent.CassandraConnection cc2 = component.acquireConnection(universe2);
+    // A connection in use is not evicted.
+    verify(cc1.session, never()).closeAsync();
+    component.releaseConnection(cc1);
+
+    component.releaseConnection(component.acquireConnection(universe2));
+    verify(cc1.session).closeAsync();
+    verify(cc2.session, never()).closeAsync();
+    YBMetricQueryComponent.CassandraConnection cc3 = component.acquireConnection(universe1);
+    assertNotSame(cc1, cc3);
+    assertEquals(3, component.numConnects.get());
+    component.releaseConnection(cc2);
+    component.releaseConnection(cc3);
+  }
+
+  @Test
+  public void testSlowUniverseDoesNotBlockOthers() throws Exception {
+    TestQueryComponent component = new TestQueryComponent();
+    UUID slowUniverse = UUID.randomUUID();
+    UUID universe = UUID.randomUUID();
+    component.nodes.put(slowUniverse, addresses("host1"));
+    component.nodes.put(universe, addresses("host2"));
+    CountDownLatch gate = new CountDownLatch(1);
+    component.connectGate = gate;
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    Future<YBMetricQueryComponent.CassandraConnection> slowConnection =
+        executor.submit(() -> component.acquireConnection(slowUniverse));
+    // Wait for the slow universe to hold its lock while connecting.
+    assertTrue(component.connectStarted.await(10, TimeUnit.SECONDS));
+    component.connectGate = null;
+    YBMetricQueryComponent.CassandraConnection cc = component.acquireConnection(universe);
+    assertFalse(slowConnection.isDone());
+    component.releaseConnection(cc);
+
+    gate.countDown();
+    component.releaseConnection(slowConnection.get(10, TimeUnit.SECONDS));
+    executor.shutdown();
+    assertEquals(2, component.numConnects.get());
+  }
 }
@@ -0,0 +1,139 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.models;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.yugabyte.yw.common.FakeDBApplication;
+import com.yugabyte.yw.models.helpers.TaskType;
+
+import org.junit.Test;
+
+import play.libs.Json;
+
+public class TaskInfoTest extends FakeDBApplication {
+
+  private TaskInfo createTask(TaskInfo.State state) {
+    TaskInfo taskInfo = new TaskInfo(TaskType.CreateUniverse);
+    taskInfo.setTaskUUID(UUID.randomUUID());
+    taskInfo.setTaskDetails(Json.newObject());
+    taskInfo.setOwner("host1");
+    taskInfo.setTaskState(state);
+    taskInfo.save();
+    return taskInfo;
+  }
+
+  private void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      // Ignore in test.
+    }
+  }
+
+  private void createSubTask(UUID parentUUID, TaskInfo.State state) {
+    TaskInfo subTask = new TaskInfo(TaskType.AnsibleSetupServer);
+    subTask.setParentUuid(parentUUID);
+    subTask.setTaskDetails(Json.newObject());
+    subTask.setOwner("host1");
+    subTask.setTaskState(state);
+    subTask.save();
+  }
+
+  @Test
+  public void testGetSubTaskStateCounts() {
+    TaskInfo task1 = createTask(TaskInfo.State.Running);
+    TaskInfo task2 = createTask(TaskInfo.State.Running);
+    TaskInfo task3 = createTask(TaskInfo.State.Running);
+    createSubTask(task1.getTaskUUID(), TaskInfo.State.Success);
+    createSubTask(task1.getTaskUUID(), TaskInfo.State.Success);
+    createSubTask(task1.getTaskUUID(), TaskInfo.State.Running);
+    createSubTask(task2.getTaskUUID(), TaskInfo.State.Created);
+
+    Map<UUID, Map<TaskInfo.State, Integer>> counts = TaskInfo.getSubTaskStateCounts(Arrays.asList(
+        task1.getTaskUUID(), task2.getTaskUUID(), task3.getTaskUUID()));
+    assertEquals(2, counts.size());
+    assertEquals(Integer.valueOf(2), counts.get(task1.getTaskUUID()).get(TaskInfo.State.Success));
+    assertEquals(Integer.valueOf(1), counts.get(task1.getTaskUUID()).get(TaskInfo.State.Running));
+    assertEquals(Integer.valueOf(1), counts.get(task2.getTaskUUID()).get(TaskInfo.State.Created));
+    assertNull(counts.get(task3.getTaskUUID()));
+
+    assertEquals(200.0 / 3, task1.getPercentCompleted(), 0.001);
+    assertEquals(0.0, task2.getPercentCompleted(), 0.001);
+    assertEquals(0.0, task3.getPercentCompleted(), 0.001);
+  }
+
+  @Test
+  public void testManyTasksQueriedInChunks() {
+    TaskInfo task1 = createTask(TaskInfo.State.Running);
+    TaskInfo task2 = createTask(TaskInfo.State.Running);
+    createSubTask(task1.getTaskUUID(), TaskInfo.State.Success);
+    createSubTask(task2.getTaskUUID(), TaskInfo.State.Running);
+    // The two tasks end up in different chunks.
+    List<UUID> taskUUIDs = new ArrayList<>();
+    taskUUIDs.add(task1.getTaskUUID());
+    for (int i = 0; i < TaskInfo.MAX_TASKS_PER_QUERY; i++) {
+      taskUUIDs.add(UUID.randomUUID());
+    }
+    taskUUIDs.add(task2.getTaskUUID());
+
+    Map<UUID, Map<TaskInfo.State, Integer>> counts = TaskInfo.getSubTaskStateCounts(taskUUIDs);
+    assertEquals(2, counts.size());
+    assertEquals(Integer.valueOf(1), counts.get(task1.getTaskUUID()).get(TaskInfo.State.Success));
+    assertEquals(Integer.valueOf(1), counts.get(task2.getTaskUUID()).get(TaskInfo.State.Running));
+    assertEquals(2, TaskInfo.getAll(taskUUIDs).size());
+    assertEquals(2, TaskInfo.updateHeartbeats(taskUUIDs));
+  }
+
+  @Test
+  public void testUpdateHeartbeats() {
+    TaskInfo task1 = createTask(TaskInfo.State.Running);
+    TaskInfo task2 = createTask(TaskInfo.State.Running);
+    TaskInfo task3 = createTask(TaskInfo.State.Running);
+    Date task3UpdateTime = TaskInfo.get(task3.getTaskUUID()).getLastUpdateTime();
+    sleep(10);
+
+    Date beforeHeartbeat = new Date();
+    assertEquals(2, TaskInfo.updateHeartbeats(
+        Arrays.asList(task1.getTaskUUID(), task2.getTaskUUID())));
+    assertFalse(TaskInfo.get(task1.getTaskUUID()).getLastUpdateTime().before(beforeHeartbeat));
+    assertFalse(TaskInfo.get(task2.getTaskUUID()).getLastUpdateTime().before(beforeHeartbeat));
+    assertEquals(task3UpdateTime, TaskInfo.get(task3.getTaskUUID()).getLastUpdateTime());
+    assertEquals(0, TaskInfo.updateHeartbeats(Collections.emptyList()));
+  }
+
+  @Test
+  public void testGetStaleTasks() {
+    TaskInfo running = createTask(TaskInfo.State.Running);
+    createTask(TaskInfo.State.Success);
+    sleep(10);
+    Date cutoff = new Date();
+    createTask(TaskInfo.State.Running);
+
+    List<TaskInfo> staleTasks = TaskInfo.getStaleTasks(cutoff);
+    assertEquals(1, staleTasks.size());
+    assertEquals(running.getTaskUUID(), staleTasks.get(0).getTaskUUID());
+
+    TaskInfo.updateHeartbeats(Collections.singletonList(running.getTaskUUID()));
+    assertTrue(TaskInfo.getStaleTasks(cutoff).isEmpty());
+  }
+
+  @Test
+  public void testClaimIfStale() {
+    TaskInfo task = createTask(TaskInfo.State.Running);
+    sleep(10);
+    Date cutoff = new Date();
+    assertTrue(task.claimIfStale(cutoff, "host2"));
+    // The claim refreshed the heartbeat, so a second claim must lose.
+    assertFalse(TaskInfo.get(task.getTaskUUID()).claimIfStale(cutoff, "host3"));
+    assertTrue(TaskInfo.getStaleTasks(cutoff).isEmpty());
+  }
+}
@@ -38,6 +38,7 @@ import play.libs.Json;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.yugabyte.yw.common.ModelFactory.createUniverse;
 import static org.hamcrest.CoreMatchers.*;
@@ -113,6 +114,51 @@ public class UniverseTest extends FakeDBApplication {
     Universe u = Universe.get(unknownUUID);
   }
 
+  @Test
+  public void testGetReturnsCopyOfCachedDetails() {
+    Universe u = createUniverse(defaultCustomer.getCustomerId());
+    Universe u1 = Universe.get(u.universeUUID);
+    Universe u2 = Universe.get(u.universeUUID);
+    assertNotSame(u1.getUniverseDetails(), u2.getUniverseDetails());
+    u1.getUniverseDetails().nodePrefix = "modified";
+    assertEquals(u.getUniverseDetails().nodePrefix,
+                 Universe.get(u.universeUUID).getUniverseDetails().nodePrefix);
+
+    Universe r1 = Universe.getReadOnly(u.universeUUID);
+    Universe r2 = Universe.getReadOnly(u.universeUUID);
+    assertSame(r1.getUniverseDetails(), r2.getUniverseDetails());
+    assertEquals(u.name, r1.name);
+    assertEquals(u.version, r1.version);
+  }
+
+  @Test
+  public void testCacheInvalidatedBySaveDetails() {
+    Universe u = createUniverse(defaultCustomer.getCustomerId());
+    Universe cached = Universe.getReadOnly(u.universeUUID);
+    assertFalse(cached.getUniverseDetails().updateInProgress);
+
+    Universe.saveDetails(u.universeUUID, universe -> {
+      UniverseDefinitionTaskParams details = universe.getUniverseDetails();
+      details.updateInProgress = true;
+      universe.setUniverseDetails(details);
+    });
+
+    Universe updated = Universe.getReadOnly(u.universeUUID);
+    assertEquals(cached.version + 1, updated.version);
+    assertTrue(updated.getUniverseDetails().updateInProgress);
+    assertTrue(Universe.get(u.universeUUID).getUniverseDetails().updateInProgress);
+    // The instance handed out earlier is left untouched.
+    assertFalse(cached.getUniverseDetails().updateInProgress);
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void testGetDeletedUniverse() {
+    Universe u = createUniverse(defaultCustomer.getCustomerId());
+    Universe.getReadOnly(u.universeUUID);
+    Universe.delete(u.universeUUID);
+    Universe.getReadOnly(u.universeUUID);
+  }
+
   @Test
   public void testParallelSaveDetails() {
     int numNodes = 100;
@@ -136,6 +182,65 @@ public class UniverseTest extends FakeDBApplication {
     assertEquals(numNodes + 1, updUniv.version);
   }
 
+  @Test
+  public void testSaveDetailsOnDifferentUniversesRunInParallel() throws Exception {
+    Universe u1 = createUniverse("Universe1", defaultCustomer.getCustomerId());
+    Universe u2 = createUniverse("Universe2", defaultCustomer.getCustomerId());
+    CountDownLatch u1Updating = new CountDownLatch(1);
+    CountDownLatch u2Updated = new CountDownLatch(1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    // The first update holds its universe lock until the second universe has been updated, which
+    // can only finish if the two updates do not share a lock.
+    Future<Boolean> u1Result = executor.submit(() -> {
+      Universe.saveDetails(u1.universeUUID, universe -> {
+        u1Updating.countDown();
+        try {
+          assertTrue(u2Updated.await(30, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+      });
+      return true;
+    });
+    assertTrue(u1Updating.await(30, TimeUnit.SECONDS));
+    Universe.saveDetails(u2.universeUUID, universe -> {});
+    u2Updated.countDown();
+    assertTrue(u1Result.get(30, TimeUnit.SECONDS));
+    executor.shutdown();
+    assertEquals(2, Universe.get(u1.universeUUID).version);
+    assertEquals(2, Universe.get(u2.universeUUID).version);
+  }
+
+  @Test
+  public void testSaveDetailsOnSameUniverseRunOneAtATime() throws Exception {
+    Universe u = createUniverse(defaultCustomer.getCustomerId());
+    int numThreads = 4;
+    int numUpdates = 10;
+    AtomicInteger numUpdating = new AtomicInteger(0);
+    AtomicInteger maxUpdating = new AtomicInteger(0);
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    List<Future<?>> results = new ArrayList<>();
+    // The lock entry of the universe comes and goes as the threads are done with it, which should
+    // never let two updates run at the same time.
+    for (int i = 0; i < numThreads; i++) {
+      results.add(executor.submit(() -> {
+        for (int j = 0; j < numUpdates; j++) {
+          Universe.saveDetails(u.universeUUID, universe -> {
+            maxUpdating.accumulateAndGet(numUpdating.incrementAndGet(), Math::max);
+            Thread.yield();
+            numUpdating.decrementAndGet();
+          });
+        }
+      }));
+    }
+    for (Future<?> result : results) {
+      result.get(30, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+    assertEquals(1, maxUpdating.get());
+    assertEquals(numThreads * numUpdates + 1, Universe.get(u.universeUUID).version);
+  }
+
   @Test
   public void testSaveDetails() {
     Universe u = createUniverse(defaultCustomer.getCustomerId());